@@ -0,0 +1,193 @@
+package com.yonyou.dbtreeview.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 过期后先返回旧值再后台刷新的缓存
+ * 只有首次加载需要等待，同一个键的并发首次读取共用一次加载；之后的读取总是立即返回，
+ * 过期的值由后台线程用最近一次读取传入的加载方式重新加载，加载失败时保留旧值
+ *
+ * @param <V> 缓存值类型
+ */
+public class StaleWhileRevalidateCache<V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(StaleWhileRevalidateCache.class);
+
+    /**
+     * 值加载
+     */
+    public interface Loader<V> {
+        V load() throws Exception;
+    }
+
+    private final String name;
+    private final long freshMillis;
+    private final long maxIdleMillis;
+    private final ExecutorService executor;
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<V>> initialLoads = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+
+    /**
+     * @param name 缓存名称，用于日志和指标
+     * @param freshMillis 值保持新鲜的时长，超过后读取会触发后台刷新
+     * @param maxIdleMillis 超过该时长未被读取的条目不再定期刷新并被移除
+     * @param executor 后台刷新线程池
+     */
+    public StaleWhileRevalidateCache(String name, long freshMillis, long maxIdleMillis, ExecutorService executor) {
+        this.name = name;
+        this.freshMillis = freshMillis;
+        this.maxIdleMillis = maxIdleMillis;
+        this.executor = executor;
+    }
+
+    /**
+     * 读取缓存，不存在时同步加载，已过期时返回旧值并在后台刷新
+     *
+     * @param key 缓存键
+     * @param loader 加载方式，替换条目原有的加载方式，之后的后台刷新使用调用方当前的配置
+     * @return 缓存值
+     */
+    public V get(String key, Loader<V> loader) throws Exception {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return loadInitial(key, loader);
+        }
+        entry.loader = loader;
+        entry.lastAccess = System.currentTimeMillis();
+        if (entry.isStale(freshMillis)) {
+            staleHits.incrementAndGet();
+            refreshAsync(key, entry);
+        } else {
+            hits.incrementAndGet();
+        }
+        return entry.value;
+    }
+
+    /**
+     * 后台刷新所有过期且近期被读取过的条目，长时间未读取的条目直接移除
+     */
+    public void refreshStale() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Entry<V>> item : entries.entrySet()) {
+            Entry<V> entry = item.getValue();
+            if (now - entry.lastAccess > maxIdleMillis) {
+                entries.remove(item.getKey(), entry);
+            } else if (entry.isStale(freshMillis)) {
+                refreshAsync(item.getKey(), entry);
+            }
+        }
+    }
+
+    /**
+     * 移除条目
+     *
+     * @param key 缓存键
+     */
+    public void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    /**
+     * 获取缓存统计
+     *
+     * @return 条目数和命中情况
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("name", name);
+        metrics.put("entries", entries.size());
+        metrics.put("hits", hits.get());
+        metrics.put("staleHits", staleHits.get());
+        metrics.put("loads", loads.get());
+        metrics.put("refreshFailures", refreshFailures.get());
+        return metrics;
+    }
+
+    /**
+     * 首次加载，同一个键只有一个调用方执行加载，其余调用方等待同一个结果
+     */
+    private V loadInitial(String key, Loader<V> loader) throws Exception {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = initialLoads.putIfAbsent(key, future);
+        if (inFlight != null) {
+            try {
+                return inFlight.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+            }
+        }
+        try {
+            // 等待期间可能已有其他调用方完成加载
+            Entry<V> existing = entries.get(key);
+            if (existing != null) {
+                future.complete(existing.value);
+                return existing.value;
+            }
+            loads.incrementAndGet();
+            V value = loader.load();
+            entries.put(key, new Entry<>(loader, value));
+            future.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            initialLoads.remove(key, future);
+        }
+    }
+
+    private void refreshAsync(String key, Entry<V> entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    loads.incrementAndGet();
+                    entry.value = entry.loader.load();
+                    entry.loadedAt = System.currentTimeMillis();
+                } catch (Exception e) {
+                    refreshFailures.incrementAndGet();
+                    logger.warn("刷新{}缓存 {} 失败，继续使用旧值: {}", name, key, e.getMessage());
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private static class Entry<V> {
+        volatile Loader<V> loader;
+        final AtomicBoolean refreshing = new AtomicBoolean(false);
+        volatile V value;
+        volatile long loadedAt = System.currentTimeMillis();
+        volatile long lastAccess = loadedAt;
+
+        Entry(Loader<V> loader, V value) {
+            this.loader = loader;
+            this.value = value;
+        }
+
+        boolean isStale(long freshMillis) {
+            return System.currentTimeMillis() - loadedAt > freshMillis;
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package com.yonyou.dbtreeview.cache;
+
+import com.yonyou.dbtreeview.datasource.DbConnectionManager;
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 关联树变更监视器
+ * 无法订阅binlog时，定期对关联树读取的各表按iBillId/billnumber/filtersId分组计算COUNT(*)和修改时间最大值作为指纹，
+ * 只重建指纹发生变化的表单。每轮检查的表单数有上限，轮询开销作为指标输出。
+ * 每个响应变体记录自己构建时的指纹，从磁盘还原的响应带着写入时的指纹，不会错过只在磁盘上期间发生的变化
+ */
+@Component
+public class TreeChangeWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(TreeChangeWatcher.class);
+
+    /**
+     * 重建缓存的响应
+     */
+    public interface RefreshHandler {
+        /**
+         * 同一表单、同一实体表显示方式的变体只构建一次关联树，再按各自的编码格式写入缓存
+         *
+         * @param variants 同一表单、同一showEntityTables的变体
+         * @param fingerprint 检测到的当前指纹，重建结果与之对应
+         */
+        void refresh(List<TreeVariant> variants, String fingerprint) throws Exception;
+    }
+
+    private enum KeyKind { BILL_NO, BILL_ID, FILTER_ID }
+
+    /**
+     * 参与指纹计算的表，与DbRelationServiceImpl读取的表一致
+     */
+    private static final List<FingerprintTable> TABLES = Arrays.asList(
+            new FingerprintTable("bill_base", "bill_base", "cBillNo", "tenant_id", "", KeyKind.BILL_NO),
+            new FingerprintTable("billentity_base", "billentity_base", "iBillId", "tenant_id", "", KeyKind.BILL_ID),
+            new FingerprintTable("billtemplate_base", "billtemplate_base", "iBillId", "tenant_id", "", KeyKind.BILL_ID),
+            new FingerprintTable("billtplgroup_base", "billtplgroup_base", "iBillId", "tenant_id", "", KeyKind.BILL_ID),
+            new FingerprintTable("billitem_base", "billitem_base", "iBillId", "tenant_id", "", KeyKind.BILL_ID),
+            new FingerprintTable("bill_toolbar", "bill_toolbar", "billnumber", "tenant_id", "", KeyKind.BILL_NO),
+            new FingerprintTable("bill_toolbaritem", "bill_toolbaritem", "billnumber", "tenant_id", "", KeyKind.BILL_NO),
+            new FingerprintTable("bill_command", "bill_command", "billnumber", "tenant_id", "", KeyKind.BILL_NO),
+            new FingerprintTable("pb_meta_filters", "pb_meta_filters", "id", "tenant_id", "", KeyKind.FILTER_ID),
+            new FingerprintTable("pb_meta_filter_item", "pb_meta_filter_item", "filtersId", "tenant_id", "", KeyKind.FILTER_ID),
+            new FingerprintTable("pb_filter_solution", "pb_filter_solution", "filtersId", "tenant_id", "", KeyKind.FILTER_ID),
+            new FingerprintTable("pb_filter_solution_common",
+                    "pb_filter_solution_common c JOIN pb_filter_solution s ON c.solutionId = s.id",
+                    "s.filtersId", "c.tenant_id", "c.", KeyKind.FILTER_ID)
+    );
+
+    @Value("${app.tree-watch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.tree-watch.interval-ms:30000}")
+    private long intervalMillis;
+
+    @Value("${app.tree-watch.modified-column:pubts}")
+    private String modifiedColumn;
+
+    @Value("${app.tree-watch.max-bills-per-cycle:500}")
+    private int maxBillsPerCycle;
+
+    @Value("${app.tree-watch.query-timeout-seconds:5}")
+    private int queryTimeoutSeconds;
+
+    @Autowired
+    private DbConnectionManager connectionManager;
+
+    @Autowired
+    private TreeResponseCache treeResponseCache;
+
+    private volatile RefreshHandler refreshHandler;
+
+    private final Map<String, TreeVariant> variants = new ConcurrentHashMap<>();
+    /**
+     * 没有修改时间列的表（按数据库区分），只按行数计算指纹
+     */
+    private final Set<String> countOnlyTables = ConcurrentHashMap.newKeySet();
+    private int pollOffset;
+
+    private final AtomicLong cycles = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong pollMillisTotal = new AtomicLong();
+    private final AtomicLong lastPollMillis = new AtomicLong();
+    private final AtomicLong checkedBills = new AtomicLong();
+    private final AtomicLong changedBills = new AtomicLong();
+    private final AtomicLong refreshed = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+    private final AtomicLong pollFailures = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "tree-change-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::poll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public void setRefreshHandler(RefreshHandler refreshHandler) {
+        this.refreshHandler = refreshHandler;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 跟踪一个已缓存的响应，变体未带指纹时以下一轮检查的结果为基准
+     *
+     * @param variant 缓存的响应变体
+     */
+    public void watch(TreeVariant variant) {
+        if (enabled) {
+            variants.put(variant.getKey(), variant);
+        }
+    }
+
+    /**
+     * 立即计算一个表单的当前指纹
+     *
+     * @param variant 响应变体，需带bill_base.id
+     * @return 指纹，未启用变更检查时返回null
+     */
+    public String fingerprint(TreeVariant variant) throws SQLException {
+        if (!enabled) {
+            return null;
+        }
+        return computeFingerprints(Collections.singletonList(variant)).get(variant.getBillKey());
+    }
+
+    /**
+     * 构建关联树之前在主库上读取表单的关联键并计算指纹
+     * 先取指纹、再从主库构建，构建期间发生的写入只会让指纹偏旧，下一轮检查时多重建一次，而不会被新指纹掩盖
+     *
+     * @return 带指纹的变体，未启用变更检查或表单不存在时返回null
+     */
+    public TreeVariant prepare(String key, String environment, String dbName, String billNo, String ytenant_id, DbConfigDTO dbConfig,
+                               boolean showEntityTables, TreeWireFormat format) throws SQLException {
+        if (!enabled) {
+            return null;
+        }
+        try (Connection conn = connectionManager.getConnection(dbName, dbConfig)) {
+            TreeVariant variant;
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT id, cFilterId FROM bill_base WHERE cBillNo = ? AND tenant_id = ?")) {
+                stmt.setQueryTimeout(queryTimeoutSeconds);
+                stmt.setString(1, billNo);
+                stmt.setString(2, ytenant_id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    variant = new TreeVariant(key, environment, dbName, billNo, ytenant_id, dbConfig,
+                            showEntityTables, format, rs.getString(1), rs.getString(2));
+                }
+            }
+            queries.incrementAndGet();
+            variant.setFingerprint(computeFingerprints(conn, Collections.singletonList(variant)).get(variant.getBillKey()));
+            return variant;
+        }
+    }
+
+    /**
+     * 执行一轮检查
+     */
+    void poll() {
+        long start = System.currentTimeMillis();
+        try {
+            // 已被淘汰或失效的响应不再跟踪
+            variants.values().removeIf(variant -> !treeResponseCache.contains(variant.getKey()));
+
+            // 按表单去重，超过上限时轮流检查
+            Map<String, List<TreeVariant>> bills = new TreeMap<>();
+            for (TreeVariant variant : variants.values()) {
+                bills.computeIfAbsent(variant.getBillKey(), key -> new ArrayList<>()).add(variant);
+            }
+            List<List<TreeVariant>> selected = selectBills(new ArrayList<>(bills.values()));
+
+            Map<String, List<List<TreeVariant>>> groups = new LinkedHashMap<>();
+            for (List<TreeVariant> bill : selected) {
+                groups.computeIfAbsent(bill.get(0).getGroupKey(), key -> new ArrayList<>()).add(bill);
+            }
+            for (List<List<TreeVariant>> group : groups.values()) {
+                try {
+                    checkGroup(group);
+                } catch (SQLException e) {
+                    pollFailures.incrementAndGet();
+                    logger.warn("计算关联树指纹失败 {}: {}", group.get(0).get(0).getGroupKey(), e.getMessage());
+                }
+            }
+        } catch (RuntimeException e) {
+            pollFailures.incrementAndGet();
+            logger.warn("关联树变更检查失败: {}", e.getMessage());
+        } finally {
+            long elapsed = System.currentTimeMillis() - start;
+            cycles.incrementAndGet();
+            lastPollMillis.set(elapsed);
+            pollMillisTotal.addAndGet(elapsed);
+        }
+    }
+
+    private List<List<TreeVariant>> selectBills(List<List<TreeVariant>> bills) {
+        if (bills.size() <= maxBillsPerCycle) {
+            return bills;
+        }
+        List<List<TreeVariant>> selected = new ArrayList<>(maxBillsPerCycle);
+        int offset = pollOffset % bills.size();
+        for (int i = 0; i < maxBillsPerCycle; i++) {
+            selected.add(bills.get((offset + i) % bills.size()));
+        }
+        pollOffset = offset + maxBillsPerCycle;
+        return selected;
+    }
+
+    /**
+     * 检查同一数据库、同一租户下的一组表单，每张表一条GROUP BY查询
+     */
+    private void checkGroup(List<List<TreeVariant>> bills) throws SQLException {
+        List<TreeVariant> representatives = new ArrayList<>(bills.size());
+        for (List<TreeVariant> bill : bills) {
+            representatives.add(bill.get(0));
+        }
+        Map<String, String> current = computeFingerprints(representatives);
+
+        for (List<TreeVariant> bill : bills) {
+            String billKey = bill.get(0).getBillKey();
+            String fingerprint = current.get(billKey);
+            checkedBills.incrementAndGet();
+            List<TreeVariant> stale = new ArrayList<>();
+            for (TreeVariant variant : bill) {
+                String previous = variant.getFingerprint();
+                if (previous == null) {
+                    variant.setFingerprint(fingerprint);
+                } else if (!previous.equals(fingerprint)) {
+                    stale.add(variant);
+                }
+            }
+            if (!stale.isEmpty()) {
+                changedBills.incrementAndGet();
+                logger.info("表单 {} 的关联数据已变化，重建缓存的关联树", billKey);
+                refresh(stale, fingerprint);
+            }
+        }
+    }
+
+    /**
+     * 计算同一数据库、同一租户下一组表单的指纹
+     *
+     * @param bills 每个表单取一个变体
+     * @return 表单键到指纹的映射
+     */
+    private Map<String, String> computeFingerprints(List<TreeVariant> bills) throws SQLException {
+        TreeVariant first = bills.get(0);
+        try (Connection conn = connectionManager.getConnection(first.getDbName(), first.getDbConfig())) {
+            return computeFingerprints(conn, bills);
+        }
+    }
+
+    private Map<String, String> computeFingerprints(Connection conn, List<TreeVariant> bills) throws SQLException {
+        TreeVariant first = bills.get(0);
+        Map<String, StringBuilder> current = new HashMap<>();
+        for (TreeVariant bill : bills) {
+            current.put(bill.getBillKey(), new StringBuilder());
+        }
+
+        for (FingerprintTable table : TABLES) {
+            Map<String, List<String>> keyToBills = new HashMap<>();
+            for (TreeVariant bill : bills) {
+                String key = table.keyOf(bill);
+                if (key != null && !key.isEmpty()) {
+                    keyToBills.computeIfAbsent(key, k -> new ArrayList<>()).add(bill.getBillKey());
+                }
+            }
+            if (!keyToBills.isEmpty()) {
+                appendFingerprints(conn, first, table, keyToBills, current);
+            }
+        }
+
+        Map<String, String> fingerprints = new HashMap<>();
+        for (Map.Entry<String, StringBuilder> entry : current.entrySet()) {
+            fingerprints.put(entry.getKey(), entry.getValue().toString());
+        }
+        return fingerprints;
+    }
+
+    private void appendFingerprints(Connection conn, TreeVariant first, FingerprintTable table,
+                                    Map<String, List<String>> keyToBills, Map<String, StringBuilder> current) throws SQLException {
+        String countOnlyKey = first.getGroupKey() + "|" + table.name;
+        boolean withModified = !countOnlyTables.contains(countOnlyKey);
+        String sql = table.buildSql(keyToBills.size(), withModified ? modifiedColumn : null);
+
+        List<String> keys = new ArrayList<>(keyToBills.keySet());
+        Collections.sort(keys);
+        queries.incrementAndGet();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setQueryTimeout(queryTimeoutSeconds);
+            stmt.setString(1, first.getYtenant_id());
+            for (int i = 0; i < keys.size(); i++) {
+                stmt.setString(i + 2, keys.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String key = rs.getString(1);
+                    String value = table.name + ":" + rs.getLong(2) + (withModified ? ":" + rs.getString(3) : "") + ";";
+                    List<String> billKeys = keyToBills.get(key);
+                    if (billKeys != null) {
+                        for (String billKey : billKeys) {
+                            current.get(billKey).append(value);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            // 表中没有修改时间列时退化为只比较行数
+            if (withModified && "42S22".equals(e.getSQLState())) {
+                countOnlyTables.add(countOnlyKey);
+                logger.info("表 {} 没有修改时间列 {}，只按行数检查变更", table.name, modifiedColumn);
+                appendFingerprints(conn, first, table, keyToBills, current);
+                return;
+            }
+            throw e;
+        }
+    }
+
+    private void refresh(List<TreeVariant> stale, String fingerprint) {
+        RefreshHandler handler = refreshHandler;
+        if (handler == null) {
+            for (TreeVariant variant : stale) {
+                treeResponseCache.remove(variant.getKey());
+            }
+            return;
+        }
+        // 实体表显示方式决定树的结构，编码格式只影响序列化
+        Map<Boolean, List<TreeVariant>> byShape = new LinkedHashMap<>();
+        for (TreeVariant variant : stale) {
+            byShape.computeIfAbsent(variant.isShowEntityTables(), k -> new ArrayList<>()).add(variant);
+        }
+        for (List<TreeVariant> variants : byShape.values()) {
+            try {
+                handler.refresh(variants, fingerprint);
+                for (TreeVariant variant : variants) {
+                    variant.setFingerprint(fingerprint);
+                }
+                refreshed.addAndGet(variants.size());
+            } catch (Exception e) {
+                refreshFailures.incrementAndGet();
+                for (TreeVariant variant : variants) {
+                    treeResponseCache.remove(variant.getKey());
+                }
+                logger.warn("重建关联树缓存失败 {}: {}", variants.get(0).getBillKey(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 获取变更检查统计
+     *
+     * @return 跟踪的表单数、轮询次数、查询数和耗时
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long cycleCount = cycles.get();
+        metrics.put("enabled", enabled);
+        metrics.put("intervalMillis", intervalMillis);
+        metrics.put("watchedResponses", variants.size());
+        Set<String> watchedBills = new HashSet<>();
+        for (TreeVariant variant : variants.values()) {
+            watchedBills.add(variant.getBillKey());
+        }
+        metrics.put("watchedBills", watchedBills.size());
+        metrics.put("cycles", cycleCount);
+        metrics.put("queries", queries.get());
+        metrics.put("lastPollMillis", lastPollMillis.get());
+        metrics.put("avgPollMillis", cycleCount > 0 ? pollMillisTotal.get() / cycleCount : 0);
+        metrics.put("checkedBills", checkedBills.get());
+        metrics.put("changedBills", changedBills.get());
+        metrics.put("refreshed", refreshed.get());
+        metrics.put("refreshFailures", refreshFailures.get());
+        metrics.put("pollFailures", pollFailures.get());
+        return metrics;
+    }
+
+    /**
+     * 指纹表定义
+     */
+    private static class FingerprintTable {
+        final String name;
+        final String fromClause;
+        final String keyExpression;
+        final String tenantExpression;
+        final String columnPrefix;
+        final KeyKind keyKind;
+
+        FingerprintTable(String name, String fromClause, String keyExpression, String tenantExpression,
+                         String columnPrefix, KeyKind keyKind) {
+            this.name = name;
+            this.fromClause = fromClause;
+            this.keyExpression = keyExpression;
+            this.tenantExpression = tenantExpression;
+            this.columnPrefix = columnPrefix;
+            this.keyKind = keyKind;
+        }
+
+        String keyOf(TreeVariant variant) {
+            switch (keyKind) {
+                case BILL_ID:
+                    return variant.getBillId();
+                case FILTER_ID:
+                    return variant.getFilterId();
+                default:
+                    return variant.getBillNo();
+            }
+        }
+
+        String buildSql(int keyCount, String modifiedColumn) {
+            StringBuilder sql = new StringBuilder("SELECT ").append(keyExpression).append(", COUNT(*)");
+            if (modifiedColumn != null) {
+                sql.append(", MAX(").append(columnPrefix).append('`').append(modifiedColumn).append("`)");
+            }
+            sql.append(" FROM ").append(fromClause)
+                    .append(" WHERE ").append(tenantExpression).append(" = ? AND ").append(keyExpression).append(" IN (");
+            for (int i = 0; i < keyCount; i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(") GROUP BY ").append(keyExpression);
+            return sql.toString();
+        }
+    }
+}
@@ -0,0 +1,649 @@
+package com.yonyou.dbtreeview.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 关联树响应的磁盘二级缓存
+ * 把gzip压缩后的响应体追加写入本地分段文件，内存中只保留键到文件位置的索引，重启时扫描分段重建索引。
+ * 删除和按范围失效以墓碑记录追加写入，重放时按写入顺序生效。
+ * 超出容量时整段删除最早的分段，不做压缩合并；有效期和容量与堆内缓存独立配置。
+ * 墓碑要一直保留到比它更早的分段都删除为止，否则重启重放时被它覆盖的旧记录会重新生效
+ */
+@Component
+public class TreeDiskCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TreeDiskCache.class);
+
+    private static final int MAGIC = 0x54524545;
+    private static final byte TYPE_PUT_V1 = 1; // 早期格式，不带数据指纹
+    private static final byte TYPE_REMOVE = 2;
+    private static final byte TYPE_INVALIDATE = 3;
+    private static final byte TYPE_PUT = 4;
+    private static final String SEGMENT_PREFIX = "tree-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    @Value("${app.tree-disk-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.tree-disk-cache.dir:cache/trees}")
+    private String directory;
+
+    @Value("${app.tree-disk-cache.ttl-ms:21600000}")
+    private long ttlMillis;
+
+    @Value("${app.tree-disk-cache.max-bytes:1073741824}")
+    private long maxBytes;
+
+    @Value("${app.tree-disk-cache.segment-bytes:67108864}")
+    private long segmentBytes;
+
+    /**
+     * 键到文件位置的索引，按写入顺序排列
+     */
+    private final LinkedHashMap<String, IndexEntry> index = new LinkedHashMap<>();
+
+    /**
+     * 各分段的大小和有效条目数，键为分段号
+     */
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+
+    /**
+     * 失效时间，生成早于失效时间的响应不再写入
+     */
+    private final Map<String, Long> invalidatedAt = new ConcurrentHashMap<>();
+    private final Map<String, Long> removedAt = new ConcurrentHashMap<>();
+
+    private Path root;
+    private FileChannel activeChannel;
+    private ExecutorService writer;
+    private long totalBytes;
+    private long hitCount;
+    private long missCount;
+    private long writeCount;
+    private long droppedSegments;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "tree-disk-cache");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            root = Paths.get(directory).toAbsolutePath();
+            Files.createDirectories(root);
+            long start = System.currentTimeMillis();
+            recover();
+            logger.info("关联树磁盘缓存已加载: 目录={}, 分段数={}, 条目数={}, 占用={}字节, 耗时={}ms",
+                    root, segments.size(), index.size(), totalBytes, System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            logger.warn("关联树磁盘缓存初始化失败，已停用: {}", e.getMessage());
+            enabled = false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            closeQuietly(activeChannel);
+            for (Segment segment : segments.values()) {
+                closeQuietly(segment.reader);
+            }
+        }
+    }
+
+    /**
+     * 查找缓存
+     *
+     * @param key 缓存键
+     * @return 缓存的响应，未命中、已过期或读取失败时返回null
+     */
+    public StoredResponse get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        IndexEntry entry;
+        FileChannel reader;
+        synchronized (this) {
+            entry = index.get(key);
+            if (entry != null && System.currentTimeMillis() - entry.createdAt > ttlMillis) {
+                removeIndexEntry(key);
+                entry = null;
+            }
+            Segment segment = entry != null ? segments.get(entry.segment) : null;
+            reader = segment != null ? segment.reader : null;
+            if (reader == null) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+        }
+
+        // 文件读取不持有锁，分段恰好被删除时按未命中处理
+        try {
+            ByteBuffer body = ByteBuffer.allocate(entry.length);
+            long position = entry.offset;
+            while (body.hasRemaining()) {
+                int read = reader.read(body, position);
+                if (read < 0) {
+                    throw new EOFException();
+                }
+                position += read;
+            }
+            return new StoredResponse(entry.scope, entry.contentType, body.array(), entry.billId, entry.filterId, entry.fingerprint);
+        } catch (IOException e) {
+            logger.debug("读取磁盘缓存 {} 失败: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 后台写入缓存
+     *
+     * @param key 缓存键
+     * @param response 编码后的响应
+     * @param billId bill_base.id，恢复时用于重新跟踪变更
+     * @param filterId bill_base.cFilterId
+     * @param fingerprint 构建响应时数据的指纹，读取时用于确认数据未变化，未知时为null
+     */
+    public void put(String key, TreeResponseCache.CachedResponse response, String billId, String filterId, String fingerprint) {
+        if (!enabled) {
+            return;
+        }
+        byte[] body = response.gzipBytes();
+        long createdAt = response.getCreatedAt();
+        submit(() -> {
+            // 写入排队期间数据已变更的响应不再写入
+            Long invalidated = invalidatedAt.get(response.getScope());
+            Long removed = removedAt.get(key);
+            if ((invalidated != null && createdAt <= invalidated) || (removed != null && createdAt <= removed)) {
+                return;
+            }
+            append(TYPE_PUT, createdAt, key, response.getScope(), response.getContentType(), billId, filterId, fingerprint, body);
+        });
+    }
+
+    /**
+     * 移除缓存
+     *
+     * @param key 缓存键
+     */
+    public void remove(String key) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        removedAt.put(key, now);
+        synchronized (this) {
+            removeIndexEntry(key);
+        }
+        submit(() -> append(TYPE_REMOVE, now, key, null, null, null, null, null, null));
+    }
+
+    /**
+     * 使某个范围内的缓存全部失效
+     *
+     * @param scope 缓存范围
+     */
+    public void invalidate(String scope) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        invalidatedAt.put(scope, now);
+        synchronized (this) {
+            removeScope(scope);
+        }
+        submit(() -> append(TYPE_INVALIDATE, now, scope, null, null, null, null, null, null));
+    }
+
+    /**
+     * 获取缓存统计
+     *
+     * @return 条目数、占用字节数和命中情况
+     */
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("directory", root != null ? root.toString() : directory);
+        metrics.put("entries", index.size());
+        metrics.put("segments", segments.size());
+        metrics.put("bytes", totalBytes);
+        metrics.put("maxBytes", maxBytes);
+        metrics.put("hits", hitCount);
+        metrics.put("misses", missCount);
+        metrics.put("writes", writeCount);
+        metrics.put("droppedSegments", droppedSegments);
+        long lookups = hitCount + missCount;
+        metrics.put("hitRate", lookups > 0 ? (double) hitCount / lookups : 0.0);
+        return metrics;
+    }
+
+    private void submit(Runnable task) {
+        try {
+            writer.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    logger.warn("写入关联树磁盘缓存失败: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("关联树磁盘缓存已关闭，忽略写入");
+        }
+    }
+
+    /**
+     * 追加一条记录，只在写入线程中调用
+     * 记录格式：魔数、负载长度、负载、负载CRC32
+     */
+    private void append(byte type, long timestamp, String key, String scope, String contentType,
+                        String billId, String filterId, String fingerprint, byte[] body) {
+        try {
+            ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(body != null ? body.length + 256 : 256);
+            DataOutputStream payload = new DataOutputStream(payloadBytes);
+            payload.writeByte(type);
+            payload.writeLong(timestamp);
+            payload.writeUTF(key);
+            int bodyOffsetInPayload = -1;
+            if (type == TYPE_PUT) {
+                payload.writeUTF(scope);
+                payload.writeUTF(contentType);
+                payload.writeUTF(billId != null ? billId : "");
+                payload.writeUTF(filterId != null ? filterId : "");
+                payload.writeUTF(fingerprint != null ? fingerprint : "");
+                payload.writeInt(body.length);
+                bodyOffsetInPayload = payload.size();
+                payload.write(body);
+            }
+            payload.flush();
+            byte[] data = payloadBytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, data.length);
+
+            ByteBuffer record = ByteBuffer.allocate(data.length + 12);
+            record.putInt(MAGIC).putInt(data.length).put(data).putInt((int) crc.getValue());
+            record.flip();
+
+            synchronized (this) {
+                Segment segment = activeSegment(record.remaining());
+                long position = segment.size;
+                while (record.hasRemaining()) {
+                    activeChannel.write(record, position + record.position());
+                }
+                segment.size += data.length + 12;
+                totalBytes += data.length + 12;
+                writeCount++;
+                apply(type, timestamp, key, scope, contentType, billId, filterId, fingerprint,
+                        segment.id, position + 8 + bodyOffsetInPayload, body != null ? body.length : 0);
+                enforceCapacity();
+            }
+        } catch (IOException e) {
+            logger.warn("写入关联树磁盘缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 当前可写入的分段，超过分段大小时切换到新分段
+     */
+    private Segment activeSegment(int recordSize) throws IOException {
+        Segment last = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        if (last != null && activeChannel != null && last.size + recordSize <= segmentBytes) {
+            return last;
+        }
+        closeQuietly(activeChannel);
+        activeChannel = null;
+        int id = last != null ? last.id + 1 : 1;
+        Path path = root.resolve(segmentName(id));
+        activeChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        Segment segment = new Segment(id, path, FileChannel.open(path, StandardOpenOption.READ));
+        segments.put(id, segment);
+        // 切换分段时顺带删除已没有有效条目的旧分段
+        dropDeadSegments();
+        return segment;
+    }
+
+    /**
+     * 把一条记录应用到索引
+     */
+    private void apply(byte type, long timestamp, String key, String scope, String contentType,
+                       String billId, String filterId, String fingerprint, int segment, long bodyOffset, int bodyLength) {
+        if (type == TYPE_PUT) {
+            removeIndexEntry(key);
+            if (System.currentTimeMillis() - timestamp > ttlMillis) {
+                return;
+            }
+            index.put(key, new IndexEntry(segment, bodyOffset, bodyLength, timestamp, scope, contentType,
+                    billId == null || billId.isEmpty() ? null : billId, filterId == null || filterId.isEmpty() ? null : filterId,
+                    fingerprint == null || fingerprint.isEmpty() ? null : fingerprint));
+            segments.get(segment).live++;
+        } else if (type == TYPE_REMOVE) {
+            removeIndexEntry(key);
+            segments.get(segment).tombstones++;
+        } else if (type == TYPE_INVALIDATE) {
+            removeScope(key);
+            segments.get(segment).tombstones++;
+        }
+    }
+
+    private void removeIndexEntry(String key) {
+        IndexEntry old = index.remove(key);
+        if (old != null) {
+            Segment segment = segments.get(old.segment);
+            if (segment != null) {
+                segment.live--;
+            }
+        }
+    }
+
+    private void removeScope(String scope) {
+        Iterator<Map.Entry<String, IndexEntry>> iterator = index.entrySet().iterator();
+        while (iterator.hasNext()) {
+            IndexEntry entry = iterator.next().getValue();
+            if (entry.scope.equals(scope)) {
+                iterator.remove();
+                Segment segment = segments.get(entry.segment);
+                if (segment != null) {
+                    segment.live--;
+                }
+            }
+        }
+    }
+
+    /**
+     * 超出容量时从最早的分段开始整段删除，当前写入的分段保留
+     */
+    private void enforceCapacity() {
+        while (totalBytes > maxBytes && segments.size() > 1) {
+            dropSegment(segments.firstEntry().getValue());
+        }
+    }
+
+    /**
+     * 删除没有有效条目的旧分段。带墓碑的分段只有在更早的分段都已删除时才能删除，
+     * 否则更早分段中被墓碑覆盖的记录会在重启后重新生效
+     */
+    private void dropDeadSegments() {
+        List<Segment> dead = new ArrayList<>();
+        boolean olderKept = false;
+        for (Segment segment : segments.headMap(segments.lastKey()).values()) {
+            if (segment.live <= 0 && (segment.tombstones == 0 || !olderKept)) {
+                dead.add(segment);
+            } else {
+                olderKept = true;
+            }
+        }
+        for (Segment segment : dead) {
+            dropSegment(segment);
+        }
+    }
+
+    private void dropSegment(Segment segment) {
+        index.values().removeIf(entry -> entry.segment == segment.id);
+        segments.remove(segment.id);
+        totalBytes -= segment.size;
+        droppedSegments++;
+        closeQuietly(segment.reader);
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            logger.warn("删除磁盘缓存分段 {} 失败: {}", segment.path, e.getMessage());
+        }
+    }
+
+    /**
+     * 启动时按分段号顺序重放全部记录，重建索引
+     * 最后一个分段末尾不完整的记录（写入中途进程退出）截断丢弃
+     */
+    private synchronized void recover() throws IOException {
+        Map<Integer, Path> found = new TreeMap<>();
+        File[] files = root.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        found.put(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())),
+                                file.toPath());
+                    } catch (NumberFormatException e) {
+                        logger.debug("忽略无法识别的文件 {}", name);
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<Integer, Path> entry : found.entrySet()) {
+            Path path = entry.getValue();
+            Segment segment = new Segment(entry.getKey(), path, FileChannel.open(path, StandardOpenOption.READ));
+            segments.put(segment.id, segment);
+            long valid = replay(segment);
+            long length = Files.size(path);
+            if (valid < length) {
+                logger.warn("磁盘缓存分段 {} 在位置 {} 之后的 {} 字节不完整，已截断", path, valid, length - valid);
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                }
+            }
+            segment.size = valid;
+            totalBytes += valid;
+        }
+
+        if (!segments.isEmpty()) {
+            Segment last = segments.lastEntry().getValue();
+            activeChannel = FileChannel.open(last.path, StandardOpenOption.WRITE);
+            dropDeadSegments();
+        }
+        enforceCapacity();
+    }
+
+    /**
+     * 重放一个分段
+     *
+     * @return 最后一条完整记录的结束位置
+     */
+    private long replay(Segment segment) throws IOException {
+        long position = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(segment.path.toFile()), 1 << 16)) {
+            DataInputStream data = new DataInputStream(in);
+            while (true) {
+                int magic;
+                try {
+                    magic = data.readInt();
+                } catch (EOFException e) {
+                    return position;
+                }
+                if (magic != MAGIC) {
+                    return position;
+                }
+                byte[] payload;
+                int checksum;
+                try {
+                    int length = data.readInt();
+                    if (length < 0 || length > segmentBytes + (1 << 20)) {
+                        return position;
+                    }
+                    payload = new byte[length];
+                    data.readFully(payload);
+                    checksum = data.readInt();
+                } catch (EOFException e) {
+                    return position;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload, 0, payload.length);
+                if ((int) crc.getValue() != checksum) {
+                    return position;
+                }
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                byte type = record.readByte();
+                long timestamp = record.readLong();
+                String key = record.readUTF();
+                if (type == TYPE_PUT || type == TYPE_PUT_V1) {
+                    String scope = record.readUTF();
+                    String contentType = record.readUTF();
+                    String billId = record.readUTF();
+                    String filterId = record.readUTF();
+                    String fingerprint = type == TYPE_PUT ? record.readUTF() : null;
+                    int bodyLength = record.readInt();
+                    long bodyOffset = position + 8 + (payload.length - bodyLength);
+                    apply(TYPE_PUT, timestamp, key, scope, contentType, billId, filterId, fingerprint, segment.id, bodyOffset, bodyLength);
+                } else {
+                    apply(type, timestamp, key, null, null, null, null, null, segment.id, 0, 0);
+                }
+                position += payload.length + 12;
+            }
+        }
+    }
+
+    private static String segmentName(int id) {
+        return String.format("%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("关闭磁盘缓存文件失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 分段文件
+     */
+    private static class Segment {
+        final int id;
+        final Path path;
+        final FileChannel reader;
+        long size;
+        int live;
+        int tombstones;
+
+        Segment(int id, Path path, FileChannel reader) {
+            this.id = id;
+            this.path = path;
+            this.reader = reader;
+        }
+    }
+
+    /**
+     * 索引条目，记录响应体在分段中的位置
+     */
+    private static class IndexEntry {
+        final int segment;
+        final long offset;
+        final int length;
+        final long createdAt;
+        final String scope;
+        final String contentType;
+        final String billId;
+        final String filterId;
+        final String fingerprint;
+
+        IndexEntry(int segment, long offset, int length, long createdAt, String scope, String contentType,
+                   String billId, String filterId, String fingerprint) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.createdAt = createdAt;
+            this.scope = scope;
+            this.contentType = contentType;
+            this.billId = billId;
+            this.filterId = filterId;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * 从磁盘读取的响应，响应体为gzip压缩
+     */
+    public static class StoredResponse {
+
+        private final String scope;
+        private final String contentType;
+        private final byte[] gzipBody;
+        private final String billId;
+        private final String filterId;
+        private final String fingerprint;
+
+        StoredResponse(String scope, String contentType, byte[] gzipBody, String billId, String filterId, String fingerprint) {
+            this.scope = scope;
+            this.contentType = contentType;
+            this.gzipBody = gzipBody;
+            this.billId = billId;
+            this.filterId = filterId;
+            this.fingerprint = fingerprint;
+        }
+
+        public String getScope() {
+            return scope;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getGzipBody() {
+            return gzipBody;
+        }
+
+        public String getBillId() {
+            return billId;
+        }
+
+        public String getFilterId() {
+            return filterId;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.yonyou.dbtreeview.cache;
+
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 关联树响应字节缓存
+ * 缓存/tree接口最终编码后的响应体（原始和gzip两份，按协商的编码格式分别缓存），保存在堆外直接缓冲区中，
+ * 命中时直接写入响应流，不再构建对象图也不再序列化。按字节数做LRU淘汰。
+ * 删除和失效同时作用于磁盘二级缓存，LRU淘汰和过期只影响堆外内存
+ */
+@Component
+public class TreeResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TreeResponseCache.class);
+
+    @Autowired
+    private TreeDiskCache treeDiskCache;
+
+    @Value("${app.tree-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.tree-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${app.tree-cache.ttl-ms:300000}")
+    private long ttlMillis;
+
+    /**
+     * 按访问顺序排列，队首为最久未访问的条目
+     */
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * 生成缓存键
+     *
+     * @param dbConfig 数据库配置
+     * @param dbName 数据库名称
+     * @param billNo 表单编码
+     * @param ytenant_id 租户ID
+     * @param showEntityTables 是否包含实体表
+     * @param format 响应编码格式
+     * @return 缓存键
+     */
+    public static String key(DbConfigDTO dbConfig, String dbName, String billNo, String ytenant_id, boolean showEntityTables,
+                             TreeWireFormat format) {
+        return scope(dbConfig, dbName) + "|" + billNo + "|" + ytenant_id + "|" + (showEntityTables ? "entity" : "template")
+                + "|" + format.name();
+    }
+
+    /**
+     * 生成缓存范围，同一数据库的条目属于同一范围，数据变更时按范围失效。
+     * 范围包含登录用户，不同账号可见的数据可能不同，不能共用缓存
+     *
+     * @param dbConfig 数据库配置
+     * @param dbName 数据库名称
+     * @return 缓存范围
+     */
+    public static String scope(DbConfigDTO dbConfig, String dbName) {
+        return dbConfig.getUsername() + "@" + dbConfig.getHost() + ":" + dbConfig.getPort() + "/" + dbName;
+    }
+
+    /**
+     * 查找缓存
+     *
+     * @param key 缓存键
+     * @return 缓存的响应，未命中或已过期时返回null
+     */
+    public synchronized CachedResponse get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        CachedResponse entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.createdAt > ttlMillis) {
+            removeEntry(key);
+            entry = null;
+        }
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry;
+    }
+
+    /**
+     * 编码响应体，同时生成gzip压缩版本
+     *
+     * @param scope 缓存范围
+     * @param contentType 响应体类型
+     * @param body 已序列化的响应体
+     * @return 编码后的响应，可直接写出，也可放入缓存
+     */
+    public CachedResponse encode(String scope, String contentType, byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        }
+        return new CachedResponse(scope, contentType, toDirect(body), toDirect(compressed.toByteArray()));
+    }
+
+    /**
+     * 由磁盘缓存中的gzip响应体还原，解压出原始版本
+     *
+     * @param scope 缓存范围
+     * @param contentType 响应体类型
+     * @param gzipBody gzip压缩的响应体
+     * @return 编码后的响应
+     */
+    public CachedResponse decode(String scope, String contentType, byte[] gzipBody) throws IOException {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(gzipBody.length * 4);
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(gzipBody))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = gzip.read(buffer)) != -1) {
+                raw.write(buffer, 0, read);
+            }
+        }
+        return new CachedResponse(scope, contentType, toDirect(raw.toByteArray()), toDirect(gzipBody));
+    }
+
+    /**
+     * 放入缓存，超出容量时淘汰最久未访问的条目
+     *
+     * @param key 缓存键
+     * @param response 编码后的响应
+     */
+    public synchronized void put(String key, CachedResponse response) {
+        if (!enabled || response.getSize() > maxBytes) {
+            return;
+        }
+        removeEntry(key);
+        entries.put(key, response);
+        totalBytes += response.getSize();
+
+        Iterator<CachedResponse> iterator = entries.values().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            CachedResponse eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getSize();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * 是否缓存了该响应，不计入命中统计，也不改变淘汰顺序
+     *
+     * @param key 缓存键
+     * @return 是否存在
+     */
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * 移除缓存
+     *
+     * @param key 缓存键
+     */
+    public void remove(String key) {
+        synchronized (this) {
+            removeEntry(key);
+        }
+        treeDiskCache.remove(key);
+    }
+
+    /**
+     * 使某个范围内的缓存全部失效
+     *
+     * @param scope 缓存范围
+     * @return 失效的条目数
+     */
+    public int invalidate(String scope) {
+        int removed = 0;
+        synchronized (this) {
+            Iterator<CachedResponse> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                CachedResponse entry = iterator.next();
+                if (entry.scope.equals(scope)) {
+                    iterator.remove();
+                    totalBytes -= entry.getSize();
+                    removed++;
+                }
+            }
+        }
+        treeDiskCache.invalidate(scope);
+        if (removed > 0) {
+            logger.debug("数据库 {} 数据变更，失效 {} 个缓存的关联树响应", scope, removed);
+        }
+        return removed;
+    }
+
+    /**
+     * 获取缓存统计
+     *
+     * @return 条目数、占用字节数和命中情况
+     */
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("entries", entries.size());
+        metrics.put("bytes", totalBytes);
+        metrics.put("maxBytes", maxBytes);
+        metrics.put("hits", hitCount);
+        metrics.put("misses", missCount);
+        metrics.put("evictions", evictionCount);
+        long lookups = hitCount + missCount;
+        metrics.put("hitRate", lookups > 0 ? (double) hitCount / lookups : 0.0);
+        return metrics;
+    }
+
+    private void removeEntry(String key) {
+        CachedResponse old = entries.remove(key);
+        if (old != null) {
+            totalBytes -= old.getSize();
+        }
+    }
+
+    private static ByteBuffer toDirect(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * 编码后的响应
+     */
+    public static class CachedResponse {
+
+        private final String scope;
+        private final String contentType;
+        private final ByteBuffer raw;
+        private final ByteBuffer gzip;
+        private final long createdAt = System.currentTimeMillis();
+
+        CachedResponse(String scope, String contentType, ByteBuffer raw, ByteBuffer gzip) {
+            this.scope = scope;
+            this.contentType = contentType;
+            this.raw = raw;
+            this.gzip = gzip;
+        }
+
+        public String getScope() {
+            return scope;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        /**
+         * 复制gzip压缩的响应体，用于写入磁盘缓存
+         */
+        byte[] gzipBytes() {
+            ByteBuffer body = gzip.duplicate();
+            byte[] bytes = new byte[body.remaining()];
+            body.get(bytes);
+            return bytes;
+        }
+
+        /**
+         * 占用的字节数（原始和压缩两份）
+         */
+        public int getSize() {
+            return raw.capacity() + gzip.capacity();
+        }
+
+        /**
+         * 写出响应，客户端支持gzip时直接写出压缩版本
+         *
+         * @param request HTTP请求
+         * @param response HTTP响应
+         */
+        public void writeTo(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            String acceptEncoding = request.getHeader("Accept-Encoding");
+            boolean useGzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+            // 各线程使用独立的读取位置
+            ByteBuffer body = (useGzip ? gzip : raw).duplicate();
+
+            response.setContentType(contentType);
+            response.setHeader("Vary", "Accept, Accept-Encoding");
+            if (useGzip) {
+                response.setHeader("Content-Encoding", "gzip");
+            }
+            response.setContentLength(body.remaining());
+            WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+            response.flushBuffer();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.yonyou.dbtreeview.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.dto.TreeBuildOptions;
+import com.yonyou.dbtreeview.model.DbTreeNode;
+import com.yonyou.dbtreeview.model.DbTreeResponse;
+import com.yonyou.dbtreeview.service.DbRelationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 关联树响应加载器
+ * 先查响应字节缓存，再查磁盘二级缓存，都未命中时构建关联树并编码，
+ * 完整的结果连同数据指纹放入两级缓存并交给变更监视器跟踪。
+ * 指纹在构建之前从主库取得，要缓存的树也从主库构建，避免延迟副本上的旧树带着新指纹进入缓存。
+ * 磁盘上的响应期间不受跟踪，命中时先核对指纹，数据已变化则重新构建
+ */
+@Component
+public class TreeResponseLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(TreeResponseLoader.class);
+
+    @Autowired
+    private TreeResponseCache treeResponseCache;
+
+    @Autowired
+    private TreeDiskCache treeDiskCache;
+
+    @Autowired
+    private TreeChangeWatcher treeChangeWatcher;
+
+    @Autowired
+    private DbRelationService dbRelationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PostConstruct
+    public void init() {
+        treeChangeWatcher.setRefreshHandler(this::rebuild);
+    }
+
+    /**
+     * 加载编码后的关联树响应
+     *
+     * @param environment 环境
+     * @param dbName 数据库名称
+     * @param billNo 表单编码
+     * @param ytenant_id 租户ID
+     * @param dbConfig 数据库配置
+     * @param showEntityTables 是否显示实体表
+     * @param options 树构建选项，可为空
+     * @param format 响应编码格式
+     * @return 编码后的响应
+     */
+    public TreeResponseCache.CachedResponse load(String environment, String dbName, String billNo, String ytenant_id, DbConfigDTO dbConfig,
+                                                 boolean showEntityTables, TreeBuildOptions options, TreeWireFormat format) throws IOException {
+        String key = TreeResponseCache.key(dbConfig, dbName, billNo, ytenant_id, showEntityTables, format);
+        // 要求读到最新数据时跳过缓存，缓存可能是从延迟的只读副本构建的；
+        // 完整模式的响应带整行数据，体积大且随任意字段变化，不进入缓存；
+        // 缓存键和变化后的重建只对应默认的组装方式和查询方式，指定了组装方式或对冲时也不使用缓存
+        boolean full = options != null && Boolean.TRUE.equals(options.getFull());
+        boolean readYourWrites = options != null && Boolean.TRUE.equals(options.getReadYourWrites());
+        boolean customized = options != null && (options.getAssembly() != null || Boolean.TRUE.equals(options.getHedge()));
+        boolean bypass = readYourWrites || full || customized;
+        TreeResponseCache.CachedResponse cached = bypass ? null : treeResponseCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        
+        // 内存中淘汰或重启后丢失的响应从磁盘还原，只需核对指纹，不再构建关联树
+        TreeDiskCache.StoredResponse stored = bypass ? null : treeDiskCache.get(key);
+        if (stored != null) {
+            TreeVariant variant = new TreeVariant(key, environment, dbName, billNo, ytenant_id, dbConfig,
+                    showEntityTables, format, stored.getBillId(), stored.getFilterId());
+            if (revalidate(variant, stored.getFingerprint())) {
+                cached = treeResponseCache.decode(stored.getScope(), stored.getContentType(), stored.getGzipBody());
+                treeResponseCache.put(key, cached);
+                treeChangeWatcher.watch(variant);
+                return cached;
+            }
+        }
+
+        // 启用变更检查时先在主库上取指纹，再从主库构建，缓存的树不会比它带的指纹旧
+        boolean watched = !bypass && treeChangeWatcher.isEnabled();
+        TreeVariant variant = watched ? prepareVariant(key, environment, dbName, billNo, ytenant_id, dbConfig, showEntityTables, format) : null;
+        DbTreeResponse tree = dbRelationService.getDbRelationTree(environment, dbName, billNo, ytenant_id,
+                dbConfig, showEntityTables, watched ? fromPrimary(options) : options);
+        cached = treeResponseCache.encode(TreeResponseCache.scope(dbConfig, dbName),
+                format.getContentType(), format.encode(objectMapper, tree));
+        // 超出预算的部分结果不缓存
+        if (bypass || tree.isTruncated()) {
+            return cached;
+        }
+        DbTreeNode root = tree.getRootNode();
+        if (root == null) {
+            treeResponseCache.put(key, cached);
+            return cached;
+        }
+        Object filterId = root.getAttribute("cFilterId");
+        String rootFilterId = filterId == null ? null : filterId.toString();
+        if (!watched) {
+            variant = new TreeVariant(key, environment, dbName, billNo, ytenant_id, dbConfig,
+                    showEntityTables, format, root.getId(), rootFilterId);
+        } else if (variant == null || !Objects.equals(variant.getBillId(), root.getId())
+                || !Objects.equals(variant.getFilterId(), rootFilterId)) {
+            // 没取到指纹，或构建期间表单本身被替换，指纹与树对不上，不缓存
+            return cached;
+        }
+        treeResponseCache.put(key, cached);
+        treeChangeWatcher.watch(variant);
+        treeDiskCache.put(key, cached, variant.getBillId(), variant.getFilterId(), variant.getFingerprint());
+        return cached;
+    }
+
+    /**
+     * 在主库上读取表单关联键并计算构建前的指纹，失败时返回null，本次构建的结果不进入缓存
+     */
+    private TreeVariant prepareVariant(String key, String environment, String dbName, String billNo, String ytenant_id,
+                                       DbConfigDTO dbConfig, boolean showEntityTables, TreeWireFormat format) {
+        try {
+            return treeChangeWatcher.prepare(key, environment, dbName, billNo, ytenant_id, dbConfig, showEntityTables, format);
+        } catch (SQLException e) {
+            logger.debug("计算关联树指纹失败 {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 复制预算选项并改为从主库读取，与指纹读到同一份数据
+     */
+    private TreeBuildOptions fromPrimary(TreeBuildOptions options) {
+        TreeBuildOptions primary = new TreeBuildOptions();
+        if (options != null) {
+            primary.setTimeBudgetMs(options.getTimeBudgetMs());
+            primary.setMaxQueries(options.getMaxQueries());
+            primary.setMaxRows(options.getMaxRows());
+        }
+        primary.setReadYourWrites(true);
+        return primary;
+    }
+
+    /**
+     * 核对磁盘上的响应是否仍与数据一致
+     * 未启用变更检查时只按有效期判断；启用时指纹未知或已变化都按未命中处理
+     *
+     * @param variant 响应变体，核对通过时带上当前指纹
+     * @param storedFingerprint 写入磁盘时的指纹
+     * @return 是否可以使用
+     */
+    private boolean revalidate(TreeVariant variant, String storedFingerprint) {
+        if (!treeChangeWatcher.isEnabled()) {
+            return true;
+        }
+        if (variant.getBillId() == null || storedFingerprint == null) {
+            return false;
+        }
+        String current = currentFingerprint(variant);
+        if (!storedFingerprint.equals(current)) {
+            return false;
+        }
+        variant.setFingerprint(current);
+        return true;
+    }
+
+    /**
+     * 计算当前指纹，失败时返回null，由变更监视器在下一轮检查时补上
+     */
+    private String currentFingerprint(TreeVariant variant) {
+        try {
+            return treeChangeWatcher.fingerprint(variant);
+        } catch (SQLException e) {
+            logger.debug("计算关联树指纹失败 {}: {}", variant.getKey(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 数据变化后重建缓存的响应，重建结果不完整时直接移除缓存
+     * 各变体只有编码格式不同，关联树只构建一次，每种格式只编码一次
+     *
+     * @param variants 同一表单、同一showEntityTables的变体
+     * @param fingerprint 检测到的当前指纹
+     */
+    private void rebuild(List<TreeVariant> variants, String fingerprint) throws IOException {
+        TreeVariant first = variants.get(0);
+        // 变化是在主库上检测到的，从主库重建，避免副本延迟把旧数据放回缓存
+        TreeBuildOptions options = new TreeBuildOptions();
+        options.setReadYourWrites(true);
+        DbTreeResponse tree = dbRelationService.getDbRelationTree(first.getEnvironment(), first.getDbName(),
+                first.getBillNo(), first.getYtenant_id(), first.getDbConfig(), first.isShowEntityTables(), options);
+        if (tree.isTruncated()) {
+            for (TreeVariant variant : variants) {
+                treeResponseCache.remove(variant.getKey());
+            }
+            return;
+        }
+        Map<TreeWireFormat, TreeResponseCache.CachedResponse> encoded = new EnumMap<>(TreeWireFormat.class);
+        for (TreeVariant variant : variants) {
+            TreeWireFormat format = variant.getFormat();
+            TreeResponseCache.CachedResponse cached = encoded.get(format);
+            if (cached == null) {
+                cached = treeResponseCache.encode(TreeResponseCache.scope(variant.getDbConfig(), variant.getDbName()),
+                        format.getContentType(), format.encode(objectMapper, tree));
+                encoded.put(format, cached);
+            }
+            treeResponseCache.put(variant.getKey(), cached);
+            treeDiskCache.put(variant.getKey(), cached, variant.getBillId(), variant.getFilterId(), fingerprint);
+        }
+    }
+}
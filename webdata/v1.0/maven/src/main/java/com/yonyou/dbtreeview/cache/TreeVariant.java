@@ -0,0 +1,97 @@
+package com.yonyou.dbtreeview.cache;
+
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+
+/**
+ * 已缓存的关联树响应及其重建所需的参数
+ */
+public class TreeVariant {
+
+    private final String key;
+    private final String environment;
+    private final String dbName;
+    private final String billNo;
+    private final String ytenant_id;
+    private final DbConfigDTO dbConfig;
+    private final boolean showEntityTables;
+    private final TreeWireFormat format;
+    private final String billId;   // bill_base.id，用于按iBillId计算指纹
+    private final String filterId; // bill_base.cFilterId，用于按filtersId计算指纹
+    private volatile String fingerprint; // 响应对应数据的指纹，未知时为空
+
+    public TreeVariant(String key, String environment, String dbName, String billNo, String ytenant_id, DbConfigDTO dbConfig,
+                       boolean showEntityTables, TreeWireFormat format, String billId, String filterId) {
+        this.key = key;
+        this.environment = environment;
+        this.dbName = dbName;
+        this.billNo = billNo;
+        this.ytenant_id = ytenant_id;
+        this.dbConfig = dbConfig;
+        this.showEntityTables = showEntityTables;
+        this.format = format;
+        this.billId = billId;
+        this.filterId = filterId;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getEnvironment() {
+        return environment;
+    }
+
+    public String getDbName() {
+        return dbName;
+    }
+
+    public String getBillNo() {
+        return billNo;
+    }
+
+    public String getYtenant_id() {
+        return ytenant_id;
+    }
+
+    public DbConfigDTO getDbConfig() {
+        return dbConfig;
+    }
+
+    public boolean isShowEntityTables() {
+        return showEntityTables;
+    }
+
+    public TreeWireFormat getFormat() {
+        return format;
+    }
+
+    public String getBillId() {
+        return billId;
+    }
+
+    public String getFilterId() {
+        return filterId;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * 同一数据库、同一租户的变体可以合并计算指纹
+     */
+    public String getGroupKey() {
+        return TreeResponseCache.scope(dbConfig, dbName) + "|" + ytenant_id;
+    }
+
+    /**
+     * 同一表单的各个变体共用一个指纹
+     */
+    public String getBillKey() {
+        return getGroupKey() + "|" + billNo;
+    }
+}
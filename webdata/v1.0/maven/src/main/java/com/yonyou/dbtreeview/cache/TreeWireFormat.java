@@ -0,0 +1,96 @@
+package com.yonyou.dbtreeview.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.yonyou.dbtreeview.dto.ApiResponse;
+import com.yonyou.dbtreeview.model.ColumnarTree;
+import com.yonyou.dbtreeview.model.DbTreeResponse;
+import com.yonyou.dbtreeview.trace.SerializationEvent;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * 关联树响应的编码格式，按请求的Accept头协商，默认JSON
+ */
+public enum TreeWireFormat {
+    
+    JSON("application/json;charset=UTF-8"),
+    SMILE("application/x-jackson-smile"),
+    CBOR("application/cbor"),
+    /**
+     * 列式字典编码，见{@link ColumnarTree}
+     */
+    COLUMNAR("application/vnd.dbtree.columnar+json;charset=UTF-8");
+    
+    private static final ObjectMapper SMILE_MAPPER = new SmileMapper();
+    private static final ObjectMapper CBOR_MAPPER = new CBORMapper();
+    
+    private final String contentType;
+    
+    TreeWireFormat(String contentType) {
+        this.contentType = contentType;
+    }
+    
+    public String getContentType() {
+        return contentType;
+    }
+    
+    /**
+     * 按Accept头选择格式，取质量最高且能识别的类型，均不能识别时使用JSON
+     *
+     * @param accept 请求的Accept头
+     * @return 编码格式
+     */
+    public static TreeWireFormat negotiate(String accept) {
+        if (accept == null || accept.isEmpty()) {
+            return JSON;
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            for (TreeWireFormat format : values()) {
+                if (MediaType.parseMediaType(format.contentType).isCompatibleWith(mediaType) && !mediaType.isWildcardType()) {
+                    return format;
+                }
+            }
+        }
+        return JSON;
+    }
+    
+    /**
+     * 编码关联树响应
+     *
+     * @param jsonMapper JSON格式使用的ObjectMapper
+     * @param tree 关联树响应
+     * @return 编码后的响应体
+     */
+    public byte[] encode(ObjectMapper jsonMapper, DbTreeResponse tree) throws JsonProcessingException {
+        SerializationEvent event = new SerializationEvent(name());
+        byte[] body;
+        switch (this) {
+            case SMILE:
+                body = SMILE_MAPPER.writeValueAsBytes(ApiResponse.success(tree));
+                break;
+            case CBOR:
+                body = CBOR_MAPPER.writeValueAsBytes(ApiResponse.success(tree));
+                break;
+            case COLUMNAR:
+                body = jsonMapper.writeValueAsBytes(ApiResponse.success(ColumnarTree.from(tree)));
+                break;
+            default:
+                body = jsonMapper.writeValueAsBytes(ApiResponse.success(tree));
+                break;
+        }
+        event.finish(body.length);
+        return body;
+    }
+}
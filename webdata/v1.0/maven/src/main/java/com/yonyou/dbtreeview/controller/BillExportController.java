@@ -0,0 +1,142 @@
+package com.yonyou.dbtreeview.controller;
+
+import com.yonyou.dbtreeview.cache.TreeResponseCache;
+import com.yonyou.dbtreeview.dto.ApiResponse;
+import com.yonyou.dbtreeview.dto.BulkExportRequest;
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.dto.DbRelationRequest;
+import com.yonyou.dbtreeview.service.BillExportService;
+import com.yonyou.dbtreeview.service.DbConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * 表单元数据迁移控制器
+ */
+@RestController
+@RequestMapping("/api/v1/bill-export")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class BillExportController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BillExportController.class);
+
+    @Autowired
+    private BillExportService billExportService;
+
+    @Autowired
+    private DbConfigService dbConfigService;
+
+    @Autowired
+    private TreeResponseCache treeResponseCache;
+
+    /**
+     * 导出表单元数据为SQL迁移脚本，脚本直接写入响应流
+     *
+     * @param request 包含环境、数据库名称、表单编码和租户ID的请求
+     * @param response HTTP响应
+     * @return 参数错误时返回错误信息，导出成功时响应已直接写出
+     */
+    @PostMapping("/sql")
+    public ApiResponse<Void> exportBillSql(@RequestBody DbRelationRequest request, HttpServletResponse response) {
+        logger.info("接收到导出表单迁移脚本请求: 环境={}, 数据库名={}, 表单编码={}, 租户ID={}",
+                request.getEnvironment(), request.getDbName(), request.getBillNo(), request.getYtenant_id());
+
+        if (request.getDbName() == null || request.getDbName().isEmpty()) {
+            return ApiResponse.error("数据库名称未指定");
+        }
+        if (request.getBillNo() == null || request.getBillNo().isEmpty()) {
+            return ApiResponse.error("表单编码未指定");
+        }
+        DbConfigDTO dbConfig = dbConfigService.resolveConfig(request.getEnvironment(), request.getDbConfig());
+        if (dbConfig == null) {
+            return ApiResponse.error("数据库配置未指定");
+        }
+
+        String fileName = request.getBillNo().replaceAll("[^A-Za-z0-9_.-]", "_") + ".sql";
+        response.setContentType("text/plain;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+            billExportService.exportBillSql(request.getDbName(), request.getBillNo(), request.getYtenant_id(), dbConfig, writer);
+            writer.flush();
+        } catch (Exception e) {
+            // 响应头已发出，错误信息已以注释形式写入脚本末尾
+            logger.error("导出表单迁移脚本失败", e);
+        }
+        return null;
+    }
+
+    /**
+     * 批量导出多个表单的关联树，响应为gzip压缩的NDJSON文件，每行一个表单
+     *
+     * @param request 包含环境、数据库名称、租户ID和表单编码列表的请求，表单编码列表为空时导出该租户全部表单
+     * @param response HTTP响应
+     * @return 参数错误时返回错误信息，导出成功时响应已直接写出
+     */
+    @PostMapping("/trees")
+    public ApiResponse<Void> exportBillTrees(@RequestBody BulkExportRequest request, HttpServletResponse response) {
+        logger.info("接收到批量导出关联树请求: {}", request);
+
+        if (request.getDbName() == null || request.getDbName().isEmpty()) {
+            return ApiResponse.error("数据库名称未指定");
+        }
+        DbConfigDTO dbConfig = dbConfigService.resolveConfig(request.getEnvironment(), request.getDbConfig());
+        if (dbConfig == null) {
+            return ApiResponse.error("数据库配置未指定");
+        }
+
+        String fileName = request.getDbName().replaceAll("[^A-Za-z0-9_.-]", "_") + "-trees.ndjson.gz";
+        response.setContentType("application/gzip");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+        try {
+            billExportService.exportBillTrees(request.getEnvironment(), request.getDbName(), request.getBillNos(),
+                    request.getYtenant_id(), dbConfig, request.isShowEntityTables(), request.getTreeOptions(),
+                    response.getOutputStream());
+        } catch (Exception e) {
+            logger.error("批量导出关联树失败", e);
+        }
+        return null;
+    }
+
+    /**
+     * 在目标环境执行导出的SQL迁移脚本，全部语句在一个事务中执行
+     * 目标库只使用服务端保存的环境配置
+     *
+     * @param environment 目标环境名称
+     * @param dbName 目标数据库名称
+     * @param request 请求体为迁移脚本文本
+     * @return 执行结果
+     */
+    @PostMapping("/import")
+    public ApiResponse<Map<String, Object>> importBillSql(@RequestParam String environment,
+                                                          @RequestParam String dbName,
+                                                          HttpServletRequest request) {
+        logger.info("接收到导入表单迁移脚本请求: 环境={}, 数据库名={}", environment, dbName);
+
+        DbConfigDTO dbConfig = dbConfigService.getConfigForEnvironment(environment);
+        if (dbConfig == null) {
+            return ApiResponse.error("数据库配置未指定");
+        }
+
+        try (Reader reader = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)) {
+            Map<String, Object> result = billExportService.importBillSql(dbName, dbConfig, reader);
+            treeResponseCache.invalidate(TreeResponseCache.scope(dbConfig, dbName));
+            return ApiResponse.success(result);
+        } catch (Exception e) {
+            logger.error("导入表单迁移脚本失败", e);
+            return ApiResponse.error("导入表单迁移脚本失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.yonyou.dbtreeview.controller;
+
+import com.yonyou.dbtreeview.dto.ApiResponse;
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.dto.DbRelationRequest;
+import com.yonyou.dbtreeview.model.IndexAdviceReport;
+import com.yonyou.dbtreeview.service.DbConfigService;
+import com.yonyou.dbtreeview.service.IndexAdvisorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 数据库诊断控制器
+ */
+@RestController
+@RequestMapping("/api/v1/db-diagnostics")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class DbDiagnosticsController {
+
+    private static final Logger logger = LoggerFactory.getLogger(DbDiagnosticsController.class);
+
+    @Autowired
+    private IndexAdvisorService indexAdvisorService;
+
+    @Autowired
+    private DbConfigService dbConfigService;
+
+    /**
+     * 诊断关联树构建语句的执行计划和索引
+     *
+     * @param request 包含环境、数据库名称、采样表单编码（可选）、租户ID和数据库配置的请求
+     * @return 各语句的执行计划、每棵树的扫描行数估算和索引建议
+     */
+    @PostMapping("/index-advice")
+    public ApiResponse<IndexAdviceReport> getIndexAdvice(@RequestBody DbRelationRequest request) {
+        logger.info("接收到索引诊断请求: 环境={}, 数据库名={}, 采样表单={}, 租户ID={}",
+                request.getEnvironment(), request.getDbName(), request.getBillNo(), request.getYtenant_id());
+
+        try {
+            if (request.getDbName() == null || request.getDbName().isEmpty()) {
+                return ApiResponse.error("数据库名称未指定");
+            }
+
+            DbConfigDTO dbConfigDTO = dbConfigService.resolveConfig(request.getEnvironment(), request.getDbConfig());
+            if (dbConfigDTO == null) {
+                return ApiResponse.error("数据库配置未指定");
+            }
+
+            String ytenant_id = request.getYtenant_id() != null && !request.getYtenant_id().isEmpty() ? request.getYtenant_id() : "0";
+            return ApiResponse.success(indexAdvisorService.analyze(
+                    request.getEnvironment(),
+                    request.getDbName(),
+                    request.getBillNo(),
+                    ytenant_id,
+                    Boolean.TRUE.equals(request.getShowEntityTables()),
+                    dbConfigDTO));
+        } catch (Exception e) {
+            logger.error("索引诊断失败", e);
+            return ApiResponse.error("索引诊断失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.yonyou.dbtreeview.controller;
+
+import com.yonyou.dbtreeview.cache.TreeChangeWatcher;
+import com.yonyou.dbtreeview.cache.TreeDiskCache;
+import com.yonyou.dbtreeview.cache.TreeResponseCache;
+import com.yonyou.dbtreeview.datasource.DbConnectionManager;
+import com.yonyou.dbtreeview.datasource.HedgedQueryExecutor;
+import com.yonyou.dbtreeview.dto.ApiResponse;
+import com.yonyou.dbtreeview.service.BillAnalyticsService;
+import com.yonyou.dbtreeview.service.DiscoveryService;
+import com.yonyou.dbtreeview.trace.FlightRecordingManager;
+import com.yonyou.dbtreeview.trace.QueryTraceRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运行指标控制器
+ */
+@RestController
+@RequestMapping("/api/v1/db-metrics")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class DbMetricsController {
+
+    private static final Logger logger = LoggerFactory.getLogger(DbMetricsController.class);
+
+    @Autowired
+    private DbConnectionManager connectionManager;
+
+    @Autowired
+    private HedgedQueryExecutor hedgedQueryExecutor;
+
+    @Autowired
+    private TreeResponseCache treeResponseCache;
+
+    @Autowired
+    private TreeDiskCache treeDiskCache;
+
+    @Autowired
+    private TreeChangeWatcher treeChangeWatcher;
+
+    @Autowired
+    private DiscoveryService discoveryService;
+
+    @Autowired
+    private BillAnalyticsService billAnalyticsService;
+
+    @Autowired
+    private QueryTraceRecorder queryTraceRecorder;
+
+    @Autowired
+    private FlightRecordingManager flightRecordingManager;
+
+    /**
+     * 获取各数据库端点的并发限流状态
+     *
+     * @return 当前并发上限、在途数和拒绝次数
+     */
+    @GetMapping("/limiters")
+    public ApiResponse<List<Map<String, Object>>> getLimiterMetrics() {
+        try {
+            return ApiResponse.success(connectionManager.getLimiterMetrics());
+        } catch (Exception e) {
+            logger.error("获取限流指标失败", e);
+            return ApiResponse.error("获取限流指标失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取各数据库端点的熔断状态
+     *
+     * @return 熔断状态、连续失败次数和最近错误
+     */
+    @GetMapping("/breakers")
+    public ApiResponse<List<Map<String, Object>>> getBreakerMetrics() {
+        try {
+            return ApiResponse.success(connectionManager.getBreakerMetrics());
+        } catch (Exception e) {
+            logger.error("获取熔断指标失败", e);
+            return ApiResponse.error("获取熔断指标失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取各连接池的使用情况
+     *
+     * @return 活动、空闲和等待连接数
+     */
+    @GetMapping("/pools")
+    public ApiResponse<List<Map<String, Object>>> getPoolMetrics() {
+        try {
+            return ApiResponse.success(connectionManager.getPoolMetrics());
+        } catch (Exception e) {
+            logger.error("获取连接池指标失败", e);
+            return ApiResponse.error("获取连接池指标失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取只读副本健康状态
+     *
+     * @return 副本状态列表
+     */
+    @GetMapping("/replicas")
+    public ApiResponse<List<Map<String, Object>>> getReplicas() {
+        try {
+            return ApiResponse.success(connectionManager.getReplicaMetrics());
+        } catch (Exception e) {
+            logger.error("获取只读副本状态失败", e);
+            return ApiResponse.error("获取只读副本状态失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取对冲查询统计
+     *
+     * @return 对冲次数、对冲比例和各语句耗时分位
+     */
+    @GetMapping("/hedging")
+    public ApiResponse<Map<String, Object>> getHedgingMetrics() {
+        try {
+            return ApiResponse.success(hedgedQueryExecutor.getMetrics());
+        } catch (Exception e) {
+            logger.error("获取对冲查询指标失败", e);
+            return ApiResponse.error("获取对冲查询指标失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取关联树响应缓存统计
+     *
+     * @return 条目数、占用字节数和命中率
+     */
+    @GetMapping("/tree-cache")
+    public ApiResponse<Map<String, Object>> getTreeCacheMetrics() {
+        try {
+            return ApiResponse.success(treeResponseCache.getMetrics());
+        } catch (Exception e) {
+            logger.error("获取关联树缓存指标失败", e);
+            return ApiResponse.error("获取关联树缓存指标失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取关联树磁盘二级缓存统计
+     *
+     * @return 条目数、分段数、占用字节数和命中情况
+     */
+    @GetMapping("/tree-disk-cache")
+    public ApiResponse<Map<String, Object>> getTreeDiskCacheMetrics() {
+        try {
+            return ApiResponse.success(treeDiskCache.getMetrics());
+        } catch (Exception e) {
+            logger.error("获取磁盘缓存统计失败", e);
+            return ApiResponse.error("获取磁盘缓存统计失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取关联树变更检查统计
+     *
+     * @return 跟踪的表单数、轮询次数、查询数和轮询耗时
+     */
+    @GetMapping("/tree-watch")
+    public ApiResponse<Map<String, Object>> getTreeWatchMetrics() {
+        try {
+            return ApiResponse.success(treeChangeWatcher.getMetrics());
+        } catch (Exception e) {
+            logger.error("获取关联树变更检查指标失败", e);
+            return ApiResponse.error("获取关联树变更检查指标失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取数据库和租户发现缓存统计
+     *
+     * @return 各缓存的条目数、命中和刷新情况
+     */
+    @GetMapping("/discovery")
+    public ApiResponse<Map<String, Object>> getDiscoveryMetrics() {
+        try {
+            return ApiResponse.success(discoveryService.getMetrics());
+        } catch (Exception e) {
+            logger.error("获取发现缓存指标失败", e);
+            return ApiResponse.error("获取发现缓存指标失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取表单复杂度统计缓存情况
+     *
+     * @return 条目数、命中和刷新情况
+     */
+    @GetMapping("/analytics")
+    public ApiResponse<Map<String, Object>> getAnalyticsMetrics() {
+        try {
+            return ApiResponse.success(billAnalyticsService.getMetrics());
+        } catch (Exception e) {
+            logger.error("获取表单分析缓存指标失败", e);
+            return ApiResponse.error("获取表单分析缓存指标失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取请求追踪统计
+     *
+     * @return 追踪请求数、慢请求数和慢请求阈值
+     */
+    @GetMapping("/traces")
+    public ApiResponse<Map<String, Object>> getTraceMetrics() {
+        try {
+            return ApiResponse.success(queryTraceRecorder.getMetrics());
+        } catch (Exception e) {
+            logger.error("获取请求追踪统计失败", e);
+            return ApiResponse.error("获取请求追踪统计失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取最近的慢请求
+     *
+     * @return 慢请求及其SQL语句、绑定参数、耗时和行数，最新的在前
+     */
+    @GetMapping("/traces/slow")
+    public ApiResponse<List<Map<String, Object>>> getSlowTraces() {
+        try {
+            return ApiResponse.success(queryTraceRecorder.getSlowTraces());
+        } catch (Exception e) {
+            logger.error("获取慢请求失败", e);
+            return ApiResponse.error("获取慢请求失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取最近的请求摘要
+     *
+     * @return 请求摘要，最新的在前
+     */
+    @GetMapping("/traces/recent")
+    public ApiResponse<List<Map<String, Object>>> getRecentTraces() {
+        try {
+            return ApiResponse.success(queryTraceRecorder.getRecentTraces());
+        } catch (Exception e) {
+            logger.error("获取最近请求失败", e);
+            return ApiResponse.error("获取最近请求失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按追踪ID获取请求
+     *
+     * @param traceId 追踪ID（响应头X-Trace-Id）
+     * @return 慢请求返回语句明细，其他请求只有摘要
+     */
+    @GetMapping("/traces/{traceId}")
+    public ApiResponse<Map<String, Object>> getTrace(@PathVariable String traceId) {
+        try {
+            Map<String, Object> trace = queryTraceRecorder.getTrace(traceId);
+            if (trace == null) {
+                return ApiResponse.error("追踪不存在或已淘汰: " + traceId);
+            }
+            return ApiResponse.success(trace);
+        } catch (Exception e) {
+            logger.error("获取请求追踪失败", e);
+            return ApiResponse.error("获取请求追踪失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 开始JFR录制，已有录制时重新开始
+     *
+     * @param settings JFR预置配置（default或profile）
+     * @param maxAgeSeconds 保留最近多少秒的数据
+     * @return 录制状态
+     */
+    @PostMapping("/jfr/start")
+    public ApiResponse<Map<String, Object>> startRecording(@RequestParam(required = false) String settings,
+                                                           @RequestParam(required = false) Long maxAgeSeconds) {
+        try {
+            return ApiResponse.success(flightRecordingManager.start(settings, maxAgeSeconds));
+        } catch (Exception e) {
+            logger.error("开始JFR录制失败", e);
+            return ApiResponse.error("开始JFR录制失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取JFR录制状态
+     *
+     * @return 录制状态
+     */
+    @GetMapping("/jfr")
+    public ApiResponse<Map<String, Object>> getRecording() {
+        try {
+            return ApiResponse.success(flightRecordingManager.getStatus());
+        } catch (Exception e) {
+            logger.error("获取JFR录制状态失败", e);
+            return ApiResponse.error("获取JFR录制状态失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 导出当前JFR录制，文件直接写入响应流，录制继续进行
+     *
+     * @param response HTTP响应
+     * @return 没有录制时返回错误信息，导出成功时响应已直接写出
+     */
+    @GetMapping("/jfr/dump")
+    public ApiResponse<Void> dumpRecording(HttpServletResponse response) {
+        Path file;
+        try {
+            file = flightRecordingManager.dump();
+        } catch (Exception e) {
+            logger.error("导出JFR录制失败", e);
+            return ApiResponse.error("导出JFR录制失败: " + e.getMessage());
+        }
+        try {
+            response.setContentType("application/octet-stream");
+            response.setHeader("Content-Disposition", "attachment; filename=\"" + file.getFileName() + "\"");
+            response.setContentLengthLong(Files.size(file));
+            Files.copy(file, response.getOutputStream());
+            response.flushBuffer();
+        } catch (Exception e) {
+            logger.error("写出JFR录制失败", e);
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (Exception e) {
+                logger.warn("删除JFR临时文件失败: {}", file);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 停止并丢弃JFR录制
+     *
+     * @return 录制状态
+     */
+    @PostMapping("/jfr/stop")
+    public ApiResponse<Map<String, Object>> stopRecording() {
+        try {
+            return ApiResponse.success(flightRecordingManager.stop());
+        } catch (Exception e) {
+            logger.error("停止JFR录制失败", e);
+            return ApiResponse.error("停止JFR录制失败: " + e.getMessage());
+        }
+    }
+}
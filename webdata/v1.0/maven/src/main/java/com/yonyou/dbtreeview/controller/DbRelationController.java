@@ -1,16 +1,33 @@
 package com.yonyou.dbtreeview.controller;
 
+import com.yonyou.dbtreeview.cache.TreeResponseCache;
+import com.yonyou.dbtreeview.cache.TreeResponseLoader;
+import com.yonyou.dbtreeview.cache.TreeWireFormat;
 import com.yonyou.dbtreeview.dto.ApiResponse;
 import com.yonyou.dbtreeview.dto.DbConfigDTO;
 import com.yonyou.dbtreeview.dto.DbRelationRequest;
+import com.yonyou.dbtreeview.dto.RowBrowseRequest;
+import com.yonyou.dbtreeview.model.BillComplexity;
 import com.yonyou.dbtreeview.model.DbTreeResponse;
 import com.yonyou.dbtreeview.model.TableDetailsResponse;
+import com.yonyou.dbtreeview.model.TableRowsPage;
+import com.yonyou.dbtreeview.model.TenantBillCount;
+import com.yonyou.dbtreeview.model.AncestorPath;
+import com.yonyou.dbtreeview.model.TenantCustomizationReport;
+import com.yonyou.dbtreeview.service.BillAnalyticsService;
+import com.yonyou.dbtreeview.service.DbConfigService;
 import com.yonyou.dbtreeview.service.DbRelationService;
+import com.yonyou.dbtreeview.service.DiscoveryService;
+import com.yonyou.dbtreeview.service.TableBrowseService;
+import com.yonyou.dbtreeview.service.AncestorLookupService;
+import com.yonyou.dbtreeview.service.TenantCustomizationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.util.List;
 import java.util.Map;
 
@@ -27,26 +44,46 @@ public class DbRelationController {
     @Autowired
     private DbRelationService dbRelationService;
 
+    @Autowired
+    private DbConfigService dbConfigService;
+
+    @Autowired
+    private TableBrowseService tableBrowseService;
+
+    @Autowired
+    private DiscoveryService discoveryService;
+    
+    @Autowired
+    private BillAnalyticsService billAnalyticsService;
+
+    @Autowired
+    private TenantCustomizationService tenantCustomizationService;
+    
+    @Autowired
+    private AncestorLookupService ancestorLookupService;
+
+    @Autowired
+    private TreeResponseCache treeResponseCache;
+
+    @Autowired
+    private TreeResponseLoader treeResponseLoader;
+
     /**
      * 获取数据库表关联树形结构（默认不包含实体表）
      *
      * @param request 包含环境、数据库名称、表单编码和数据库配置的请求
-     * @return 树形结构数据
+     * @param httpRequest HTTP请求
+     * @param httpResponse HTTP响应
+     * @return 出错时返回错误信息，成功时树形结构数据已直接写入响应
      */
     @PostMapping("/tree")
-    public ApiResponse<DbTreeResponse> getDbRelationTree(@RequestBody DbRelationRequest request) {
+    public ApiResponse<DbTreeResponse> getDbRelationTree(@RequestBody DbRelationRequest request,
+                                                         HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
         logger.info("接收到获取数据库关联树请求: 环境={}, 数据库名={}, 表单编码={}, 租户ID={}", 
                 request.getEnvironment(), request.getDbName(), request.getBillNo(), request.getYtenant_id());
         
         try {
-            return ApiResponse.success(dbRelationService.getDbRelationTree(
-                    request.getEnvironment(),
-                    request.getDbName(),
-                    request.getBillNo(),
-                    request.getYtenant_id(),
-                    request.getDbConfig(),
-                    false // 不包含实体表
-            ));
+            return writeTree(request, false, httpRequest, httpResponse); // 不包含实体表
         } catch (Exception e) {
             logger.error("获取数据库关联树失败", e);
             return ApiResponse.error("获取数据库关联树失败: " + e.getMessage());
@@ -57,28 +94,60 @@ public class DbRelationController {
      * 获取数据库表关联树形结构（包含实体表）
      *
      * @param request 包含环境、数据库名称、表单编码和数据库配置的请求
-     * @return 树形结构数据
+     * @param httpRequest HTTP请求
+     * @param httpResponse HTTP响应
+     * @return 出错时返回错误信息，成功时树形结构数据已直接写入响应
      */
     @PostMapping("/tree-with-entity")
-    public ApiResponse<DbTreeResponse> getDbRelationTreeWithEntity(@RequestBody DbRelationRequest request) {
+    public ApiResponse<DbTreeResponse> getDbRelationTreeWithEntity(@RequestBody DbRelationRequest request,
+                                                                   HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
         logger.info("接收到获取包含实体表的数据库关联树请求: 环境={}, 数据库名={}, 表单编码={}, 租户ID={}", 
                 request.getEnvironment(), request.getDbName(), request.getBillNo(), request.getYtenant_id());
         
         try {
-            return ApiResponse.success(dbRelationService.getDbRelationTree(
-                    request.getEnvironment(),
-                    request.getDbName(),
-                    request.getBillNo(),
-                    request.getYtenant_id(),
-                    request.getDbConfig(),
-                    true // 包含实体表
-            ));
+            return writeTree(request, true, httpRequest, httpResponse); // 包含实体表
         } catch (Exception e) {
             logger.error("获取包含实体表的数据库关联树失败", e);
             return ApiResponse.error("获取包含实体表的数据库关联树失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 批量获取多个表单的数据库表关联树
+     *
+     * @param request 包含环境、数据库名称、表单编码列表和数据库配置的请求
+     * @return 表单编码到树形结构的映射
+     */
+    @PostMapping("/tree/batch")
+    public ApiResponse<Map<String, DbTreeResponse>> getDbRelationTrees(@RequestBody DbRelationRequest request) {
+        logger.info("接收到批量获取数据库关联树请求: 环境={}, 数据库名={}, 表单数={}, 租户ID={}",
+                request.getEnvironment(), request.getDbName(),
+                request.getBillNos() != null ? request.getBillNos().size() : 0, request.getYtenant_id());
+        
+        try {
+            if (request.getDbName() == null || request.getDbName().isEmpty()) {
+                return ApiResponse.error("数据库名称未指定");
+            }
+            
+            if (request.getBillNos() == null || request.getBillNos().isEmpty()) {
+                return ApiResponse.error("表单编码列表未指定");
+            }
+            
+            DbConfigDTO dbConfigDTO = resolveDbConfig(request);
+            if (dbConfigDTO == null) {
+                return ApiResponse.error("数据库配置未指定");
+            }
+            
+            Map<String, DbTreeResponse> trees = dbRelationService.getDbRelationTrees(
+                    request.getEnvironment(), request.getDbName(), request.getBillNos(), request.getYtenant_id(),
+                    dbConfigDTO, Boolean.TRUE.equals(request.getShowEntityTables()), request.getTreeOptions());
+            return ApiResponse.success(trees);
+        } catch (Exception e) {
+            logger.error("批量获取数据库关联树失败", e);
+            return ApiResponse.error("批量获取数据库关联树失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 获取表详情
      *
@@ -106,21 +175,15 @@ public class DbRelationController {
                 return ApiResponse.error("ID未指定");
             }
             
-            if (request.getDbConfig() == null) {
-                logger.error("数据库配置未指定");
-                return ApiResponse.error("数据库配置未指定");
-            }
-            
             // 添加日志记录参数
             logger.info("获取表详情, 参数详情: 环境={}, 数据库名={}, 表名={}, ID={}, 租户ID={}", 
                 request.getEnvironment(), request.getDbName(), request.getTableName(), request.getId(), request.getYtenant_id());
             
-            // 创建DTO对象
-            DbConfigDTO dbConfigDTO = new DbConfigDTO();
-            dbConfigDTO.setHost(request.getDbConfig().getHost());
-            dbConfigDTO.setPort(request.getDbConfig().getPort());
-            dbConfigDTO.setUsername(request.getDbConfig().getUsername());
-            dbConfigDTO.setPassword(request.getDbConfig().getPassword());
+            // 解析数据库配置（请求未携带时按环境使用服务端配置）
+            DbConfigDTO dbConfigDTO = resolveDbConfig(request);
+            if (dbConfigDTO == null) {
+                return ApiResponse.error("数据库配置未指定");
+            }
             
             // 调用服务
             TableDetailsResponse response = dbRelationService.getTableDetails(
@@ -129,7 +192,8 @@ public class DbRelationController {
                 request.getTableName(),
                 request.getId(),
                 request.getYtenant_id(),
-                dbConfigDTO
+                dbConfigDTO,
+                Boolean.TRUE.equals(request.getIncludeLargeColumns())
             );
             
             return ApiResponse.success(response);
@@ -139,6 +203,89 @@ public class DbRelationController {
         }
     }
 
+    /**
+     * 获取单个字段的内容（用于按需加载大字段），可指定offset和length获取部分内容
+     *
+     * @param request 包含表名、ID、字段名和范围的请求
+     * @return 字段内容及总字节数
+     */
+    @PostMapping("/table-column")
+    public ApiResponse<Map<String, Object>> getColumnValue(@RequestBody DbRelationRequest request) {
+        logger.info("接收到获取字段内容请求: 数据库名={}, 表名={}, ID={}, 字段={}, offset={}, length={}",
+                request.getDbName(), request.getTableName(), request.getId(), request.getColumnName(),
+                request.getOffset(), request.getLength());
+        
+        try {
+            String error = validateColumnRequest(request);
+            if (error != null) {
+                return ApiResponse.error(error);
+            }
+            
+            DbConfigDTO dbConfigDTO = resolveDbConfig(request);
+            if (dbConfigDTO == null) {
+                return ApiResponse.error("数据库配置未指定");
+            }
+            
+            return ApiResponse.success(dbRelationService.getColumnValue(
+                request.getEnvironment(),
+                request.getDbName(),
+                request.getTableName(),
+                request.getId(),
+                request.getYtenant_id(),
+                request.getColumnName(),
+                request.getOffset(),
+                request.getLength(),
+                dbConfigDTO
+            ));
+        } catch (Exception e) {
+            logger.error("获取字段内容失败", e);
+            return ApiResponse.error("获取字段内容失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 以原始字节流下载单个字段的内容，可指定offset和length
+     *
+     * @param request 包含表名、ID、字段名和范围的请求
+     * @param httpResponse HTTP响应
+     * @return 参数错误时返回错误信息，成功时内容已直接写入响应
+     */
+    @PostMapping("/table-column/stream")
+    public ApiResponse<Void> streamColumnValue(@RequestBody DbRelationRequest request, HttpServletResponse httpResponse) {
+        String error = validateColumnRequest(request);
+        if (error != null) {
+            return ApiResponse.error(error);
+        }
+        DbConfigDTO dbConfigDTO = resolveDbConfig(request);
+        if (dbConfigDTO == null) {
+            return ApiResponse.error("数据库配置未指定");
+        }
+        
+        try {
+            httpResponse.setContentType("application/octet-stream");
+            dbRelationService.streamColumnValue(
+                request.getEnvironment(),
+                request.getDbName(),
+                request.getTableName(),
+                request.getId(),
+                request.getYtenant_id(),
+                request.getColumnName(),
+                request.getOffset(),
+                request.getLength(),
+                dbConfigDTO,
+                httpResponse.getOutputStream()
+            );
+            return null;
+        } catch (Exception e) {
+            logger.error("读取字段内容失败", e);
+            if (httpResponse.isCommitted()) {
+                return null;
+            }
+            httpResponse.reset();
+            return ApiResponse.error("读取字段内容失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 更新表数据
      * 
@@ -169,17 +316,12 @@ public class DbRelationController {
                 return ApiResponse.error("没有需要更新的字段");
             }
             
-            if (request.getDbConfig() == null) {
+            // 解析数据库配置（请求未携带时按环境使用服务端配置）
+            DbConfigDTO dbConfigDTO = resolveDbConfig(request);
+            if (dbConfigDTO == null) {
                 return ApiResponse.error("数据库配置未指定");
             }
             
-            // 创建DTO对象
-            DbConfigDTO dbConfigDTO = new DbConfigDTO();
-            dbConfigDTO.setHost(request.getDbConfig().getHost());
-            dbConfigDTO.setPort(request.getDbConfig().getPort());
-            dbConfigDTO.setUsername(request.getDbConfig().getUsername());
-            dbConfigDTO.setPassword(request.getDbConfig().getPassword());
-            
             // 调用服务更新数据
             Map<String, Object> result = dbRelationService.updateTableData(
                 request.getEnvironment(),
@@ -195,6 +337,7 @@ public class DbRelationController {
             String sql = (String) result.get("sql");
             
             if (success) {
+                treeResponseCache.invalidate(TreeResponseCache.scope(dbConfigDTO, request.getDbName()));
                 return ApiResponse.success("数据更新成功", sql);
             } else {
                 return ApiResponse.error("数据更新失败", sql);
@@ -217,19 +360,15 @@ public class DbRelationController {
         
         try {
             // 参数验证
-            if (request.getDbConfig() == null) {
+            
+            // 解析数据库配置（请求未携带时按环境使用服务端配置）
+            DbConfigDTO dbConfigDTO = resolveDbConfig(request);
+            if (dbConfigDTO == null) {
                 return ApiResponse.error("数据库配置未指定");
             }
             
-            // 创建DTO对象
-            DbConfigDTO dbConfigDTO = new DbConfigDTO();
-            dbConfigDTO.setHost(request.getDbConfig().getHost());
-            dbConfigDTO.setPort(request.getDbConfig().getPort());
-            dbConfigDTO.setUsername(request.getDbConfig().getUsername());
-            dbConfigDTO.setPassword(request.getDbConfig().getPassword());
-            
-            // 调用服务获取数据库列表
-            List<String> databaseList = dbRelationService.getDatabaseList(
+            // 获取数据库列表（缓存，过期时后台刷新）
+            List<String> databaseList = discoveryService.getDatabaseList(
                 request.getEnvironment(),
                 dbConfigDTO
             );
@@ -241,6 +380,155 @@ public class DbRelationController {
         }
     }
     
+    /**
+     * 获取数据库中的租户及各租户表单数量
+     * 
+     * @param request 包含环境、数据库名称和数据库配置的请求
+     * @return 按表单数量降序排列的租户列表
+     */
+    @PostMapping("/tenant-list")
+    public ApiResponse<List<TenantBillCount>> getTenantList(@RequestBody DbRelationRequest request) {
+        logger.info("接收到获取租户清单请求: 环境={}, 数据库名={}", request.getEnvironment(), request.getDbName());
+        
+        try {
+            if (request.getDbName() == null || request.getDbName().isEmpty()) {
+                return ApiResponse.error("数据库名称未指定");
+            }
+            
+            DbConfigDTO dbConfigDTO = resolveDbConfig(request);
+            if (dbConfigDTO == null) {
+                return ApiResponse.error("数据库配置未指定");
+            }
+            
+            return ApiResponse.success(discoveryService.getTenantInventory(
+                request.getEnvironment(),
+                request.getDbName(),
+                dbConfigDTO
+            ));
+        } catch (Exception e) {
+            logger.error("获取租户清单失败", e);
+            return ApiResponse.error("获取租户清单失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 统计租户下全部表单的复杂度
+     * 
+     * @param request 包含环境、数据库名称、租户ID和数据库配置的请求
+     * @return 按估算节点数降序排列的表单复杂度
+     */
+    @PostMapping("/bill-complexity")
+    public ApiResponse<List<BillComplexity>> getBillComplexity(@RequestBody DbRelationRequest request) {
+        logger.info("接收到表单复杂度统计请求: 环境={}, 数据库名={}, 租户ID={}",
+                request.getEnvironment(), request.getDbName(), request.getYtenant_id());
+        
+        try {
+            if (request.getDbName() == null || request.getDbName().isEmpty()) {
+                return ApiResponse.error("数据库名称未指定");
+            }
+            
+            DbConfigDTO dbConfigDTO = resolveDbConfig(request);
+            if (dbConfigDTO == null) {
+                return ApiResponse.error("数据库配置未指定");
+            }
+            
+            String ytenant_id = request.getYtenant_id() != null && !request.getYtenant_id().isEmpty() ? request.getYtenant_id() : "0";
+            return ApiResponse.success(billAnalyticsService.getBillComplexity(
+                request.getEnvironment(),
+                request.getDbName(),
+                ytenant_id,
+                dbConfigDTO
+            ));
+        } catch (Exception e) {
+            logger.error("统计表单复杂度失败", e);
+            return ApiResponse.error("统计表单复杂度失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 找出定制了表单的租户，逐个租户与基础租户比较分组、字段和工具栏
+     * 
+     * @param request 包含环境、数据库名称、表单编码和数据库配置的请求
+     * @return 各租户的差异
+     */
+    @PostMapping("/tenant-customizations")
+    public ApiResponse<TenantCustomizationReport> getTenantCustomizations(@RequestBody DbRelationRequest request) {
+        logger.info("接收到租户定制分析请求: 环境={}, 数据库名={}, 表单编码={}",
+                request.getEnvironment(), request.getDbName(), request.getBillNo());
+        
+        try {
+            if (request.getDbName() == null || request.getDbName().isEmpty()) {
+                return ApiResponse.error("数据库名称未指定");
+            }
+            
+            if (request.getBillNo() == null || request.getBillNo().isEmpty()) {
+                return ApiResponse.error("表单编码未指定");
+            }
+            
+            DbConfigDTO dbConfigDTO = resolveDbConfig(request);
+            if (dbConfigDTO == null) {
+                return ApiResponse.error("数据库配置未指定");
+            }
+            
+            return ApiResponse.success(tenantCustomizationService.findCustomizations(
+                request.getEnvironment(),
+                request.getDbName(),
+                request.getBillNo(),
+                dbConfigDTO
+            ));
+        } catch (Exception e) {
+            logger.error("分析租户定制失败", e);
+            return ApiResponse.error("分析租户定制失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 按行ID反查所属表单
+     * 从错误日志中的bill_command、billitem_base、pb_filter_solution_common等行ID出发，
+     * 沿关联图向上找到bill_base，返回可直接用于展开关联树的节点路径
+     * 
+     * @param request 包含环境、数据库名称、表名、ID列表、租户ID和数据库配置的请求
+     * @return 每个ID的祖先路径，顺序与请求一致
+     */
+    @PostMapping("/ancestors")
+    public ApiResponse<List<AncestorPath>> getAncestors(@RequestBody DbRelationRequest request) {
+        logger.info("接收到反查所属表单请求: 环境={}, 数据库名={}, 表名={}, ID数={}",
+                request.getEnvironment(), request.getDbName(), request.getTableName(),
+                request.getIds() != null ? request.getIds().size() : 0);
+        
+        try {
+            if (request.getDbName() == null || request.getDbName().isEmpty()) {
+                return ApiResponse.error("数据库名称未指定");
+            }
+            
+            if (request.getTableName() == null || request.getTableName().isEmpty()) {
+                return ApiResponse.error("表名未指定");
+            }
+            
+            if (request.getIds() == null || request.getIds().isEmpty()) {
+                return ApiResponse.error("ID未指定");
+            }
+            
+            DbConfigDTO dbConfigDTO = resolveDbConfig(request);
+            if (dbConfigDTO == null) {
+                return ApiResponse.error("数据库配置未指定");
+            }
+            
+            return ApiResponse.success(ancestorLookupService.findAncestors(
+                request.getEnvironment(),
+                request.getDbName(),
+                request.getTableName(),
+                request.getIds(),
+                request.getYtenant_id(),
+                dbConfigDTO,
+                Boolean.TRUE.equals(request.getShowEntityTables())
+            ));
+        } catch (Exception e) {
+            logger.error("反查所属表单失败", e);
+            return ApiResponse.error("反查所属表单失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 获取表单编码列表
      * 
@@ -258,17 +546,12 @@ public class DbRelationController {
                 return ApiResponse.error("数据库名称未指定");
             }
             
-            if (request.getDbConfig() == null) {
+            // 解析数据库配置（请求未携带时按环境使用服务端配置）
+            DbConfigDTO dbConfigDTO = resolveDbConfig(request);
+            if (dbConfigDTO == null) {
                 return ApiResponse.error("数据库配置未指定");
             }
             
-            // 创建DTO对象
-            DbConfigDTO dbConfigDTO = new DbConfigDTO();
-            dbConfigDTO.setHost(request.getDbConfig().getHost());
-            dbConfigDTO.setPort(request.getDbConfig().getPort());
-            dbConfigDTO.setUsername(request.getDbConfig().getUsername());
-            dbConfigDTO.setPassword(request.getDbConfig().getPassword());
-            
             // 调用服务获取表单编码列表
             List<String> billNoList = dbRelationService.getBillNoList(
                 request.getEnvironment(),
@@ -283,4 +566,102 @@ public class DbRelationController {
             return ApiResponse.error("获取表单编码列表失败: " + e.getMessage());
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 分页浏览关联表数据（键集分页）
+     *
+     * @param request 包含表名、过滤条件、排序字段、页大小和游标的请求
+     * @return 一页数据和下一页游标
+     */
+    @PostMapping("/table-rows")
+    public ApiResponse<TableRowsPage> browseTableRows(@RequestBody RowBrowseRequest request) {
+        logger.info("接收到浏览表数据请求: 环境={}, 数据库名={}, 表名={}, 过滤字段={}, 排序字段={}",
+                request.getEnvironment(), request.getDbName(), request.getTableName(),
+                request.getFilterColumn(), request.getSortColumn());
+        
+        try {
+            if (request.getDbName() == null || request.getDbName().isEmpty()) {
+                return ApiResponse.error("数据库名称未指定");
+            }
+            
+            if (request.getTableName() == null || request.getTableName().isEmpty()) {
+                return ApiResponse.error("表名未指定");
+            }
+            
+            DbConfigDTO dbConfigDTO = dbConfigService.resolveConfig(request.getEnvironment(), request.getDbConfig());
+            if (dbConfigDTO == null) {
+                return ApiResponse.error("数据库配置未指定");
+            }
+            
+            return ApiResponse.success(tableBrowseService.browseRows(request, dbConfigDTO));
+        } catch (Exception e) {
+            logger.error("浏览表数据失败", e);
+            return ApiResponse.error("浏览表数据失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 构建关联树并按Accept协商的格式写出，完整构建的结果缓存编码后的字节，命中时直接写出
+     *
+     * @param request 请求
+     * @param showEntityTables 是否显示实体表
+     * @param httpRequest HTTP请求
+     * @param httpResponse HTTP响应
+     * @return 配置缺失时返回错误信息，其余情况响应已直接写出，返回null
+     */
+    private ApiResponse<DbTreeResponse> writeTree(DbRelationRequest request, boolean showEntityTables,
+                                                  HttpServletRequest httpRequest, HttpServletResponse httpResponse) throws Exception {
+        DbConfigDTO dbConfig = resolveDbConfig(request);
+        if (dbConfig == null) {
+            return ApiResponse.error("数据库配置未指定");
+        }
+        
+        TreeWireFormat format = TreeWireFormat.negotiate(httpRequest.getHeader("Accept"));
+        TreeResponseCache.CachedResponse cached = treeResponseLoader.load(
+                request.getEnvironment(),
+                request.getDbName(),
+                request.getBillNo(),
+                request.getYtenant_id(),
+                dbConfig,
+                showEntityTables,
+                request.getTreeOptions(),
+                format
+        );
+        cached.writeTo(httpRequest, httpResponse);
+        return null;
+    }
+    
+    /**
+     * 校验单字段查询参数
+     *
+     * @param request 请求
+     * @return 错误信息，校验通过时返回null
+     */
+    private String validateColumnRequest(DbRelationRequest request) {
+        if (request.getDbName() == null || request.getDbName().isEmpty()) {
+            return "数据库名称未指定";
+        }
+        if (request.getTableName() == null || request.getTableName().isEmpty()) {
+            return "表名未指定";
+        }
+        if (request.getId() == null || request.getId().isEmpty()) {
+            return "ID未指定";
+        }
+        if (request.getColumnName() == null || request.getColumnName().isEmpty()) {
+            return "字段名未指定";
+        }
+        return null;
+    }
+    
+    /**
+     * 解析请求使用的数据库配置
+     * 请求中带有连接信息时使用请求中的配置，否则按环境名称使用服务端保存的配置，
+     * 相同配置共用同一个连接池，客户端无需在每次请求中携带账号密码
+     *
+     * @param request 请求
+     * @return 数据库配置，均未找到时返回null
+     */
+    private DbConfigDTO resolveDbConfig(DbRelationRequest request) {
+        return dbConfigService.resolveConfig(request.getEnvironment(), request.getDbConfig());
+    }
+} 
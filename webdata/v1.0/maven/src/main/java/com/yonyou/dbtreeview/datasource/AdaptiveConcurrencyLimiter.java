@@ -0,0 +1,101 @@
+package com.yonyou.dbtreeview.datasource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 自适应并发限流器（AIMD）
+ * 按单个数据库端点（host:port）限制同时占用的连接数，
+ * 语句耗时正常时加性增加上限，超时或失败时乘性减小上限
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final String endpoint;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdMillis;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+    private long acquiredCount;
+    private long rejectedCount;
+    private long slowCount;
+    private long lastLatencyMillis;
+
+    public AdaptiveConcurrencyLimiter(String endpoint, int initialLimit, int minLimit, int maxLimit,
+                                      long latencyThresholdMillis, double backoffRatio) {
+        this.endpoint = endpoint;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.latencyThresholdMillis = latencyThresholdMillis;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /**
+     * 尝试获取许可，已达上限时立即返回false，不做等待
+     *
+     * @return 是否获取成功
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            rejectedCount++;
+            return false;
+        }
+        inFlight++;
+        acquiredCount++;
+        return true;
+    }
+
+    /**
+     * 释放许可
+     */
+    public synchronized void release() {
+        if (inFlight > 0) {
+            inFlight--;
+        }
+    }
+
+    /**
+     * 记录一次语句执行结果，用于调整并发上限
+     *
+     * @param latencyMillis 语句耗时（毫秒）
+     * @param failed 是否执行失败
+     */
+    public synchronized void onSample(long latencyMillis, boolean failed) {
+        lastLatencyMillis = latencyMillis;
+        if (failed || latencyMillis > latencyThresholdMillis) {
+            slowCount++;
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlight * 2 >= (int) limit) {
+            // 仅在并发确实被使用时才扩大上限，避免空闲时上限无限增长
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * 获取限流器当前状态
+     *
+     * @return 状态快照
+     */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("endpoint", endpoint);
+        metrics.put("limit", (int) limit);
+        metrics.put("inFlight", inFlight);
+        metrics.put("acquired", acquiredCount);
+        metrics.put("rejected", rejectedCount);
+        metrics.put("slowOrFailed", slowCount);
+        metrics.put("lastLatencyMillis", lastLatencyMillis);
+        return metrics;
+    }
+}
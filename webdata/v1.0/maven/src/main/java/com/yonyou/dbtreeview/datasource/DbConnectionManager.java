@@ -0,0 +1,575 @@
+package com.yonyou.dbtreeview.datasource;
+
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.trace.ConnectionAcquireEvent;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据库连接管理器
+ * 所有环境共用同一个dbproxy主机、仅端口不同，这里按端点（host:port）分别限流和熔断，
+ * 并为连接设置连接、读取和语句超时，避免某个环境变慢或挂起时占满请求线程影响其他环境。
+ * 连接按（URL、凭据摘要、超时）复用连接池，不再每次请求新建物理连接；配置变更后旧配置的连接池会被关闭。
+ * 配置了只读副本时，只读请求在健康的副本间轮询，写入和需要读到最新数据的请求走主库
+ */
+@Component
+public class DbConnectionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(DbConnectionManager.class);
+
+    @Value("${app.limiter.initial-limit:10}")
+    private int initialLimit;
+
+    @Value("${app.limiter.min-limit:2}")
+    private int minLimit;
+
+    @Value("${app.limiter.max-limit:64}")
+    private int maxLimit;
+
+    @Value("${app.limiter.latency-threshold-ms:2000}")
+    private long latencyThresholdMillis;
+
+    @Value("${app.limiter.backoff-ratio:0.8}")
+    private double backoffRatio;
+
+    @Value("${app.db.connect-timeout-ms:5000}")
+    private int defaultConnectTimeout;
+
+    @Value("${app.db.socket-timeout-ms:60000}")
+    private int defaultSocketTimeout;
+
+    @Value("${app.db.query-timeout-seconds:30}")
+    private int defaultQueryTimeout;
+
+    @Value("${app.breaker.failure-threshold:5}")
+    private int breakerFailureThreshold;
+
+    @Value("${app.breaker.probe-interval-ms:5000}")
+    private long breakerProbeInterval;
+
+    @Value("${app.pool.max-size:10}")
+    private int poolMaxSize;
+
+    @Value("${app.pool.idle-timeout-ms:60000}")
+    private long poolIdleTimeout;
+
+    @Value("${app.replica.health-check-interval-ms:10000}")
+    private long replicaCheckInterval;
+
+    @Value("${app.replica.max-lag-seconds:30}")
+    private long replicaMaxLagSeconds;
+
+    /**
+     * 端点限流器，键为host:port
+     */
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * 端点熔断器，键为host:port
+     */
+    private final Map<String, EndpointCircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * 连接池，键为poolOwner加URL
+     */
+    private final Map<String, HikariDataSource> pools = new ConcurrentHashMap<>();
+
+    /**
+     * 只读副本健康状态，键为host:port
+     */
+    private final Map<String, ReplicaHealth> replicas = new ConcurrentHashMap<>();
+
+    /**
+     * 副本轮询位置
+     */
+    private final AtomicInteger replicaCursor = new AtomicInteger();
+
+    /**
+     * 熔断探测线程
+     */
+    private final ScheduledExecutorService probeScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "db-endpoint-probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 创建副本打开连接的方式
+     */
+    private interface ConnectionOpener {
+        Connection open(DbConfigDTO config) throws SQLException;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (replicaCheckInterval > 0) {
+            probeScheduler.scheduleWithFixedDelay(this::checkReplicas, replicaCheckInterval, replicaCheckInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 获取数据库连接（主库）
+     *
+     * @param dbName 数据库名称，为空时仅连接到MySQL服务器
+     * @param dbConfig 数据库配置
+     * @return 受限流保护的连接
+     */
+    public Connection getConnection(String dbName, DbConfigDTO dbConfig) throws SQLException {
+        checkConfig(dbConfig);
+
+        // 处理可能的空数据库名
+        String url;
+        if (dbName == null || dbName.trim().isEmpty()) {
+            // 不指定数据库，仅连接到MySQL服务器
+            url = String.format("jdbc:mysql://%s:%s?useUnicode=true&characterEncoding=UTF-8&serverTimezone=Asia/Shanghai",
+                    dbConfig.getHost(), dbConfig.getPort());
+            logger.warn("未提供数据库名，将仅连接到MySQL服务器");
+        } else {
+            url = dbConfig.buildJdbcUrl(dbName);
+        }
+
+        logger.debug("连接数据库URL: {}", url);
+        return openGuarded(url, dbConfig);
+    }
+
+    /**
+     * 获取数据库连接（不指定具体数据库）
+     *
+     * @param dbConfig 数据库配置
+     * @return 受限流保护的连接
+     */
+    public Connection getConnectionWithoutDb(DbConfigDTO dbConfig) throws SQLException {
+        checkConfig(dbConfig);
+
+        // 不指定具体数据库的连接URL
+        String url = "jdbc:mysql://" + dbConfig.getHost() + ":" + dbConfig.getPort() +
+                "?useUnicode=true&characterEncoding=UTF-8&useSSL=false&serverTimezone=Asia/Shanghai&allowPublicKeyRetrieval=true";
+
+        logger.debug("数据库连接URL: {}", url);
+        return openGuarded(url, dbConfig);
+    }
+
+    /**
+     * 获取只读连接，配置了只读副本时在健康的副本间轮询，全部不可用时回退主库
+     *
+     * @param dbName 数据库名称
+     * @param dbConfig 数据库配置
+     * @return 受限流保护的连接
+     */
+    public Connection getReadConnection(String dbName, DbConfigDTO dbConfig) throws SQLException {
+        return openRead(dbConfig, config -> getConnection(dbName, config));
+    }
+
+    /**
+     * 获取只读连接（不指定具体数据库）
+     *
+     * @param dbConfig 数据库配置
+     * @return 受限流保护的连接
+     */
+    public Connection getReadConnectionWithoutDb(DbConfigDTO dbConfig) throws SQLException {
+        return openRead(dbConfig, this::getConnectionWithoutDb);
+    }
+
+    /**
+     * 获取与已有连接同一端点的连接，同一次构建中的并行查询由此读到同一副本（或主库）的数据
+     *
+     * @param caller 已有连接
+     * @param dbName 数据库名称
+     * @param dbConfig 数据库配置
+     * @return 受限流保护的连接
+     * @throws SQLException 无法确定已有连接的端点或取不到连接时抛出，调用方可继续使用已有连接
+     */
+    public Connection getConnectionLike(Connection caller, String dbName, DbConfigDTO dbConfig) throws SQLException {
+        String url = caller.getMetaData().getURL();
+        int start = url == null ? -1 : url.indexOf("//");
+        if (start < 0) {
+            throw new SQLException("无法确定连接的数据库端点: " + url);
+        }
+        String endpoint = url.substring(start + 2).split("[/?]", 2)[0];
+        if (endpoint.equals(dbConfig.getHost() + ":" + dbConfig.getPort())) {
+            return getConnection(dbName, dbConfig);
+        }
+        if (dbConfig.getReadReplicas() != null) {
+            for (DbConfigDTO replicaConfig : dbConfig.getReadReplicas()) {
+                DbConfigDTO replica = replicaConfig(dbConfig, replicaConfig);
+                if (replica != null && endpoint.equals(replica.getHost() + ":" + replica.getPort())) {
+                    return getConnection(dbName, replica);
+                }
+            }
+        }
+        throw new SQLException("数据库端点 " + endpoint + " 不在配置中");
+    }
+
+    /**
+     * 获取所有只读副本的健康状态
+     *
+     * @return 副本状态列表
+     */
+    public List<Map<String, Object>> getReplicaMetrics() {
+        List<Map<String, Object>> metrics = new ArrayList<>();
+        for (ReplicaHealth health : replicas.values()) {
+            metrics.add(health.snapshot());
+        }
+        return metrics;
+    }
+
+    /**
+     * 获取所有端点的限流状态
+     *
+     * @return 限流器状态列表
+     */
+    public List<Map<String, Object>> getLimiterMetrics() {
+        List<Map<String, Object>> metrics = new ArrayList<>();
+        for (AdaptiveConcurrencyLimiter limiter : limiters.values()) {
+            metrics.add(limiter.snapshot());
+        }
+        return metrics;
+    }
+
+    /**
+     * 获取所有端点的熔断状态
+     *
+     * @return 熔断器状态列表
+     */
+    public List<Map<String, Object>> getBreakerMetrics() {
+        List<Map<String, Object>> metrics = new ArrayList<>();
+        for (EndpointCircuitBreaker breaker : breakers.values()) {
+            metrics.add(breaker.snapshot());
+        }
+        return metrics;
+    }
+
+    /**
+     * 获取所有连接池的使用情况
+     *
+     * @return 连接池状态列表
+     */
+    public List<Map<String, Object>> getPoolMetrics() {
+        List<Map<String, Object>> metrics = new ArrayList<>();
+        for (HikariDataSource pool : pools.values()) {
+            HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("pool", pool.getPoolName());
+            item.put("url", pool.getJdbcUrl());
+            if (bean != null) {
+                item.put("active", bean.getActiveConnections());
+                item.put("idle", bean.getIdleConnections());
+                item.put("total", bean.getTotalConnections());
+                item.put("waiting", bean.getThreadsAwaitingConnection());
+            }
+            metrics.add(item);
+        }
+        return metrics;
+    }
+
+    /**
+     * 配置快照变更后关闭不再使用的连接池
+     * 连接池按完整凭据区分，旧配置的连接池不会再被新请求取到；这里只负责释放其连接，
+     * 仍在执行的查询结束后再关闭，最多等待socket超时
+     *
+     * @param previous 变更前的各环境配置
+     * @param current 变更后的各环境配置
+     */
+    public void retirePools(Collection<DbConfigDTO> previous, Collection<DbConfigDTO> current) {
+        Set<String> retired = poolOwners(previous);
+        retired.removeAll(poolOwners(current));
+        if (retired.isEmpty()) {
+            return;
+        }
+        for (Iterator<Map.Entry<String, HikariDataSource>> it = pools.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, HikariDataSource> entry = it.next();
+            String owner = entry.getKey().substring(0, entry.getKey().lastIndexOf('|'));
+            if (retired.contains(owner)) {
+                it.remove();
+                logger.info("配置已变更，关闭连接池 {}", entry.getValue().getPoolName());
+                closeWhenIdle(entry.getValue(), System.currentTimeMillis() + defaultSocketTimeout);
+            }
+        }
+    }
+
+    /**
+     * 主库和各只读副本的连接池归属
+     */
+    private Set<String> poolOwners(Collection<DbConfigDTO> configs) {
+        Set<String> owners = new HashSet<>();
+        if (configs == null) {
+            return owners;
+        }
+        for (DbConfigDTO config : configs) {
+            if (config == null || config.getHost() == null || config.getPort() == null) {
+                continue;
+            }
+            owners.add(poolOwner(config));
+            if (config.getReadReplicas() != null) {
+                for (DbConfigDTO replicaConfig : config.getReadReplicas()) {
+                    DbConfigDTO replica = replicaConfig(config, replicaConfig);
+                    if (replica != null) {
+                        owners.add(poolOwner(replica));
+                    }
+                }
+            }
+        }
+        return owners;
+    }
+
+    /**
+     * 没有借出的连接时关闭连接池，否则稍后再检查，到期后强制关闭
+     */
+    private void closeWhenIdle(HikariDataSource pool, long deadline) {
+        HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+        if (bean != null && bean.getActiveConnections() > 0 && System.currentTimeMillis() < deadline) {
+            bean.softEvictConnections();
+            probeScheduler.schedule(() -> closeWhenIdle(pool, deadline), 1, TimeUnit.SECONDS);
+            return;
+        }
+        pool.close();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        probeScheduler.shutdownNow();
+        for (HikariDataSource pool : pools.values()) {
+            pool.close();
+        }
+    }
+
+    private void checkConfig(DbConfigDTO dbConfig) throws SQLException {
+        if (dbConfig == null || dbConfig.getHost() == null || dbConfig.getPort() == null) {
+            throw new SQLException("数据库配置不完整");
+        }
+    }
+
+    private Connection openRead(DbConfigDTO dbConfig, ConnectionOpener opener) throws SQLException {
+        List<DbConfigDTO> replicaConfigs = dbConfig != null ? dbConfig.getReadReplicas() : null;
+        if (replicaConfigs == null || replicaConfigs.isEmpty()) {
+            return opener.open(dbConfig);
+        }
+
+        int start = Math.floorMod(replicaCursor.getAndIncrement(), replicaConfigs.size());
+        for (int i = 0; i < replicaConfigs.size(); i++) {
+            DbConfigDTO replica = replicaConfig(dbConfig, replicaConfigs.get((start + i) % replicaConfigs.size()));
+            if (replica == null) {
+                continue;
+            }
+            ReplicaHealth health = replicaFor(replica);
+            if (!health.isHealthy()) {
+                continue;
+            }
+            try {
+                Connection conn = opener.open(replica);
+                health.recordRead();
+                return conn;
+            } catch (EndpointOverloadException e) {
+                // 副本繁忙不代表不可用，换下一个
+                logger.debug("只读副本 {} 并发已满，尝试下一个", health.getEndpoint());
+            } catch (SQLException e) {
+                health.markDown(e.getMessage());
+                logger.warn("只读副本 {} 不可用，尝试下一个: {}", health.getEndpoint(), e.getMessage());
+            }
+        }
+
+        // 所有副本都不可用时回退主库
+        return opener.open(dbConfig);
+    }
+
+    /**
+     * 合并副本配置，未填写的用户名、密码和超时沿用主库
+     */
+    private DbConfigDTO replicaConfig(DbConfigDTO primary, DbConfigDTO replica) {
+        if (replica == null || replica.getHost() == null || replica.getHost().isEmpty()) {
+            return null;
+        }
+        DbConfigDTO config = new DbConfigDTO(replica.getHost(),
+                replica.getPort() != null && !replica.getPort().isEmpty() ? replica.getPort() : primary.getPort(),
+                replica.getUsername() != null && !replica.getUsername().isEmpty() ? replica.getUsername() : primary.getUsername(),
+                replica.getPassword() != null && !replica.getPassword().isEmpty() ? replica.getPassword() : primary.getPassword());
+        config.setConnectTimeout(replica.getConnectTimeout() != null ? replica.getConnectTimeout() : primary.getConnectTimeout());
+        config.setSocketTimeout(replica.getSocketTimeout() != null ? replica.getSocketTimeout() : primary.getSocketTimeout());
+        config.setQueryTimeout(replica.getQueryTimeout() != null ? replica.getQueryTimeout() : primary.getQueryTimeout());
+        return config;
+    }
+
+    private ReplicaHealth replicaFor(DbConfigDTO replica) {
+        String endpoint = replica.getHost() + ":" + replica.getPort();
+        ReplicaHealth health = replicas.computeIfAbsent(endpoint, key -> new ReplicaHealth(key, replica));
+        health.setConfig(replica);
+        return health;
+    }
+
+    /**
+     * 后台检查所有用过的副本：能否建立连接，以及复制延迟是否超过上限
+     */
+    private void checkReplicas() {
+        for (ReplicaHealth health : replicas.values()) {
+            DbConfigDTO config = health.getConfig();
+            String url = "jdbc:mysql://" + config.getHost() + ":" + config.getPort() +
+                    "?useUnicode=true&characterEncoding=UTF-8&useSSL=false&serverTimezone=Asia/Shanghai&allowPublicKeyRetrieval=true";
+            try (Connection conn = DriverManager.getConnection(url, buildProperties(config))) {
+                Long lag = replicationLag(conn);
+                if (lag != null && lag < 0) {
+                    health.recordCheck(false, null, "复制线程未运行");
+                } else if (lag != null && replicaMaxLagSeconds > 0 && lag > replicaMaxLagSeconds) {
+                    health.recordCheck(false, lag, "复制延迟 " + lag + " 秒，超过上限 " + replicaMaxLagSeconds + " 秒");
+                } else {
+                    health.recordCheck(true, lag, null);
+                }
+            } catch (SQLException e) {
+                health.recordCheck(false, null, e.getMessage());
+                logger.debug("检查只读副本 {} 失败: {}", health.getEndpoint(), e.getMessage());
+            } catch (RuntimeException e) {
+                logger.warn("检查只读副本 {} 出错", health.getEndpoint(), e);
+            }
+        }
+    }
+
+    /**
+     * 读取复制延迟，没有权限或不是复制节点时返回空，复制线程未运行时返回-1
+     */
+    private Long replicationLag(Connection conn) {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SHOW SLAVE STATUS")) {
+            if (rs.next()) {
+                long lag = rs.getLong("Seconds_Behind_Master");
+                return rs.wasNull() ? -1L : lag;
+            }
+        } catch (SQLException e) {
+            logger.debug("读取复制延迟失败: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private Connection openGuarded(String url, DbConfigDTO dbConfig) throws SQLException {
+        EndpointCircuitBreaker breaker = breakerFor(dbConfig);
+        breaker.setProbe(() -> probe(url, dbConfig));
+        if (!breaker.allowRequest()) {
+            throw new EndpointUnavailableException(breaker.getEndpoint());
+        }
+
+        AdaptiveConcurrencyLimiter limiter = limiterFor(dbConfig);
+        if (!limiter.tryAcquire()) {
+            logger.warn("数据库端点 {} 并发已满，拒绝请求", limiter.getEndpoint());
+            throw new EndpointOverloadException(limiter.getEndpoint(), limiter.getLimit());
+        }
+
+        ConnectionAcquireEvent acquireEvent = new ConnectionAcquireEvent(limiter.getEndpoint());
+        try {
+            Connection conn = poolFor(url, dbConfig).getConnection();
+            acquireEvent.finish(true);
+            breaker.recordSuccess();
+            return GuardedConnection.wrap(conn, limiter, breaker, valueOrDefault(dbConfig.getQueryTimeout(), defaultQueryTimeout));
+        } catch (SQLException e) {
+            acquireEvent.finish(false);
+            limiter.release();
+            limiter.onSample(0, EndpointCircuitBreaker.isEndpointFailure(e));
+            breaker.recordFailure(e);
+            throw e;
+        } catch (RuntimeException e) {
+            acquireEvent.finish(false);
+            limiter.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 获取连接池，不存在时创建
+     * 连接池不预建连接，空闲连接超时后释放，未使用的数据库不会长期占用连接
+     */
+    private HikariDataSource poolFor(String url, DbConfigDTO dbConfig) {
+        String key = poolOwner(dbConfig) + "|" + url;
+        return pools.computeIfAbsent(key, k -> {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("db-" + dbConfig.getHost() + "-" + dbConfig.getPort() + "-" + pools.size());
+            config.setDriverClassName("com.mysql.cj.jdbc.Driver");
+            config.setJdbcUrl(url);
+            config.setDataSourceProperties(buildProperties(dbConfig));
+            config.setMaximumPoolSize(poolMaxSize);
+            config.setMinimumIdle(0);
+            config.setIdleTimeout(poolIdleTimeout);
+            config.setConnectionTimeout(Math.max(250, valueOrDefault(dbConfig.getConnectTimeout(), defaultConnectTimeout)));
+            // 不在创建时校验连接，连接失败由熔断器统一处理
+            config.setInitializationFailTimeout(-1);
+            return new HikariDataSource(config);
+        });
+    }
+
+    /**
+     * 连接池归属：端点、凭据摘要和连接属性相同的配置共用连接池，修改密码或超时后使用新的连接池
+     */
+    private String poolOwner(DbConfigDTO dbConfig) {
+        return dbConfig.getHost() + ":" + dbConfig.getPort() + "|" + dbConfig.credentialsFingerprint()
+                + "|" + valueOrDefault(dbConfig.getConnectTimeout(), defaultConnectTimeout)
+                + "|" + valueOrDefault(dbConfig.getSocketTimeout(), defaultSocketTimeout);
+    }
+
+    /**
+     * 熔断后的后台探测：建立一个短连接并校验可用性
+     */
+    private boolean probe(String url, DbConfigDTO dbConfig) {
+        Properties props = buildProperties(dbConfig);
+        try (Connection conn = DriverManager.getConnection(url, props)) {
+            return conn.isValid(Math.max(1, valueOrDefault(dbConfig.getConnectTimeout(), defaultConnectTimeout) / 1000));
+        } catch (SQLException e) {
+            logger.debug("探测数据库端点 {}:{} 失败: {}", dbConfig.getHost(), dbConfig.getPort(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 构建连接属性，未单独配置的超时使用全局默认值
+     */
+    private Properties buildProperties(DbConfigDTO dbConfig) {
+        Properties props = new Properties();
+        if (dbConfig.getUsername() != null) {
+            props.setProperty("user", dbConfig.getUsername());
+        }
+        if (dbConfig.getPassword() != null) {
+            props.setProperty("password", dbConfig.getPassword());
+        }
+        props.setProperty("connectTimeout", String.valueOf(valueOrDefault(dbConfig.getConnectTimeout(), defaultConnectTimeout)));
+        props.setProperty("socketTimeout", String.valueOf(valueOrDefault(dbConfig.getSocketTimeout(), defaultSocketTimeout)));
+        return props;
+    }
+
+    private int valueOrDefault(Integer value, int defaultValue) {
+        return value != null && value >= 0 ? value : defaultValue;
+    }
+
+    private EndpointCircuitBreaker breakerFor(DbConfigDTO dbConfig) {
+        String endpoint = dbConfig.getHost() + ":" + dbConfig.getPort();
+        return breakers.computeIfAbsent(endpoint, key -> new EndpointCircuitBreaker(
+                key, breakerFailureThreshold, breakerProbeInterval, probeScheduler));
+    }
+
+    private AdaptiveConcurrencyLimiter limiterFor(DbConfigDTO dbConfig) {
+        String endpoint = dbConfig.getHost() + ":" + dbConfig.getPort();
+        return limiters.computeIfAbsent(endpoint, key -> new AdaptiveConcurrencyLimiter(
+                key, initialLimit, minLimit, maxLimit, latencyThresholdMillis, backoffRatio));
+    }
+}
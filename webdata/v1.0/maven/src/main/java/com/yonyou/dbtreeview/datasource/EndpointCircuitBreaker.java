@@ -0,0 +1,189 @@
+package com.yonyou.dbtreeview.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据库端点熔断器
+ * 连续出现连接类故障达到阈值后熔断，熔断期间不再为该端点建立新连接，
+ * 由后台任务定期探测，探测成功后自动恢复
+ */
+public class EndpointCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(EndpointCircuitBreaker.class);
+
+    /**
+     * 端点探测
+     */
+    public interface Probe {
+        /**
+         * 探测端点是否恢复
+         *
+         * @return 是否可用
+         */
+        boolean probe();
+    }
+
+    private final String endpoint;
+    private final int failureThreshold;
+    private final long probeIntervalMillis;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile boolean open;
+    private volatile Probe probe;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long openCount;
+    private long rejectedCount;
+    private String lastError;
+    private ScheduledFuture<?> probeTask;
+
+    public EndpointCircuitBreaker(String endpoint, int failureThreshold, long probeIntervalMillis,
+                                  ScheduledExecutorService scheduler) {
+        this.endpoint = endpoint;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.probeIntervalMillis = probeIntervalMillis;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 判断SQL异常是否属于端点故障（连接失败、网络中断），只计入连接类异常和08类SQLState。
+     * 语句超时和取消只说明单条语句慢或被主动中止，端点本身仍可用，SQL语法等业务错误同样不计入
+     *
+     * @param e SQL异常
+     * @return 是否为端点故障
+     */
+    public static boolean isEndpointFailure(SQLException e) {
+        if (e instanceof EndpointOverloadException || e instanceof EndpointUnavailableException) {
+            return false;
+        }
+        String sqlState = e.getSQLState();
+        if (e instanceof SQLTimeoutException || isCancellation(sqlState)) {
+            return false;
+        }
+        if (e instanceof SQLRecoverableException || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLTransientConnectionException) {
+            return true;
+        }
+        return sqlState != null && sqlState.startsWith("08");
+    }
+
+    /**
+     * 语句被取消或中断：70100为MySQL查询被KILL QUERY中断，S1008为驱动端Statement.cancel
+     */
+    private static boolean isCancellation(String sqlState) {
+        return "70100".equals(sqlState) || "S1008".equals(sqlState);
+    }
+
+    /**
+     * 是否允许建立新连接
+     *
+     * @return 熔断期间返回false
+     */
+    public boolean allowRequest() {
+        if (open) {
+            synchronized (this) {
+                rejectedCount++;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 设置探测方式，使用最近一次的连接配置
+     *
+     * @param probe 探测
+     */
+    public void setProbe(Probe probe) {
+        this.probe = probe;
+    }
+
+    /**
+     * 记录一次成功调用
+     */
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * 记录一次失败调用
+     *
+     * @param e SQL异常
+     */
+    public synchronized void recordFailure(SQLException e) {
+        if (!isEndpointFailure(e)) {
+            return;
+        }
+        consecutiveFailures++;
+        lastError = e.getMessage();
+        if (!open && consecutiveFailures >= failureThreshold) {
+            open = true;
+            openedAt = System.currentTimeMillis();
+            openCount++;
+            logger.warn("数据库端点 {} 连续失败 {} 次，已熔断: {}", endpoint, consecutiveFailures, lastError);
+            scheduleProbe();
+        }
+    }
+
+    private void scheduleProbe() {
+        if (probeTask != null && !probeTask.isDone()) {
+            return;
+        }
+        probeTask = scheduler.scheduleWithFixedDelay(this::runProbe,
+                probeIntervalMillis, probeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void runProbe() {
+        Probe current = probe;
+        boolean recovered = false;
+        try {
+            recovered = current != null && current.probe();
+        } catch (RuntimeException e) {
+            logger.debug("探测数据库端点 {} 失败: {}", endpoint, e.getMessage());
+        }
+        if (recovered) {
+            synchronized (this) {
+                open = false;
+                consecutiveFailures = 0;
+                if (probeTask != null) {
+                    probeTask.cancel(false);
+                    probeTask = null;
+                }
+            }
+            logger.info("数据库端点 {} 探测成功，熔断已恢复", endpoint);
+        }
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * 获取熔断器当前状态
+     *
+     * @return 状态快照
+     */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("endpoint", endpoint);
+        metrics.put("state", open ? "OPEN" : "CLOSED");
+        metrics.put("consecutiveFailures", consecutiveFailures);
+        metrics.put("openCount", openCount);
+        metrics.put("rejected", rejectedCount);
+        metrics.put("openedAt", open ? openedAt : null);
+        metrics.put("lastError", lastError);
+        return metrics;
+    }
+}
@@ -0,0 +1,14 @@
+package com.yonyou.dbtreeview.datasource;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * 数据库端点过载异常
+ * 端点并发已达上限时快速失败，不占用请求线程等待
+ */
+public class EndpointOverloadException extends SQLTransientConnectionException {
+
+    public EndpointOverloadException(String endpoint, int limit) {
+        super(String.format("数据库端点 %s 繁忙（并发上限 %d），请稍后重试", endpoint, limit));
+    }
+}
@@ -0,0 +1,14 @@
+package com.yonyou.dbtreeview.datasource;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * 数据库端点不可用异常
+ * 端点处于熔断状态时直接抛出，不再尝试建立连接
+ */
+public class EndpointUnavailableException extends SQLTransientConnectionException {
+
+    public EndpointUnavailableException(String endpoint) {
+        super(String.format("数据库端点 %s 连续故障已熔断，正在后台探测恢复", endpoint));
+    }
+}
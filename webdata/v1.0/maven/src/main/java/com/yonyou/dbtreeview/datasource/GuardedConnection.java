@@ -0,0 +1,231 @@
+package com.yonyou.dbtreeview.datasource;
+
+import com.yonyou.dbtreeview.trace.QueryTrace;
+import com.yonyou.dbtreeview.trace.SqlRecord;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 受保护的数据库连接
+ * 通过动态代理包装原始连接：为每条语句设置执行超时，统计语句耗时反馈给限流器，
+ * 把端点故障报告给熔断器，关闭连接时归还限流许可。
+ * 当前线程绑定了请求追踪时，同时记录每条语句的SQL、绑定参数、耗时和行数
+ */
+public final class GuardedConnection {
+
+    private GuardedConnection() {
+    }
+
+    /**
+     * 包装连接
+     *
+     * @param target 原始连接
+     * @param limiter 端点限流器（已获取许可）
+     * @param breaker 端点熔断器
+     * @param queryTimeoutSeconds 语句执行超时（秒），0表示不限制
+     * @return 代理连接
+     */
+    public static Connection wrap(Connection target, AdaptiveConcurrencyLimiter limiter,
+                                  EndpointCircuitBreaker breaker, int queryTimeoutSeconds) {
+        return (Connection) Proxy.newProxyInstance(
+                GuardedConnection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandler(target, limiter, breaker, queryTimeoutSeconds));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * 连接代理
+     */
+    private static class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final EndpointCircuitBreaker breaker;
+        private final int queryTimeoutSeconds;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        ConnectionHandler(Connection target, AdaptiveConcurrencyLimiter limiter,
+                          EndpointCircuitBreaker breaker, int queryTimeoutSeconds) {
+            this.target = target;
+            this.limiter = limiter;
+            this.breaker = breaker;
+            this.queryTimeoutSeconds = queryTimeoutSeconds;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                try {
+                    return GuardedConnection.invoke(target, method, args);
+                } finally {
+                    if (released.compareAndSet(false, true)) {
+                        limiter.release();
+                    }
+                }
+            }
+
+            Object result = GuardedConnection.invoke(target, method, args);
+            if (result instanceof Statement) {
+                if (queryTimeoutSeconds > 0) {
+                    ((Statement) result).setQueryTimeout(queryTimeoutSeconds);
+                }
+                Class<?> type = Statement.class;
+                String sql = null;
+                if ("prepareCall".equals(name)) {
+                    type = CallableStatement.class;
+                    sql = (String) args[0];
+                } else if ("prepareStatement".equals(name)) {
+                    type = PreparedStatement.class;
+                    sql = (String) args[0];
+                }
+                return Proxy.newProxyInstance(
+                        GuardedConnection.class.getClassLoader(),
+                        new Class<?>[]{type},
+                        new StatementHandler(result, limiter, breaker, sql));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 语句代理，只对execute系列方法计时
+     */
+    private static class StatementHandler implements InvocationHandler {
+
+        private final Object target;
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final EndpointCircuitBreaker breaker;
+        private final String sql;
+        private Object[] params;
+        private int paramCount;
+
+        StatementHandler(Object target, AdaptiveConcurrencyLimiter limiter, EndpointCircuitBreaker breaker, String sql) {
+            this.target = target;
+            this.limiter = limiter;
+            this.breaker = breaker;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+                        && QueryTrace.current() != null) {
+                    recordParam((Integer) args[0], "setNull".equals(name) ? null : args[1]);
+                } else if ("clearParameters".equals(name)) {
+                    params = null;
+                    paramCount = 0;
+                }
+                return GuardedConnection.invoke(target, method, args);
+            }
+
+            QueryTrace trace = QueryTrace.current();
+            SqlRecord record = null;
+            if (trace != null) {
+                String statementSql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+                record = trace.begin(statementSql, params != null ? Arrays.copyOf(params, paramCount) : null);
+            }
+
+            long start = System.nanoTime();
+            boolean failed = false;
+            String error = null;
+            long rows = -1;
+            try {
+                Object result = GuardedConnection.invoke(target, method, args);
+                breaker.recordSuccess();
+                if (record != null) {
+                    if (result instanceof ResultSet) {
+                        result = countRows((ResultSet) result, record);
+                    } else {
+                        rows = updateCount(result);
+                    }
+                }
+                return result;
+            } catch (SQLException e) {
+                failed = EndpointCircuitBreaker.isEndpointFailure(e);
+                if (failed) {
+                    breaker.recordFailure(e);
+                }
+                error = e.getMessage();
+                throw e;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                limiter.onSample(elapsed / 1_000_000L, failed);
+                if (record != null) {
+                    trace.complete(record, elapsed, rows, error);
+                }
+            }
+        }
+
+        private void recordParam(int index, Object value) {
+            if (index < 1) {
+                return;
+            }
+            if (params == null) {
+                params = new Object[Math.max(8, index)];
+            } else if (index > params.length) {
+                params = Arrays.copyOf(params, Math.max(index, params.length * 2));
+            }
+            params[index - 1] = value;
+            paramCount = Math.max(paramCount, index);
+        }
+
+        private static long updateCount(Object result) {
+            if (result instanceof Number) {
+                return ((Number) result).longValue();
+            }
+            if (result instanceof int[]) {
+                long total = 0;
+                for (int count : (int[]) result) {
+                    total += Math.max(0, count);
+                }
+                return total;
+            }
+            if (result instanceof long[]) {
+                long total = 0;
+                for (long count : (long[]) result) {
+                    total += Math.max(0, count);
+                }
+                return total;
+            }
+            return -1;
+        }
+
+        /**
+         * 包装结果集，在读取时累计行数
+         */
+        private static ResultSet countRows(ResultSet rs, SqlRecord record) {
+            return (ResultSet) Proxy.newProxyInstance(
+                    GuardedConnection.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        Object result = GuardedConnection.invoke(rs, method, args);
+                        if (Boolean.TRUE.equals(result) && "next".equals(method.getName())) {
+                            record.addRow();
+                        }
+                        return result;
+                    });
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.yonyou.dbtreeview.datasource;
+
+import com.yonyou.dbtreeview.trace.QueryTrace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 对冲查询执行器
+ * 只读查询在调用方的连接上执行，超过该语句最近的P95耗时仍未返回时，在另一个池化连接上再发一次相同查询，
+ * 取先返回的结果并取消另一个。对冲次数受总查询数比例限制，避免放大数据库压力
+ */
+@Component
+public class HedgedQueryExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(HedgedQueryExecutor.class);
+
+    /**
+     * 连接来源，每次调用返回一个新借出的连接
+     */
+    public interface ConnectionSource {
+        Connection getConnection() throws SQLException;
+    }
+
+    @Value("${app.hedge.max-ratio:0.05}")
+    private double maxHedgeRatio;
+
+    @Value("${app.hedge.min-samples:20}")
+    private int minSamples;
+
+    @Value("${app.hedge.window-size:200}")
+    private int windowSize;
+
+    @Value("${app.hedge.min-delay-ms:20}")
+    private long minDelayMillis;
+
+    @Value("${app.hedge.max-threads:16}")
+    private int maxThreads;
+
+    private final Map<String, LatencyTracker> trackers = new ConcurrentHashMap<>();
+    private final AtomicLong queryCount = new AtomicLong();
+    private final AtomicLong hedgeCount = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong hedgeDenied = new AtomicLong();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "db-hedge-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 执行只读查询，必要时发起对冲
+     * 主查询在调用方的连接和线程上执行；只有超过P95仍未返回时，对冲查询才从连接来源借出一个连接，
+     * 因此一次调用最多占用两个连接
+     *
+     * @param statementKey 语句标识，用于分别统计耗时
+     * @param sql 查询SQL
+     * @param params 参数
+     * @param timeoutSeconds 语句超时（秒），0表示使用连接默认值
+     * @param conn 调用方的连接，主查询在其上执行
+     * @param hedgeSource 对冲查询使用的连接来源
+     * @return 查询结果，每行按列名保存为字符串
+     */
+    public List<Map<String, Object>> query(String statementKey, String sql, List<Object> params, int timeoutSeconds,
+                                           Connection conn, ConnectionSource hedgeSource) throws SQLException {
+        LatencyTracker tracker = trackers.computeIfAbsent(statementKey, key -> new LatencyTracker(windowSize));
+        queryCount.incrementAndGet();
+
+        QueryTask primary = new QueryTask(sql, params, timeoutSeconds, tracker);
+        // 样本不足时无法判断是否慢，直接执行
+        if (tracker.size() < minSamples) {
+            return primary.call(conn);
+        }
+        long hedgeDelay = Math.max(minDelayMillis, tracker.percentile(0.95));
+
+        Hedge hedge = new Hedge(statementKey, primary, new QueryTask(sql, params, timeoutSeconds, tracker), hedgeSource, hedgeDelay);
+        try {
+            executor.execute(hedge);
+        } catch (RejectedExecutionException e) {
+            return primary.call(conn);
+        }
+
+        List<Map<String, Object>> rows = null;
+        SQLException primaryError = null;
+        try {
+            rows = primary.call(conn);
+        } catch (SQLException e) {
+            primaryError = e;
+        }
+        if (hedge.primaryFinished()) {
+            // 对冲尚未发起，之后也不会发起
+            if (primaryError != null) {
+                throw primaryError;
+            }
+            return rows;
+        }
+        if (primaryError == null) {
+            hedge.cancel();
+            return rows;
+        }
+
+        // 主查询失败或因对冲先返回被取消，使用对冲结果
+        try {
+            List<Map<String, Object>> hedgeRows = hedge.await();
+            hedgeWins.incrementAndGet();
+            return hedgeRows;
+        } catch (SQLException e) {
+            throw primaryError;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            hedge.cancel();
+            throw new SQLException("查询被中断", e);
+        }
+    }
+
+    /**
+     * 获取对冲统计
+     *
+     * @return 查询数、对冲数、对冲胜出数和各语句P95
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long queries = queryCount.get();
+        long hedges = hedgeCount.get();
+        metrics.put("queries", queries);
+        metrics.put("hedges", hedges);
+        metrics.put("hedgeWins", hedgeWins.get());
+        metrics.put("hedgeDenied", hedgeDenied.get());
+        metrics.put("hedgeRate", queries > 0 ? (double) hedges / queries : 0.0);
+        metrics.put("maxHedgeRatio", maxHedgeRatio);
+
+        Map<String, Object> statements = new LinkedHashMap<>();
+        for (Map.Entry<String, LatencyTracker> entry : trackers.entrySet()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("samples", entry.getValue().size());
+            item.put("p50Millis", entry.getValue().percentile(0.5));
+            item.put("p95Millis", entry.getValue().percentile(0.95));
+            statements.put(entry.getKey(), item);
+        }
+        metrics.put("statements", statements);
+        return metrics;
+    }
+
+    /**
+     * 读取结果集，每行按列名保存为字符串
+     *
+     * @param rs 结果集
+     * @return 行列表
+     */
+    public static List<Map<String, Object>> readRows(ResultSet rs) throws SQLException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        ResultSetMetaData meta = rs.getMetaData();
+        int columnCount = meta.getColumnCount();
+        while (rs.next()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 1; i <= columnCount; i++) {
+                row.put(meta.getColumnLabel(i), rs.getString(i));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private boolean allowHedge() {
+        return hedgeCount.get() + 1 <= Math.max(1.0, maxHedgeRatio * queryCount.get());
+    }
+
+    /**
+     * 对冲任务：等待主查询到P95耗时，仍未返回时在借出的连接上执行同一查询，先返回时取消主查询
+     */
+    private class Hedge implements Runnable {
+
+        private static final int WAITING = 0;
+        private static final int HEDGING = 1;
+        private static final int PRIMARY_FINISHED = 2;
+
+        private final String statementKey;
+        private final QueryTask primary;
+        private final QueryTask task;
+        private final ConnectionSource source;
+        private final long delayMillis;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private final CountDownLatch primaryDone = new CountDownLatch(1);
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile List<Map<String, Object>> rows;
+        private volatile SQLException error;
+
+        Hedge(String statementKey, QueryTask primary, QueryTask task, ConnectionSource source, long delayMillis) {
+            this.statementKey = statementKey;
+            this.primary = primary;
+            this.task = task;
+            this.source = source;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (primaryDone.await(delayMillis, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+                if (!allowHedge()) {
+                    hedgeDenied.incrementAndGet();
+                    return;
+                }
+                if (!state.compareAndSet(WAITING, HEDGING)) {
+                    return;
+                }
+                hedgeCount.incrementAndGet();
+                logger.debug("语句 {} 超过P95耗时 {}ms 未返回，发起对冲查询", statementKey, delayMillis);
+                try (Connection conn = source.getConnection()) {
+                    rows = task.call(conn);
+                }
+                // 对冲先返回，取消仍在执行的主查询，调用方随即使用对冲结果
+                primary.cancel();
+            } catch (SQLException e) {
+                error = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                done.countDown();
+            }
+        }
+
+        /**
+         * 主查询结束
+         *
+         * @return 对冲未发起时返回true，此后也不会再发起
+         */
+        boolean primaryFinished() {
+            primaryDone.countDown();
+            return state.compareAndSet(WAITING, PRIMARY_FINISHED);
+        }
+
+        /**
+         * 等待对冲查询结束
+         */
+        List<Map<String, Object>> await() throws SQLException, InterruptedException {
+            done.await();
+            if (rows == null) {
+                throw error != null ? error : new SQLException("对冲查询未完成");
+            }
+            return rows;
+        }
+
+        void cancel() {
+            task.cancel();
+        }
+    }
+
+    /**
+     * 单次查询任务，可从其他线程取消正在执行的语句
+     */
+    private static class QueryTask {
+
+        private final String sql;
+        private final List<Object> params;
+        private final int timeoutSeconds;
+        private final LatencyTracker tracker;
+        private final QueryTrace trace;
+        private final AtomicReference<PreparedStatement> running = new AtomicReference<>();
+        private volatile boolean cancelled;
+
+        QueryTask(String sql, List<Object> params, int timeoutSeconds, LatencyTracker tracker) {
+            this.sql = sql;
+            this.params = params;
+            this.timeoutSeconds = timeoutSeconds;
+            this.tracker = tracker;
+            // 对冲线程上执行的语句记入发起请求的追踪
+            this.trace = QueryTrace.current();
+        }
+
+        /**
+         * 在给定连接上执行查询，不关闭连接
+         */
+        List<Map<String, Object>> call(Connection conn) throws SQLException {
+            long start = System.nanoTime();
+            QueryTrace previous = QueryTrace.attach(trace);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                running.set(stmt);
+                if (cancelled) {
+                    throw new SQLException("查询已取消");
+                }
+                if (timeoutSeconds > 0) {
+                    stmt.setQueryTimeout(timeoutSeconds);
+                }
+                for (int i = 0; i < params.size(); i++) {
+                    stmt.setObject(i + 1, params.get(i));
+                }
+                List<Map<String, Object>> rows;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rows = readRows(rs);
+                }
+                if (!cancelled) {
+                    tracker.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+                return rows;
+            } finally {
+                running.set(null);
+                QueryTrace.attach(previous);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            PreparedStatement stmt = running.get();
+            if (stmt != null) {
+                try {
+                    stmt.cancel();
+                } catch (SQLException e) {
+                    logger.debug("取消查询失败: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.yonyou.dbtreeview.datasource;
+
+import java.util.Arrays;
+
+/**
+ * 语句耗时统计
+ * 保留最近若干次耗时样本，计算滑动窗口内的分位数
+ */
+public class LatencyTracker {
+
+    private final long[] samples;
+    private int size;
+    private int next;
+
+    public LatencyTracker(int windowSize) {
+        this.samples = new long[Math.max(1, windowSize)];
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param latencyMillis 耗时（毫秒）
+     */
+    public synchronized void record(long latencyMillis) {
+        samples[next] = latencyMillis;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) {
+            size++;
+        }
+    }
+
+    /**
+     * 样本数
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 计算分位数
+     *
+     * @param quantile 分位（0-1）
+     * @return 分位耗时（毫秒），无样本时返回-1
+     */
+    public synchronized long percentile(double quantile) {
+        if (size == 0) {
+            return -1;
+        }
+        long[] copy = Arrays.copyOf(samples, size);
+        Arrays.sort(copy);
+        int index = (int) Math.ceil(quantile * size) - 1;
+        return copy[Math.max(0, Math.min(size - 1, index))];
+    }
+}
@@ -0,0 +1,90 @@
+package com.yonyou.dbtreeview.datasource;
+
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 只读副本健康状态
+ * 由后台任务定期检查连通性和复制延迟；读取时获取连接失败也会立即标记为不可用，
+ * 直到下一次检查通过才重新参与负载均衡
+ */
+public class ReplicaHealth {
+
+    private final String endpoint;
+    private volatile DbConfigDTO config;
+
+    private volatile boolean healthy = true;
+    private volatile Long lagSeconds;
+    private volatile long lastCheckAt;
+    private volatile String lastError;
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public ReplicaHealth(String endpoint, DbConfigDTO config) {
+        this.endpoint = endpoint;
+        this.config = config;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * 最近一次使用的副本配置，用于后台检查
+     */
+    public DbConfigDTO getConfig() {
+        return config;
+    }
+
+    public void setConfig(DbConfigDTO config) {
+        this.config = config;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * 记录一次检查结果
+     *
+     * @param healthy 是否可用
+     * @param lagSeconds 复制延迟（秒），无法获取时为空
+     * @param error 不可用原因
+     */
+    public void recordCheck(boolean healthy, Long lagSeconds, String error) {
+        this.healthy = healthy;
+        this.lagSeconds = lagSeconds;
+        this.lastError = error;
+        this.lastCheckAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 读取时获取连接失败
+     *
+     * @param error 失败原因
+     */
+    public void markDown(String error) {
+        failures.incrementAndGet();
+        this.healthy = false;
+        this.lastError = error;
+    }
+
+    public void recordRead() {
+        reads.incrementAndGet();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("endpoint", endpoint);
+        metrics.put("state", healthy ? "UP" : "DOWN");
+        metrics.put("lagSeconds", lagSeconds);
+        metrics.put("reads", reads.get());
+        metrics.put("failures", failures.get());
+        metrics.put("lastCheckAt", lastCheckAt > 0 ? lastCheckAt : null);
+        metrics.put("lastError", lastError);
+        return metrics;
+    }
+}
@@ -0,0 +1,87 @@
+package com.yonyou.dbtreeview.dto;
+
+import java.util.List;
+
+/**
+ * 批量导出关联树请求DTO
+ */
+public class BulkExportRequest {
+    
+    private String environment;
+    private String dbName;
+    private String ytenant_id; // 租户ID
+    private List<String> billNos; // 表单编码列表，为空时导出该租户全部表单
+    private boolean showEntityTables; // 是否包含实体表
+    private DbConfigDTO dbConfig;
+    private TreeBuildOptions treeOptions; // 单个表单的树构建选项
+    
+    public BulkExportRequest() {
+    }
+
+    public String getEnvironment() {
+        return environment;
+    }
+
+    public void setEnvironment(String environment) {
+        this.environment = environment;
+    }
+
+    public String getDbName() {
+        return dbName;
+    }
+
+    public void setDbName(String dbName) {
+        this.dbName = dbName;
+    }
+
+    public String getYtenant_id() {
+        return ytenant_id;
+    }
+
+    public void setYtenant_id(String ytenant_id) {
+        this.ytenant_id = ytenant_id;
+    }
+
+    public List<String> getBillNos() {
+        return billNos;
+    }
+
+    public void setBillNos(List<String> billNos) {
+        this.billNos = billNos;
+    }
+
+    public boolean isShowEntityTables() {
+        return showEntityTables;
+    }
+
+    public void setShowEntityTables(boolean showEntityTables) {
+        this.showEntityTables = showEntityTables;
+    }
+
+    public DbConfigDTO getDbConfig() {
+        return dbConfig;
+    }
+
+    public void setDbConfig(DbConfigDTO dbConfig) {
+        this.dbConfig = dbConfig;
+    }
+
+    public TreeBuildOptions getTreeOptions() {
+        return treeOptions;
+    }
+
+    public void setTreeOptions(TreeBuildOptions treeOptions) {
+        this.treeOptions = treeOptions;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkExportRequest{" +
+                "environment='" + environment + '\'' +
+                ", dbName='" + dbName + '\'' +
+                ", ytenant_id='" + ytenant_id + '\'' +
+                ", billCount=" + (billNos == null ? 0 : billNos.size()) +
+                ", showEntityTables=" + showEntityTables +
+                '}';
+    }
+}
@@ -1,5 +1,11 @@
 package com.yonyou.dbtreeview.dto;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * 数据库配置DTO
  */
@@ -9,6 +15,10 @@ public class DbConfigDTO {
     private String port;
     private String username;
     private String password;
+    private Integer connectTimeout; // 建立连接超时（毫秒），为空时使用全局默认值
+    private Integer socketTimeout;  // 网络读取超时（毫秒），为空时使用全局默认值
+    private Integer queryTimeout;   // 单条语句执行超时（秒），为空时使用全局默认值
+    private List<DbConfigDTO> readReplicas; // 只读副本，为空时读写都走主库；副本未填写的用户名、密码和超时沿用主库
     
     public DbConfigDTO() {
     }
@@ -51,6 +61,79 @@ public class DbConfigDTO {
     public void setPassword(String password) {
         this.password = password;
     }
+
+    public Integer getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Integer connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Integer getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public void setSocketTimeout(Integer socketTimeout) {
+        this.socketTimeout = socketTimeout;
+    }
+
+    public Integer getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    public void setQueryTimeout(Integer queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+
+    public List<DbConfigDTO> getReadReplicas() {
+        return readReplicas;
+    }
+
+    public void setReadReplicas(List<DbConfigDTO> readReplicas) {
+        this.readReplicas = readReplicas;
+    }
+    
+    /**
+     * 深拷贝，只读副本列表及其中的配置一并复制
+     *
+     * @return 与当前配置互不影响的副本
+     */
+    public DbConfigDTO copy() {
+        DbConfigDTO copy = new DbConfigDTO(host, port, username, password);
+        copy.connectTimeout = connectTimeout;
+        copy.socketTimeout = socketTimeout;
+        copy.queryTimeout = queryTimeout;
+        if (readReplicas != null) {
+            List<DbConfigDTO> replicas = new ArrayList<>(readReplicas.size());
+            for (DbConfigDTO replica : readReplicas) {
+                replicas.add(replica != null ? replica.copy() : null);
+            }
+            copy.readReplicas = replicas;
+        }
+        return copy;
+    }
+    
+    /**
+     * 用户名和密码的SHA-256摘要（十六进制），用于按凭据区分缓存和连接池而不保存明文密码
+     *
+     * @return 摘要
+     */
+    public String credentialsFingerprint() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(username).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(password).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("不支持SHA-256", e);
+        }
+    }
     
     /**
      * 构建JDBC URL
@@ -1,5 +1,6 @@
 package com.yonyou.dbtreeview.dto;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -15,6 +16,14 @@ public class DbRelationRequest {
     private String ytenant_id; // 租户ID
     private DbConfigDTO dbConfig;
     private Map<String, Object> editedFields; // 存储已编辑的字段
+    private TreeBuildOptions treeOptions; // 树构建选项
+    private Boolean includeLargeColumns; // 表详情是否加载大字段
+    private String columnName; // 单字段查询的字段名
+    private Long offset;       // 单字段查询的起始位置
+    private Integer length;    // 单字段查询的长度
+    private List<String> billNos; // 批量获取关联树的表单编码列表
+    private Boolean showEntityTables; // 批量获取关联树时是否包含实体表
+    private List<String> ids; // 反查所属表单的行ID列表
     
     public DbRelationRequest() {
     }
@@ -93,6 +102,70 @@ public class DbRelationRequest {
         this.editedFields = editedFields;
     }
     
+    public TreeBuildOptions getTreeOptions() {
+        return treeOptions;
+    }
+    
+    public void setTreeOptions(TreeBuildOptions treeOptions) {
+        this.treeOptions = treeOptions;
+    }
+    
+    public Boolean getIncludeLargeColumns() {
+        return includeLargeColumns;
+    }
+    
+    public void setIncludeLargeColumns(Boolean includeLargeColumns) {
+        this.includeLargeColumns = includeLargeColumns;
+    }
+    
+    public String getColumnName() {
+        return columnName;
+    }
+    
+    public void setColumnName(String columnName) {
+        this.columnName = columnName;
+    }
+    
+    public Long getOffset() {
+        return offset;
+    }
+    
+    public void setOffset(Long offset) {
+        this.offset = offset;
+    }
+    
+    public Integer getLength() {
+        return length;
+    }
+    
+    public void setLength(Integer length) {
+        this.length = length;
+    }
+    
+    public List<String> getBillNos() {
+        return billNos;
+    }
+    
+    public void setBillNos(List<String> billNos) {
+        this.billNos = billNos;
+    }
+    
+    public Boolean getShowEntityTables() {
+        return showEntityTables;
+    }
+    
+    public void setShowEntityTables(Boolean showEntityTables) {
+        this.showEntityTables = showEntityTables;
+    }
+    
+    public List<String> getIds() {
+        return ids;
+    }
+    
+    public void setIds(List<String> ids) {
+        this.ids = ids;
+    }
+    
     @Override
     public String toString() {
         return "DbRelationRequest{" +
@@ -106,4 +179,4 @@ public class DbRelationRequest {
                 ", editedFields=" + (editedFields != null ? editedFields.size() + "个字段" : "null") +
                 '}';
     }
-} 
\ No newline at end of file
+}
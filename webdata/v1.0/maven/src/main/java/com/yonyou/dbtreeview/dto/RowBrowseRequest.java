@@ -0,0 +1,101 @@
+package com.yonyou.dbtreeview.dto;
+
+/**
+ * 表数据分页浏览请求DTO
+ */
+public class RowBrowseRequest {
+    
+    private String environment;
+    private String dbName;
+    private String ytenant_id;   // 租户ID
+    private DbConfigDTO dbConfig;
+    private String tableName;    // 表名，须在关联表白名单内
+    private String filterColumn; // 过滤字段，须在该表允许的过滤字段内，可为空
+    private String filterValue;  // 过滤值
+    private String sortColumn;   // 排序字段，为空时按id排序
+    private Integer pageSize;    // 每页行数
+    private String cursor;       // 上一页返回的游标，为空时从第一页开始
+    
+    public RowBrowseRequest() {
+    }
+
+    public String getEnvironment() {
+        return environment;
+    }
+
+    public void setEnvironment(String environment) {
+        this.environment = environment;
+    }
+
+    public String getDbName() {
+        return dbName;
+    }
+
+    public void setDbName(String dbName) {
+        this.dbName = dbName;
+    }
+
+    public String getYtenant_id() {
+        return ytenant_id;
+    }
+
+    public void setYtenant_id(String ytenant_id) {
+        this.ytenant_id = ytenant_id;
+    }
+
+    public DbConfigDTO getDbConfig() {
+        return dbConfig;
+    }
+
+    public void setDbConfig(DbConfigDTO dbConfig) {
+        this.dbConfig = dbConfig;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public String getFilterColumn() {
+        return filterColumn;
+    }
+
+    public void setFilterColumn(String filterColumn) {
+        this.filterColumn = filterColumn;
+    }
+
+    public String getFilterValue() {
+        return filterValue;
+    }
+
+    public void setFilterValue(String filterValue) {
+        this.filterValue = filterValue;
+    }
+
+    public String getSortColumn() {
+        return sortColumn;
+    }
+
+    public void setSortColumn(String sortColumn) {
+        this.sortColumn = sortColumn;
+    }
+
+    public Integer getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(Integer pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+}
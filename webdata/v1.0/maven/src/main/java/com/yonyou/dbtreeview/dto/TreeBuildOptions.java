@@ -0,0 +1,90 @@
+package com.yonyou.dbtreeview.dto;
+
+/**
+ * 树构建选项DTO
+ * 未设置的项使用服务端默认值
+ */
+public class TreeBuildOptions {
+    
+    /**
+     * 分组层级在Java端组装（默认）
+     */
+    public static final String ASSEMBLY_JAVA = "java";
+    
+    /**
+     * 分组层级及其billitem_base由数据库端用递归CTE和JSON聚合一次返回（需MySQL 8）
+     */
+    public static final String ASSEMBLY_SQL = "sql";
+    
+    /**
+     * 按关联图定义逐层批量查询，同一波次的边并行执行
+     */
+    public static final String ASSEMBLY_GRAPH = "graph";
+    
+    private Integer timeBudgetMs; // 本次构建的时间预算（毫秒），超出后返回已构建部分
+    private Integer maxQueries;   // 最多执行的查询数
+    private Integer maxRows;      // 最多读取的行数
+    private Boolean hedge;        // 是否对按钮项、命令等只读查询启用对冲
+    private String assembly;      // 组装方式：java、sql或graph，未指定时使用服务端默认值
+    private Boolean readYourWrites; // 是否从主库读取并跳过响应缓存，用于修改数据后重新加载
+    private Boolean full;         // 是否为每个节点附带整行数据（大字段仍只返回字节数），列式格式不包含整行数据
+    
+    public TreeBuildOptions() {
+    }
+
+    public Integer getTimeBudgetMs() {
+        return timeBudgetMs;
+    }
+
+    public void setTimeBudgetMs(Integer timeBudgetMs) {
+        this.timeBudgetMs = timeBudgetMs;
+    }
+
+    public Integer getMaxQueries() {
+        return maxQueries;
+    }
+
+    public void setMaxQueries(Integer maxQueries) {
+        this.maxQueries = maxQueries;
+    }
+
+    public Integer getMaxRows() {
+        return maxRows;
+    }
+
+    public void setMaxRows(Integer maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    public Boolean getHedge() {
+        return hedge;
+    }
+
+    public void setHedge(Boolean hedge) {
+        this.hedge = hedge;
+    }
+
+    public String getAssembly() {
+        return assembly;
+    }
+
+    public void setAssembly(String assembly) {
+        this.assembly = assembly;
+    }
+
+    public Boolean getReadYourWrites() {
+        return readYourWrites;
+    }
+
+    public void setReadYourWrites(Boolean readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    public Boolean getFull() {
+        return full;
+    }
+
+    public void setFull(Boolean full) {
+        this.full = full;
+    }
+}
@@ -0,0 +1,60 @@
+package com.yonyou.dbtreeview.graph;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 虚拟容器节点，把一条关联边的子节点归到一个不对应表行的节点下（如“按钮”“过滤区”），
+ * 没有子节点时不创建；keepEmpty为true时只要父节点的关联字段有值就创建（如表单设置了cFilterId时的过滤区）
+ */
+public class RelationContainer {
+
+    private String table;   // 节点表名（显示用，不查询）
+    private String id;      // 节点ID模板，{表达式}替换为祖先节点的字段值，如button_{parent.id}
+    private String name;    // 节点名称，写入cName属性
+    private Map<String, String> inherit = new LinkedHashMap<>(); // 属性名到取值表达式
+    private boolean keepEmpty; // 没有子节点时是否仍创建
+
+    public RelationContainer() {
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public boolean isKeepEmpty() {
+        return keepEmpty;
+    }
+
+    public void setKeepEmpty(boolean keepEmpty) {
+        this.keepEmpty = keepEmpty;
+    }
+
+    public Map<String, String> getInherit() {
+        return inherit;
+    }
+
+    public void setInherit(Map<String, String> inherit) {
+        this.inherit = inherit;
+    }
+}
@@ -0,0 +1,107 @@
+package com.yonyou.dbtreeview.graph;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 关联边：父边的每个节点下挂接子表中满足关联条件的行
+ * 同一父节点下多条边的子节点按边的定义顺序排列
+ */
+public class RelationEdge {
+
+    private String name;        // 边名称，供表达式引用
+    private String parent;      // 父边名称，root表示根表
+    private String table;       // 子表
+    private List<RelationJoin> join = new ArrayList<>(); // 关联条件，第一个条件作为IN查询字段，其余在内存中匹配
+    private String orderBy;     // 排序字段，可为空
+    private List<String> columns = new ArrayList<>(); // 写入节点属性的字段
+    private Map<String, String> inherit = new LinkedHashMap<>(); // 属性名到取值表达式，取祖先节点的字段
+    private String treeColumn;  // 同表内的上级字段（如iParentId），指向同一父节点下的兄弟行时嵌套到该行下
+    private String requires;    // 子边名称，该子边没有数据时不挂接本节点
+    private RelationContainer container; // 虚拟容器节点，可为空
+
+    public RelationEdge() {
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getParent() {
+        return parent;
+    }
+
+    public void setParent(String parent) {
+        this.parent = parent;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    public List<RelationJoin> getJoin() {
+        return join;
+    }
+
+    public void setJoin(List<RelationJoin> join) {
+        this.join = join;
+    }
+
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    public void setOrderBy(String orderBy) {
+        this.orderBy = orderBy;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
+
+    public Map<String, String> getInherit() {
+        return inherit;
+    }
+
+    public void setInherit(Map<String, String> inherit) {
+        this.inherit = inherit;
+    }
+
+    public String getTreeColumn() {
+        return treeColumn;
+    }
+
+    public void setTreeColumn(String treeColumn) {
+        this.treeColumn = treeColumn;
+    }
+
+    public String getRequires() {
+        return requires;
+    }
+
+    public void setRequires(String requires) {
+        this.requires = requires;
+    }
+
+    public RelationContainer getContainer() {
+        return container;
+    }
+
+    public void setContainer(RelationContainer container) {
+        this.container = container;
+    }
+}
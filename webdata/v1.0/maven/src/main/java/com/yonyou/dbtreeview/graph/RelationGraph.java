@@ -0,0 +1,240 @@
+package com.yonyou.dbtreeview.graph;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 关联图定义
+ * 根表加一组关联边，边的父子关系构成一棵树；取值表达式写作“边名称.字段”，
+ * 边名称可以是parent（直接父节点）、root（根节点）或任一祖先边
+ */
+public class RelationGraph {
+
+    /**
+     * 根表在表达式中的名称
+     */
+    public static final String ROOT = "root";
+
+    /**
+     * 直接父节点在表达式中的名称
+     */
+    public static final String PARENT = "parent";
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z0-9_]+");
+
+    private String tenantColumn = "tenant_id"; // 租户字段
+    private RelationRoot root;
+    private List<RelationEdge> edges = new ArrayList<>();
+
+    @JsonIgnore
+    private final Map<String, RelationEdge> edgesByName = new LinkedHashMap<>();
+    @JsonIgnore
+    private final Map<String, List<RelationEdge>> childEdges = new LinkedHashMap<>();
+    @JsonIgnore
+    private final Map<String, Set<String>> selectColumns = new LinkedHashMap<>();
+
+    public RelationGraph() {
+    }
+
+    /**
+     * 校验定义并计算每张表需要查询的字段
+     *
+     * @param graphName 关联图名称，用于错误信息
+     */
+    public void compile(String graphName) {
+        edgesByName.clear();
+        childEdges.clear();
+        selectColumns.clear();
+        if (root == null) {
+            throw new IllegalArgumentException("关联图 " + graphName + " 未定义根表");
+        }
+        checkIdentifier(graphName, root.getTable());
+        checkIdentifier(graphName, root.getKeyColumn());
+        checkIdentifier(graphName, tenantColumn);
+        Set<String> rootColumns = new LinkedHashSet<>();
+        rootColumns.add("id");
+        rootColumns.add(root.getKeyColumn());
+        addColumns(graphName, rootColumns, root.getColumns());
+        selectColumns.put(ROOT, rootColumns);
+
+        // 父边必须先于子边定义，保证不存在环
+        for (RelationEdge edge : edges) {
+            String name = edge.getName();
+            if (name == null || ROOT.equals(name) || PARENT.equals(name) || edgesByName.containsKey(name)) {
+                throw new IllegalArgumentException("关联图 " + graphName + " 的边名称无效或重复: " + name);
+            }
+            if (!ROOT.equals(edge.getParent()) && !edgesByName.containsKey(edge.getParent())) {
+                throw new IllegalArgumentException("关联图 " + graphName + " 的边 " + name + " 的父边未在之前定义: " + edge.getParent());
+            }
+            if (edge.getJoin() == null || edge.getJoin().isEmpty()) {
+                throw new IllegalArgumentException("关联图 " + graphName + " 的边 " + name + " 缺少关联条件");
+            }
+            checkIdentifier(graphName, edge.getTable());
+            if (edge.getOrderBy() != null) {
+                checkIdentifier(graphName, edge.getOrderBy());
+            }
+
+            Set<String> columns = new LinkedHashSet<>();
+            columns.add("id");
+            addColumns(graphName, columns, edge.getColumns());
+            for (RelationJoin join : edge.getJoin()) {
+                checkIdentifier(graphName, join.getColumn());
+                columns.add(join.getColumn());
+                require(graphName, edge, join.getFrom());
+            }
+            if (edge.getTreeColumn() != null) {
+                checkIdentifier(graphName, edge.getTreeColumn());
+                columns.add(edge.getTreeColumn());
+            }
+            for (String expression : edge.getInherit().values()) {
+                require(graphName, edge, expression);
+            }
+            if (edge.getContainer() != null) {
+                for (String expression : edge.getContainer().getInherit().values()) {
+                    require(graphName, edge, expression);
+                }
+                for (String expression : placeholders(edge.getContainer().getId())) {
+                    require(graphName, edge, expression);
+                }
+            }
+
+            edgesByName.put(name, edge);
+            childEdges.computeIfAbsent(edge.getParent(), k -> new ArrayList<>()).add(edge);
+            selectColumns.put(name, columns);
+        }
+
+        for (RelationEdge edge : edges) {
+            if (edge.getRequires() != null && !getChildEdges(edge.getName()).contains(edgesByName.get(edge.getRequires()))) {
+                throw new IllegalArgumentException("关联图 " + graphName + " 的边 " + edge.getName()
+                        + " 依赖的子边不存在: " + edge.getRequires());
+            }
+        }
+    }
+
+    /**
+     * 解析表达式引用的边名称，parent解析为边的父边
+     *
+     * @param edge 表达式所在的边
+     * @param source 表达式中的边名称
+     * @return 实际引用的边名称
+     */
+    public String resolveSource(RelationEdge edge, String source) {
+        return PARENT.equals(source) ? edge.getParent() : source;
+    }
+
+    /**
+     * 模板中的{表达式}占位符
+     */
+    public static List<String> placeholders(String template) {
+        List<String> expressions = new ArrayList<>();
+        if (template == null) {
+            return expressions;
+        }
+        int start = template.indexOf('{');
+        while (start >= 0) {
+            int end = template.indexOf('}', start);
+            if (end < 0) {
+                break;
+            }
+            expressions.add(template.substring(start + 1, end));
+            start = template.indexOf('{', end);
+        }
+        return expressions;
+    }
+
+    /**
+     * 表达式引用的字段加入被引用边的查询字段；被引用的边必须是父边或其祖先
+     */
+    private void require(String graphName, RelationEdge edge, String expression) {
+        int dot = expression == null ? -1 : expression.indexOf('.');
+        if (dot <= 0) {
+            throw new IllegalArgumentException("关联图 " + graphName + " 的边 " + edge.getName() + " 的表达式无效: " + expression);
+        }
+        String source = resolveSource(edge, expression.substring(0, dot));
+        String column = expression.substring(dot + 1);
+        checkIdentifier(graphName, column);
+        Set<String> ancestors = new HashSet<>();
+        ancestors.add(ROOT);
+        for (String name = edge.getParent(); !ROOT.equals(name); name = edgesByName.get(name).getParent()) {
+            ancestors.add(name);
+        }
+        if (!ancestors.contains(source)) {
+            throw new IllegalArgumentException("关联图 " + graphName + " 的边 " + edge.getName()
+                    + " 的表达式只能引用祖先边: " + expression);
+        }
+        selectColumns.get(source).add(column);
+    }
+
+    private static void addColumns(String graphName, Set<String> target, List<String> columns) {
+        for (String column : columns) {
+            checkIdentifier(graphName, column);
+            target.add(column);
+        }
+    }
+
+    private static void checkIdentifier(String graphName, String identifier) {
+        if (identifier == null || !IDENTIFIER.matcher(identifier).matches()) {
+            throw new IllegalArgumentException("关联图 " + graphName + " 中的表名或字段名无效: " + identifier);
+        }
+    }
+
+    /**
+     * 按名称查找边
+     *
+     * @param name 边名称
+     * @return 边，根表或不存在时为空
+     */
+    public RelationEdge getEdge(String name) {
+        return edgesByName.get(name);
+    }
+
+    /**
+     * 父边下的子边，按定义顺序
+     *
+     * @param parent 父边名称，根表为root
+     */
+    public List<RelationEdge> getChildEdges(String parent) {
+        List<RelationEdge> children = childEdges.get(parent);
+        return children != null ? children : Collections.emptyList();
+    }
+
+    /**
+     * 边（根表为root）需要查询的字段，第一个为id
+     */
+    public List<String> getSelectColumns(String edgeName) {
+        return new ArrayList<>(selectColumns.get(edgeName));
+    }
+
+    public String getTenantColumn() {
+        return tenantColumn;
+    }
+
+    public void setTenantColumn(String tenantColumn) {
+        this.tenantColumn = tenantColumn;
+    }
+
+    public RelationRoot getRoot() {
+        return root;
+    }
+
+    public void setRoot(RelationRoot root) {
+        this.root = root;
+    }
+
+    public List<RelationEdge> getEdges() {
+        return edges;
+    }
+
+    public void setEdges(List<RelationEdge> edges) {
+        this.edges = edges;
+    }
+}
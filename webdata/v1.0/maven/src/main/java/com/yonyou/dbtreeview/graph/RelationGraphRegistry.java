@@ -0,0 +1,70 @@
+package com.yonyou.dbtreeview.graph;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 关联图注册表
+ * 启动时从配置位置读取关联图定义并校验，定义有误时启动失败。
+ * 定义文件包含两张图：template（不显示实体表）和entity（显示实体表）
+ */
+@Component
+public class RelationGraphRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelationGraphRegistry.class);
+
+    public static final String TEMPLATE = "template";
+    public static final String ENTITY = "entity";
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Value("${app.relation-graph.location:classpath:relation-graph.json}")
+    private String location;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Map<String, RelationGraph> graphs = Collections.emptyMap();
+
+    @PostConstruct
+    public void init() throws IOException {
+        Resource resource = resourceLoader.getResource(location);
+        Map<String, RelationGraph> loaded;
+        try (InputStream in = resource.getInputStream()) {
+            loaded = objectMapper.readValue(in, new TypeReference<Map<String, RelationGraph>>() {});
+        }
+        for (String name : new String[]{TEMPLATE, ENTITY}) {
+            if (!loaded.containsKey(name)) {
+                throw new IllegalArgumentException("关联图定义 " + location + " 缺少 " + name);
+            }
+        }
+        for (Map.Entry<String, RelationGraph> entry : loaded.entrySet()) {
+            entry.getValue().compile(entry.getKey());
+        }
+        graphs = loaded;
+        logger.info("已加载关联图定义 {}: {}", location, graphs.keySet());
+    }
+
+    /**
+     * 获取关联图
+     *
+     * @param showEntityTables 是否显示实体表
+     * @return 关联图
+     */
+    public RelationGraph getGraph(boolean showEntityTables) {
+        return graphs.get(showEntityTables ? ENTITY : TEMPLATE);
+    }
+}
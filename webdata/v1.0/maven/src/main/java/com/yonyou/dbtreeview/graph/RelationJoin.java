@@ -0,0 +1,29 @@
+package com.yonyou.dbtreeview.graph;
+
+/**
+ * 关联条件：子表字段等于某个祖先节点的字段值
+ */
+public class RelationJoin {
+
+    private String column; // 子表字段
+    private String from;   // 取值表达式，如parent.id、root.cBillNo、groups.ccode
+
+    public RelationJoin() {
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public void setColumn(String column) {
+        this.column = column;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+}
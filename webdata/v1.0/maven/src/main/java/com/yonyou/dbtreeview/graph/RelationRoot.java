@@ -0,0 +1,41 @@
+package com.yonyou.dbtreeview.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 关联图的根表，按表单编码查询
+ */
+public class RelationRoot {
+
+    private String table;       // 根表
+    private String keyColumn;   // 表单编码字段
+    private List<String> columns = new ArrayList<>(); // 写入节点属性的字段
+
+    public RelationRoot() {
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    public void setKeyColumn(String keyColumn) {
+        this.keyColumn = keyColumn;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
+}
@@ -0,0 +1,111 @@
+package com.yonyou.dbtreeview.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 行的祖先路径
+ * 路径从bill_base开始到该行为止，包含“按钮”“过滤区”等容器节点，节点ID与关联树中一致，
+ * 可直接按路径展开关联树
+ */
+public class AncestorPath {
+
+    private String id;          // 查询的行ID
+    private String tableName;   // 查询的表名
+    private boolean found;      // 行是否存在
+    private boolean complete;   // 是否追溯到了bill_base
+    private String billNo;      // 所属表单编码
+    private boolean truncated;  // 是否因时间或查询预算耗尽而未追溯完
+    private boolean ambiguous;  // 是否在某一层匹配到多个父行而停止追溯
+    private String ambiguousTable; // 匹配到多个父行的表
+    private List<String> candidateIds = new ArrayList<>(); // 匹配到的候选父行ID
+    private List<DbTreeNode> path = new ArrayList<>(); // 从根到该行的节点，不含子节点
+
+    public AncestorPath() {
+    }
+
+    public AncestorPath(String id, String tableName) {
+        this.id = id;
+        this.tableName = tableName;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public void setFound(boolean found) {
+        this.found = found;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    public String getBillNo() {
+        return billNo;
+    }
+
+    public void setBillNo(String billNo) {
+        this.billNo = billNo;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    public boolean isAmbiguous() {
+        return ambiguous;
+    }
+
+    public void setAmbiguous(boolean ambiguous) {
+        this.ambiguous = ambiguous;
+    }
+
+    public String getAmbiguousTable() {
+        return ambiguousTable;
+    }
+
+    public void setAmbiguousTable(String ambiguousTable) {
+        this.ambiguousTable = ambiguousTable;
+    }
+
+    public List<String> getCandidateIds() {
+        return candidateIds;
+    }
+
+    public void setCandidateIds(List<String> candidateIds) {
+        this.candidateIds = candidateIds;
+    }
+
+    public List<DbTreeNode> getPath() {
+        return path;
+    }
+
+    public void setPath(List<DbTreeNode> path) {
+        this.path = path;
+    }
+}
@@ -0,0 +1,111 @@
+package com.yonyou.dbtreeview.model;
+
+/**
+ * 表单复杂度统计
+ * 由聚合查询得到，不需要构建关联树，用于提前发现展开较慢的表单
+ */
+public class BillComplexity {
+
+    private String billNo;
+    private String billId;
+    private String billName;
+    private long templateCount;        // 含分组的模板数
+    private long groupCount;           // 分组数
+    private long maxGroupsPerTemplate; // 单个模板的最大分组数
+    private long itemCount;            // 字段数
+    private long maxItemsPerGroup;     // 单个分组的最大字段数
+    private long toolbarItemCount;     // 工具栏按钮数
+    private long filterItemCount;      // 过滤项数
+    private long estimatedNodes;       // 关联树节点数估算
+
+    public BillComplexity() {
+    }
+
+    public String getBillNo() {
+        return billNo;
+    }
+
+    public void setBillNo(String billNo) {
+        this.billNo = billNo;
+    }
+
+    public String getBillId() {
+        return billId;
+    }
+
+    public void setBillId(String billId) {
+        this.billId = billId;
+    }
+
+    public String getBillName() {
+        return billName;
+    }
+
+    public void setBillName(String billName) {
+        this.billName = billName;
+    }
+
+    public long getTemplateCount() {
+        return templateCount;
+    }
+
+    public void setTemplateCount(long templateCount) {
+        this.templateCount = templateCount;
+    }
+
+    public long getGroupCount() {
+        return groupCount;
+    }
+
+    public void setGroupCount(long groupCount) {
+        this.groupCount = groupCount;
+    }
+
+    public long getMaxGroupsPerTemplate() {
+        return maxGroupsPerTemplate;
+    }
+
+    public void setMaxGroupsPerTemplate(long maxGroupsPerTemplate) {
+        this.maxGroupsPerTemplate = maxGroupsPerTemplate;
+    }
+
+    public long getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(long itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public long getMaxItemsPerGroup() {
+        return maxItemsPerGroup;
+    }
+
+    public void setMaxItemsPerGroup(long maxItemsPerGroup) {
+        this.maxItemsPerGroup = maxItemsPerGroup;
+    }
+
+    public long getToolbarItemCount() {
+        return toolbarItemCount;
+    }
+
+    public void setToolbarItemCount(long toolbarItemCount) {
+        this.toolbarItemCount = toolbarItemCount;
+    }
+
+    public long getFilterItemCount() {
+        return filterItemCount;
+    }
+
+    public void setFilterItemCount(long filterItemCount) {
+        this.filterItemCount = filterItemCount;
+    }
+
+    public long getEstimatedNodes() {
+        return estimatedNodes;
+    }
+
+    public void setEstimatedNodes(long estimatedNodes) {
+        this.estimatedNodes = estimatedNodes;
+    }
+}
@@ -0,0 +1,193 @@
+package com.yonyou.dbtreeview.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 列式字典编码的关联树
+ * 表名、ID、属性名和属性值只在字典中出现一次，节点按先序排列，各列保存字典下标，
+ * 父子关系由parents列表示（根节点为-1）。
+ * 完整模式下附带的整行数据按节点下标放在details列，同样按[字段名下标, 取值下标, ...]排列，
+ * 未加载的大字段放在lazyColumns列，没有整行数据的节点不出现在这两列中
+ */
+public class ColumnarTree {
+    
+    private List<Object> dictionary = new ArrayList<>();
+    private List<Integer> tableNames = new ArrayList<>();
+    private List<Integer> ids = new ArrayList<>();
+    private List<Integer> parents = new ArrayList<>();
+    private List<int[]> attributes = new ArrayList<>(); // 每个节点的属性，按[属性名下标, 属性值下标, ...]排列
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Map<Integer, int[]> details = new LinkedHashMap<>(); // 节点下标到整行数据
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Map<Integer, Map<String, Long>> lazyColumns = new LinkedHashMap<>(); // 节点下标到未加载的大字段及其字节数
+    private boolean truncated;
+    private int queryCount;
+    private int rowCount;
+    private long elapsedMillis;
+    
+    public ColumnarTree() {
+    }
+    
+    /**
+     * 从关联树响应转换
+     *
+     * @param response 关联树响应
+     * @return 列式关联树
+     */
+    public static ColumnarTree from(DbTreeResponse response) {
+        ColumnarTree tree = new ColumnarTree();
+        tree.truncated = response.isTruncated();
+        tree.queryCount = response.getQueryCount();
+        tree.rowCount = response.getRowCount();
+        tree.elapsedMillis = response.getElapsedMillis();
+        if (response.getRootNode() != null) {
+            tree.appendNode(response.getRootNode(), -1, new HashMap<>());
+        }
+        return tree;
+    }
+    
+    private void appendNode(DbTreeNode node, int parent, Map<Object, Integer> index) {
+        int position = tableNames.size();
+        tableNames.add(intern(node.getTableName(), index));
+        ids.add(intern(node.getId(), index));
+        parents.add(parent);
+        
+        Map<String, Object> nodeAttributes = node.getAttributes();
+        int[] pairs = new int[nodeAttributes.size() * 2];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : nodeAttributes.entrySet()) {
+            pairs[i++] = intern(entry.getKey(), index);
+            pairs[i++] = intern(entry.getValue(), index);
+        }
+        attributes.add(pairs);
+        
+        TableDetailsResponse nodeDetails = node.getDetails();
+        if (nodeDetails != null) {
+            Map<String, Object> data = nodeDetails.getData() != null ? nodeDetails.getData() : new HashMap<>();
+            int[] detailPairs = new int[data.size() * 2];
+            int j = 0;
+            for (Map.Entry<String, Object> entry : data.entrySet()) {
+                detailPairs[j++] = intern(entry.getKey(), index);
+                detailPairs[j++] = intern(entry.getValue(), index);
+            }
+            details.put(position, detailPairs);
+            if (nodeDetails.getLazyColumns() != null && !nodeDetails.getLazyColumns().isEmpty()) {
+                lazyColumns.put(position, nodeDetails.getLazyColumns());
+            }
+        }
+        
+        for (DbTreeNode child : node.getChildren()) {
+            appendNode(child, position, index);
+        }
+    }
+    
+    /**
+     * 取值在字典中的下标，空值为-1
+     */
+    private int intern(Object value, Map<Object, Integer> index) {
+        if (value == null) {
+            return -1;
+        }
+        Integer existing = index.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        dictionary.add(value);
+        index.put(value, dictionary.size() - 1);
+        return dictionary.size() - 1;
+    }
+
+    public List<Object> getDictionary() {
+        return dictionary;
+    }
+
+    public void setDictionary(List<Object> dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public List<Integer> getTableNames() {
+        return tableNames;
+    }
+
+    public void setTableNames(List<Integer> tableNames) {
+        this.tableNames = tableNames;
+    }
+
+    public List<Integer> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Integer> ids) {
+        this.ids = ids;
+    }
+
+    public List<Integer> getParents() {
+        return parents;
+    }
+
+    public void setParents(List<Integer> parents) {
+        this.parents = parents;
+    }
+
+    public List<int[]> getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(List<int[]> attributes) {
+        this.attributes = attributes;
+    }
+
+    public Map<Integer, int[]> getDetails() {
+        return details;
+    }
+
+    public void setDetails(Map<Integer, int[]> details) {
+        this.details = details;
+    }
+
+    public Map<Integer, Map<String, Long>> getLazyColumns() {
+        return lazyColumns;
+    }
+
+    public void setLazyColumns(Map<Integer, Map<String, Long>> lazyColumns) {
+        this.lazyColumns = lazyColumns;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    public int getQueryCount() {
+        return queryCount;
+    }
+
+    public void setQueryCount(int queryCount) {
+        this.queryCount = queryCount;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -0,0 +1,49 @@
+package com.yonyou.dbtreeview.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 某类元数据相对基础租户的差异
+ * 行按业务键匹配（如模板名/分组编码），不比较各租户各自生成的ID
+ */
+public class CustomizationDiff {
+
+    private List<String> added = new ArrayList<>();   // 租户新增的键
+    private List<String> removed = new ArrayList<>(); // 租户缺少的键
+    private List<String> changed = new ArrayList<>(); // 键相同但内容不同，格式为 键 {字段: 基础值 -> 租户值}
+
+    public CustomizationDiff() {
+    }
+
+    /**
+     * 差异总数
+     */
+    public int getCount() {
+        return added.size() + removed.size() + changed.size();
+    }
+
+    public List<String> getAdded() {
+        return added;
+    }
+
+    public void setAdded(List<String> added) {
+        this.added = added;
+    }
+
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    public void setRemoved(List<String> removed) {
+        this.removed = removed;
+    }
+
+    public List<String> getChanged() {
+        return changed;
+    }
+
+    public void setChanged(List<String> changed) {
+        this.changed = changed;
+    }
+}
@@ -1,5 +1,7 @@
 package com.yonyou.dbtreeview.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -14,6 +16,8 @@ public class DbTreeNode {
     private String id;
     private List<DbTreeNode> children;
     private Map<String, Object> attributes;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private TableDetailsResponse details; // 整行数据，仅完整模式下构建时附带
     
     public DbTreeNode() {
         this.children = new ArrayList<>();
@@ -70,6 +74,14 @@ public class DbTreeNode {
         this.attributes = attributes;
     }
     
+    public TableDetailsResponse getDetails() {
+        return details;
+    }
+
+    public void setDetails(TableDetailsResponse details) {
+        this.details = details;
+    }
+    
     /**
      * 设置属性
      *
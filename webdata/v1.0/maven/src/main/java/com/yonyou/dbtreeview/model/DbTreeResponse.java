@@ -6,6 +6,10 @@ package com.yonyou.dbtreeview.model;
 public class DbTreeResponse {
     
     private DbTreeNode rootNode;
+    private boolean truncated;   // 是否因时间或查询预算耗尽而返回部分结果
+    private int queryCount;      // 构建过程执行的查询数
+    private int rowCount;        // 构建过程读取的行数
+    private long elapsedMillis;  // 构建耗时（毫秒）
     
     public DbTreeResponse() {
     }
@@ -21,4 +25,36 @@ public class DbTreeResponse {
     public void setRootNode(DbTreeNode rootNode) {
         this.rootNode = rootNode;
     }
-} 
\ No newline at end of file
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    public int getQueryCount() {
+        return queryCount;
+    }
+
+    public void setQueryCount(int queryCount) {
+        this.queryCount = queryCount;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+} 
@@ -0,0 +1,76 @@
+package com.yonyou.dbtreeview.model;
+
+import java.util.List;
+
+/**
+ * 关联树语句索引诊断报告
+ */
+public class IndexAdviceReport {
+
+    private String dbName;
+    private String billNo;                // 采样表单，为空时按单次执行估算
+    private String ytenant_id;
+    private List<StatementPlan> statements;
+    private long estimatedRowsPerTree;    // 逐表单构建（java）一棵树预计扫描的总行数，其他组装方式的语句不计入
+    private List<String> recommendations; // 去重后的建议索引DDL
+    private long elapsedMillis;
+
+    public IndexAdviceReport() {
+    }
+
+    public String getDbName() {
+        return dbName;
+    }
+
+    public void setDbName(String dbName) {
+        this.dbName = dbName;
+    }
+
+    public String getBillNo() {
+        return billNo;
+    }
+
+    public void setBillNo(String billNo) {
+        this.billNo = billNo;
+    }
+
+    public String getYtenant_id() {
+        return ytenant_id;
+    }
+
+    public void setYtenant_id(String ytenant_id) {
+        this.ytenant_id = ytenant_id;
+    }
+
+    public List<StatementPlan> getStatements() {
+        return statements;
+    }
+
+    public void setStatements(List<StatementPlan> statements) {
+        this.statements = statements;
+    }
+
+    public long getEstimatedRowsPerTree() {
+        return estimatedRowsPerTree;
+    }
+
+    public void setEstimatedRowsPerTree(long estimatedRowsPerTree) {
+        this.estimatedRowsPerTree = estimatedRowsPerTree;
+    }
+
+    public List<String> getRecommendations() {
+        return recommendations;
+    }
+
+    public void setRecommendations(List<String> recommendations) {
+        this.recommendations = recommendations;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -0,0 +1,140 @@
+package com.yonyou.dbtreeview.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单条语句的执行计划分析结果
+ */
+public class StatementPlan {
+
+    private String statement;         // 语句标识
+    private String assembly;          // 所属组装方式（java、sql、batch、graph）
+    private String tableName;
+    private String sql;
+    private String accessType;        // 访问方式（ALL、index、range、ref、eq_ref、const）
+    private String key;               // 实际使用的索引
+    private List<String> possibleKeys;
+    private long rowsExamined;        // 单次执行预计扫描行数
+    private boolean filesort;         // 是否需要文件排序
+    private long executionsPerTree;   // 构建一棵树时的执行次数
+    private long rowsPerTree;         // 构建一棵树时预计扫描行数
+    private String coveringIndex;     // 已满足要求的现有索引
+    private String recommendedIndex;  // 建议创建的联合索引DDL，现有索引已满足时为空
+    private List<String> problems = new ArrayList<>();
+
+    public StatementPlan() {
+    }
+
+    public String getStatement() {
+        return statement;
+    }
+
+    public void setStatement(String statement) {
+        this.statement = statement;
+    }
+
+    public String getAssembly() {
+        return assembly;
+    }
+
+    public void setAssembly(String assembly) {
+        this.assembly = assembly;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    public String getAccessType() {
+        return accessType;
+    }
+
+    public void setAccessType(String accessType) {
+        this.accessType = accessType;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public List<String> getPossibleKeys() {
+        return possibleKeys;
+    }
+
+    public void setPossibleKeys(List<String> possibleKeys) {
+        this.possibleKeys = possibleKeys;
+    }
+
+    public long getRowsExamined() {
+        return rowsExamined;
+    }
+
+    public void setRowsExamined(long rowsExamined) {
+        this.rowsExamined = rowsExamined;
+    }
+
+    public boolean isFilesort() {
+        return filesort;
+    }
+
+    public void setFilesort(boolean filesort) {
+        this.filesort = filesort;
+    }
+
+    public long getExecutionsPerTree() {
+        return executionsPerTree;
+    }
+
+    public void setExecutionsPerTree(long executionsPerTree) {
+        this.executionsPerTree = executionsPerTree;
+    }
+
+    public long getRowsPerTree() {
+        return rowsPerTree;
+    }
+
+    public void setRowsPerTree(long rowsPerTree) {
+        this.rowsPerTree = rowsPerTree;
+    }
+
+    public String getCoveringIndex() {
+        return coveringIndex;
+    }
+
+    public void setCoveringIndex(String coveringIndex) {
+        this.coveringIndex = coveringIndex;
+    }
+
+    public String getRecommendedIndex() {
+        return recommendedIndex;
+    }
+
+    public void setRecommendedIndex(String recommendedIndex) {
+        this.recommendedIndex = recommendedIndex;
+    }
+
+    public List<String> getProblems() {
+        return problems;
+    }
+
+    public void setProblems(List<String> problems) {
+        this.problems = problems;
+    }
+}
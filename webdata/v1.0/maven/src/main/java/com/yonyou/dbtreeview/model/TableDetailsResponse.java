@@ -9,6 +9,7 @@ public class TableDetailsResponse {
     
     private String tableName;
     private Map<String, Object> data;
+    private Map<String, Long> lazyColumns; // 未加载的大字段及其字节数
     
     public TableDetailsResponse() {
     }
@@ -33,4 +34,12 @@ public class TableDetailsResponse {
     public void setData(Map<String, Object> data) {
         this.data = data;
     }
+
+    public Map<String, Long> getLazyColumns() {
+        return lazyColumns;
+    }
+
+    public void setLazyColumns(Map<String, Long> lazyColumns) {
+        this.lazyColumns = lazyColumns;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.yonyou.dbtreeview.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 表数据分页浏览结果
+ */
+public class TableRowsPage {
+    
+    private String tableName;
+    private List<Map<String, Object>> rows;
+    private String nextCursor;  // 下一页游标，没有更多数据时为空
+    private boolean hasMore;    // 是否还有下一页
+    private long elapsedMillis; // 查询耗时（毫秒）
+    
+    public TableRowsPage() {
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public List<Map<String, Object>> getRows() {
+        return rows;
+    }
+
+    public void setRows(List<Map<String, Object>> rows) {
+        this.rows = rows;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -0,0 +1,34 @@
+package com.yonyou.dbtreeview.model;
+
+/**
+ * 租户表单数量
+ */
+public class TenantBillCount {
+    
+    private String tenantId;
+    private long billCount;
+    
+    public TenantBillCount() {
+    }
+    
+    public TenantBillCount(String tenantId, long billCount) {
+        this.tenantId = tenantId;
+        this.billCount = billCount;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public long getBillCount() {
+        return billCount;
+    }
+
+    public void setBillCount(long billCount) {
+        this.billCount = billCount;
+    }
+}
@@ -0,0 +1,74 @@
+package com.yonyou.dbtreeview.model;
+
+/**
+ * 单个租户对表单的定制情况
+ */
+public class TenantCustomization {
+
+    private String tenantId;
+    private String billId;
+    private CustomizationDiff groups;       // billtplgroup_base
+    private CustomizationDiff items;        // billitem_base
+    private CustomizationDiff toolbars;     // bill_toolbar
+    private CustomizationDiff toolbarItems; // bill_toolbaritem
+    private int differenceCount;
+
+    public TenantCustomization() {
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public String getBillId() {
+        return billId;
+    }
+
+    public void setBillId(String billId) {
+        this.billId = billId;
+    }
+
+    public CustomizationDiff getGroups() {
+        return groups;
+    }
+
+    public void setGroups(CustomizationDiff groups) {
+        this.groups = groups;
+    }
+
+    public CustomizationDiff getItems() {
+        return items;
+    }
+
+    public void setItems(CustomizationDiff items) {
+        this.items = items;
+    }
+
+    public CustomizationDiff getToolbars() {
+        return toolbars;
+    }
+
+    public void setToolbars(CustomizationDiff toolbars) {
+        this.toolbars = toolbars;
+    }
+
+    public CustomizationDiff getToolbarItems() {
+        return toolbarItems;
+    }
+
+    public void setToolbarItems(CustomizationDiff toolbarItems) {
+        this.toolbarItems = toolbarItems;
+    }
+
+    public int getDifferenceCount() {
+        return differenceCount;
+    }
+
+    public void setDifferenceCount(int differenceCount) {
+        this.differenceCount = differenceCount;
+    }
+}
@@ -0,0 +1,85 @@
+package com.yonyou.dbtreeview.model;
+
+import java.util.List;
+
+/**
+ * 表单在全部租户中的定制情况
+ */
+public class TenantCustomizationReport {
+
+    private String dbName;
+    private String billNo;
+    private String baseTenantId;
+    private int tenantCount;                     // 含该表单的租户数（不含基础租户）
+    private int identicalTenantCount;            // 与基础租户一致的租户数
+    private List<TenantCustomization> tenants;   // 有差异的租户，按差异数降序
+    private int queryCount;
+    private long elapsedMillis;
+
+    public TenantCustomizationReport() {
+    }
+
+    public String getDbName() {
+        return dbName;
+    }
+
+    public void setDbName(String dbName) {
+        this.dbName = dbName;
+    }
+
+    public String getBillNo() {
+        return billNo;
+    }
+
+    public void setBillNo(String billNo) {
+        this.billNo = billNo;
+    }
+
+    public String getBaseTenantId() {
+        return baseTenantId;
+    }
+
+    public void setBaseTenantId(String baseTenantId) {
+        this.baseTenantId = baseTenantId;
+    }
+
+    public int getTenantCount() {
+        return tenantCount;
+    }
+
+    public void setTenantCount(int tenantCount) {
+        this.tenantCount = tenantCount;
+    }
+
+    public int getIdenticalTenantCount() {
+        return identicalTenantCount;
+    }
+
+    public void setIdenticalTenantCount(int identicalTenantCount) {
+        this.identicalTenantCount = identicalTenantCount;
+    }
+
+    public List<TenantCustomization> getTenants() {
+        return tenants;
+    }
+
+    public void setTenants(List<TenantCustomization> tenants) {
+        this.tenants = tenants;
+    }
+
+    public int getQueryCount() {
+        return queryCount;
+    }
+
+    public void setQueryCount(int queryCount) {
+        this.queryCount = queryCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -0,0 +1,28 @@
+package com.yonyou.dbtreeview.service;
+
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.model.AncestorPath;
+
+import java.util.List;
+
+/**
+ * 祖先反查服务接口
+ */
+public interface AncestorLookupService {
+
+    /**
+     * 按关联图逐层向上反查行所属的表单
+     * 所有ID同时推进，每一层对全部行只执行一次IN查询；匹配到多个父行时报告候选行，预算耗尽时返回部分路径
+     *
+     * @param environment 环境（测试、日常、预发）
+     * @param dbName 数据库名称
+     * @param tableName 行所在的表，须是关联图中的表
+     * @param ids 行ID列表
+     * @param ytenant_id 租户ID
+     * @param dbConfig 数据库配置
+     * @param showEntityTables 路径是否经过实体表
+     * @return 每个ID的祖先路径，顺序与ids一致
+     */
+    List<AncestorPath> findAncestors(String environment, String dbName, String tableName, List<String> ids, String ytenant_id,
+                                     DbConfigDTO dbConfig, boolean showEntityTables);
+}
@@ -0,0 +1,32 @@
+package com.yonyou.dbtreeview.service;
+
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.model.BillComplexity;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 表单分析服务接口
+ */
+public interface BillAnalyticsService {
+
+    /**
+     * 统计租户下全部表单的复杂度（缓存）
+     * 每张表只执行一次GROUP BY聚合查询，不构建关联树
+     *
+     * @param environment 环境（测试、日常、预发）
+     * @param dbName 数据库名称
+     * @param ytenant_id 租户ID
+     * @param dbConfig 数据库配置
+     * @return 按估算节点数降序排列的表单复杂度
+     */
+    List<BillComplexity> getBillComplexity(String environment, String dbName, String ytenant_id, DbConfigDTO dbConfig);
+
+    /**
+     * 获取分析缓存统计
+     *
+     * @return 条目数和命中情况
+     */
+    Map<String, Object> getMetrics();
+}
@@ -0,0 +1,56 @@
+package com.yonyou.dbtreeview.service;
+
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.dto.TreeBuildOptions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 表单元数据导出导入服务接口
+ */
+public interface BillExportService {
+    
+    /**
+     * 把表单及其关联表的完整行导出为SQL迁移脚本，边读边写，内存占用与表单大小无关
+     *
+     * @param dbName 数据库名称
+     * @param billNo 表单编码
+     * @param ytenant_id 租户ID
+     * @param dbConfig 数据库配置
+     * @param writer 脚本输出
+     */
+    void exportBillSql(String dbName, String billNo, String ytenant_id, DbConfigDTO dbConfig, Writer writer) throws IOException;
+    
+    /**
+     * 在一个事务中执行导出的SQL迁移脚本
+     *
+     * @param dbName 目标数据库名称
+     * @param dbConfig 目标数据库配置
+     * @param reader 脚本输入
+     * @return 执行结果，包含语句数和影响行数
+     */
+    Map<String, Object> importBillSql(String dbName, DbConfigDTO dbConfig, Reader reader) throws IOException;
+    
+    /**
+     * 批量导出多个表单的关联树，以gzip压缩的NDJSON写出，每行一个表单
+     * 表单按块逐层批量构建并按给定顺序输出，同时在构建的块数受并行度限制，内存占用与表单总数无关；
+     * 在块内被截断的表单按单个表单的预算重新构建，仍不完整的行带有truncated标记
+     *
+     * @param environment 环境名称
+     * @param dbName 数据库名称
+     * @param billNos 表单编码列表，为空时导出该租户全部表单
+     * @param ytenant_id 租户ID
+     * @param dbConfig 数据库配置
+     * @param showEntityTables 是否包含实体表
+     * @param options 单个表单的树构建选项，可为空
+     * @param out 输出流，写入gzip压缩数据
+     * @return 导出统计，包含表单数、失败数和截断数
+     */
+    Map<String, Object> exportBillTrees(String environment, String dbName, List<String> billNos, String ytenant_id, DbConfigDTO dbConfig,
+                                        boolean showEntityTables, TreeBuildOptions options, OutputStream out) throws IOException;
+}
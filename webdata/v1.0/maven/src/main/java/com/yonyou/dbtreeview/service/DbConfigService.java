@@ -1,5 +1,6 @@
 package com.yonyou.dbtreeview.service;
 
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
 import com.yonyou.dbtreeview.dto.DbConfigsDTO;
 
 /**
@@ -17,7 +18,25 @@ public interface DbConfigService {
     /**
      * 获取数据库配置
      *
-     * @return 数据库配置集合
+     * @return 数据库配置集合，为当前配置的只读副本，其中的配置对象可以修改而不影响服务端配置
      */
     DbConfigsDTO getDbConfigs();
+    
+    /**
+     * 获取指定环境的数据库配置
+     *
+     * @param environment 环境名称
+     * @return 数据库配置的副本，不存在时返回null
+     */
+    DbConfigDTO getConfigForEnvironment(String environment);
+    
+    /**
+     * 解析请求使用的数据库配置
+     * 请求中带有连接信息时使用请求中的配置，否则按环境名称使用服务端保存的配置
+     *
+     * @param environment 环境名称
+     * @param requestConfig 请求携带的数据库配置，可为空
+     * @return 数据库配置，均未找到时返回null
+     */
+    DbConfigDTO resolveConfig(String environment, DbConfigDTO requestConfig);
 } 
\ No newline at end of file
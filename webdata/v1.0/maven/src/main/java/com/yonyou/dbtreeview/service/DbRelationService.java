@@ -1,9 +1,12 @@
 package com.yonyou.dbtreeview.service;
 
 import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.dto.TreeBuildOptions;
 import com.yonyou.dbtreeview.model.DbTreeResponse;
 import com.yonyou.dbtreeview.model.TableDetailsResponse;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -21,9 +24,26 @@ public interface DbRelationService {
      * @param ytenant_id 租户ID
      * @param dbConfig 数据库配置
      * @param showEntityTables 是否显示实体表
-     * @return 树形结构数据
+     * @param options 树构建选项（时间、查询数和行数预算），可为空
+     * @return 树形结构数据，预算耗尽时返回部分结果
      */
-    DbTreeResponse getDbRelationTree(String environment, String dbName, String billNo, String ytenant_id, DbConfigDTO dbConfig, boolean showEntityTables);
+    DbTreeResponse getDbRelationTree(String environment, String dbName, String billNo, String ytenant_id, DbConfigDTO dbConfig, boolean showEntityTables, TreeBuildOptions options);
+    
+    /**
+     * 批量获取多个表单的数据库表关联树
+     * 每一层对所有表单只执行一次集合查询，查询数不随表单数量增长；数据库端组装和对冲选项在批量模式下不生效
+     *
+     * @param environment 环境（测试、日常、预发）
+     * @param dbName 数据库名称
+     * @param billNos 表单编码列表
+     * @param ytenant_id 租户ID
+     * @param dbConfig 数据库配置
+     * @param showEntityTables 是否显示实体表
+     * @param options 树构建选项（时间、查询数和行数预算），预算由整批共享，可为空
+     * @return 表单编码到树形结构的映射，顺序与请求一致；表单不存在时根节点为空。
+     *         截断标记和查询数、行数按表单统计，只有确实未展开完的表单标记为truncated，耗时为整批耗时
+     */
+    Map<String, DbTreeResponse> getDbRelationTrees(String environment, String dbName, List<String> billNos, String ytenant_id, DbConfigDTO dbConfig, boolean showEntityTables, TreeBuildOptions options);
     
     /**
      * 获取表节点详细信息
@@ -34,9 +54,44 @@ public interface DbRelationService {
      * @param id 记录ID
      * @param ytenant_id 租户ID
      * @param dbConfig 数据库配置
+     * @param includeLargeColumns 是否加载TEXT/BLOB/JSON大字段，否则只返回其字节数
      * @return 表详情数据
      */
-    TableDetailsResponse getTableDetails(String environment, String dbName, String tableName, String id, String ytenant_id, DbConfigDTO dbConfig);
+    TableDetailsResponse getTableDetails(String environment, String dbName, String tableName, String id, String ytenant_id, DbConfigDTO dbConfig, boolean includeLargeColumns);
+    
+    /**
+     * 获取单个字段的内容，可指定范围
+     *
+     * @param environment 环境（测试、日常、预发）
+     * @param dbName 数据库名称
+     * @param tableName 表名
+     * @param id 记录ID
+     * @param ytenant_id 租户ID
+     * @param columnName 字段名
+     * @param offset 起始位置（从0开始，TEXT按字符、BLOB按字节），为空时从头开始
+     * @param length 长度，为空时到末尾
+     * @param dbConfig 数据库配置
+     * @return 字段内容及总字节数，二进制内容以base64编码
+     */
+    Map<String, Object> getColumnValue(String environment, String dbName, String tableName, String id, String ytenant_id, String columnName,
+                                       Long offset, Integer length, DbConfigDTO dbConfig);
+    
+    /**
+     * 以流的方式输出单个字段的原始内容，可指定范围
+     *
+     * @param environment 环境（测试、日常、预发）
+     * @param dbName 数据库名称
+     * @param tableName 表名
+     * @param id 记录ID
+     * @param ytenant_id 租户ID
+     * @param columnName 字段名
+     * @param offset 起始位置（从0开始），为空时从头开始
+     * @param length 长度，为空时到末尾
+     * @param dbConfig 数据库配置
+     * @param out 输出流
+     */
+    void streamColumnValue(String environment, String dbName, String tableName, String id, String ytenant_id, String columnName,
+                           Long offset, Integer length, DbConfigDTO dbConfig, OutputStream out) throws IOException;
     
     /**
      * 更新表数据
@@ -0,0 +1,40 @@
+package com.yonyou.dbtreeview.service;
+
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.model.TenantBillCount;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 数据库和租户发现服务接口
+ * 结果在后台刷新，过期后先返回旧值，页面加载不等待查询
+ */
+public interface DiscoveryService {
+    
+    /**
+     * 获取数据库列表（缓存）
+     *
+     * @param environment 环境（测试、日常、预发）
+     * @param dbConfig 数据库配置
+     * @return 数据库列表
+     */
+    List<String> getDatabaseList(String environment, DbConfigDTO dbConfig);
+    
+    /**
+     * 获取数据库中的租户及各租户的表单数量（缓存）
+     *
+     * @param environment 环境（测试、日常、预发）
+     * @param dbName 数据库名称
+     * @param dbConfig 数据库配置
+     * @return 按表单数量降序排列的租户列表
+     */
+    List<TenantBillCount> getTenantInventory(String environment, String dbName, DbConfigDTO dbConfig);
+    
+    /**
+     * 获取发现缓存统计
+     *
+     * @return 各缓存的条目数和命中情况
+     */
+    Map<String, Object> getMetrics();
+}
@@ -0,0 +1,25 @@
+package com.yonyou.dbtreeview.service;
+
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.model.IndexAdviceReport;
+
+/**
+ * 索引诊断服务接口
+ */
+public interface IndexAdvisorService {
+
+    /**
+     * 对关联树构建的每条语句执行EXPLAIN FORMAT=JSON，标记全表扫描和文件排序，
+     * 估算构建一棵树的扫描行数，并给出联合索引建议
+     * 语句覆盖逐表单构建、数据库端组装、批量构建和关联图组装，扫描行数合计只统计逐表单构建
+     *
+     * @param environment 环境（测试、日常、预发）
+     * @param dbName 数据库名称
+     * @param billNo 采样表单编码，用其真实数据作为语句参数并估算执行次数；为空时按单次执行估算
+     * @param ytenant_id 租户ID
+     * @param showEntityTables 按显示实体表的构建方式估算执行次数
+     * @param dbConfig 数据库配置
+     * @return 诊断报告
+     */
+    IndexAdviceReport analyze(String environment, String dbName, String billNo, String ytenant_id, boolean showEntityTables, DbConfigDTO dbConfig);
+}
@@ -0,0 +1,21 @@
+package com.yonyou.dbtreeview.service;
+
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.dto.RowBrowseRequest;
+import com.yonyou.dbtreeview.model.TableRowsPage;
+
+/**
+ * 表数据分页浏览服务接口
+ */
+public interface TableBrowseService {
+    
+    /**
+     * 按键集分页浏览关联表数据
+     * 游标记录上一页最后一行的排序值和id，下一页从该位置开始索引查找，翻到任意深度耗时都不变
+     *
+     * @param request 浏览请求（表名、过滤条件、排序字段、页大小和游标）
+     * @param dbConfig 数据库配置
+     * @return 一页数据和下一页游标
+     */
+    TableRowsPage browseRows(RowBrowseRequest request, DbConfigDTO dbConfig);
+}
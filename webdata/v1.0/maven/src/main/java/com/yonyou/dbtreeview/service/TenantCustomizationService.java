@@ -0,0 +1,22 @@
+package com.yonyou.dbtreeview.service;
+
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.model.TenantCustomizationReport;
+
+/**
+ * 租户定制分析服务接口
+ */
+public interface TenantCustomizationService {
+
+    /**
+     * 找出哪些租户定制了表单
+     * 每张表对全部租户做集合查询（按tenant_id区分），逐个租户与基础租户比较分组、字段和工具栏
+     *
+     * @param environment 环境（测试、日常、预发）
+     * @param dbName 数据库名称
+     * @param billNo 表单编码
+     * @param dbConfig 数据库配置
+     * @return 各租户的差异
+     */
+    TenantCustomizationReport findCustomizations(String environment, String dbName, String billNo, DbConfigDTO dbConfig);
+}
@@ -0,0 +1,578 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import com.yonyou.dbtreeview.datasource.DbConnectionManager;
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.graph.RelationContainer;
+import com.yonyou.dbtreeview.graph.RelationEdge;
+import com.yonyou.dbtreeview.graph.RelationGraph;
+import com.yonyou.dbtreeview.graph.RelationGraphRegistry;
+import com.yonyou.dbtreeview.graph.RelationJoin;
+import com.yonyou.dbtreeview.model.AncestorPath;
+import com.yonyou.dbtreeview.model.DbTreeNode;
+import com.yonyou.dbtreeview.service.AncestorLookupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 祖先反查服务实现
+ * 沿关联图的边向上追溯：子行的关联字段给出父行（及更上层祖先）的字段值，
+ * 以这些值作为条件查询父表。所有ID同一层一起推进，每层按条件字段组合分组后各执行一次IN查询，
+ * 已知的条件字段全部写入WHERE，使查询能走以id、iBillId或billnumber开头的索引而不是扫描整个租户。
+ * 只凭直接父节点的字段无法唯一确定父行时（如工具栏只记录分组编码），先按已知字段查出根表，
+ * 再把根表ID作为父表的附加条件；仍匹配到多个父行时不猜测，在结果中报告候选行。
+ * 每次反查有时间、查询数和行数预算，耗尽后未追溯完的ID标记为truncated
+ */
+@Service
+public class AncestorLookupServiceImpl implements AncestorLookupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AncestorLookupServiceImpl.class);
+
+    /**
+     * 同表上下级嵌套的最大层数，防止数据成环时无限追溯
+     */
+    private static final int MAX_TREE_DEPTH = 32;
+
+    /**
+     * 条件字段的排列顺序，索引通常以这些字段开头
+     */
+    private static final List<String> LEADING_COLUMNS = Arrays.asList("id", "iBillId", "billnumber");
+
+    @Autowired
+    private DbConnectionManager connectionManager;
+
+    @Autowired
+    private RelationGraphRegistry relationGraphRegistry;
+
+    @Value("${app.ancestor-lookup.max-ids:1000}")
+    private int maxIds;
+
+    @Value("${app.ancestor-lookup.in-size:500}")
+    private int inSize;
+
+    @Value("${app.ancestor-lookup.time-budget-ms:10000}")
+    private long timeBudgetMs;
+
+    @Value("${app.ancestor-lookup.max-queries:500}")
+    private int maxQueries;
+
+    @Value("${app.ancestor-lookup.max-rows:100000}")
+    private int maxRows;
+
+    /**
+     * 单个ID的追溯状态
+     */
+    private static class Chain {
+        final AncestorPath result;
+        final LinkedList<DbTreeNode> path = new LinkedList<>();
+        final Map<String, Map<String, String>> known = new HashMap<>(); // 边名称到已知字段值
+        String edge;             // 已追溯到的最上层边
+        Map<String, String> row; // 最上层边的行
+        Map<String, String> rootRow;
+
+        Chain(AncestorPath result) {
+            this.result = result;
+        }
+
+        boolean active() {
+            return edge != null && !RelationGraph.ROOT.equals(edge);
+        }
+    }
+
+    @Override
+    public List<AncestorPath> findAncestors(String environment, String dbName, String tableName, List<String> ids, String ytenant_id,
+                                            DbConfigDTO dbConfig, boolean showEntityTables) {
+        if (ids.size() > maxIds) {
+            throw new IllegalArgumentException("单次最多反查 " + maxIds + " 个ID");
+        }
+        RelationGraph graph = relationGraphRegistry.getGraph(showEntityTables);
+        String startEdge = findEdge(graph, tableName);
+        if (startEdge == null) {
+            throw new IllegalArgumentException("关联图中不存在表: " + tableName);
+        }
+
+        Connection conn = null;
+        try {
+            conn = connectionManager.getReadConnection(dbName, dbConfig);
+            return findAncestors(conn, graph, startEdge, tableName, ids, ytenant_id,
+                    new TreeBuildContext(timeBudgetMs, maxQueries, maxRows));
+        } catch (SQLException e) {
+            logger.error("反查所属表单失败", e);
+            throw new RuntimeException("反查所属表单失败: " + e.getMessage(), e);
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    logger.error("关闭数据库连接失败", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 在给定连接上反查，预算耗尽时返回已追溯的部分路径
+     */
+    List<AncestorPath> findAncestors(Connection conn, RelationGraph graph, String startEdge, String tableName, List<String> ids,
+                                     String ytenant_id, TreeBuildContext ctx) throws SQLException {
+        // 查询起始行
+        Map<String, Map<String, String>> startRows = new HashMap<>();
+        for (Map<String, String> row : queryRows(conn, graph, ytenant_id, ctx, tableOf(graph, startEdge),
+                graph.getSelectColumns(startEdge), Collections.singletonList("id"), singletons(ids))) {
+            startRows.put(row.get("id"), row);
+        }
+        List<AncestorPath> results = new ArrayList<>();
+        List<Chain> chains = new ArrayList<>();
+        for (String id : ids) {
+            AncestorPath result = new AncestorPath(id, tableName);
+            results.add(result);
+            Map<String, String> row = startRows.get(id);
+            if (row == null) {
+                // 起始行没有读完时无法判断行是否存在
+                result.setTruncated(ctx.isTruncated());
+                continue;
+            }
+            result.setFound(true);
+            Chain chain = new Chain(result);
+            addRow(graph, chain, startEdge, row);
+            chains.add(chain);
+        }
+        resolveTreeParents(conn, graph, ytenant_id, ctx, chains);
+
+        // 逐层向上，预算耗尽时停在当前层
+        List<Chain> active = active(chains);
+        while (!active.isEmpty() && !ctx.isTruncated()) {
+            resolveRoots(conn, graph, ytenant_id, ctx, active);
+            if (ctx.isTruncated()) {
+                break;
+            }
+            stepUp(conn, graph, ytenant_id, ctx, active);
+            resolveTreeParents(conn, graph, ytenant_id, ctx, active);
+            active = active(active);
+        }
+
+        for (Chain chain : chains) {
+            AncestorPath result = chain.result;
+            result.setPath(new ArrayList<>(chain.path));
+            result.setComplete(RelationGraph.ROOT.equals(chain.edge));
+            result.setTruncated(chain.active() && ctx.isTruncated());
+            if (chain.rootRow != null) {
+                result.setBillNo(chain.rootRow.get(graph.getRoot().getKeyColumn()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 查找表对应的边，同一张表出现在多条边中时取第一条
+     */
+    private String findEdge(RelationGraph graph, String tableName) {
+        if (graph.getRoot().getTable().equals(tableName)) {
+            return RelationGraph.ROOT;
+        }
+        for (RelationEdge edge : graph.getEdges()) {
+            if (edge.getTable().equals(tableName)) {
+                return edge.getName();
+            }
+        }
+        return null;
+    }
+
+    private static String tableOf(RelationGraph graph, String edgeName) {
+        return RelationGraph.ROOT.equals(edgeName) ? graph.getRoot().getTable() : graph.getEdge(edgeName).getTable();
+    }
+
+    private static List<Chain> active(List<Chain> chains) {
+        List<Chain> result = new ArrayList<>();
+        for (Chain chain : chains) {
+            if (chain.active()) {
+                result.add(chain);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 把一行加到路径最前面，并记录其关联字段给出的祖先字段值
+     */
+    private void addRow(RelationGraph graph, Chain chain, String edgeName, Map<String, String> row) {
+        DbTreeNode node = new DbTreeNode(tableOf(graph, edgeName), row.get("id"));
+        List<String> columns = RelationGraph.ROOT.equals(edgeName) ? graph.getRoot().getColumns() : graph.getEdge(edgeName).getColumns();
+        for (String column : columns) {
+            node.setAttribute(column, row.get(column));
+        }
+        chain.path.addFirst(node);
+        chain.known.computeIfAbsent(edgeName, k -> new HashMap<>()).putAll(row);
+        chain.edge = edgeName;
+        chain.row = row;
+        if (RelationGraph.ROOT.equals(edgeName)) {
+            chain.rootRow = row;
+            return;
+        }
+        RelationEdge edge = graph.getEdge(edgeName);
+        for (RelationJoin join : edge.getJoin()) {
+            String value = row.get(join.getColumn());
+            if (value != null && !value.isEmpty()) {
+                int dot = join.getFrom().indexOf('.');
+                String source = graph.resolveSource(edge, join.getFrom().substring(0, dot));
+                chain.known.computeIfAbsent(source, k -> new HashMap<>()).put(join.getFrom().substring(dot + 1), value);
+            }
+        }
+    }
+
+    /**
+     * 按已知的根表字段提前查出根表行，根表ID随后作为中间层查询的附加条件
+     */
+    private void resolveRoots(Connection conn, RelationGraph graph, String ytenant_id, TreeBuildContext ctx,
+                              List<Chain> chains) throws SQLException {
+        Map<List<String>, List<Chain>> byColumns = new LinkedHashMap<>();
+        for (Chain chain : chains) {
+            Map<String, String> rootValues = chain.known.get(RelationGraph.ROOT);
+            if (chain.rootRow != null || rootValues == null || rootValues.isEmpty()) {
+                continue;
+            }
+            byColumns.computeIfAbsent(keyColumns(rootValues.keySet()), k -> new ArrayList<>()).add(chain);
+        }
+        for (Map.Entry<List<String>, List<Chain>> entry : byColumns.entrySet()) {
+            List<String> columns = entry.getKey();
+            List<List<String>> values = new ArrayList<>();
+            for (Chain chain : entry.getValue()) {
+                values.add(tuple(chain.known.get(RelationGraph.ROOT), columns));
+            }
+            Map<List<String>, List<Map<String, String>>> rows = byTuple(queryRows(conn, graph, ytenant_id, ctx,
+                    graph.getRoot().getTable(), graph.getSelectColumns(RelationGraph.ROOT), columns, values), columns);
+            if (ctx.isTruncated()) {
+                return;
+            }
+            for (Chain chain : entry.getValue()) {
+                Map<String, String> row = single(chain, graph.getRoot().getTable(),
+                        rows.get(tuple(chain.known.get(RelationGraph.ROOT), columns)));
+                if (row != null) {
+                    chain.rootRow = row;
+                    chain.known.get(RelationGraph.ROOT).putAll(row);
+                }
+            }
+        }
+    }
+
+    /**
+     * 所有链向上推进一层，找不到父行或父行不唯一的链停止追溯
+     */
+    private void stepUp(Connection conn, RelationGraph graph, String ytenant_id, TreeBuildContext ctx,
+                        List<Chain> chains) throws SQLException {
+        // 按父表和条件字段组合分组，每组一次IN查询
+        Map<String, List<Chain>> groups = new LinkedHashMap<>();
+        Map<Chain, Map<String, String>> conditions = new HashMap<>();
+        for (Chain chain : chains) {
+            RelationEdge edge = graph.getEdge(chain.edge);
+            String parent = edge.getParent();
+            if (RelationGraph.ROOT.equals(parent) && chain.rootRow != null) {
+                addContainer(graph, chain, edge, chain.rootRow);
+                addRow(graph, chain, parent, chain.rootRow);
+                continue;
+            }
+            Map<String, String> condition = parentCondition(graph, chain, parent);
+            if (condition.isEmpty()) {
+                chain.edge = null;
+                continue;
+            }
+            conditions.put(chain, condition);
+            groups.computeIfAbsent(parent + "|" + keyColumns(condition.keySet()), k -> new ArrayList<>()).add(chain);
+        }
+
+        for (List<Chain> group : groups.values()) {
+            String parent = graph.getEdge(group.get(0).edge).getParent();
+            List<String> columns = keyColumns(conditions.get(group.get(0)).keySet());
+            List<List<String>> values = new ArrayList<>();
+            for (Chain chain : group) {
+                values.add(tuple(conditions.get(chain), columns));
+            }
+            Map<List<String>, List<Map<String, String>>> rows = byTuple(queryRows(conn, graph, ytenant_id, ctx,
+                    tableOf(graph, parent), graph.getSelectColumns(parent), columns, values), columns);
+            if (ctx.isTruncated()) {
+                // 本组的结果可能不完整，链保持在当前层
+                return;
+            }
+            for (Chain chain : group) {
+                Map<String, String> row = single(chain, tableOf(graph, parent), rows.get(tuple(conditions.get(chain), columns)));
+                if (row == null) {
+                    chain.edge = null;
+                    continue;
+                }
+                RelationEdge edge = graph.getEdge(chain.edge);
+                addContainer(graph, chain, edge, row);
+                addRow(graph, chain, parent, row);
+            }
+        }
+    }
+
+    /**
+     * 取唯一匹配的父行；匹配到多行时在结果中报告候选行并停止追溯
+     *
+     * @return 唯一匹配的行，没有或不唯一时返回null
+     */
+    private static Map<String, String> single(Chain chain, String table, List<Map<String, String>> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return null;
+        }
+        if (rows.size() > 1) {
+            AncestorPath result = chain.result;
+            result.setAmbiguous(true);
+            result.setAmbiguousTable(table);
+            for (Map<String, String> row : rows) {
+                result.getCandidateIds().add(row.get("id"));
+            }
+            chain.edge = null;
+            return null;
+        }
+        return rows.get(0);
+    }
+
+    /**
+     * 条件字段排序：id、iBillId、billnumber在前，其余按字段名排序，同一组条件得到相同的顺序
+     */
+    private static List<String> keyColumns(Collection<String> columns) {
+        List<String> result = new ArrayList<>();
+        for (String column : LEADING_COLUMNS) {
+            if (columns.contains(column)) {
+                result.add(column);
+            }
+        }
+        List<String> rest = new ArrayList<>(columns);
+        rest.removeAll(LEADING_COLUMNS);
+        Collections.sort(rest);
+        result.addAll(rest);
+        return result;
+    }
+
+    private static List<String> tuple(Map<String, String> values, List<String> columns) {
+        List<String> tuple = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            tuple.add(values.get(column));
+        }
+        return tuple;
+    }
+
+    private static Map<List<String>, List<Map<String, String>>> byTuple(List<Map<String, String>> rows, List<String> columns) {
+        Map<List<String>, List<Map<String, String>>> result = new HashMap<>();
+        for (Map<String, String> row : rows) {
+            result.computeIfAbsent(tuple(row, columns), k -> new ArrayList<>()).add(row);
+        }
+        return result;
+    }
+
+    private static List<List<String>> singletons(Collection<String> values) {
+        List<List<String>> result = new ArrayList<>(values.size());
+        for (String value : values) {
+            result.add(Collections.singletonList(value));
+        }
+        return result;
+    }
+
+    /**
+     * 父行的查询条件：子行给出的父行字段，加上父边关联字段中已知的祖先字段
+     */
+    private Map<String, String> parentCondition(RelationGraph graph, Chain chain, String parent) {
+        Map<String, String> condition = new LinkedHashMap<>();
+        Map<String, String> parentValues = chain.known.get(parent);
+        if (parentValues != null) {
+            for (Map.Entry<String, String> entry : parentValues.entrySet()) {
+                if (entry.getValue() != null) {
+                    condition.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        RelationEdge parentEdge = graph.getEdge(parent);
+        if (parentEdge != null) {
+            for (RelationJoin join : parentEdge.getJoin()) {
+                int dot = join.getFrom().indexOf('.');
+                Map<String, String> sourceValues = chain.known.get(graph.resolveSource(parentEdge, join.getFrom().substring(0, dot)));
+                String value = sourceValues == null ? null : sourceValues.get(join.getFrom().substring(dot + 1));
+                if (value != null) {
+                    condition.put(join.getColumn(), value);
+                }
+            }
+        }
+        return condition;
+    }
+
+    /**
+     * 边定义了容器节点时，在子行与父行之间插入容器节点
+     *
+     * @param parentRow 父行，容器ID和属性可能引用父行字段
+     */
+    private void addContainer(RelationGraph graph, Chain chain, RelationEdge edge, Map<String, String> parentRow) {
+        RelationContainer container = edge.getContainer();
+        if (container == null) {
+            return;
+        }
+        chain.known.computeIfAbsent(edge.getParent(), k -> new HashMap<>()).putAll(parentRow);
+        String id = container.getId();
+        for (String expression : RelationGraph.placeholders(container.getId())) {
+            id = id.replace("{" + expression + "}", String.valueOf(resolve(graph, chain, edge, expression)));
+        }
+        DbTreeNode node = new DbTreeNode(container.getTable(), id);
+        node.setAttribute("cName", container.getName());
+        for (Map.Entry<String, String> entry : container.getInherit().entrySet()) {
+            node.setAttribute(entry.getKey(), resolve(graph, chain, edge, entry.getValue()));
+        }
+        chain.path.addFirst(node);
+    }
+
+    private String resolve(RelationGraph graph, Chain chain, RelationEdge edge, String expression) {
+        int dot = expression.indexOf('.');
+        Map<String, String> values = chain.known.get(graph.resolveSource(edge, expression.substring(0, dot)));
+        return values == null ? null : values.get(expression.substring(dot + 1));
+    }
+
+    /**
+     * 同表上下级（如分组的iParentId）逐级向上，把上级行加到路径中
+     */
+    private void resolveTreeParents(Connection conn, RelationGraph graph, String ytenant_id, TreeBuildContext ctx,
+                                    List<Chain> chains) throws SQLException {
+        Map<Chain, Set<String>> visited = new HashMap<>();
+        for (int depth = 0; depth < MAX_TREE_DEPTH; depth++) {
+            Map<String, List<Chain>> byEdge = new LinkedHashMap<>();
+            for (Chain chain : chains) {
+                if (!chain.active()) {
+                    continue;
+                }
+                String treeColumn = graph.getEdge(chain.edge).getTreeColumn();
+                String parentId = treeColumn == null ? null : chain.row.get(treeColumn);
+                if (parentId != null && !parentId.isEmpty()
+                        && visited.computeIfAbsent(chain, k -> new HashSet<>()).add(chain.row.get("id"))) {
+                    byEdge.computeIfAbsent(chain.edge, k -> new ArrayList<>()).add(chain);
+                }
+            }
+            if (byEdge.isEmpty()) {
+                return;
+            }
+            for (Map.Entry<String, List<Chain>> entry : byEdge.entrySet()) {
+                String edgeName = entry.getKey();
+                String treeColumn = graph.getEdge(edgeName).getTreeColumn();
+                List<String> parentIds = new ArrayList<>();
+                for (Chain chain : entry.getValue()) {
+                    parentIds.add(chain.row.get(treeColumn));
+                }
+                Map<String, Map<String, String>> rows = new HashMap<>();
+                for (Map<String, String> row : queryRows(conn, graph, ytenant_id, ctx, graph.getEdge(edgeName).getTable(),
+                        graph.getSelectColumns(edgeName), Collections.singletonList("id"), singletons(parentIds))) {
+                    rows.put(row.get("id"), row);
+                }
+                if (ctx.isTruncated()) {
+                    return;
+                }
+                for (Chain chain : entry.getValue()) {
+                    Map<String, String> row = rows.get(chain.row.get(treeColumn));
+                    if (row != null && !visited.get(chain).contains(row.get("id"))) {
+                        addRow(graph, chain, edgeName, row);
+                    } else {
+                        // 上级不存在时保持当前行，继续追溯父边
+                        chain.row = new HashMap<>(chain.row);
+                        chain.row.remove(treeColumn);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 按IN条件查询，多个条件字段时使用 (a, b) IN ((?, ?), ...)，参数过多时按批拆分
+     * 预算耗尽或语句超时时停止读取并标记截断，返回已读取的行
+     *
+     * @param keyColumns 条件字段
+     * @param keys 条件取值，每项与keyColumns一一对应
+     */
+    private List<Map<String, String>> queryRows(Connection conn, RelationGraph graph, String ytenant_id, TreeBuildContext ctx,
+                                                String table, List<String> columns, List<String> keyColumns,
+                                                Collection<List<String>> keys) throws SQLException {
+        List<Map<String, String>> rows = new ArrayList<>();
+        List<List<String>> keyList = new ArrayList<>(new LinkedHashSet<>(keys));
+        columns = new ArrayList<>(columns);
+        for (String keyColumn : keyColumns) {
+            if (!columns.contains(keyColumn)) {
+                columns.add(keyColumn);
+            }
+        }
+        StringBuilder select = new StringBuilder("SELECT ");
+        for (int i = 0; i < columns.size(); i++) {
+            select.append(i == 0 ? "`" : ", `").append(columns.get(i)).append('`');
+        }
+        select.append(" FROM `").append(table).append("` WHERE `").append(graph.getTenantColumn()).append("` = ? AND ");
+        StringBuilder placeholder = new StringBuilder();
+        if (keyColumns.size() == 1) {
+            select.append('`').append(keyColumns.get(0)).append("` IN (");
+            placeholder.append('?');
+        } else {
+            select.append('(');
+            placeholder.append('(');
+            for (int i = 0; i < keyColumns.size(); i++) {
+                select.append(i == 0 ? "`" : ", `").append(keyColumns.get(i)).append('`');
+                placeholder.append(i == 0 ? "?" : ", ?");
+            }
+            select.append(") IN (");
+            placeholder.append(')');
+        }
+
+        for (int from = 0; from < keyList.size(); from += Math.max(1, inSize)) {
+            List<List<String>> chunk = keyList.subList(from, Math.min(keyList.size(), from + Math.max(1, inSize)));
+            if (!ctx.tryQuery()) {
+                ctx.markTruncated();
+                return rows;
+            }
+            StringBuilder sql = new StringBuilder(select);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "" : ", ").append(placeholder);
+            }
+            sql.append(")");
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                ctx.applyTimeout(stmt);
+                int index = 1;
+                stmt.setString(index++, ytenant_id);
+                for (List<String> key : chunk) {
+                    for (String value : key) {
+                        stmt.setString(index++, value);
+                    }
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (!ctx.tryRow()) {
+                            ctx.markTruncated();
+                            return rows;
+                        }
+                        Map<String, String> row = new HashMap<>();
+                        for (int i = 0; i < columns.size(); i++) {
+                            row.put(columns.get(i), rs.getString(i + 1));
+                        }
+                        rows.add(row);
+                    }
+                }
+            } catch (SQLTimeoutException e) {
+                ctx.markTruncated();
+                return rows;
+            }
+        }
+        return rows;
+    }
+}
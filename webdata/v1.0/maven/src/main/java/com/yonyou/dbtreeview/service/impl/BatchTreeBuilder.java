@@ -0,0 +1,444 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import com.yonyou.dbtreeview.datasource.HedgedQueryExecutor;
+import com.yonyou.dbtreeview.model.DbTreeNode;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 关联树批量构建器
+ * 每一层对所有表单只执行一次IN查询（参数过多时按批拆分），在内存中按外键分组后组装，
+ * 查询数只取决于层数，不随表单数量增长。组装出的节点结构与逐个构建一致。
+ * 每层只查询上一层有数据的表单，预算耗尽时只有确实缺少数据的表单被标记为未完全展开
+ */
+class BatchTreeBuilder {
+
+    private final Connection conn;
+    private final String ytenant_id;
+    private final boolean showEntityTables;
+    private final TreeBuildContext ctx;
+    private final int inBatchSize;
+
+    /**
+     * 已构建的根节点，按表单编码索引
+     */
+    private final Map<String, DbTreeNode> roots = new LinkedHashMap<>();
+
+    private Map<String, List<Map<String, Object>>> entities = Collections.emptyMap();
+    private Map<String, List<Map<String, Object>>> templates = Collections.emptyMap();
+    private Map<String, List<Map<String, Object>>> groups = Collections.emptyMap();
+    private Map<String, List<Map<String, Object>>> items = Collections.emptyMap();
+    private Map<String, List<Map<String, Object>>> toolbars = Collections.emptyMap();
+    private Map<String, List<Map<String, Object>>> toolbarItems = Collections.emptyMap();
+    private Map<String, List<Map<String, Object>>> commands = Collections.emptyMap();
+    private Map<String, List<Map<String, Object>>> filters = Collections.emptyMap();
+    private Map<String, List<Map<String, Object>>> filterItems = Collections.emptyMap();
+    private Map<String, List<Map<String, Object>>> solutions = Collections.emptyMap();
+    private Map<String, List<Map<String, Object>>> solutionCommons = Collections.emptyMap();
+
+    BatchTreeBuilder(Connection conn, String ytenant_id, boolean showEntityTables, TreeBuildContext ctx, int inBatchSize) {
+        this.conn = conn;
+        this.ytenant_id = ytenant_id;
+        this.showEntityTables = showEntityTables;
+        this.ctx = ctx;
+        this.inBatchSize = Math.max(1, inBatchSize);
+    }
+
+    /**
+     * 构建多个表单的关联树
+     *
+     * @param billNos 表单编码列表
+     * @return 表单编码到根节点的映射，不存在的表单不在结果中
+     */
+    Map<String, DbTreeNode> build(List<String> billNos) throws SQLException {
+        loadRoots(billNos);
+        if (roots.isEmpty()) {
+            return roots;
+        }
+
+        // 每层的查询参数到所属表单的映射，只查询上一层确实有数据的表单
+        Map<String, List<String>> byBillNo = new LinkedHashMap<>();
+        Map<String, List<String>> byBillId = new LinkedHashMap<>();
+        Map<String, List<String>> byFilterId = new LinkedHashMap<>();
+        for (Map.Entry<String, DbTreeNode> entry : roots.entrySet()) {
+            String billNo = entry.getKey();
+            DbTreeNode root = entry.getValue();
+            byBillNo.put(billNo, Collections.singletonList(billNo));
+            byBillId.computeIfAbsent(root.getId(), k -> new ArrayList<>()).add(billNo);
+            String filterId = String.valueOf(root.getAttribute("cFilterId"));
+            if (!"null".equals(filterId)) {
+                byFilterId.computeIfAbsent(filterId, k -> new ArrayList<>()).add(billNo);
+            }
+        }
+
+        // 逐层一次性查询所有表单的数据
+        if (showEntityTables) {
+            entities = queryGrouped(TreeQueries.BATCH_ENTITIES,
+                    "iBillId", byBillId, null, "iBillId");
+        }
+        templates = queryGrouped(TreeQueries.BATCH_TEMPLATES,
+                "iBillId", byBillId, null, "iBillId");
+        Map<String, List<String>> withTemplates = owners(byBillId, templates, "iBillId");
+        if (showEntityTables) {
+            groups = queryGrouped(TreeQueries.BATCH_ENTITY_GROUPS,
+                    "iBillId", withTemplates, "iOrder", "iBillId", "iTplId", "iBillEntityId");
+        } else {
+            groups = queryGrouped(TreeQueries.BATCH_GROUPS,
+                    "iBillId", withTemplates, "iOrder", "iBillId", "iTplId");
+        }
+        Map<String, List<String>> withGroups = owners(byBillId, groups, "iBillId");
+        items = queryGrouped(TreeQueries.BATCH_ITEMS,
+                "iBillId", withGroups, "iOrder", "iBillId", "iBillTplGroupId");
+        Map<String, List<String>> groupBills = new LinkedHashMap<>();
+        for (List<String> bills : withGroups.values()) {
+            for (String billNo : bills) {
+                groupBills.put(billNo, byBillNo.get(billNo));
+            }
+        }
+        toolbars = queryGrouped(TreeQueries.BATCH_TOOLBARS,
+                "billnumber", groupBills, null, "billnumber", "parent");
+        toolbarItems = queryGrouped(TreeQueries.BATCH_TOOLBAR_ITEMS,
+                "billnumber", owners(byBillNo, toolbars, "billnumber"), "`order`", "billnumber", "toolbar");
+        commands = queryGrouped(TreeQueries.BATCH_COMMANDS,
+                "billnumber", owners(byBillNo, toolbarItems, "billnumber"), null, "billnumber", "name");
+
+        filters = queryGrouped(TreeQueries.BATCH_FILTERS,
+                "id", byFilterId, null, "id");
+        Map<String, List<String>> withFilters = owners(byFilterId, filters, "id");
+        filterItems = queryGrouped(TreeQueries.BATCH_FILTER_ITEMS,
+                "filtersId", withFilters, null, "filtersId");
+        solutions = queryGrouped(TreeQueries.BATCH_SOLUTIONS,
+                "filtersId", withFilters, null, "filtersId");
+        Map<String, List<String>> bySolutionId = new LinkedHashMap<>();
+        for (List<Map<String, Object>> rows : solutions.values()) {
+            for (Map<String, Object> row : rows) {
+                bySolutionId.put(String.valueOf(row.get("id")), byFilterId.get(String.valueOf(row.get("filtersId"))));
+            }
+        }
+        solutionCommons = queryGrouped(TreeQueries.BATCH_SOLUTION_COMMONS,
+                "solutionId", bySolutionId, null, "solutionId");
+
+        // 内存中组装
+        for (Map.Entry<String, DbTreeNode> entry : roots.entrySet()) {
+            String billNo = entry.getKey();
+            DbTreeNode root = entry.getValue();
+            if (showEntityTables) {
+                for (Map<String, Object> row : rows(entities, root.getId())) {
+                    DbTreeNode entityNode = new DbTreeNode("billentity_base", (String) row.get("id"));
+                    entityNode.setAttribute("cName", row.get("cName"));
+                    entityNode.setAttribute("cBillNo", billNo);
+                    root.addChild(entityNode);
+                    attachTemplates(entityNode, root.getId(), billNo, entityNode.getId());
+                }
+            } else {
+                attachTemplates(root, root.getId(), billNo, null);
+            }
+            attachFilters(root);
+        }
+        return roots;
+    }
+
+    /**
+     * 查询bill_base根节点
+     */
+    private void loadRoots(List<String> billNos) throws SQLException {
+        Map<String, List<String>> owners = new LinkedHashMap<>();
+        for (String billNo : billNos) {
+            owners.put(billNo, Collections.singletonList(billNo));
+        }
+        Map<String, List<Map<String, Object>>> bills = queryGrouped(TreeQueries.BATCH_BILLS,
+                "cBillNo", owners, null, "cBillNo");
+        for (String billNo : billNos) {
+            List<Map<String, Object>> rows = bills.get(billNo);
+            if (rows == null || roots.containsKey(billNo)) {
+                continue;
+            }
+            Map<String, Object> row = rows.get(0);
+            DbTreeNode node = new DbTreeNode("bill_base", (String) row.get("id"));
+            node.setAttribute("cBillNo", billNo);
+            node.setAttribute("cName", row.get("cName"));
+            node.setAttribute("cFilterId", row.get("cFilterId"));
+            roots.put(billNo, node);
+        }
+    }
+
+    /**
+     * 挂接billtemplate_base及其分组，只有存在分组的模板才挂到父节点下
+     */
+    private void attachTemplates(DbTreeNode parentNode, String billId, String billNo, String entityId) {
+        for (Map<String, Object> row : rows(templates, billId)) {
+            DbTreeNode templateNode = new DbTreeNode("billtemplate_base", (String) row.get("id"));
+            templateNode.setAttribute("cName", row.get("cName"));
+            templateNode.setAttribute("cBillNo", billNo);
+            templateNode.setAttribute("iBillEntityId", parentNode.getId());
+
+            List<Map<String, Object>> groupRows = entityId != null
+                    ? rows(groups, billId, templateNode.getId(), entityId)
+                    : rows(groups, billId, templateNode.getId());
+            if (groupRows.isEmpty()) {
+                continue;
+            }
+
+            // 先创建全部分组节点，再按iParentId建立父子关系
+            Map<String, DbTreeNode> groupNodesMap = new LinkedHashMap<>();
+            for (Map<String, Object> groupRow : groupRows) {
+                DbTreeNode groupNode = new DbTreeNode("billtplgroup_base", (String) groupRow.get("id"));
+                groupNode.setAttribute("ccode", groupRow.get("ccode"));
+                groupNode.setAttribute("cName", groupRow.get("cName"));
+                groupNode.setAttribute("iParentId", groupRow.get("iParentId"));
+                groupNode.setAttribute("cBillNo", billNo);
+                groupNodesMap.put(groupNode.getId(), groupNode);
+            }
+            for (DbTreeNode groupNode : groupNodesMap.values()) {
+                String iParentId = (String) groupNode.getAttribute("iParentId");
+                if (iParentId != null && !iParentId.isEmpty() && groupNodesMap.containsKey(iParentId)) {
+                    groupNodesMap.get(iParentId).addChild(groupNode);
+                } else {
+                    templateNode.addChild(groupNode);
+                }
+                attachButtons(groupNode, billNo);
+                attachItems(groupNode, billId, billNo);
+            }
+            parentNode.addChild(templateNode);
+        }
+    }
+
+    /**
+     * 挂接按钮节点及bill_toolbar、bill_toolbaritem、bill_command，没有工具栏时不挂按钮节点
+     */
+    private void attachButtons(DbTreeNode groupNode, String billNo) {
+        String ccode = (String) groupNode.getAttribute("ccode");
+        List<Map<String, Object>> toolbarRows = rows(toolbars, billNo, ccode);
+        if (toolbarRows.isEmpty()) {
+            return;
+        }
+
+        DbTreeNode buttonNode = new DbTreeNode("按钮", "button_" + groupNode.getId());
+        buttonNode.setAttribute("cName", "按钮");
+        buttonNode.setAttribute("cBillNo", billNo);
+        buttonNode.setAttribute("ccode", ccode);
+        for (Map<String, Object> toolbarRow : toolbarRows) {
+            String name = (String) toolbarRow.get("name");
+            DbTreeNode toolbarNode = new DbTreeNode("bill_toolbar", (String) toolbarRow.get("id"));
+            toolbarNode.setAttribute("name", name);
+            toolbarNode.setAttribute("cBillNo", billNo);
+            buttonNode.addChild(toolbarNode);
+
+            for (Map<String, Object> itemRow : rows(toolbarItems, billNo, name)) {
+                DbTreeNode itemNode = new DbTreeNode("bill_toolbaritem", (String) itemRow.get("id"));
+                itemNode.setAttribute("name", itemRow.get("name"));
+                itemNode.setAttribute("command", itemRow.get("command"));
+                itemNode.setAttribute("text", itemRow.get("text"));
+                itemNode.setAttribute("cBillNo", billNo);
+                toolbarNode.addChild(itemNode);
+
+                String command = (String) itemRow.get("command");
+                if (command != null && !command.isEmpty()) {
+                    for (Map<String, Object> commandRow : rows(commands, billNo, command)) {
+                        DbTreeNode commandNode = new DbTreeNode("bill_command", (String) commandRow.get("id"));
+                        commandNode.setAttribute("name", commandRow.get("name"));
+                        commandNode.setAttribute("cBillNo", billNo);
+                        itemNode.addChild(commandNode);
+                    }
+                }
+            }
+        }
+        groupNode.addChild(buttonNode);
+    }
+
+    /**
+     * 挂接billitem_base容器节点及其字段，没有字段时不挂容器节点
+     */
+    private void attachItems(DbTreeNode groupNode, String billId, String billNo) {
+        List<Map<String, Object>> itemRows = rows(items, billId, groupNode.getId());
+        if (itemRows.isEmpty()) {
+            return;
+        }
+
+        DbTreeNode itemsNode = new DbTreeNode("billitem_base", "billitem_" + groupNode.getId());
+        itemsNode.setAttribute("cName", "billitem_base");
+        itemsNode.setAttribute("cBillNo", billNo);
+        itemsNode.setAttribute("groupId", groupNode.getId());
+        for (Map<String, Object> row : itemRows) {
+            DbTreeNode itemNode = new DbTreeNode("billitem_base", (String) row.get("id"));
+            itemNode.setAttribute("cName", row.get("cName"));
+            itemNode.setAttribute("cShowCaption", row.get("cShowCaption"));
+            itemsNode.addChild(itemNode);
+        }
+        groupNode.addChild(itemsNode);
+    }
+
+    /**
+     * 挂接过滤区及pb_meta_filters、pb_meta_filter_item、pb_filter_solution、pb_filter_solution_common
+     */
+    private void attachFilters(DbTreeNode root) {
+        String filterId = String.valueOf(root.getAttribute("cFilterId"));
+        if ("null".equals(filterId)) {
+            return;
+        }
+
+        DbTreeNode filterAreaNode = new DbTreeNode("过滤区", "filter_area");
+        filterAreaNode.setAttribute("cName", "过滤区");
+        root.addChild(filterAreaNode);
+
+        List<Map<String, Object>> filterRows = rows(filters, filterId);
+        if (filterRows.isEmpty()) {
+            return;
+        }
+        Map<String, Object> filterRow = filterRows.get(0);
+        DbTreeNode filterNode = new DbTreeNode("pb_meta_filters", (String) filterRow.get("id"));
+        filterNode.setAttribute("filterDesc", filterRow.get("filterDesc"));
+        filterAreaNode.addChild(filterNode);
+
+        for (Map<String, Object> row : rows(filterItems, filterId)) {
+            DbTreeNode itemNode = new DbTreeNode("pb_meta_filter_item", (String) row.get("id"));
+            itemNode.setAttribute("itemTitle", row.get("itemTitle"));
+            filterNode.addChild(itemNode);
+        }
+        for (Map<String, Object> row : rows(solutions, filterId)) {
+            DbTreeNode solutionNode = new DbTreeNode("pb_filter_solution", (String) row.get("id"));
+            solutionNode.setAttribute("solutionName", row.get("solutionName"));
+            filterNode.addChild(solutionNode);
+
+            for (Map<String, Object> commonRow : rows(solutionCommons, solutionNode.getId())) {
+                DbTreeNode commonNode = new DbTreeNode("pb_filter_solution_common", (String) commonRow.get("id"));
+                commonNode.setAttribute("itemTitle", commonRow.get("itemTitle"));
+                solutionNode.addChild(commonNode);
+            }
+        }
+    }
+
+    /**
+     * 按IN条件查询一层数据，并按分组字段的组合值分组
+     * 预算耗尽或语句超时时停止读取，只把还没读完的参数所属的表单标记为未完全展开
+     *
+     * @param select SELECT ... FROM 子句，见TreeQueries.BATCH_*
+     * @param keyColumn IN条件字段，需包含在查询列中
+     * @param owners IN条件取值到所属表单的映射
+     * @param orderBy 排序字段，可为空
+     * @param groupColumns 分组字段
+     * @return 分组键到行列表的映射，同一分组内保持查询顺序
+     */
+    private Map<String, List<Map<String, Object>>> queryGrouped(String select, String keyColumn, Map<String, List<String>> owners,
+                                                              String orderBy, String... groupColumns) throws SQLException {
+        if (owners.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, List<Map<String, Object>>> grouped = new HashMap<>();
+        List<String> keyList = new ArrayList<>(owners.keySet());
+        for (int from = 0; from < keyList.size(); from += inBatchSize) {
+            List<String> chunk = keyList.subList(from, Math.min(keyList.size(), from + inBatchSize));
+            if (!ctx.tryQuery()) {
+                markTruncated(keyList.subList(from, keyList.size()), owners);
+                return grouped;
+            }
+            ctx.countBillQuery(billsOf(chunk, owners));
+
+            String sql = TreeQueries.inSql(select, keyColumn, chunk.size(), orderBy);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                ctx.applyTimeout(stmt);
+                stmt.setString(1, ytenant_id);
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setString(i + 2, chunk.get(i));
+                }
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    for (Map<String, Object> row : HedgedQueryExecutor.readRows(rs)) {
+                        if (!ctx.tryRow()) {
+                            // 结果按排序字段而不是参数返回，本批的每个参数都可能缺行
+                            markTruncated(keyList.subList(from, keyList.size()), owners);
+                            return grouped;
+                        }
+                        List<String> rowBills = owners.get(String.valueOf(row.get(keyColumn)));
+                        if (rowBills != null) {
+                            ctx.countBillRow(rowBills);
+                        }
+                        grouped.computeIfAbsent(groupKey(row, groupColumns), k -> new ArrayList<>()).add(row);
+                    }
+                }
+            } catch (SQLTimeoutException e) {
+                // 语句超过构建截止时间，返回已读取的部分
+                markTruncated(keyList.subList(from, keyList.size()), owners);
+                return grouped;
+            }
+        }
+        return grouped;
+    }
+
+    /**
+     * 取出上一层有数据的参数，作为下一层的查询参数
+     *
+     * @param owners 上一层的参数到表单的映射
+     * @param grouped 上一层的查询结果
+     * @param column 结果中对应参数的字段
+     */
+    private static Map<String, List<String>> owners(Map<String, List<String>> owners,
+                                                    Map<String, List<Map<String, Object>>> grouped, String column) {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (List<Map<String, Object>> rows : grouped.values()) {
+            for (Map<String, Object> row : rows) {
+                String key = String.valueOf(row.get(column));
+                List<String> bills = owners.get(key);
+                if (bills != null) {
+                    result.put(key, bills);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Collection<String> billsOf(List<String> keys, Map<String, List<String>> owners) {
+        Set<String> bills = new LinkedHashSet<>();
+        for (String key : keys) {
+            bills.addAll(owners.get(key));
+        }
+        return bills;
+    }
+
+    /**
+     * 把未读完的参数所属的表单标记为未完全展开，根节点尚未查出的表单只记录截断
+     */
+    private void markTruncated(List<String> remainingKeys, Map<String, List<String>> owners) {
+        for (String billNo : billsOf(remainingKeys, owners)) {
+            ctx.markBillTruncated(billNo);
+            DbTreeNode root = roots.get(billNo);
+            if (root != null) {
+                ctx.markTruncated(root);
+            }
+        }
+    }
+
+    private static String groupKey(Map<String, Object> row, String... columns) {
+        if (columns.length == 1) {
+            return String.valueOf(row.get(columns[0]));
+        }
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                key.append('|');
+            }
+            key.append(row.get(columns[i]));
+        }
+        return key.toString();
+    }
+
+    private static List<Map<String, Object>> rows(Map<String, List<Map<String, Object>>> grouped, String... keyParts) {
+        String key = keyParts.length == 1 ? String.valueOf(keyParts[0]) : String.join("|", keyParts);
+        List<Map<String, Object>> rows = grouped.get(key);
+        return rows != null ? rows : Collections.<Map<String, Object>>emptyList();
+    }
+}
@@ -0,0 +1,201 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import com.yonyou.dbtreeview.cache.StaleWhileRevalidateCache;
+import com.yonyou.dbtreeview.datasource.DbConnectionManager;
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.model.BillComplexity;
+import com.yonyou.dbtreeview.service.BillAnalyticsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 表单分析服务实现
+ */
+@Service
+public class BillAnalyticsServiceImpl implements BillAnalyticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BillAnalyticsServiceImpl.class);
+
+    /**
+     * 每个模板的分组数，再按表单汇总
+     */
+    private static final String GROUP_SQL = "SELECT iBillId, COUNT(*), SUM(cnt), MAX(cnt) FROM ("
+            + "SELECT iBillId, iTplId, COUNT(*) AS cnt FROM billtplgroup_base WHERE tenant_id = ? GROUP BY iBillId, iTplId"
+            + ") t GROUP BY iBillId";
+
+    /**
+     * 每个分组的字段数，再按表单汇总
+     */
+    private static final String ITEM_SQL = "SELECT iBillId, COUNT(*), SUM(cnt), MAX(cnt) FROM ("
+            + "SELECT iBillId, iBillTplGroupId, COUNT(*) AS cnt FROM billitem_base WHERE tenant_id = ? GROUP BY iBillId, iBillTplGroupId"
+            + ") t GROUP BY iBillId";
+
+    private static final String TOOLBAR_ITEM_SQL =
+            "SELECT billnumber, COUNT(*) FROM bill_toolbaritem WHERE tenant_id = ? GROUP BY billnumber";
+
+    private static final String FILTER_ITEM_SQL =
+            "SELECT filtersId, COUNT(*) FROM pb_meta_filter_item WHERE tenant_id = ? GROUP BY filtersId";
+
+    @Autowired
+    private DbConnectionManager connectionManager;
+
+    @Value("${app.analytics.fresh-ms:600000}")
+    private long freshMillis;
+
+    @Value("${app.analytics.max-idle-ms:3600000}")
+    private long maxIdleMillis;
+
+    @Value("${app.analytics.refresh-interval-ms:60000}")
+    private long refreshIntervalMillis;
+
+    private ScheduledExecutorService scheduler;
+    private StaleWhileRevalidateCache<List<BillComplexity>> complexityCache;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        scheduler = Executors.newScheduledThreadPool(1, r -> {
+            Thread thread = new Thread(r, "bill-analytics-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        complexityCache = new StaleWhileRevalidateCache<>("表单复杂度", freshMillis, maxIdleMillis, scheduler);
+        scheduler.scheduleWithFixedDelay(complexityCache::refreshStale,
+                refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public List<BillComplexity> getBillComplexity(String environment, String dbName, String ytenant_id, DbConfigDTO dbConfig) {
+        String key = dbConfig.getHost() + ":" + dbConfig.getPort() + "/" + dbName + "|" + ytenant_id;
+        try {
+            return complexityCache.get(key, () -> loadBillComplexity(dbName, ytenant_id, dbConfig));
+        } catch (Exception e) {
+            logger.error("统计表单复杂度失败", e);
+            throw new RuntimeException("统计表单复杂度失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        return complexityCache.getMetrics();
+    }
+
+    /**
+     * 用几条聚合查询统计租户下全部表单的复杂度
+     */
+    private List<BillComplexity> loadBillComplexity(String dbName, String ytenant_id, DbConfigDTO dbConfig) throws SQLException {
+        long start = System.currentTimeMillis();
+        Map<String, BillComplexity> byBillId = new LinkedHashMap<>();
+        Map<String, List<BillComplexity>> byFilterId = new HashMap<>();
+        Map<String, BillComplexity> byBillNo = new HashMap<>();
+
+        try (Connection conn = connectionManager.getReadConnection(dbName, dbConfig)) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id, cBillNo, cName, cFilterId FROM bill_base WHERE tenant_id = ?")) {
+                stmt.setString(1, ytenant_id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        BillComplexity bill = new BillComplexity();
+                        bill.setBillId(rs.getString(1));
+                        bill.setBillNo(rs.getString(2));
+                        bill.setBillName(rs.getString(3));
+                        byBillId.put(bill.getBillId(), bill);
+                        byBillNo.put(bill.getBillNo(), bill);
+                        String filterId = rs.getString(4);
+                        if (filterId != null) {
+                            byFilterId.computeIfAbsent(filterId, k -> new ArrayList<>()).add(bill);
+                        }
+                    }
+                }
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(GROUP_SQL)) {
+                stmt.setString(1, ytenant_id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        BillComplexity bill = byBillId.get(rs.getString(1));
+                        if (bill != null) {
+                            bill.setTemplateCount(rs.getLong(2));
+                            bill.setGroupCount(rs.getLong(3));
+                            bill.setMaxGroupsPerTemplate(rs.getLong(4));
+                        }
+                    }
+                }
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(ITEM_SQL)) {
+                stmt.setString(1, ytenant_id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        BillComplexity bill = byBillId.get(rs.getString(1));
+                        if (bill != null) {
+                            bill.setItemCount(rs.getLong(3));
+                            bill.setMaxItemsPerGroup(rs.getLong(4));
+                        }
+                    }
+                }
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(TOOLBAR_ITEM_SQL)) {
+                stmt.setString(1, ytenant_id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        BillComplexity bill = byBillNo.get(rs.getString(1));
+                        if (bill != null) {
+                            bill.setToolbarItemCount(rs.getLong(2));
+                        }
+                    }
+                }
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(FILTER_ITEM_SQL)) {
+                stmt.setString(1, ytenant_id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        List<BillComplexity> bills = byFilterId.get(rs.getString(1));
+                        if (bills != null) {
+                            for (BillComplexity bill : bills) {
+                                bill.setFilterItemCount(rs.getLong(2));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        List<BillComplexity> result = new ArrayList<>(byBillId.values());
+        for (BillComplexity bill : result) {
+            // 根节点、模板、分组、字段容器和字段、按钮、过滤项
+            bill.setEstimatedNodes(1 + bill.getTemplateCount() + bill.getGroupCount() * 2 + bill.getItemCount()
+                    + bill.getToolbarItemCount() + bill.getFilterItemCount());
+        }
+        result.sort((a, b) -> Long.compare(b.getEstimatedNodes(), a.getEstimatedNodes()));
+        logger.info("统计数据库 {} 租户 {} 的表单复杂度完成: 表单数={}, 耗时={}ms",
+                dbName, ytenant_id, result.size(), System.currentTimeMillis() - start);
+        return result;
+    }
+}
@@ -0,0 +1,527 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yonyou.dbtreeview.datasource.DbConnectionManager;
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.dto.TreeBuildOptions;
+import com.yonyou.dbtreeview.model.DbTreeResponse;
+import com.yonyou.dbtreeview.service.BillExportService;
+import com.yonyou.dbtreeview.service.DbRelationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 表单元数据导出导入服务实现
+ * 按getDbRelationTree的关联关系，从bill_base一直到bill_command和pb_*过滤区表，
+ * 以流式结果集逐行读取并写出多值INSERT ... ON DUPLICATE KEY UPDATE语句
+ */
+@Service
+public class BillExportServiceImpl implements BillExportService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BillExportServiceImpl.class);
+    
+    /**
+     * 每条INSERT语句包含的行数
+     */
+    private static final int ROWS_PER_INSERT = 100;
+    
+    /**
+     * 导出的表及其过滤条件，条件中的参数按名称从表单键值中取得，所有条件都会追加tenant_id
+     */
+    static final List<ExportTable> EXPORT_TABLES = Arrays.asList(
+            new ExportTable("bill_base", "cBillNo = ?", "billNo"),
+            new ExportTable("billentity_base", "iBillId = ?", "billId"),
+            new ExportTable("billtemplate_base", "iBillId = ?", "billId"),
+            new ExportTable("billtplgroup_base", "iBillId = ?", "billId"),
+            new ExportTable("billitem_base", "iBillId = ?", "billId"),
+            new ExportTable("bill_toolbar", "billnumber = ?", "billNo"),
+            new ExportTable("bill_toolbaritem", "billnumber = ?", "billNo"),
+            new ExportTable("bill_command", "billnumber = ?", "billNo"),
+            new ExportTable("pb_meta_filters", "id = ?", "filterId"),
+            new ExportTable("pb_meta_filter_item", "filtersId = ?", "filterId"),
+            new ExportTable("pb_filter_solution", "filtersId = ?", "filterId"),
+            new ExportTable("pb_filter_solution_common",
+                    "solutionId IN (SELECT id FROM pb_filter_solution WHERE filtersId = ? AND tenant_id = ?)", "filterId", "tenantId")
+    );
+    
+    @Autowired
+    private DbConnectionManager connectionManager;
+    
+    @Autowired
+    private DbRelationService dbRelationService;
+    
+    @Value("${app.bulk-export.parallelism:4}")
+    private int exportParallelism;
+    
+    @Value("${app.bulk-export.chunk-size:50}")
+    private int exportChunkSize;
+    
+    @Value("${app.tree.batch-max-bills:200}")
+    private int treeBatchMaxBills;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    /**
+     * 批量导出构建关联树的线程池，所有导出任务共享，限制对数据库的总并发
+     */
+    private ExecutorService treeExecutor;
+    
+    @PostConstruct
+    public void init() {
+        if (exportChunkSize > treeBatchMaxBills) {
+            // 超过批量上限的块会被整块拒绝，再退化为逐个构建，这里直接收紧到上限
+            logger.warn("app.bulk-export.chunk-size={} 超过 app.tree.batch-max-bills={}，按 {} 分块导出",
+                    exportChunkSize, treeBatchMaxBills, treeBatchMaxBills);
+            exportChunkSize = treeBatchMaxBills;
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        treeExecutor = Executors.newFixedThreadPool(Math.max(1, exportParallelism), r -> {
+            Thread thread = new Thread(r, "bill-export-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        treeExecutor.shutdownNow();
+    }
+    
+    @Override
+    public void exportBillSql(String dbName, String billNo, String ytenant_id, DbConfigDTO dbConfig, Writer writer) throws IOException {
+        try (Connection conn = connectionManager.getReadConnection(dbName, dbConfig)) {
+            Map<String, String> keys = loadBillKeys(conn, billNo, ytenant_id);
+            if (keys == null) {
+                writer.write("-- 未找到表单: " + billNo + "\n");
+                return;
+            }
+            
+            writer.write("-- 表单 " + billNo + " 元数据迁移脚本（租户 " + ytenant_id + "）\n");
+            writer.write("SET NAMES utf8mb4;\n\n");
+            
+            for (ExportTable table : EXPORT_TABLES) {
+                if (!table.hasAllKeys(keys)) {
+                    continue;
+                }
+                int rows = exportTable(conn, table, keys, writer);
+                logger.info("导出表 {} 共 {} 行", table.name, rows);
+            }
+            writer.flush();
+        } catch (SQLException e) {
+            logger.error("导出表单元数据失败", e);
+            // 脚本可能已部分写出，以注释形式标记中断
+            writer.write("\n-- 导出中断: " + e.getMessage() + "\n");
+            writer.flush();
+            throw new RuntimeException("导出表单元数据失败: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public Map<String, Object> importBillSql(String dbName, DbConfigDTO dbConfig, Reader reader) throws IOException {
+        Map<String, Object> result = new HashMap<>();
+        Set<String> allowedTables = new LinkedHashSet<>();
+        for (ExportTable table : EXPORT_TABLES) {
+            allowedTables.add(table.name);
+        }
+        
+        Connection conn = null;
+        int statementCount = 0;
+        long affectedRows = 0;
+        try {
+            conn = connectionManager.getConnection(dbName, dbConfig);
+            conn.setAutoCommit(false);
+            
+            checkSqlMode(conn);
+            
+            try (Statement stmt = conn.createStatement()) {
+                BufferedReader lines = new BufferedReader(reader);
+                StringBuilder current = new StringBuilder();
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (current.length() == 0 && (line.trim().isEmpty() || line.startsWith("--"))) {
+                        continue;
+                    }
+                    current.append(line).append('\n');
+                    // 导出脚本中字符串内的换行均已转义，语句只会在行尾以分号结束
+                    if (!line.endsWith(";")) {
+                        continue;
+                    }
+                    
+                    String sql = ImportStatementParser.parse(current.toString(), allowedTables);
+                    current.setLength(0);
+                    // 逐条执行，连接未开启allowMultiQueries，服务端也不会接受一次提交多条语句
+                    int count = stmt.executeUpdate(sql);
+                    if (count > 0) {
+                        affectedRows += count;
+                    }
+                    statementCount++;
+                }
+                if (current.toString().trim().length() > 0) {
+                    throw new SQLException("脚本末尾存在未结束的语句");
+                }
+            }
+            
+            conn.commit();
+            logger.info("导入迁移脚本成功: 语句数={}, 影响行数={}", statementCount, affectedRows);
+            result.put("success", true);
+            result.put("statements", statementCount);
+            result.put("affectedRows", affectedRows);
+            return result;
+        } catch (SQLException e) {
+            logger.error("导入迁移脚本失败，已回滚", e);
+            rollback(conn);
+            throw new RuntimeException("导入迁移脚本失败（已回滚）: " + e.getMessage(), e);
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    logger.error("关闭数据库连接失败", e);
+                }
+            }
+        }
+    }
+    
+    @Override
+    public Map<String, Object> exportBillTrees(String environment, String dbName, List<String> billNos, String ytenant_id, DbConfigDTO dbConfig,
+                                               boolean showEntityTables, TreeBuildOptions options, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        List<String> bills = billNos != null && !billNos.isEmpty()
+                ? billNos
+                : dbRelationService.getBillNoList(environment, dbName, ytenant_id, dbConfig);
+        
+        int window = Math.max(1, exportParallelism);
+        int chunkSize = Math.max(1, exportChunkSize);
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger truncated = new AtomicInteger();
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        int next = 0;
+        
+        GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024);
+        try {
+            // 滑动窗口：最多window块表单在构建或等待写出，按提交顺序写出，已写出的树即可回收
+            while (next < bills.size() || !pending.isEmpty()) {
+                while (next < bills.size() && pending.size() < window) {
+                    List<String> chunk = bills.subList(next, Math.min(bills.size(), next + chunkSize));
+                    next += chunk.size();
+                    pending.addLast(treeExecutor.submit(() -> buildTreeLines(environment, dbName, chunk, ytenant_id,
+                            dbConfig, showEntityTables, options, failed, truncated)));
+                }
+                gzip.write(pending.pollFirst().get());
+            }
+            gzip.finish();
+            gzip.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("批量导出被中断", e);
+        } catch (ExecutionException e) {
+            throw new IOException("批量导出失败: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            // 客户端断开等异常时不再继续构建剩余表单
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+        }
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("bills", bills.size());
+        result.put("failed", failed.get());
+        result.put("truncated", truncated.get());
+        result.put("elapsedMillis", System.currentTimeMillis() - start);
+        logger.info("批量导出关联树完成: {}", result);
+        return result;
+    }
+    
+    /**
+     * 按层批量构建一块表单的关联树，每个表单序列化为一行JSON
+     * 整块共用一份构建预算，被截断的表单以及整块构建失败时的全部表单改为逐个构建，
+     * 使每个表单都有完整的单表单预算；只有出错的表单输出错误信息
+     */
+    private byte[] buildTreeLines(String environment, String dbName, List<String> chunk, String ytenant_id, DbConfigDTO dbConfig,
+                                  boolean showEntityTables, TreeBuildOptions options, AtomicInteger failed,
+                                  AtomicInteger truncated) throws IOException {
+        Map<String, DbTreeResponse> trees;
+        try {
+            trees = dbRelationService.getDbRelationTrees(environment, dbName, chunk, ytenant_id, dbConfig, showEntityTables, options);
+        } catch (RuntimeException e) {
+            logger.warn("批量导出 {} 个表单失败，改为逐个导出: {}", chunk.size(), e.getMessage());
+            trees = null;
+        }
+        
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (String billNo : chunk) {
+            DbTreeResponse tree = trees != null ? trees.get(billNo) : null;
+            if (tree != null && !tree.isTruncated()) {
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("billNo", billNo);
+                line.put("tree", tree);
+                lines.write(objectMapper.writeValueAsBytes(line));
+                lines.write('\n');
+            } else {
+                lines.write(buildTreeLine(environment, dbName, billNo, ytenant_id, dbConfig, showEntityTables, options,
+                        failed, truncated));
+            }
+        }
+        return lines.toByteArray();
+    }
+    
+    /**
+     * 构建单个表单的关联树并序列化为一行JSON，失败时输出错误信息而不中断整个导出
+     * 单表单预算内仍未构建完整的树照常输出，并在行上标记truncated
+     */
+    private byte[] buildTreeLine(String environment, String dbName, String billNo, String ytenant_id, DbConfigDTO dbConfig,
+                                 boolean showEntityTables, TreeBuildOptions options, AtomicInteger failed,
+                                 AtomicInteger truncated) throws IOException {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("billNo", billNo);
+        try {
+            DbTreeResponse tree = dbRelationService.getDbRelationTree(environment, dbName, billNo, ytenant_id,
+                    dbConfig, showEntityTables, options);
+            if (tree.isTruncated()) {
+                truncated.incrementAndGet();
+                logger.warn("批量导出表单 {} 超出构建预算，输出部分结果", billNo);
+                line.put("truncated", true);
+            }
+            line.put("tree", tree);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            logger.warn("批量导出表单 {} 失败: {}", billNo, e.getMessage());
+            line.put("error", e.getMessage());
+        }
+        byte[] json = objectMapper.writeValueAsBytes(line);
+        byte[] bytes = Arrays.copyOf(json, json.length + 1);
+        bytes[json.length] = '\n';
+        return bytes;
+    }
+    
+    /**
+     * 读取表单主键、过滤区ID等关联键
+     */
+    private Map<String, String> loadBillKeys(Connection conn, String billNo, String ytenant_id) throws SQLException {
+        String sql = "SELECT id, cFilterId FROM bill_base WHERE cBillNo = ? AND tenant_id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, billNo);
+            stmt.setString(2, ytenant_id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Map<String, String> keys = new HashMap<>();
+                keys.put("billNo", billNo);
+                keys.put("tenantId", ytenant_id);
+                keys.put("billId", rs.getString("id"));
+                keys.put("filterId", rs.getString("cFilterId"));
+                return keys;
+            }
+        }
+    }
+    
+    /**
+     * 以流式结果集导出单表
+     *
+     * @return 导出行数
+     */
+    private int exportTable(Connection conn, ExportTable table, Map<String, String> keys, Writer writer) throws SQLException, IOException {
+        String sql = "SELECT * FROM " + table.name + " WHERE " + table.condition + " AND tenant_id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // MySQL驱动在fetchSize为Integer.MIN_VALUE时逐行流式读取，不把结果集整体放入内存
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            int paramIndex = 1;
+            for (String key : table.keys) {
+                stmt.setString(paramIndex++, keys.get(key));
+            }
+            stmt.setString(paramIndex, keys.get("tenantId"));
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columnCount = meta.getColumnCount();
+                String insertHead = buildInsertHead(table.name, meta);
+                String insertTail = buildUpdateTail(meta);
+                
+                int total = 0;
+                int inStatement = 0;
+                StringBuilder row = new StringBuilder();
+                while (rs.next()) {
+                    if (inStatement == 0) {
+                        writer.write(insertHead);
+                    } else {
+                        writer.write(",\n");
+                    }
+                    
+                    row.setLength(0);
+                    row.append('(');
+                    for (int i = 1; i <= columnCount; i++) {
+                        if (i > 1) {
+                            row.append(", ");
+                        }
+                        appendLiteral(row, rs.getObject(i));
+                    }
+                    row.append(')');
+                    writer.write(row.toString());
+                    total++;
+                    
+                    if (++inStatement >= ROWS_PER_INSERT) {
+                        writer.write(insertTail);
+                        writer.flush();
+                        inStatement = 0;
+                    }
+                }
+                if (inStatement > 0) {
+                    writer.write(insertTail);
+                    writer.flush();
+                }
+                return total;
+            }
+        }
+    }
+    
+    private String buildInsertHead(String tableName, ResultSetMetaData meta) throws SQLException {
+        StringBuilder head = new StringBuilder();
+        head.append("INSERT INTO `").append(tableName).append("` (");
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            if (i > 1) {
+                head.append(", ");
+            }
+            head.append('`').append(meta.getColumnName(i)).append('`');
+        }
+        head.append(") VALUES\n");
+        return head.toString();
+    }
+    
+    private String buildUpdateTail(ResultSetMetaData meta) throws SQLException {
+        StringBuilder tail = new StringBuilder("\nON DUPLICATE KEY UPDATE ");
+        boolean first = true;
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            String column = meta.getColumnName(i);
+            if ("id".equalsIgnoreCase(column)) {
+                continue;
+            }
+            if (!first) {
+                tail.append(", ");
+            }
+            tail.append('`').append(column).append("` = VALUES(`").append(column).append("`)");
+            first = false;
+        }
+        tail.append(";\n\n");
+        return tail.toString();
+    }
+    
+    /**
+     * 把值写成SQL字面量
+     */
+    private void appendLiteral(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("NULL");
+        } else if (value instanceof BigDecimal) {
+            sb.append(((BigDecimal) value).toPlainString());
+        } else if (value instanceof Number) {
+            sb.append(value);
+        } else if (value instanceof Boolean) {
+            sb.append((Boolean) value ? '1' : '0');
+        } else if (value instanceof byte[]) {
+            sb.append("X'");
+            for (byte b : (byte[]) value) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            sb.append('\'');
+        } else if (value instanceof TemporalAccessor) {
+            appendQuoted(sb, value.toString().replace('T', ' '));
+        } else {
+            appendQuoted(sb, value.toString());
+        }
+    }
+    
+    private void appendQuoted(StringBuilder sb, String text) {
+        sb.append('\'');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\': sb.append("\\\\"); break;
+                case '\'': sb.append("\\'"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\0': sb.append("\\0"); break;
+                case '\u001a': sb.append("\\Z"); break;
+                default: sb.append(c);
+            }
+        }
+        sb.append('\'');
+    }
+    
+    /**
+     * 校验语句时按反斜杠转义解析字符串，会话开启NO_BACKSLASH_ESCAPES时服务端的解析会与校验不一致，直接拒绝导入
+     */
+    private void checkSqlMode(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT @@SESSION.sql_mode")) {
+            if (rs.next() && String.valueOf(rs.getString(1)).toUpperCase().contains("NO_BACKSLASH_ESCAPES")) {
+                throw new SQLException("目标库sql_mode包含NO_BACKSLASH_ESCAPES，无法安全导入");
+            }
+        }
+    }
+    
+    private void rollback(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException e) {
+                logger.error("回滚事务失败", e);
+            }
+        }
+    }
+    
+    /**
+     * 导出表定义
+     */
+    static class ExportTable {
+        final String name;
+        final String condition;
+        final String[] keys;
+        
+        ExportTable(String name, String condition, String... keys) {
+            this.name = name;
+            this.condition = condition;
+            this.keys = keys;
+        }
+        
+        boolean hasAllKeys(Map<String, String> values) {
+            for (String key : keys) {
+                if (values.get(key) == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
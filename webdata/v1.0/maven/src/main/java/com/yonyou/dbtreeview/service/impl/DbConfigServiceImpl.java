@@ -1,23 +1,40 @@
 package com.yonyou.dbtreeview.service.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yonyou.dbtreeview.datasource.DbConnectionManager;
 import com.yonyou.dbtreeview.dto.DbConfigDTO;
 import com.yonyou.dbtreeview.dto.DbConfigsDTO;
 import com.yonyou.dbtreeview.service.DbConfigService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * 数据库配置服务实现类
+ * 配置在内存中保存为只读快照，配置文件变更时由WatchService自动刷新，保存时通过临时文件原子替换
+ * 快照中的配置对象不对外暴露，读取时返回深拷贝，调用方修改返回值不会影响快照
  */
 @Service
 public class DbConfigServiceImpl implements DbConfigService {
@@ -31,15 +48,52 @@ public class DbConfigServiceImpl implements DbConfigService {
     @Value("${app.db-config-file:./db-config.json}")
     private String configFilePath;
     
+    @Autowired
+    private DbConnectionManager connectionManager;
+    
     /**
      * JSON对象映射器
      */
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    /**
+     * 配置文件实际路径，启动时解析一次
+     */
+    private Path configPath;
+    
+    /**
+     * 当前配置快照，只整体替换，不做修改；其中的配置对象不直接返回给调用方
+     */
+    private volatile DbConfigsDTO snapshot;
+    
+    /**
+     * 配置文件监听
+     */
+    private WatchService watchService;
+    private Thread watchThread;
+    
+    @PostConstruct
+    public void init() {
+        configPath = resolveConfigPath().toAbsolutePath();
+        snapshot = loadSnapshot();
+        startWatcher();
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("关闭配置文件监听失败", e);
+            }
+        }
+    }
+
     @Override
     public void saveDbConfigs(DbConfigsDTO configs) {
         try {
-            Path path = resolveConfigPath();
+            Path path = configPath;
             
             // 创建配置文件目录（如果不存在）
             File configDir = path.getParent().toFile();
@@ -50,8 +104,21 @@ public class DbConfigServiceImpl implements DbConfigService {
             // 将配置对象序列化为JSON字符串
             String configJson = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(configs);
             
-            // 写入配置文件
-            Files.write(path, configJson.getBytes());
+            // 先写临时文件再原子替换，避免读到写了一半的配置
+            Path tempFile = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try {
+                Files.write(tempFile, configJson.getBytes(StandardCharsets.UTF_8));
+                try {
+                    Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            
+            replaceSnapshot(toSnapshot(configs));
+            startWatcher();
             
             logger.info("数据库配置已保存到文件: {}", path);
         } catch (Exception e) {
@@ -62,24 +129,136 @@ public class DbConfigServiceImpl implements DbConfigService {
 
     @Override
     public DbConfigsDTO getDbConfigs() {
+        return toSnapshot(snapshot);
+    }
+    
+    @Override
+    public DbConfigDTO getConfigForEnvironment(String environment) {
+        if (environment == null) {
+            return null;
+        }
+        DbConfigDTO config = snapshot.getConfigs().get(environment);
+        return config != null ? config.copy() : null;
+    }
+    
+    @Override
+    public DbConfigDTO resolveConfig(String environment, DbConfigDTO requestConfig) {
+        if (requestConfig != null && requestConfig.getHost() != null && !requestConfig.getHost().isEmpty()) {
+            return requestConfig;
+        }
+        return getConfigForEnvironment(environment);
+    }
+    
+    /**
+     * 启动时从文件加载配置快照，失败时返回默认配置
+     */
+    private DbConfigsDTO loadSnapshot() {
         try {
-            Path path = resolveConfigPath();
-            
             // 检查配置文件是否存在
-            if (!Files.exists(path)) {
-                logger.info("配置文件不存在，返回默认配置: {}", path);
-                return createDefaultConfig();
+            if (!Files.exists(configPath)) {
+                logger.info("配置文件不存在，返回默认配置: {}", configPath);
+                return toSnapshot(createDefaultConfig());
             }
-            
-            // 读取配置文件内容
-            byte[] jsonData = Files.readAllBytes(path);
-            
-            // 反序列化JSON为配置对象
-            return objectMapper.readValue(jsonData, DbConfigsDTO.class);
+            return readSnapshot();
         } catch (Exception e) {
             logger.error("读取数据库配置失败: {}", e.getMessage(), e);
             // 发生错误时返回默认配置
-            return createDefaultConfig();
+            return toSnapshot(createDefaultConfig());
+        }
+    }
+    
+    /**
+     * 配置文件变更后重新加载快照
+     * 文件可能正在被编辑器写入或内容有误，读取失败时保留之前的快照，不退回默认配置
+     */
+    private void reloadSnapshot() {
+        try {
+            replaceSnapshot(readSnapshot());
+            logger.info("配置文件已变更，重新加载: {}", configPath);
+        } catch (Exception e) {
+            logger.warn("配置文件已变更，但重新加载失败，继续使用之前的配置: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 替换配置快照，并关闭旧配置不再使用的连接池
+     */
+    private synchronized void replaceSnapshot(DbConfigsDTO next) {
+        DbConfigsDTO previous = snapshot;
+        snapshot = next;
+        if (previous != null) {
+            connectionManager.retirePools(previous.getConfigs().values(), next.getConfigs().values());
+        }
+    }
+    
+    /**
+     * 读取并解析配置文件
+     */
+    private DbConfigsDTO readSnapshot() throws IOException {
+        // 读取配置文件内容
+        byte[] jsonData = Files.readAllBytes(configPath);
+        
+        // 反序列化JSON为配置对象
+        return toSnapshot(objectMapper.readValue(jsonData, DbConfigsDTO.class));
+    }
+    
+    /**
+     * 生成只读快照，逐个深拷贝配置，与传入的对象互不影响
+     */
+    private DbConfigsDTO toSnapshot(DbConfigsDTO configs) {
+        Map<String, DbConfigDTO> copy = new LinkedHashMap<>();
+        if (configs != null && configs.getConfigs() != null) {
+            for (Map.Entry<String, DbConfigDTO> entry : configs.getConfigs().entrySet()) {
+                copy.put(entry.getKey(), entry.getValue() != null ? entry.getValue().copy() : null);
+            }
+        }
+        return new DbConfigsDTO(Collections.unmodifiableMap(copy));
+    }
+    
+    /**
+     * 监听配置文件所在目录，文件被外部修改后重新加载快照
+     */
+    private synchronized void startWatcher() {
+        Path dir = configPath.getParent();
+        if (watchThread != null || dir == null || !Files.isDirectory(dir)) {
+            return;
+        }
+        try {
+            watchService = dir.getFileSystem().newWatchService();
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            logger.warn("无法监听配置文件目录 {}，配置修改需重启生效", dir, e);
+            return;
+        }
+        
+        watchThread = new Thread(this::watchLoop, "db-config-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        logger.info("开始监听配置文件: {}", configPath);
+    }
+    
+    private void watchLoop() {
+        Path fileName = configPath.getFileName();
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (fileName.equals(event.context())) {
+                    changed = true;
+                }
+            }
+            if (changed) {
+                reloadSnapshot();
+            }
+            if (!key.reset()) {
+                return;
+            }
         }
     }
     
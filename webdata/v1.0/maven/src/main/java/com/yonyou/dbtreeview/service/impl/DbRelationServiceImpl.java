@@ -1,19 +1,47 @@
 package com.yonyou.dbtreeview.service.impl;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yonyou.dbtreeview.datasource.DbConnectionManager;
+import com.yonyou.dbtreeview.datasource.HedgedQueryExecutor;
 import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.dto.TreeBuildOptions;
+import com.yonyou.dbtreeview.graph.RelationGraphRegistry;
 import com.yonyou.dbtreeview.model.DbTreeNode;
 import com.yonyou.dbtreeview.model.DbTreeResponse;
 import com.yonyou.dbtreeview.model.TableDetailsResponse;
 import com.yonyou.dbtreeview.service.DbRelationService;
+import com.yonyou.dbtreeview.trace.TableQueryEvent;
+import com.yonyou.dbtreeview.trace.TreeBuildEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.*;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 数据库关系服务实现
@@ -22,37 +50,140 @@ import java.util.List;
 public class DbRelationServiceImpl implements DbRelationService {
     
     private static final Logger logger = LoggerFactory.getLogger(DbRelationServiceImpl.class);
+
+    /**
+     * 数据库端组装返回的行按iOrder、id数值排序，与ORDER BY iOrder一样空值在前
+     */
+    static final Comparator<Map<String, Object>> SQL_ROW_ORDER = Comparator
+            .<Map<String, Object>, BigDecimal>comparing(row -> toDecimal(row.get("iOrder")), Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(row -> toDecimal(row.get("id")), Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(row -> String.valueOf(row.get("id")));
+    
+    @Autowired
+    private DbConnectionManager connectionManager;
+    
+    @Autowired
+    private HedgedQueryExecutor hedgedQueryExecutor;
+    
+    @Autowired
+    private TableSchemaCache tableSchemaCache;
+    
+    @Value("${app.tree.time-budget-ms:20000}")
+    private long treeTimeBudgetMs;
+    
+    @Value("${app.tree.max-queries:5000}")
+    private int treeMaxQueries;
+    
+    @Value("${app.tree.max-rows:100000}")
+    private int treeMaxRows;
+    
+    @Value("${app.tree.batch-max-bills:200}")
+    private int treeBatchMaxBills;
+    
+    @Value("${app.tree.batch-in-size:500}")
+    private int treeBatchInSize;
+    
+    @Value("${app.tree.assembly:java}")
+    private String defaultAssembly;
+    
+    @Value("${app.relation-graph.parallelism:4}")
+    private int graphParallelism;
+    
+    @Autowired
+    private RelationGraphRegistry relationGraphRegistry;
+    
+    /**
+     * 按关联图构建时并行查询同一波次各边的线程池
+     */
+    private ExecutorService graphExecutor;
+    
+    /**
+     * JSON对象映射器
+     */
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        graphExecutor = Executors.newFixedThreadPool(Math.max(1, graphParallelism), r -> {
+            Thread thread = new Thread(r, "relation-graph-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        graphExecutor.shutdownNow();
+    }
     
     @Override
-    public DbTreeResponse getDbRelationTree(String environment, String dbName, String billNo, String ytenant_id, DbConfigDTO dbConfig, boolean showEntityTables) {
+    public DbTreeResponse getDbRelationTree(String environment, String dbName, String billNo, String ytenant_id, DbConfigDTO dbConfig, boolean showEntityTables, TreeBuildOptions options) {
         Connection conn = null;
+        TreeBuildContext ctx = createBuildContext(options);
+        TreeBuildEvent buildEvent = new TreeBuildEvent(billNo, dbName, 1, showEntityTables);
         
         try {
-            // 连接数据库
-            conn = getConnection(dbName, dbConfig);
+            // 连接数据库，修改数据后的重新加载读主库，其余读副本
+            boolean readPrimary = options != null && Boolean.TRUE.equals(options.getReadYourWrites());
+            conn = readPrimary ? getConnection(dbName, dbConfig) : getReadConnection(dbName, dbConfig);
+            
+            String assembly = resolveAssembly(options);
             
-            // 创建树形结构根节点
-            DbTreeNode rootNode = getBillBaseNode(conn, billNo, ytenant_id);
+            // 分组层级改由数据库端组装
+            ctx.setSqlAssembly(TreeBuildOptions.ASSEMBLY_SQL.equalsIgnoreCase(assembly));
             
-            if (rootNode != null) {
-                // 保存billNo到根节点，使其易于传递
-                rootNode.setAttribute("cBillNo", billNo);
+            // 启用对冲时，只读查找语句慢于P95时在另借的池化连接上对冲
+            if (options != null && Boolean.TRUE.equals(options.getHedge())) {
+                ctx.enableHedging(() -> readPrimary ? getConnection(dbName, dbConfig) : getReadConnection(dbName, dbConfig));
+            }
+            
+            DbTreeNode rootNode;
+            if (TreeBuildOptions.ASSEMBLY_GRAPH.equalsIgnoreCase(assembly)) {
+                // 按关联图定义构建，并行查询的连接与当前连接同一端点
+                Connection caller = conn;
+                rootNode = new GraphTreeBuilder(conn, relationGraphRegistry.getGraph(showEntityTables), ytenant_id, ctx,
+                        treeBatchInSize, graphExecutor, () -> connectionManager.getConnectionLike(caller, dbName, dbConfig))
+                        .build(Collections.singletonList(billNo)).get(billNo);
+            } else {
+                // 创建树形结构根节点
+                rootNode = getBillBaseNode(conn, billNo, ytenant_id, ctx);
                 
-                // 根据showEntityTables参数决定是否添加billentity_base子节点
-                if (showEntityTables) {
-                    // 添加billentity_base子节点
-                    addBillEntityNodes(conn, rootNode, ytenant_id);
-                }else{
-                    // 添加billtemplate_base子节点 - 直接关联到billentity_base
-                    String billId = rootNode.getId();
-                    addBillTemplateNodes(conn, rootNode, billId, billNo, ytenant_id,showEntityTables);
+                if (rootNode != null) {
+                    // 保存billNo到根节点，使其易于传递
+                    rootNode.setAttribute("cBillNo", billNo);
+                    
+                    // 根据showEntityTables参数决定是否添加billentity_base子节点
+                    if (showEntityTables) {
+                        // 添加billentity_base子节点
+                        addBillEntityNodes(conn, rootNode, ytenant_id, ctx);
+                    }else{
+                        // 添加billtemplate_base子节点 - 直接关联到billentity_base
+                        String billId = rootNode.getId();
+                        addBillTemplateNodes(conn, rootNode, billId, billNo, ytenant_id,showEntityTables, ctx);
+                    }
+                    
+                    // 添加pb_meta_filters子节点
+                    addMetaFilterNodes(conn, rootNode, ytenant_id, ctx);
                 }
-                
-                // 添加pb_meta_filters子节点
-                addMetaFilterNodes(conn, rootNode, ytenant_id);
             }
             
-            return new DbTreeResponse(rootNode);
+            // 完整模式下按表批量附带整行数据
+            if (rootNode != null && options != null && Boolean.TRUE.equals(options.getFull())) {
+                attachRowDetails(conn, dbName, dbConfig, Collections.singletonList(rootNode), ytenant_id, ctx);
+            }
+            
+            DbTreeResponse response = new DbTreeResponse(rootNode);
+            response.setTruncated(ctx.isTruncated());
+            response.setQueryCount(ctx.getQueryCount());
+            response.setRowCount(ctx.getRowCount());
+            response.setElapsedMillis(ctx.getElapsedMillis());
+            buildEvent.finish(() -> countNodes(rootNode), ctx.getQueryCount(), ctx.getRowCount(), ctx.isTruncated());
+            if (ctx.isTruncated()) {
+                logger.warn("表单 {} 的关联树超出构建预算，返回部分结果: 查询数={}, 行数={}, 耗时={}ms",
+                        billNo, ctx.getQueryCount(), ctx.getRowCount(), ctx.getElapsedMillis());
+            }
+            return response;
         } catch (Exception e) {
             logger.error("获取数据库关联树失败", e);
             throw new RuntimeException("获取数据库关联树失败: " + e.getMessage(), e);
@@ -61,6 +192,60 @@ public class DbRelationServiceImpl implements DbRelationService {
         }
     }
     
+    @Override
+    public Map<String, DbTreeResponse> getDbRelationTrees(String environment, String dbName, List<String> billNos, String ytenant_id, DbConfigDTO dbConfig, boolean showEntityTables, TreeBuildOptions options) {
+        if (billNos.size() > treeBatchMaxBills) {
+            throw new IllegalArgumentException("单次最多批量获取 " + treeBatchMaxBills + " 个表单的关联树");
+        }
+        
+        Connection conn = null;
+        TreeBuildContext ctx = createBuildContext(options);
+        TreeBuildEvent buildEvent = new TreeBuildEvent(String.join(",", billNos), dbName, billNos.size(), showEntityTables);
+        
+        try {
+            // 连接数据库
+            boolean readPrimary = options != null && Boolean.TRUE.equals(options.getReadYourWrites());
+            conn = readPrimary ? getConnection(dbName, dbConfig) : getReadConnection(dbName, dbConfig);
+            
+            // 逐层集合查询并在内存中组装
+            Map<String, DbTreeNode> roots;
+            if (TreeBuildOptions.ASSEMBLY_GRAPH.equalsIgnoreCase(resolveAssembly(options))) {
+                Connection caller = conn;
+                roots = new GraphTreeBuilder(conn, relationGraphRegistry.getGraph(showEntityTables), ytenant_id, ctx,
+                        treeBatchInSize, graphExecutor, () -> connectionManager.getConnectionLike(caller, dbName, dbConfig))
+                        .build(billNos);
+            } else {
+                roots = new BatchTreeBuilder(conn, ytenant_id, showEntityTables, ctx, treeBatchInSize).build(billNos);
+            }
+            if (options != null && Boolean.TRUE.equals(options.getFull())) {
+                attachRowDetails(conn, dbName, dbConfig, roots.values(), ytenant_id, ctx);
+            }
+            
+            Map<String, DbTreeResponse> responses = new LinkedHashMap<>();
+            // 截断和计数按表单分别统计：一条集合查询计入其涉及的每个表单，耗时为整批构建耗时
+            for (String billNo : billNos) {
+                DbTreeResponse response = new DbTreeResponse(roots.get(billNo));
+                response.setTruncated(ctx.isBillTruncated(billNo));
+                response.setQueryCount(ctx.getBillQueryCount(billNo));
+                response.setRowCount(ctx.getBillRowCount(billNo));
+                response.setElapsedMillis(ctx.getElapsedMillis());
+                responses.put(billNo, response);
+            }
+            buildEvent.finish(() -> roots.values().stream().mapToInt(DbRelationServiceImpl::countNodes).sum(),
+                    ctx.getQueryCount(), ctx.getRowCount(), ctx.isTruncated());
+            if (ctx.isTruncated()) {
+                logger.warn("批量关联树超出构建预算，返回部分结果: 表单数={}, 查询数={}, 行数={}, 耗时={}ms",
+                        billNos.size(), ctx.getQueryCount(), ctx.getRowCount(), ctx.getElapsedMillis());
+            }
+            return responses;
+        } catch (Exception e) {
+            logger.error("批量获取数据库关联树失败", e);
+            throw new RuntimeException("批量获取数据库关联树失败: " + e.getMessage(), e);
+        } finally {
+            closeConnection(conn);
+        }
+    }
+    
     // 为了保持向后兼容，保留原始方法，调用新方法并默认不显示实体表
 //    @Override
 //    public DbTreeResponse getDbRelationTree(String environment, String dbName, String billNo, String ytenant_id, DbConfigDTO dbConfig) {
@@ -69,17 +254,15 @@ public class DbRelationServiceImpl implements DbRelationService {
 //    }
     
     @Override
-    public TableDetailsResponse getTableDetails(String environment, String dbName, String tableName, String id, String ytenant_id, DbConfigDTO dbConfig) {
+    public TableDetailsResponse getTableDetails(String environment, String dbName, String tableName, String id, String ytenant_id, DbConfigDTO dbConfig, boolean includeLargeColumns) {
         Connection conn = null;
         
         try {
             // 连接数据库
-            conn = getConnection(dbName, dbConfig);
+            conn = getReadConnection(dbName, dbConfig);
             
             // 查询表详情
-            Map<String, Object> data = queryTableDetails(conn, tableName, id, ytenant_id);
-            
-            return new TableDetailsResponse(tableName, data);
+            return queryTableDetails(conn, dbName, dbConfig, tableName, id, ytenant_id, includeLargeColumns);
         } catch (Exception e) {
             logger.error("获取表详情失败", e);
             throw new RuntimeException("获取表详情失败: " + e.getMessage(), e);
@@ -88,6 +271,102 @@ public class DbRelationServiceImpl implements DbRelationService {
         }
     }
     
+    @Override
+    public Map<String, Object> getColumnValue(String environment, String dbName, String tableName, String id, String ytenant_id, String columnName,
+                                              Long offset, Integer length, DbConfigDTO dbConfig) {
+        Connection conn = null;
+        
+        try {
+            conn = getReadConnection(dbName, dbConfig);
+            TableSchemaCache.ColumnInfo column = resolveColumn(conn, dbName, dbConfig, tableName, columnName);
+            
+            String sql = String.format("SELECT OCTET_LENGTH(`%1$s`), %2$s FROM `%3$s` WHERE id = ? AND tenant_id = ?",
+                    column.getName(), substringExpression(column.getName(), length), tableName);
+            
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int paramIndex = 1;
+                stmt.setLong(paramIndex++, rangeStart(offset));
+                if (length != null) {
+                    stmt.setInt(paramIndex++, Math.max(0, length));
+                }
+                stmt.setString(paramIndex++, id);
+                stmt.setString(paramIndex, ytenant_id);
+                
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("记录不存在: " + tableName + ".id=" + id);
+                    }
+                    Map<String, Object> result = new LinkedHashMap<>();
+                    result.put("tableName", tableName);
+                    result.put("columnName", column.getName());
+                    result.put("totalBytes", rs.getObject(1) == null ? null : rs.getLong(1));
+                    result.put("offset", rangeStart(offset) - 1);
+                    if (column.isBinary()) {
+                        byte[] bytes = rs.getBytes(2);
+                        result.put("encoding", "base64");
+                        result.put("value", bytes == null ? null : Base64.getEncoder().encodeToString(bytes));
+                    } else {
+                        result.put("encoding", "text");
+                        result.put("value", rs.getString(2));
+                    }
+                    return result;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("获取字段内容失败", e);
+            throw new RuntimeException("获取字段内容失败: " + e.getMessage(), e);
+        } finally {
+            closeConnection(conn);
+        }
+    }
+    
+    @Override
+    public void streamColumnValue(String environment, String dbName, String tableName, String id, String ytenant_id, String columnName,
+                                  Long offset, Integer length, DbConfigDTO dbConfig, OutputStream out) throws IOException {
+        Connection conn = null;
+        
+        try {
+            conn = getReadConnection(dbName, dbConfig);
+            TableSchemaCache.ColumnInfo column = resolveColumn(conn, dbName, dbConfig, tableName, columnName);
+            
+            String sql = String.format("SELECT %s FROM `%s` WHERE id = ? AND tenant_id = ?",
+                    substringExpression(column.getName(), length), tableName);
+            
+            try (PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // 流式读取，避免大字段整体驻留内存
+                stmt.setFetchSize(Integer.MIN_VALUE);
+                int paramIndex = 1;
+                stmt.setLong(paramIndex++, rangeStart(offset));
+                if (length != null) {
+                    stmt.setInt(paramIndex++, Math.max(0, length));
+                }
+                stmt.setString(paramIndex++, id);
+                stmt.setString(paramIndex, ytenant_id);
+                
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("记录不存在: " + tableName + ".id=" + id);
+                    }
+                    try (InputStream in = rs.getBinaryStream(1)) {
+                        if (in != null) {
+                            byte[] buffer = new byte[8192];
+                            int read;
+                            while ((read = in.read(buffer)) != -1) {
+                                out.write(buffer, 0, read);
+                            }
+                        }
+                    }
+                    out.flush();
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("读取字段内容失败", e);
+            throw new RuntimeException("读取字段内容失败: " + e.getMessage(), e);
+        } finally {
+            closeConnection(conn);
+        }
+    }
+    
     @Override
     public Map<String, Object> updateTableData(String environment, String dbName, String tableName, String id, String ytenant_id, Map<String, Object> editedFields, DbConfigDTO dbConfig) {
         Connection conn = null;
@@ -217,7 +496,7 @@ public class DbRelationServiceImpl implements DbRelationService {
         
         try {
             // 连接到MySQL服务器（不指定具体数据库）
-            conn = getConnectionWithoutDb(dbConfig);
+            conn = getReadConnectionWithoutDb(dbConfig);
             
             // 查询所有数据库
             Statement stmt = conn.createStatement();
@@ -251,7 +530,7 @@ public class DbRelationServiceImpl implements DbRelationService {
         
         try {
             // 连接数据库
-            conn = getConnection(dbName, dbConfig);
+            conn = getReadConnection(dbName, dbConfig);
             
             // 构建查询SQL
             StringBuilder sqlBuilder = new StringBuilder();
@@ -294,55 +573,68 @@ public class DbRelationServiceImpl implements DbRelationService {
     }
     
     /**
-     * 获取数据库连接
+     * 获取主库连接，写入和需要读到最新数据时使用
      */
     private Connection getConnection(String dbName, DbConfigDTO dbConfig) throws SQLException {
-        if (dbConfig == null || dbConfig.getHost() == null || dbConfig.getPort() == null) {
-            throw new SQLException("数据库配置不完整");
-        }
-        
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            
-            // 处理可能的空数据库名
-            String url;
-            if (dbName == null || dbName.trim().isEmpty()) {
-                // 不指定数据库，仅连接到MySQL服务器
-                url = String.format("jdbc:mysql://%s:%s?useUnicode=true&characterEncoding=UTF-8&serverTimezone=Asia/Shanghai", 
-                    dbConfig.getHost(), dbConfig.getPort());
-                logger.warn("未提供数据库名，将仅连接到MySQL服务器");
-            } else {
-                url = dbConfig.buildJdbcUrl(dbName);
+        return connectionManager.getConnection(dbName, dbConfig);
+    }
+    
+    /**
+     * 获取只读连接，配置了只读副本时读副本
+     */
+    private Connection getReadConnection(String dbName, DbConfigDTO dbConfig) throws SQLException {
+        return connectionManager.getReadConnection(dbName, dbConfig);
+    }
+    
+    /**
+     * 获取只读连接（不指定具体数据库）
+     */
+    private Connection getReadConnectionWithoutDb(DbConfigDTO dbConfig) throws SQLException {
+        return connectionManager.getReadConnectionWithoutDb(dbConfig);
+    }
+    
+    /**
+     * 创建树构建上下文，未指定的预算使用默认值
+     */
+    private TreeBuildContext createBuildContext(TreeBuildOptions options) {
+        long timeBudget = treeTimeBudgetMs;
+        int maxQueries = treeMaxQueries;
+        int maxRows = treeMaxRows;
+        if (options != null) {
+            if (options.getTimeBudgetMs() != null && options.getTimeBudgetMs() > 0) {
+                timeBudget = options.getTimeBudgetMs();
+            }
+            if (options.getMaxQueries() != null && options.getMaxQueries() > 0) {
+                maxQueries = options.getMaxQueries();
+            }
+            if (options.getMaxRows() != null && options.getMaxRows() > 0) {
+                maxRows = options.getMaxRows();
             }
-            
-            logger.info("连接数据库URL: {}", url);
-            return DriverManager.getConnection(url, dbConfig.getUsername(), dbConfig.getPassword());
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("MySQL驱动加载失败", e);
         }
+        return new TreeBuildContext(timeBudget, maxQueries, maxRows);
     }
     
     /**
-     * 获取数据库连接（不指定具体数据库）
+     * 组装方式，请求未指定时使用服务端默认值
      */
-    private Connection getConnectionWithoutDb(DbConfigDTO dbConfig) throws SQLException {
-        if (dbConfig == null || dbConfig.getHost() == null || dbConfig.getPort() == null) {
-            throw new SQLException("数据库配置不完整");
+    private String resolveAssembly(TreeBuildOptions options) {
+        return options != null && options.getAssembly() != null ? options.getAssembly() : defaultAssembly;
+    }
+    
+    /**
+     * 统计树的节点数，根节点为空时为0
+     */
+    private static int countNodes(DbTreeNode node) {
+        if (node == null) {
+            return 0;
         }
-        
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            
-            // 不指定具体数据库的连接URL
-            String url = "jdbc:mysql://" + dbConfig.getHost() + ":" + dbConfig.getPort() + 
-                "?useUnicode=true&characterEncoding=UTF-8&useSSL=false&serverTimezone=Asia/Shanghai&allowPublicKeyRetrieval=true";
-            
-            logger.debug("数据库连接URL: {}", url);
-            
-            return DriverManager.getConnection(url, dbConfig.getUsername(), dbConfig.getPassword());
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("MySQL驱动加载失败: " + e.getMessage(), e);
+        int count = 1;
+        if (node.getChildren() != null) {
+            for (DbTreeNode child : node.getChildren()) {
+                count += countNodes(child);
+            }
         }
+        return count;
     }
     
     /**
@@ -361,15 +653,24 @@ public class DbRelationServiceImpl implements DbRelationService {
     /**
      * 获取bill_base根节点
      */
-    private DbTreeNode getBillBaseNode(Connection conn, String billNo, String ytenant_id) throws SQLException {
-        String sql = "SELECT id, cBillNo, cName, cFilterId FROM bill_base WHERE cBillNo = ? AND tenant_id = ?";
+    private DbTreeNode getBillBaseNode(Connection conn, String billNo, String ytenant_id, TreeBuildContext ctx) throws SQLException {
+        String sql = TreeQueries.BILL;
+        if (!ctx.tryQuery()) {
+            ctx.markTruncated();
+            return null;
+        }
         
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ctx.applyTimeout(stmt);
             stmt.setString(1, billNo);
             stmt.setString(2, ytenant_id);
             
-            try (ResultSet rs = stmt.executeQuery()) {
+            try (TableQueryEvent queryEvent = TableQueryEvent.begin(TableQueryEvent.TREE, "bill_base");
+                 ResultSet rs = stmt.executeQuery()) {
+                queryEvent.executed();
                 if (rs.next()) {
+                    ctx.tryRow();
+                    queryEvent.addRow();
                     DbTreeNode node = new DbTreeNode("bill_base", rs.getString("id"));
                     node.setAttribute("cBillNo", rs.getString("cBillNo"));
                     node.setAttribute("cName", rs.getString("cName"));
@@ -377,6 +678,9 @@ public class DbRelationServiceImpl implements DbRelationService {
                     return node;
                 }
             }
+        } catch (SQLTimeoutException e) {
+            // 根节点都没有查到，返回空树并标记为未完成
+            ctx.markTruncated();
         }
         
         return null;
@@ -385,17 +689,29 @@ public class DbRelationServiceImpl implements DbRelationService {
     /**
      * 添加billentity_base子节点
      */
-    private void addBillEntityNodes(Connection conn, DbTreeNode parentNode, String ytenant_id) throws SQLException {
+    private void addBillEntityNodes(Connection conn, DbTreeNode parentNode, String ytenant_id, TreeBuildContext ctx) throws SQLException {
         String billId = parentNode.getId();
         String billNo = (String) parentNode.getAttribute("cBillNo");
-        String sql = "SELECT id, cName FROM billentity_base WHERE iBillId = ? AND tenant_id = ?";
+        String sql = TreeQueries.ENTITIES;
+        if (!ctx.tryQuery()) {
+            ctx.markTruncated(parentNode);
+            return;
+        }
         
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ctx.applyTimeout(stmt);
             stmt.setString(1, billId);
             stmt.setString(2, ytenant_id);
             
-            try (ResultSet rs = stmt.executeQuery()) {
+            try (TableQueryEvent queryEvent = TableQueryEvent.begin(TableQueryEvent.TREE, "billentity_base");
+                 ResultSet rs = stmt.executeQuery()) {
+                queryEvent.executed();
                 while (rs.next()) {
+                    if (!ctx.tryRow()) {
+                        ctx.markTruncated(parentNode);
+                        break;
+                    }
+                    queryEvent.addRow();
                     DbTreeNode entityNode = new DbTreeNode("billentity_base", rs.getString("id"));
                     entityNode.setAttribute("cName", rs.getString("cName"));
                     // 传递billNo属性
@@ -407,24 +723,39 @@ public class DbRelationServiceImpl implements DbRelationService {
                     parentNode.addChild(entityNode);
                     
                     // 添加billtemplate_base子节点 - 直接关联到billentity_base
-                    addBillTemplateNodes(conn, entityNode, billId, billNo, ytenant_id,true);
+                    addBillTemplateNodes(conn, entityNode, billId, billNo, ytenant_id,true, ctx);
                 }
             }
+        } catch (SQLTimeoutException e) {
+            // 语句超过构建截止时间，保留已构建的部分
+            ctx.markTruncated(parentNode);
         }
     }
     
     /**
      * 添加billtemplate_base子节点
      */
-    private void addBillTemplateNodes(Connection conn, DbTreeNode parentNode, String billId, String billNo, String ytenant_id,boolean showEntityTable) throws SQLException {
-        String sql = "SELECT id, cName FROM billtemplate_base WHERE iBillId = ? AND tenant_id = ?";
+    private void addBillTemplateNodes(Connection conn, DbTreeNode parentNode, String billId, String billNo, String ytenant_id,boolean showEntityTable, TreeBuildContext ctx) throws SQLException {
+        String sql = TreeQueries.TEMPLATES;
+        if (!ctx.tryQuery()) {
+            ctx.markTruncated(parentNode);
+            return;
+        }
         
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ctx.applyTimeout(stmt);
             stmt.setString(1, billId);
             stmt.setString(2, ytenant_id);
             
-            try (ResultSet rs = stmt.executeQuery()) {
+            try (TableQueryEvent queryEvent = TableQueryEvent.begin(TableQueryEvent.TREE, "billtemplate_base");
+                 ResultSet rs = stmt.executeQuery()) {
+                queryEvent.executed();
                 while (rs.next()) {
+                    if (!ctx.tryRow()) {
+                        ctx.markTruncated(parentNode);
+                        break;
+                    }
+                    queryEvent.addRow();
                     DbTreeNode templateNode = new DbTreeNode("billtemplate_base", rs.getString("id"));
                     templateNode.setAttribute("cName", rs.getString("cName"));
                     // 传递billNo属性
@@ -437,22 +768,36 @@ public class DbRelationServiceImpl implements DbRelationService {
 //                    parentNode.addChild(templateNode);
                     
                     // 添加billtplgroup_base子节点 - 作为billtemplate_base的子节点
-                    addBillTplGroupNodes(conn, templateNode, billId, billNo, ytenant_id ,parentNode,showEntityTable);
+                    if (ctx.isSqlAssembly()) {
+                        addBillTplGroupNodesBySql(conn, templateNode, billId, billNo, ytenant_id ,parentNode,showEntityTable, ctx);
+                    } else {
+                        addBillTplGroupNodes(conn, templateNode, billId, billNo, ytenant_id ,parentNode,showEntityTable, ctx);
+                    }
                 }
             }
+        } catch (SQLTimeoutException e) {
+            // 语句超过构建截止时间，保留已构建的部分
+            ctx.markTruncated(parentNode);
         }
     }
     
     /**
      * 添加billtplgroup_base子节点
      */
-    private void addBillTplGroupNodes(Connection conn, DbTreeNode parentNode, String billId, String billNo, String ytenant_id,DbTreeNode entityNode,boolean showEntityTable) throws SQLException {
+    private void addBillTplGroupNodes(Connection conn, DbTreeNode parentNode, String billId, String billNo, String ytenant_id,DbTreeNode entityNode,boolean showEntityTable, TreeBuildContext ctx) throws SQLException {
         // 修改SQL查询，增加iParentId字段
-        String sql = "SELECT id, ccode, cName, iParentId FROM billtplgroup_base WHERE iBillId = ? AND iTplId = ? AND iBillEntityId = ? AND tenant_id = ? ORDER BY iOrder";
+        String sql = TreeQueries.ENTITY_GROUPS;
         if (!showEntityTable){
-            sql = "SELECT id, ccode, cName, iParentId FROM billtplgroup_base WHERE iBillId = ? AND iTplId = ? AND tenant_id = ? ORDER BY iOrder";
+            sql = TreeQueries.GROUPS;
+        }
+        if (!ctx.tryQuery()) {
+            // 模板节点仍然挂到父节点下，标记为未展开
+            ctx.markTruncated(parentNode);
+            entityNode.addChild(parentNode);
+            return;
         }
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ctx.applyTimeout(stmt);
             stmt.setString(1, billId);
             stmt.setString(2, parentNode.getId());
             if (showEntityTable){
@@ -462,13 +807,21 @@ public class DbRelationServiceImpl implements DbRelationService {
                 stmt.setString(3, ytenant_id);
             }
             
-            try (ResultSet rs = stmt.executeQuery()) {
+            try (TableQueryEvent queryEvent = TableQueryEvent.begin(TableQueryEvent.TREE, "billtplgroup_base");
+                 ResultSet rs = stmt.executeQuery()) {
+                queryEvent.executed();
                 boolean isExists = false;
                 // 创建一个Map来存储所有节点，以便后续建立父子关系
                 Map<String, DbTreeNode> groupNodesMap = new HashMap<>();
                 
                 // 第一遍遍历：创建所有节点
                 while (rs.next()) {
+                    if (!ctx.tryRow()) {
+                        ctx.markTruncated(parentNode);
+                        isExists = true;
+                        break;
+                    }
+                    queryEvent.addRow();
                     String groupId = rs.getString("id");
                     String ccode = rs.getString("ccode");
                     String iParentId = rs.getString("iParentId");
@@ -500,52 +853,213 @@ public class DbRelationServiceImpl implements DbRelationService {
                         parentNode.addChild(groupNode);
                     }
                     
-                    // 创建按钮节点（作为billtplgroup_base的子节点）
-                    DbTreeNode buttonNode = new DbTreeNode("按钮", "button_" + groupNode.getId());
-                    buttonNode.setAttribute("cName", "按钮");
-                    // 传递billNo和ccode属性
-                    if (billNo != null) {
-                        buttonNode.setAttribute("cBillNo", billNo);
-                    }
-                    buttonNode.setAttribute("ccode", (String) groupNode.getAttribute("ccode"));
-                    
-                    // 添加bill_toolbar子节点（作为按钮的子节点）
-                    addBillToolbarNodes(conn, buttonNode, (String) groupNode.getAttribute("ccode"), billNo, ytenant_id, groupNode);
+                    // 创建按钮节点及bill_toolbar子节点
+                    addGroupButtonNode(conn, groupNode, billNo, ytenant_id, ctx);
                     
                     // 创建billitem_base节点（作为billtplgroup_base的子节点）
-                    DbTreeNode itemsNode = new DbTreeNode("billitem_base", "billitem_" + groupNode.getId());
-                    itemsNode.setAttribute("cName", "billitem_base");
-                    // 传递billNo属性
-                    if (billNo != null) {
-                        itemsNode.setAttribute("cBillNo", billNo);
-                        itemsNode.setAttribute("groupId", groupNode.getId());
-                    }
+                    DbTreeNode itemsNode = createItemsNode(groupNode, billNo);
                     
                     // 添加实际的billitem_base子节点
-                    addBillItemNodes(conn, itemsNode, billId, ytenant_id, groupNode);
+                    addBillItemNodes(conn, itemsNode, billId, ytenant_id, groupNode, ctx);
                 }
                 
                 if (isExists){
                     entityNode.addChild(parentNode);
                 }
             }
+        } catch (SQLTimeoutException e) {
+            // 语句超过构建截止时间，模板节点仍然挂到父节点下，标记为未展开
+            ctx.markTruncated(parentNode);
+            entityNode.addChild(parentNode);
         }
     }
     
+    /**
+     * 添加billtplgroup_base子节点（数据库端组装）
+     * 由一条递归CTE语句在数据库中解析分组层级，并用JSON_ARRAYAGG把每个分组的billitem_base行聚合进来，
+     * 每个模板只需一次往返。返回的分组按（层级深度, iOrder, id）数值排序，父分组总在子分组之前，
+     * 同一父分组下的子分组按iOrder顺序挂接，与逐表单构建的ORDER BY iOrder一致
+     */
+    private void addBillTplGroupNodesBySql(Connection conn, DbTreeNode parentNode, String billId, String billNo, String ytenant_id,DbTreeNode entityNode,boolean showEntityTable, TreeBuildContext ctx) throws SQLException {
+        String sql = TreeQueries.groupTreeSql(showEntityTable);
+        
+        if (!ctx.tryQuery()) {
+            // 模板节点仍然挂到父节点下，标记为未展开
+            ctx.markTruncated(parentNode);
+            entityNode.addChild(parentNode);
+            return;
+        }
+        
+        String json = null;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ctx.applyTimeout(stmt);
+            int paramIndex = 1;
+            stmt.setString(paramIndex++, billId);
+            stmt.setString(paramIndex++, parentNode.getId());
+            if (showEntityTable) {
+                stmt.setString(paramIndex++, String.valueOf(parentNode.getAttribute("iBillEntityId")));
+            }
+            stmt.setString(paramIndex++, ytenant_id);
+            stmt.setString(paramIndex++, billId);
+            stmt.setString(paramIndex, ytenant_id);
+            
+            try (TableQueryEvent queryEvent = TableQueryEvent.begin(TableQueryEvent.TREE, "billtplgroup_base");
+                 ResultSet rs = stmt.executeQuery()) {
+                queryEvent.executed();
+                if (rs.next()) {
+                    queryEvent.addRow();
+                    json = rs.getString(1);
+                }
+            }
+        } catch (SQLTimeoutException e) {
+            // 语句超过构建截止时间，模板节点仍然挂到父节点下，标记为未展开
+            ctx.markTruncated(parentNode);
+            entityNode.addChild(parentNode);
+            return;
+        }
+        
+        if (json == null) {
+            return;
+        }
+        
+        List<Map<String, Object>> groups;
+        try {
+            groups = objectMapper.readValue(json, new TypeReference<List<Map<String, Object>>>() {});
+        } catch (IOException e) {
+            throw new SQLException("解析分组JSON失败: " + e.getMessage(), e);
+        }
+        // JSON_ARRAYAGG不保证顺序，按层级深度、iOrder、id排序
+        groups.sort(Comparator.<Map<String, Object>, BigDecimal>comparing(group -> toDecimal(group.get("depth")),
+                Comparator.nullsFirst(Comparator.naturalOrder())).thenComparing(SQL_ROW_ORDER));
+        
+        boolean isExists = false;
+        Map<String, DbTreeNode> groupNodesMap = new HashMap<>();
+        for (Map<String, Object> group : groups) {
+            if (!ctx.tryRow()) {
+                ctx.markTruncated(parentNode);
+                isExists = true;
+                break;
+            }
+            String groupId = (String) group.get("id");
+            String iParentId = (String) group.get("iParentId");
+            
+            DbTreeNode groupNode = new DbTreeNode("billtplgroup_base", groupId);
+            groupNode.setAttribute("ccode", group.get("ccode"));
+            groupNode.setAttribute("cName", group.get("cName"));
+            groupNode.setAttribute("iParentId", iParentId);
+            // 传递billNo属性
+            if (billNo != null) {
+                groupNode.setAttribute("cBillNo", billNo);
+            }
+            groupNodesMap.put(groupId, groupNode);
+            isExists = true;
+            
+            // 父分组已按路径顺序先行创建
+            DbTreeNode parentGroupNode = iParentId != null ? groupNodesMap.get(iParentId) : null;
+            if (parentGroupNode != null) {
+                parentGroupNode.addChild(groupNode);
+            } else {
+                parentNode.addChild(groupNode);
+            }
+            
+            // 创建按钮节点及bill_toolbar子节点
+            addGroupButtonNode(conn, groupNode, billNo, ytenant_id, ctx);
+            
+            // 分组下的billitem_base已随分组一并返回
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> items = (List<Map<String, Object>>) group.get("items");
+            if (items != null && !items.isEmpty()) {
+                items.sort(SQL_ROW_ORDER);
+                DbTreeNode itemsNode = createItemsNode(groupNode, billNo);
+                for (Map<String, Object> item : items) {
+                    if (!ctx.tryRow()) {
+                        ctx.markTruncated(itemsNode);
+                        break;
+                    }
+                    DbTreeNode itemNode = new DbTreeNode("billitem_base", (String) item.get("id"));
+                    itemNode.setAttribute("cName", item.get("cName"));
+                    itemNode.setAttribute("cShowCaption", item.get("cShowCaption"));
+                    itemsNode.addChild(itemNode);
+                }
+                groupNode.addChild(itemsNode);
+            }
+        }
+        
+        if (isExists){
+            entityNode.addChild(parentNode);
+        }
+    }
+    
+    /**
+     * JSON中的数值或数字字符串转为BigDecimal，空值或非数字返回null
+     */
+    private static BigDecimal toDecimal(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 创建按钮节点（作为billtplgroup_base的子节点），并添加bill_toolbar子节点
+     */
+    private void addGroupButtonNode(Connection conn, DbTreeNode groupNode, String billNo, String ytenant_id, TreeBuildContext ctx) throws SQLException {
+        DbTreeNode buttonNode = new DbTreeNode("按钮", "button_" + groupNode.getId());
+        buttonNode.setAttribute("cName", "按钮");
+        // 传递billNo和ccode属性
+        if (billNo != null) {
+            buttonNode.setAttribute("cBillNo", billNo);
+        }
+        buttonNode.setAttribute("ccode", (String) groupNode.getAttribute("ccode"));
+        
+        // 添加bill_toolbar子节点（作为按钮的子节点）
+        addBillToolbarNodes(conn, buttonNode, (String) groupNode.getAttribute("ccode"), billNo, ytenant_id, groupNode, ctx);
+    }
+    
+    /**
+     * 创建billitem_base容器节点（作为billtplgroup_base的子节点）
+     */
+    private DbTreeNode createItemsNode(DbTreeNode groupNode, String billNo) {
+        DbTreeNode itemsNode = new DbTreeNode("billitem_base", "billitem_" + groupNode.getId());
+        itemsNode.setAttribute("cName", "billitem_base");
+        // 传递billNo属性
+        if (billNo != null) {
+            itemsNode.setAttribute("cBillNo", billNo);
+            itemsNode.setAttribute("groupId", groupNode.getId());
+        }
+        return itemsNode;
+    }
+    
     /**
      * 添加billitem_base子节点
      */
-    private void addBillItemNodes(Connection conn, DbTreeNode parentNode, String billId, String ytenant_id,DbTreeNode groupNode ) throws SQLException {
-        String sql = "SELECT * FROM billitem_base WHERE iBillId = ? AND iBillTplGroupId = ? AND tenant_id = ? ORDER BY iOrder";
+    private void addBillItemNodes(Connection conn, DbTreeNode parentNode, String billId, String ytenant_id,DbTreeNode groupNode, TreeBuildContext ctx) throws SQLException {
+        String sql = TreeQueries.ITEMS;
+        if (!ctx.tryQuery()) {
+            ctx.markTruncated(groupNode);
+            return;
+        }
         
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ctx.applyTimeout(stmt);
             stmt.setString(1, billId);
             stmt.setString(2, String.valueOf(parentNode.getAttribute("groupId")));
             stmt.setString(3, ytenant_id);
             
-            try (ResultSet rs = stmt.executeQuery()) {
+            try (TableQueryEvent queryEvent = TableQueryEvent.begin(TableQueryEvent.TREE, "billitem_base");
+                 ResultSet rs = stmt.executeQuery()) {
+                queryEvent.executed();
                 boolean isExist = false;
                 while (rs.next()) {
+                    if (!ctx.tryRow()) {
+                        ctx.markTruncated(parentNode);
+                        break;
+                    }
+                    queryEvent.addRow();
                     DbTreeNode itemNode = new DbTreeNode("billitem_base", rs.getString("id"));
                     itemNode.setAttribute("cName", rs.getString("cName"));
                     itemNode.setAttribute("cShowCaption", rs.getString("cShowCaption"));
@@ -558,28 +1072,44 @@ public class DbRelationServiceImpl implements DbRelationService {
                     groupNode.addChild(parentNode);
                 }
             }
+        } catch (SQLTimeoutException e) {
+            // 语句超过构建截止时间，保留已构建的部分
+            ctx.markTruncated(groupNode);
         }
     }
     
     /**
      * 添加bill_toolbar子节点
      */
-    private void addBillToolbarNodes(Connection conn, DbTreeNode parentNode, String parent, String billNo, String ytenant_id, DbTreeNode groupNode) throws SQLException {
+    private void addBillToolbarNodes(Connection conn, DbTreeNode parentNode, String parent, String billNo, String ytenant_id, DbTreeNode groupNode, TreeBuildContext ctx) throws SQLException {
         if (billNo == null) {
             billNo = findBillNo(parentNode);  // 尝试从节点中获取billNo，作为备用方案
         }
         
         if (billNo != null) {
-            String sql = "SELECT id, name FROM bill_toolbar WHERE billnumber = ? AND parent = ? AND tenant_id = ?";
+            String sql = TreeQueries.TOOLBARS;
+            if (!ctx.tryQuery()) {
+                ctx.markTruncated(groupNode);
+                return;
+            }
             
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                ctx.applyTimeout(stmt);
                 stmt.setString(1, billNo);
                 stmt.setString(2, parent);
                 stmt.setString(3, ytenant_id);
                 
                 boolean isExist = false;
-                try (ResultSet rs = stmt.executeQuery()) {
+                try (TableQueryEvent queryEvent = TableQueryEvent.begin(TableQueryEvent.TREE, "bill_toolbar");
+                     ResultSet rs = stmt.executeQuery()) {
+                    queryEvent.executed();
                     while (rs.next()) {
+                        if (!ctx.tryRow()) {
+                            ctx.markTruncated(parentNode);
+                            isExist = true;
+                            break;
+                        }
+                        queryEvent.addRow();
                         String toolbarId = rs.getString("id");
                         String name = rs.getString("name");
                         
@@ -593,12 +1123,15 @@ public class DbRelationServiceImpl implements DbRelationService {
                         isExist = true;
                         
                         // 添加bill_toolbaritem子节点
-                        addBillToolbarItemNodes(conn, toolbarNode, name, billNo, ytenant_id);
+                        addBillToolbarItemNodes(conn, toolbarNode, name, billNo, ytenant_id, ctx);
                     }
                 }
                 if (isExist){
                     groupNode.addChild(parentNode);
                 }
+            } catch (SQLTimeoutException e) {
+                // 语句超过构建截止时间，保留已构建的部分
+                ctx.markTruncated(groupNode);
             }
         }
     }
@@ -606,37 +1139,47 @@ public class DbRelationServiceImpl implements DbRelationService {
     /**
      * 添加bill_toolbaritem子节点
      */
-    private void addBillToolbarItemNodes(Connection conn, DbTreeNode parentNode, String toolbar, String billNo, String ytenant_id) throws SQLException {
+    private void addBillToolbarItemNodes(Connection conn, DbTreeNode parentNode, String toolbar, String billNo, String ytenant_id, TreeBuildContext ctx) throws SQLException {
         if (billNo == null) {
             billNo = findBillNo(parentNode);  // 尝试从节点中获取billNo
         }
         
         if (billNo != null) {
-            String sql = "SELECT id, name, command,text FROM bill_toolbaritem WHERE billnumber = ? AND toolbar = ? AND tenant_id = ? ORDER BY `order`";
+            String sql = TreeQueries.TOOLBAR_ITEMS;
+            if (!ctx.tryQuery()) {
+                ctx.markTruncated(parentNode);
+                return;
+            }
             
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, billNo);
-                stmt.setString(2, toolbar);
-                stmt.setString(3, ytenant_id);
+            List<Map<String, Object>> rows;
+            try (TableQueryEvent queryEvent = TableQueryEvent.begin(TableQueryEvent.TREE, "bill_toolbaritem")) {
+                rows = queryLookupRows(conn, ctx, "bill_toolbaritem", sql, billNo, toolbar, ytenant_id);
+                queryEvent.executed();
+                queryEvent.setRowCount(rows.size());
+            } catch (SQLTimeoutException e) {
+                // 语句超过构建截止时间，保留已构建的部分
+                ctx.markTruncated(parentNode);
+                return;
+            }
+            for (Map<String, Object> row : rows) {
+                if (!ctx.tryRow()) {
+                    ctx.markTruncated(parentNode);
+                    break;
+                }
+                DbTreeNode itemNode = new DbTreeNode("bill_toolbaritem", (String) row.get("id"));
+                itemNode.setAttribute("name", row.get("name"));
+                itemNode.setAttribute("command", row.get("command"));
+                itemNode.setAttribute("text", row.get("text"));
+                // 传递billNo属性
+                itemNode.setAttribute("cBillNo", billNo);
                 
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        DbTreeNode itemNode = new DbTreeNode("bill_toolbaritem", rs.getString("id"));
-                        itemNode.setAttribute("name", rs.getString("name"));
-                        itemNode.setAttribute("command", rs.getString("command"));
-                        itemNode.setAttribute("text", rs.getString("text"));
-                        // 传递billNo属性
-                        itemNode.setAttribute("cBillNo", billNo);
-                        
-                        // 添加子节点
-                        parentNode.addChild(itemNode);
-                        
-                        // 添加bill_command子节点
-                        String command = rs.getString("command");
-                        if (command != null && !command.isEmpty()) {
-                            addBillCommandNodes(conn, itemNode, command, billNo, ytenant_id);
-                        }
-                    }
+                // 添加子节点
+                parentNode.addChild(itemNode);
+                
+                // 添加bill_command子节点
+                String command = (String) row.get("command");
+                if (command != null && !command.isEmpty()) {
+                    addBillCommandNodes(conn, itemNode, command, billNo, ytenant_id, ctx);
                 }
             }
         }
@@ -645,30 +1188,61 @@ public class DbRelationServiceImpl implements DbRelationService {
     /**
      * 添加bill_command子节点
      */
-    private void addBillCommandNodes(Connection conn, DbTreeNode parentNode, String command, String billNo, String ytenant_id) throws SQLException {
+    private void addBillCommandNodes(Connection conn, DbTreeNode parentNode, String command, String billNo, String ytenant_id, TreeBuildContext ctx) throws SQLException {
         if (billNo == null) {
             billNo = findBillNo(parentNode);  // 尝试从节点中获取billNo
         }
         
         if (billNo != null && command != null) {
-            String sql = "SELECT id, name FROM bill_command WHERE billnumber = ? AND name = ? AND tenant_id = ?";
+            String sql = TreeQueries.COMMANDS;
+            if (!ctx.tryQuery()) {
+                ctx.markTruncated(parentNode);
+                return;
+            }
             
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, billNo);
-                stmt.setString(2, command);
-                stmt.setString(3, ytenant_id);
-                
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        DbTreeNode commandNode = new DbTreeNode("bill_command", rs.getString("id"));
-                        commandNode.setAttribute("name", rs.getString("name"));
-                        // 传递billNo属性
-                        commandNode.setAttribute("cBillNo", billNo);
-                        
-                        // 添加子节点
-                        parentNode.addChild(commandNode);
-                    }
+            List<Map<String, Object>> rows;
+            try (TableQueryEvent queryEvent = TableQueryEvent.begin(TableQueryEvent.TREE, "bill_command")) {
+                rows = queryLookupRows(conn, ctx, "bill_command", sql, billNo, command, ytenant_id);
+                queryEvent.executed();
+                queryEvent.setRowCount(rows.size());
+            } catch (SQLTimeoutException e) {
+                // 语句超过构建截止时间，保留已构建的部分
+                ctx.markTruncated(parentNode);
+                return;
+            }
+            for (Map<String, Object> row : rows) {
+                if (!ctx.tryRow()) {
+                    ctx.markTruncated(parentNode);
+                    break;
                 }
+                DbTreeNode commandNode = new DbTreeNode("bill_command", (String) row.get("id"));
+                commandNode.setAttribute("name", row.get("name"));
+                // 传递billNo属性
+                commandNode.setAttribute("cBillNo", billNo);
+                
+                // 添加子节点
+                parentNode.addChild(commandNode);
+            }
+        }
+    }
+    
+    /**
+     * 执行只读查找语句
+     * 请求启用对冲时交给对冲执行器，仍在当前连接上执行，慢时另借池化连接对冲；否则直接在当前连接上执行
+     */
+    private List<Map<String, Object>> queryLookupRows(Connection conn, TreeBuildContext ctx, String statementKey, String sql, Object... params) throws SQLException {
+        if (ctx.isHedging()) {
+            return hedgedQueryExecutor.query(statementKey, sql, Arrays.asList(params), ctx.getRemainingSeconds(), conn, ctx.getHedgeSource());
+        }
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ctx.applyTimeout(stmt);
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                return HedgedQueryExecutor.readRows(rs);
             }
         }
     }
@@ -676,7 +1250,7 @@ public class DbRelationServiceImpl implements DbRelationService {
     /**
      * 添加pb_meta_filters子节点 - 作为过滤区
      */
-    private void addMetaFilterNodes(Connection conn, DbTreeNode parentNode, String ytenant_id) throws SQLException {
+    private void addMetaFilterNodes(Connection conn, DbTreeNode parentNode, String ytenant_id, TreeBuildContext ctx) throws SQLException {
         String filterId = String.valueOf(parentNode.getAttribute("cFilterId"));
         
         if (filterId != null && !"null".equals(filterId)) {
@@ -685,14 +1259,23 @@ public class DbRelationServiceImpl implements DbRelationService {
             filterAreaNode.setAttribute("cName", "过滤区");
             parentNode.addChild(filterAreaNode);
             
-            String sql = "SELECT id, filterDesc FROM pb_meta_filters WHERE id = ? AND tenant_id = ?";
+            String sql = TreeQueries.FILTERS;
+            if (!ctx.tryQuery()) {
+                ctx.markTruncated(filterAreaNode);
+                return;
+            }
             
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                ctx.applyTimeout(stmt);
                 stmt.setString(1, filterId);
                 stmt.setString(2, ytenant_id);
                 
-                try (ResultSet rs = stmt.executeQuery()) {
+                try (TableQueryEvent queryEvent = TableQueryEvent.begin(TableQueryEvent.TREE, "pb_meta_filters");
+                     ResultSet rs = stmt.executeQuery()) {
+                    queryEvent.executed();
                     if (rs.next()) {
+                        ctx.tryRow();
+                        queryEvent.addRow();
                         DbTreeNode filterNode = new DbTreeNode("pb_meta_filters", rs.getString("id"));
                         filterNode.setAttribute("filterDesc", rs.getString("filterDesc"));
                         
@@ -700,12 +1283,15 @@ public class DbRelationServiceImpl implements DbRelationService {
                         filterAreaNode.addChild(filterNode);
                         
                         // 添加pb_meta_filter_item子节点
-                        addMetaFilterItemNodes(conn, filterNode, filterId, ytenant_id);
+                        addMetaFilterItemNodes(conn, filterNode, filterId, ytenant_id, ctx);
                         
                         // 添加pb_filter_solution子节点
-                        addFilterSolutionNodes(conn, filterNode, filterId, ytenant_id);
+                        addFilterSolutionNodes(conn, filterNode, filterId, ytenant_id, ctx);
                     }
                 }
+            } catch (SQLTimeoutException e) {
+                // 语句超过构建截止时间，保留已构建的部分
+                ctx.markTruncated(filterAreaNode);
             }
         }
     }
@@ -713,15 +1299,27 @@ public class DbRelationServiceImpl implements DbRelationService {
     /**
      * 添加pb_meta_filter_item子节点
      */
-    private void addMetaFilterItemNodes(Connection conn, DbTreeNode parentNode, String filtersId, String ytenant_id) throws SQLException {
-        String sql = "SELECT id, itemTitle FROM pb_meta_filter_item WHERE filtersId = ? AND tenant_id = ?";
+    private void addMetaFilterItemNodes(Connection conn, DbTreeNode parentNode, String filtersId, String ytenant_id, TreeBuildContext ctx) throws SQLException {
+        String sql = TreeQueries.FILTER_ITEMS;
+        if (!ctx.tryQuery()) {
+            ctx.markTruncated(parentNode);
+            return;
+        }
         
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ctx.applyTimeout(stmt);
             stmt.setString(1, filtersId);
             stmt.setString(2, ytenant_id);
             
-            try (ResultSet rs = stmt.executeQuery()) {
+            try (TableQueryEvent queryEvent = TableQueryEvent.begin(TableQueryEvent.TREE, "pb_meta_filter_item");
+                 ResultSet rs = stmt.executeQuery()) {
+                queryEvent.executed();
                 while (rs.next()) {
+                    if (!ctx.tryRow()) {
+                        ctx.markTruncated(parentNode);
+                        break;
+                    }
+                    queryEvent.addRow();
                     DbTreeNode itemNode = new DbTreeNode("pb_meta_filter_item", rs.getString("id"));
                     itemNode.setAttribute("itemTitle", rs.getString("itemTitle"));
                     
@@ -729,21 +1327,36 @@ public class DbRelationServiceImpl implements DbRelationService {
                     parentNode.addChild(itemNode);
                 }
             }
+        } catch (SQLTimeoutException e) {
+            // 语句超过构建截止时间，保留已构建的部分
+            ctx.markTruncated(parentNode);
         }
     }
     
     /**
      * 添加pb_filter_solution子节点
      */
-    private void addFilterSolutionNodes(Connection conn, DbTreeNode parentNode, String filtersId, String ytenant_id) throws SQLException {
-        String sql = "SELECT id, solutionName FROM pb_filter_solution WHERE filtersId = ? AND tenant_id = ?";
+    private void addFilterSolutionNodes(Connection conn, DbTreeNode parentNode, String filtersId, String ytenant_id, TreeBuildContext ctx) throws SQLException {
+        String sql = TreeQueries.SOLUTIONS;
+        if (!ctx.tryQuery()) {
+            ctx.markTruncated(parentNode);
+            return;
+        }
         
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ctx.applyTimeout(stmt);
             stmt.setString(1, filtersId);
             stmt.setString(2, ytenant_id);
             
-            try (ResultSet rs = stmt.executeQuery()) {
+            try (TableQueryEvent queryEvent = TableQueryEvent.begin(TableQueryEvent.TREE, "pb_filter_solution");
+                 ResultSet rs = stmt.executeQuery()) {
+                queryEvent.executed();
                 while (rs.next()) {
+                    if (!ctx.tryRow()) {
+                        ctx.markTruncated(parentNode);
+                        break;
+                    }
+                    queryEvent.addRow();
                     DbTreeNode solutionNode = new DbTreeNode("pb_filter_solution", rs.getString("id"));
                     solutionNode.setAttribute("solutionName", rs.getString("solutionName"));
                     
@@ -751,24 +1364,39 @@ public class DbRelationServiceImpl implements DbRelationService {
                     parentNode.addChild(solutionNode);
                     
                     // 添加pb_filter_solution_common子节点
-                    addFilterSolutionCommonNodes(conn, solutionNode, rs.getString("id"), ytenant_id);
+                    addFilterSolutionCommonNodes(conn, solutionNode, rs.getString("id"), ytenant_id, ctx);
                 }
             }
+        } catch (SQLTimeoutException e) {
+            // 语句超过构建截止时间，保留已构建的部分
+            ctx.markTruncated(parentNode);
         }
     }
     
     /**
      * 添加pb_filter_solution_common子节点
      */
-    private void addFilterSolutionCommonNodes(Connection conn, DbTreeNode parentNode, String solutionId, String ytenant_id) throws SQLException {
-        String sql = "SELECT id, itemTitle FROM pb_filter_solution_common WHERE solutionId = ? AND tenant_id = ?";
+    private void addFilterSolutionCommonNodes(Connection conn, DbTreeNode parentNode, String solutionId, String ytenant_id, TreeBuildContext ctx) throws SQLException {
+        String sql = TreeQueries.SOLUTION_COMMONS;
+        if (!ctx.tryQuery()) {
+            ctx.markTruncated(parentNode);
+            return;
+        }
         
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ctx.applyTimeout(stmt);
             stmt.setString(1, solutionId);
             stmt.setString(2, ytenant_id);
             
-            try (ResultSet rs = stmt.executeQuery()) {
+            try (TableQueryEvent queryEvent = TableQueryEvent.begin(TableQueryEvent.TREE, "pb_filter_solution_common");
+                 ResultSet rs = stmt.executeQuery()) {
+                queryEvent.executed();
                 while (rs.next()) {
+                    if (!ctx.tryRow()) {
+                        ctx.markTruncated(parentNode);
+                        break;
+                    }
+                    queryEvent.addRow();
                     DbTreeNode commonNode = new DbTreeNode("pb_filter_solution_common", rs.getString("id"));
                     commonNode.setAttribute("itemTitle", rs.getString("itemTitle"));
                     
@@ -776,54 +1404,281 @@ public class DbRelationServiceImpl implements DbRelationService {
                     parentNode.addChild(commonNode);
                 }
             }
+        } catch (SQLTimeoutException e) {
+            // 语句超过构建截止时间，保留已构建的部分
+            ctx.markTruncated(parentNode);
         }
     }
     
     /**
      * 查询表详情
+     * 大字段（TEXT/BLOB/JSON）默认只查询字节数，内容通过单字段接口按需获取
      */
-    private Map<String, Object> queryTableDetails(Connection conn, String tableName, String id, String ytenant_id) throws SQLException {
-        Map<String, Object> data = new HashMap<>();
+    private TableDetailsResponse queryTableDetails(Connection conn, String dbName, DbConfigDTO dbConfig, String tableName, String id,
+                                                   String ytenant_id, boolean includeLargeColumns) throws SQLException {
+        TableDetailsResponse response = new TableDetailsResponse(tableName, new HashMap<>());
         
         if (tableName == null || id == null) {
-            return data;
+            return response;
         }
         
+        // 按information_schema中的列定义构建查询，同时校验表名
+        List<TableSchemaCache.ColumnInfo> columns = tableSchemaCache.getColumns(conn, dbConfig, dbName, tableName);
+        if (columns.isEmpty()) {
+            throw new SQLException("表不存在: " + tableName);
+        }
         // 构建查询SQL
-        String sql = String.format("SELECT * FROM %s WHERE id = ? AND tenant_id = ?", tableName);
+        String sql = String.format("SELECT %s FROM `%s` WHERE id = ? AND tenant_id = ?",
+                selectList(columns, includeLargeColumns), tableName);
         
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, id);
             stmt.setString(2, ytenant_id);
             
-            try (ResultSet rs = stmt.executeQuery()) {
+            try (TableQueryEvent queryEvent = TableQueryEvent.begin(TableQueryEvent.DETAILS, tableName);
+                 ResultSet rs = stmt.executeQuery()) {
+                queryEvent.executed();
                 if (rs.next()) {
-                    ResultSetMetaData meta = rs.getMetaData();
-                    int columnCount = meta.getColumnCount();
+                    queryEvent.addRow();
+                    response = readDetailsRow(rs, tableName, columns, includeLargeColumns);
+                }
+            }
+        }
+        
+        return response;
+    }
+    
+    /**
+     * 为树中每个节点附带整行数据
+     * 按表汇总节点ID，每张表按IN条件分批查询一次，而不是每个节点单独查询；
+     * 按钮、过滤区等不对应真实表行的节点查不到数据，不附带。
+     * 预算耗尽时只标记还有节点没附带数据的表单
+     */
+    private void attachRowDetails(Connection conn, String dbName, DbConfigDTO dbConfig, Collection<DbTreeNode> roots,
+                                  String ytenant_id, TreeBuildContext ctx) throws SQLException {
+        Map<String, Map<String, List<DbTreeNode>>> nodesByTable = new LinkedHashMap<>();
+        Map<DbTreeNode, DbTreeNode> rootOf = new IdentityHashMap<>();
+        for (DbTreeNode root : roots) {
+            collectNodesByTable(root, root, nodesByTable, rootOf);
+        }
+        
+        List<String> tables = new ArrayList<>(nodesByTable.keySet());
+        for (int t = 0; t < tables.size(); t++) {
+            String tableName = tables.get(t);
+            Map<String, List<DbTreeNode>> nodesById = nodesByTable.get(tableName);
+            List<TableSchemaCache.ColumnInfo> columns = tableSchemaCache.getColumns(conn, dbConfig, dbName, tableName);
+            TableSchemaCache.ColumnInfo idColumn = TableSchemaCache.findColumn(columns, "id");
+            if (idColumn == null) {
+                continue;
+            }
+            int idIndex = columns.indexOf(idColumn) + 1;
+            String select = String.format("SELECT %s FROM `%s` WHERE tenant_id = ? AND id IN (", selectList(columns, false), tableName);
+            
+            List<String> ids = new ArrayList<>(nodesById.keySet());
+            for (int from = 0; from < ids.size(); from += treeBatchInSize) {
+                List<String> chunk = ids.subList(from, Math.min(ids.size(), from + treeBatchInSize));
+                if (!ctx.tryQuery()) {
+                    markDetailsTruncated(conn, dbName, dbConfig, nodesByTable, tables, t, ids.subList(from, ids.size()), rootOf, ctx);
+                    return;
+                }
+                Set<String> chunkBills = new LinkedHashSet<>();
+                for (String id : chunk) {
+                    chunkBills.addAll(billsOf(nodesById.get(id), rootOf));
+                }
+                ctx.countBillQuery(chunkBills);
+                
+                StringBuilder sql = new StringBuilder(select);
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+                sql.append(")");
+                
+                try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                    ctx.applyTimeout(stmt);
+                    stmt.setString(1, ytenant_id);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setString(i + 2, chunk.get(i));
+                    }
                     
-                    for (int i = 1; i <= columnCount; i++) {
-                        String columnName = meta.getColumnName(i);
-                        int columnType = meta.getColumnType(i);
-                        
-                        // 对于可能包含大数值的字段，使用getString方法以保留完整精度
-                        Object value;
-                        if (columnName.equalsIgnoreCase("id") || 
-                            columnName.toLowerCase().endsWith("id") || 
-                            columnName.toLowerCase().startsWith("id") ||
-                            columnType == Types.BIGINT || 
-                            columnType == Types.NUMERIC || 
-                            columnType == Types.DECIMAL) {
-                            value = rs.getString(i);
-                        } else {
-                            value = rs.getObject(i);
+                    try (TableQueryEvent queryEvent = TableQueryEvent.begin(TableQueryEvent.DETAILS, tableName);
+                         ResultSet rs = stmt.executeQuery()) {
+                        queryEvent.executed();
+                        while (rs.next()) {
+                            if (!ctx.tryRow()) {
+                                markDetailsTruncated(conn, dbName, dbConfig, nodesByTable, tables, t, ids.subList(from, ids.size()), rootOf, ctx);
+                                return;
+                            }
+                            queryEvent.addRow();
+                            List<DbTreeNode> nodes = nodesById.get(rs.getString(idIndex));
+                            if (nodes == null) {
+                                continue;
+                            }
+                            ctx.countBillRow(billsOf(nodes, rootOf));
+                            TableDetailsResponse details = readDetailsRow(rs, tableName, columns, false);
+                            for (DbTreeNode node : nodes) {
+                                node.setDetails(details);
+                            }
                         }
-                        data.put(columnName, value);
                     }
+                } catch (SQLTimeoutException e) {
+                    // 语句超过构建截止时间，已附带的整行数据保留
+                    markDetailsTruncated(conn, dbName, dbConfig, nodesByTable, tables, t, ids.subList(from, ids.size()), rootOf, ctx);
+                    return;
                 }
             }
         }
+    }
+    
+    /**
+     * 按表名和ID汇总节点，同一行可能出现在多个节点中，同时记录每个节点所属的根节点
+     */
+    private static void collectNodesByTable(DbTreeNode node, DbTreeNode root, Map<String, Map<String, List<DbTreeNode>>> nodesByTable,
+                                            Map<DbTreeNode, DbTreeNode> rootOf) {
+        if (node == null) {
+            return;
+        }
+        rootOf.put(node, root);
+        if (node.getTableName() != null && node.getId() != null) {
+            nodesByTable.computeIfAbsent(node.getTableName(), k -> new LinkedHashMap<>())
+                    .computeIfAbsent(node.getId(), k -> new ArrayList<>()).add(node);
+        }
+        if (node.getChildren() != null) {
+            for (DbTreeNode child : node.getChildren()) {
+                collectNodesByTable(child, root, nodesByTable, rootOf);
+            }
+        }
+    }
+    
+    private static Set<String> billsOf(List<DbTreeNode> nodes, Map<DbTreeNode, DbTreeNode> rootOf) {
+        Set<String> bills = new LinkedHashSet<>();
+        for (DbTreeNode node : nodes) {
+            bills.add(String.valueOf(rootOf.get(node).getAttribute("cBillNo")));
+        }
+        return bills;
+    }
+    
+    /**
+     * 整行数据未附带完时，标记还有节点缺少数据的表单：当前表中未读完且没拿到数据的节点，以及之后各张真实表中的节点
+     */
+    private void markDetailsTruncated(Connection conn, String dbName, DbConfigDTO dbConfig, Map<String, Map<String, List<DbTreeNode>>> nodesByTable,
+                                      List<String> tables, int tableIndex, List<String> remainingIds,
+                                      Map<DbTreeNode, DbTreeNode> rootOf, TreeBuildContext ctx) throws SQLException {
+        Set<DbTreeNode> pendingRoots = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<String, List<DbTreeNode>> current = nodesByTable.get(tables.get(tableIndex));
+        for (String id : remainingIds) {
+            for (DbTreeNode node : current.get(id)) {
+                if (node.getDetails() == null) {
+                    pendingRoots.add(rootOf.get(node));
+                }
+            }
+        }
+        for (String tableName : tables.subList(tableIndex + 1, tables.size())) {
+            List<TableSchemaCache.ColumnInfo> columns = tableSchemaCache.getColumns(conn, dbConfig, dbName, tableName);
+            if (TableSchemaCache.findColumn(columns, "id") == null) {
+                continue;
+            }
+            for (List<DbTreeNode> nodes : nodesByTable.get(tableName).values()) {
+                for (DbTreeNode node : nodes) {
+                    pendingRoots.add(rootOf.get(node));
+                }
+            }
+        }
+        for (DbTreeNode root : pendingRoots) {
+            ctx.markTruncated(root);
+            ctx.markBillTruncated(String.valueOf(root.getAttribute("cBillNo")));
+        }
+    }
+    
+    /**
+     * 构建查询列，未加载的大字段只查询字节数
+     */
+    private static String selectList(List<TableSchemaCache.ColumnInfo> columns, boolean includeLargeColumns) {
+        StringBuilder selectList = new StringBuilder();
+        for (TableSchemaCache.ColumnInfo column : columns) {
+            if (selectList.length() > 0) {
+                selectList.append(", ");
+            }
+            if (!includeLargeColumns && column.isLarge()) {
+                selectList.append("OCTET_LENGTH(`").append(column.getName()).append("`)");
+            } else {
+                selectList.append('`').append(column.getName()).append('`');
+            }
+        }
+        return selectList.toString();
+    }
+    
+    /**
+     * 读取结果集当前行，列顺序与{@link #selectList}一致
+     */
+    private static TableDetailsResponse readDetailsRow(ResultSet rs, String tableName, List<TableSchemaCache.ColumnInfo> columns,
+                                                       boolean includeLargeColumns) throws SQLException {
+        Map<String, Object> data = new HashMap<>();
+        TableDetailsResponse response = new TableDetailsResponse(tableName, data);
+        ResultSetMetaData meta = rs.getMetaData();
+        Map<String, Long> lazyColumns = new LinkedHashMap<>();
         
-        return data;
+        for (int i = 1; i <= columns.size(); i++) {
+            TableSchemaCache.ColumnInfo column = columns.get(i - 1);
+            String columnName = column.getName();
+            int columnType = meta.getColumnType(i);
+            
+            // 未加载的大字段只返回字节数
+            if (!includeLargeColumns && column.isLarge()) {
+                lazyColumns.put(columnName, rs.getObject(i) == null ? null : rs.getLong(i));
+                continue;
+            }
+            
+            // 对于可能包含大数值的字段，使用getString方法以保留完整精度
+            Object value;
+            if (columnName.equalsIgnoreCase("id") || 
+                columnName.toLowerCase().endsWith("id") || 
+                columnName.toLowerCase().startsWith("id") ||
+                columnType == Types.BIGINT || 
+                columnType == Types.NUMERIC || 
+                columnType == Types.DECIMAL) {
+                value = rs.getString(i);
+            } else {
+                value = rs.getObject(i);
+            }
+            data.put(columnName, value);
+        }
+        
+        if (!lazyColumns.isEmpty()) {
+            response.setLazyColumns(lazyColumns);
+        }
+        return response;
+    }
+    
+    /**
+     * 按表结构校验并解析字段
+     */
+    private TableSchemaCache.ColumnInfo resolveColumn(Connection conn, String dbName, DbConfigDTO dbConfig,
+                                                      String tableName, String columnName) throws SQLException {
+        List<TableSchemaCache.ColumnInfo> columns = tableSchemaCache.getColumns(conn, dbConfig, dbName, tableName);
+        if (columns.isEmpty()) {
+            throw new SQLException("表不存在: " + tableName);
+        }
+        TableSchemaCache.ColumnInfo column = TableSchemaCache.findColumn(columns, columnName);
+        if (column == null) {
+            throw new SQLException("表 " + tableName + " 中不存在字段: " + columnName);
+        }
+        return column;
+    }
+    
+    /**
+     * 字段截取表达式，TEXT按字符、BLOB按字节截取
+     */
+    private String substringExpression(String columnName, Integer length) {
+        return length == null
+                ? String.format("SUBSTRING(`%s`, ?)", columnName)
+                : String.format("SUBSTRING(`%s`, ?, ?)", columnName);
+    }
+    
+    /**
+     * SUBSTRING的起始位置（从1开始）
+     */
+    private long rangeStart(Long offset) {
+        return offset == null ? 1 : Math.max(0, offset) + 1;
     }
     
     /**
@@ -0,0 +1,160 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import com.yonyou.dbtreeview.cache.StaleWhileRevalidateCache;
+import com.yonyou.dbtreeview.datasource.DbConnectionManager;
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.model.TenantBillCount;
+import com.yonyou.dbtreeview.service.DbConfigService;
+import com.yonyou.dbtreeview.service.DbRelationService;
+import com.yonyou.dbtreeview.service.DiscoveryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据库和租户发现服务实现
+ */
+@Service
+public class DiscoveryServiceImpl implements DiscoveryService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DiscoveryServiceImpl.class);
+    
+    @Autowired
+    private DbRelationService dbRelationService;
+    
+    @Autowired
+    private DbConfigService dbConfigService;
+    
+    @Autowired
+    private DbConnectionManager connectionManager;
+    
+    @Value("${app.discovery.fresh-ms:300000}")
+    private long freshMillis;
+    
+    @Value("${app.discovery.max-idle-ms:3600000}")
+    private long maxIdleMillis;
+    
+    @Value("${app.discovery.refresh-interval-ms:60000}")
+    private long refreshIntervalMillis;
+    
+    private ScheduledExecutorService scheduler;
+    private StaleWhileRevalidateCache<List<String>> databaseCache;
+    private StaleWhileRevalidateCache<List<TenantBillCount>> tenantCache;
+    
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        scheduler = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "db-discovery-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        databaseCache = new StaleWhileRevalidateCache<>("数据库列表", freshMillis, maxIdleMillis, scheduler);
+        tenantCache = new StaleWhileRevalidateCache<>("租户清单", freshMillis, maxIdleMillis, scheduler);
+        scheduler.scheduleWithFixedDelay(() -> {
+            databaseCache.refreshStale();
+            tenantCache.refreshStale();
+        }, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+    
+    /**
+     * 启动后在后台预热各环境的数据库列表，首次打开页面时无需等待
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Map<String, DbConfigDTO> configs = dbConfigService.getDbConfigs().getConfigs();
+        if (configs == null) {
+            return;
+        }
+        for (Map.Entry<String, DbConfigDTO> entry : configs.entrySet()) {
+            DbConfigDTO dbConfig = entry.getValue();
+            if (dbConfig == null || dbConfig.getHost() == null || dbConfig.getHost().isEmpty()) {
+                continue;
+            }
+            scheduler.execute(() -> {
+                try {
+                    getDatabaseList(entry.getKey(), dbConfig);
+                } catch (RuntimeException e) {
+                    logger.warn("预热环境 {} 的数据库列表失败: {}", entry.getKey(), e.getMessage());
+                }
+            });
+        }
+    }
+    
+    @Override
+    public List<String> getDatabaseList(String environment, DbConfigDTO dbConfig) {
+        try {
+            return databaseCache.get(endpointKey(dbConfig),
+                    () -> dbRelationService.getDatabaseList(environment, dbConfig));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("获取数据库列表失败: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public List<TenantBillCount> getTenantInventory(String environment, String dbName, DbConfigDTO dbConfig) {
+        try {
+            return tenantCache.get(endpointKey(dbConfig) + "/" + dbName, () -> loadTenantInventory(dbName, dbConfig));
+        } catch (Exception e) {
+            logger.error("获取租户清单失败", e);
+            throw new RuntimeException("获取租户清单失败: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("databases", databaseCache.getMetrics());
+        metrics.put("tenants", tenantCache.getMetrics());
+        return metrics;
+    }
+    
+    /**
+     * 统计bill_base中各租户的表单数量
+     */
+    private List<TenantBillCount> loadTenantInventory(String dbName, DbConfigDTO dbConfig) throws Exception {
+        List<TenantBillCount> tenants = new ArrayList<>();
+        String sql = "SELECT tenant_id, COUNT(*) FROM bill_base GROUP BY tenant_id ORDER BY COUNT(*) DESC";
+        try (Connection conn = connectionManager.getReadConnection(dbName, dbConfig);
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                tenants.add(new TenantBillCount(rs.getString(1), rs.getLong(2)));
+            }
+        }
+        return tenants;
+    }
+    
+    /**
+     * 缓存键包含凭据摘要，密码不同的配置各自加载，不会读到用旧凭据加载的结果
+     */
+    private String endpointKey(DbConfigDTO dbConfig) {
+        return dbConfig.getHost() + ":" + dbConfig.getPort() + "|" + dbConfig.getUsername()
+                + "|" + dbConfig.credentialsFingerprint();
+    }
+}
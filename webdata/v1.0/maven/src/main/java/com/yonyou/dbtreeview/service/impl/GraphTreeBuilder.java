@@ -0,0 +1,523 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import com.yonyou.dbtreeview.datasource.HedgedQueryExecutor;
+import com.yonyou.dbtreeview.graph.RelationContainer;
+import com.yonyou.dbtreeview.graph.RelationEdge;
+import com.yonyou.dbtreeview.graph.RelationGraph;
+import com.yonyou.dbtreeview.graph.RelationJoin;
+import com.yonyou.dbtreeview.model.DbTreeNode;
+import com.yonyou.dbtreeview.trace.QueryTrace;
+import com.yonyou.dbtreeview.trace.TableQueryEvent;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 按关联图定义构建关联树
+ * 规划器从根表开始按波次推进：父边已查询完成的边属于同一波次，彼此独立，
+ * 除第一条边使用当前连接外，其余边在线程池中各取一个与当前连接同一端点的连接并行查询，
+ * 取不到连接的边回到当前连接上依次查询。
+ * 每条边对所有父节点只执行一次IN查询（参数过多时按批拆分），全部关联字段都写入IN条件，
+ * 查出的行按关联字段的组合值匹配到父节点
+ */
+class GraphTreeBuilder {
+
+    private final Connection conn;
+    private final RelationGraph graph;
+    private final String ytenant_id;
+    private final TreeBuildContext ctx;
+    private final int inBatchSize;
+    private final ExecutorService executor;
+    private final HedgedQueryExecutor.ConnectionSource connectionSource;
+
+    /**
+     * 已构建的根节点，按表单编码索引
+     */
+    private final Map<String, GraphNode> roots = new LinkedHashMap<>();
+
+    /**
+     * 构建过程中的节点，保留查询出的行供子边取值
+     */
+    private static class GraphNode {
+        final RelationEdge edge;
+        final GraphNode parent;
+        final Map<String, String> row;
+        final DbTreeNode node;
+        final String billNo;
+        final Map<String, List<GraphNode>> children = new HashMap<>();
+
+        GraphNode(RelationEdge edge, GraphNode parent, Map<String, String> row, DbTreeNode node, String billNo) {
+            this.edge = edge;
+            this.parent = parent;
+            this.row = row;
+            this.node = node;
+            this.billNo = billNo;
+        }
+
+        String name() {
+            return edge == null ? RelationGraph.ROOT : edge.getName();
+        }
+    }
+
+    /**
+     * @param conn 当前连接
+     * @param graph 关联图
+     * @param ytenant_id 租户ID
+     * @param ctx 树构建上下文
+     * @param inBatchSize 单条IN查询的最大参数数
+     * @param executor 并行查询线程池，为空时同一波次内的边依次查询
+     * @param connectionSource 并行查询使用的连接来源，须与当前连接是同一端点，为空时同一波次内的边依次查询
+     */
+    GraphTreeBuilder(Connection conn, RelationGraph graph, String ytenant_id, TreeBuildContext ctx, int inBatchSize,
+                     ExecutorService executor, HedgedQueryExecutor.ConnectionSource connectionSource) {
+        this.conn = conn;
+        this.graph = graph;
+        this.ytenant_id = ytenant_id;
+        this.ctx = ctx;
+        this.inBatchSize = Math.max(1, inBatchSize);
+        this.executor = executor;
+        this.connectionSource = connectionSource;
+    }
+
+    /**
+     * 构建多个表单的关联树
+     *
+     * @param billNos 表单编码列表
+     * @return 表单编码到根节点的映射，不存在的表单不在结果中
+     */
+    Map<String, DbTreeNode> build(List<String> billNos) throws SQLException {
+        loadRoots(billNos);
+        Map<String, DbTreeNode> result = new LinkedHashMap<>();
+        if (roots.isEmpty()) {
+            return result;
+        }
+
+        Map<String, List<GraphNode>> produced = new HashMap<>();
+        produced.put(RelationGraph.ROOT, new ArrayList<>(roots.values()));
+        List<RelationEdge> wave = graph.getChildEdges(RelationGraph.ROOT);
+        while (!wave.isEmpty() && !ctx.isExhausted()) {
+            List<Map<GraphNode, List<GraphNode>>> results = runWave(wave, produced);
+            List<RelationEdge> next = new ArrayList<>();
+            for (int i = 0; i < wave.size(); i++) {
+                RelationEdge edge = wave.get(i);
+                List<GraphNode> nodes = new ArrayList<>();
+                for (Map.Entry<GraphNode, List<GraphNode>> entry : results.get(i).entrySet()) {
+                    entry.getKey().children.put(edge.getName(), entry.getValue());
+                    nodes.addAll(entry.getValue());
+                }
+                produced.put(edge.getName(), nodes);
+                if (!nodes.isEmpty()) {
+                    next.addAll(graph.getChildEdges(edge.getName()));
+                }
+            }
+            wave = next;
+        }
+        // 预算耗尽后未执行的边，其父节点没有展开
+        for (RelationEdge edge : wave) {
+            for (List<GraphNode> parents : parentsByKey(edge, produced.get(edge.getParent())).values()) {
+                markTruncated(parents);
+            }
+        }
+
+        // 内存中组装
+        for (Map.Entry<String, GraphNode> entry : roots.entrySet()) {
+            assemble(entry.getValue());
+            result.put(entry.getKey(), entry.getValue().node);
+        }
+        return result;
+    }
+
+    /**
+     * 查询根表
+     */
+    private void loadRoots(List<String> billNos) throws SQLException {
+        String keyColumn = graph.getRoot().getKeyColumn();
+        List<List<String>> keys = new ArrayList<>();
+        for (String billNo : new LinkedHashSet<>(billNos)) {
+            keys.add(Collections.singletonList(billNo));
+        }
+        Map<List<String>, List<Map<String, String>>> rows = queryRows(conn, graph.getRoot().getTable(),
+                graph.getSelectColumns(RelationGraph.ROOT), Collections.singletonList(keyColumn), keys, null, null);
+        for (String billNo : billNos) {
+            List<Map<String, String>> billRows = rows.get(Collections.singletonList(billNo));
+            if (billRows == null || roots.containsKey(billNo)) {
+                continue;
+            }
+            Map<String, String> row = billRows.get(0);
+            DbTreeNode node = new DbTreeNode(graph.getRoot().getTable(), row.get("id"));
+            for (String column : graph.getRoot().getColumns()) {
+                node.setAttribute(column, row.get(column));
+            }
+            roots.put(billNo, new GraphNode(null, null, row, node, billNo));
+        }
+    }
+
+    /**
+     * 执行一个波次，返回值与边的顺序一致
+     * 并行查询的连接在提交前取得，取不到时（端点并发已满、连接池耗尽等）该边改在当前连接上查询
+     */
+    private List<Map<GraphNode, List<GraphNode>>> runWave(List<RelationEdge> wave, Map<String, List<GraphNode>> produced) throws SQLException {
+        List<Map<GraphNode, List<GraphNode>>> results = new ArrayList<>(Collections.nCopies(wave.size(),
+                (Map<GraphNode, List<GraphNode>>) null));
+        if (wave.size() == 1 || executor == null || connectionSource == null) {
+            for (int i = 0; i < wave.size(); i++) {
+                RelationEdge edge = wave.get(i);
+                results.set(i, queryEdge(conn, edge, produced.get(edge.getParent())));
+            }
+            return results;
+        }
+
+        QueryTrace trace = QueryTrace.current();
+        Map<Integer, Future<Map<GraphNode, List<GraphNode>>>> futures = new LinkedHashMap<>();
+        List<Integer> local = new ArrayList<>();
+        local.add(0);
+        try {
+            for (int i = 1; i < wave.size(); i++) {
+                RelationEdge edge = wave.get(i);
+                Connection pooled;
+                try {
+                    pooled = connectionSource.getConnection();
+                } catch (SQLException e) {
+                    local.add(i);
+                    continue;
+                }
+                List<GraphNode> parents = produced.get(edge.getParent());
+                futures.put(i, executor.submit(() -> {
+                    QueryTrace previous = QueryTrace.attach(trace);
+                    try (Connection c = pooled) {
+                        return queryEdge(c, edge, parents);
+                    } finally {
+                        QueryTrace.attach(previous);
+                    }
+                }));
+            }
+            for (int i : local) {
+                RelationEdge edge = wave.get(i);
+                results.set(i, queryEdge(conn, edge, produced.get(edge.getParent())));
+            }
+            for (Map.Entry<Integer, Future<Map<GraphNode, List<GraphNode>>>> entry : futures.entrySet()) {
+                results.set(entry.getKey(), entry.getValue().get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof SQLException ? (SQLException) cause : new SQLException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("关联树构建被中断", e);
+        } finally {
+            for (Future<?> future : futures.values()) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 查询一条边，按关联字段的组合值把子行匹配到父节点
+     */
+    private Map<GraphNode, List<GraphNode>> queryEdge(Connection c, RelationEdge edge, List<GraphNode> parents) throws SQLException {
+        List<String> joinColumns = new ArrayList<>();
+        for (RelationJoin join : edge.getJoin()) {
+            joinColumns.add(join.getColumn());
+        }
+
+        Map<List<String>, List<GraphNode>> parentsByKey = parentsByKey(edge, parents);
+        Map<GraphNode, List<GraphNode>> result = new LinkedHashMap<>();
+        if (parentsByKey.isEmpty()) {
+            return result;
+        }
+        Map<List<String>, List<Map<String, String>>> rows = queryRows(c, edge.getTable(), graph.getSelectColumns(edge.getName()),
+                joinColumns, new ArrayList<>(parentsByKey.keySet()), edge.getOrderBy(), parentsByKey);
+        for (Map.Entry<List<String>, List<GraphNode>> entry : parentsByKey.entrySet()) {
+            List<Map<String, String>> childRows = rows.get(entry.getKey());
+            if (childRows == null) {
+                continue;
+            }
+            // 同一行挂到多个父节点下时各自创建节点
+            for (GraphNode parent : entry.getValue()) {
+                List<GraphNode> children = new ArrayList<>();
+                for (Map<String, String> row : childRows) {
+                    children.add(createNode(edge, parent, row));
+                }
+                result.put(parent, children);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按关联字段的组合值对父节点分组，关联值不全的父节点没有子节点
+     */
+    private Map<List<String>, List<GraphNode>> parentsByKey(RelationEdge edge, List<GraphNode> parents) {
+        Map<List<String>, List<GraphNode>> parentsByKey = new LinkedHashMap<>();
+        if (parents == null) {
+            return parentsByKey;
+        }
+        for (GraphNode parent : parents) {
+            List<String> values = new ArrayList<>();
+            for (RelationJoin join : edge.getJoin()) {
+                String value = resolve(parent, edge, join.getFrom());
+                if (value == null || value.isEmpty()) {
+                    values = null;
+                    break;
+                }
+                values.add(value);
+            }
+            if (values != null) {
+                parentsByKey.computeIfAbsent(values, k -> new ArrayList<>()).add(parent);
+            }
+        }
+        return parentsByKey;
+    }
+
+    private GraphNode createNode(RelationEdge edge, GraphNode parent, Map<String, String> row) {
+        DbTreeNode node = new DbTreeNode(edge.getTable(), row.get("id"));
+        for (String column : edge.getColumns()) {
+            node.setAttribute(column, row.get(column));
+        }
+        for (Map.Entry<String, String> entry : edge.getInherit().entrySet()) {
+            node.setAttribute(entry.getKey(), resolve(parent, edge, entry.getValue()));
+        }
+        return new GraphNode(edge, parent, row, node, parent.billNo);
+    }
+
+    /**
+     * 按IN条件查询一张表，并按条件字段的组合值分组；多个条件字段时使用 (a, b) IN ((?, ?), ...)
+     * 预算耗尽或语句超时时停止读取，只把还没读完的参数对应的父节点标记为未完全展开
+     *
+     * @param keyColumns IN条件字段
+     * @param keys IN条件取值，不重复，每项与keyColumns一一对应
+     * @param owners IN条件取值到父节点的映射，查询根表时为空，取值即表单编码
+     */
+    private Map<List<String>, List<Map<String, String>>> queryRows(Connection c, String table, List<String> columns,
+                                                                 List<String> keyColumns, List<List<String>> keys, String orderBy,
+                                                                 Map<List<String>, List<GraphNode>> owners) throws SQLException {
+        Map<List<String>, List<Map<String, String>>> grouped = new HashMap<>();
+        for (int from = 0; from < keys.size(); from += inBatchSize) {
+            List<List<String>> chunk = keys.subList(from, Math.min(keys.size(), from + inBatchSize));
+            if (!ctx.tryQuery()) {
+                markTruncated(keys.subList(from, keys.size()), owners);
+                return grouped;
+            }
+            ctx.countBillQuery(billsOf(chunk, owners));
+
+            String sql = selectSql(graph.getTenantColumn(), table, columns, keyColumns, chunk.size(), orderBy);
+            try (PreparedStatement stmt = c.prepareStatement(sql)) {
+                ctx.applyTimeout(stmt);
+                int index = 1;
+                stmt.setString(index++, ytenant_id);
+                for (List<String> key : chunk) {
+                    for (String value : key) {
+                        stmt.setString(index++, value);
+                    }
+                }
+
+                try (TableQueryEvent queryEvent = TableQueryEvent.begin(TableQueryEvent.TREE, table);
+                     ResultSet rs = stmt.executeQuery()) {
+                    queryEvent.executed();
+                    while (rs.next()) {
+                        if (!ctx.tryRow()) {
+                            // 结果按排序字段而不是参数返回，本批的每个参数都可能缺行
+                            markTruncated(keys.subList(from, keys.size()), owners);
+                            return grouped;
+                        }
+                        queryEvent.addRow();
+                        Map<String, String> row = new HashMap<>();
+                        for (int i = 0; i < columns.size(); i++) {
+                            row.put(columns.get(i), rs.getString(i + 1));
+                        }
+                        List<String> key = new ArrayList<>(keyColumns.size());
+                        for (String keyColumn : keyColumns) {
+                            key.add(row.get(keyColumn));
+                        }
+                        ctx.countBillRow(billsOf(Collections.singletonList(key), owners));
+                        grouped.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+                    }
+                }
+            } catch (SQLTimeoutException e) {
+                // 语句超过构建截止时间，返回已读取的部分
+                markTruncated(keys.subList(from, keys.size()), owners);
+                return grouped;
+            }
+        }
+        return grouped;
+    }
+
+    /**
+     * 一条边的查询语句，参数依次为租户ID和keyCount组IN条件取值，索引诊断也按此生成语句
+     *
+     * @param keyColumns IN条件字段，多个时使用 (a, b) IN ((?, ?), ...)
+     * @param keyCount IN条件取值组数
+     * @param orderBy 排序字段，可为空
+     */
+    static String selectSql(String tenantColumn, String table, List<String> columns, List<String> keyColumns,
+                            int keyCount, String orderBy) {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < columns.size(); i++) {
+            sql.append(i == 0 ? "`" : ", `").append(columns.get(i)).append('`');
+        }
+        sql.append(" FROM `").append(table).append("` WHERE `").append(tenantColumn).append("` = ? AND ");
+        StringBuilder placeholder = new StringBuilder();
+        if (keyColumns.size() == 1) {
+            sql.append('`').append(keyColumns.get(0)).append("` IN (");
+            placeholder.append('?');
+        } else {
+            sql.append('(');
+            placeholder.append('(');
+            for (int i = 0; i < keyColumns.size(); i++) {
+                sql.append(i == 0 ? "`" : ", `").append(keyColumns.get(i)).append('`');
+                placeholder.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(") IN (");
+            placeholder.append(')');
+        }
+        for (int i = 0; i < keyCount; i++) {
+            sql.append(i == 0 ? "" : ", ").append(placeholder);
+        }
+        sql.append(")");
+        if (orderBy != null) {
+            sql.append(" ORDER BY `").append(orderBy).append('`');
+        }
+        return sql.toString();
+    }
+
+    /**
+     * 按边的定义顺序把子节点挂到DbTreeNode上
+     */
+    private void assemble(GraphNode graphNode) {
+        for (RelationEdge edge : graph.getChildEdges(graphNode.name())) {
+            List<GraphNode> children = graphNode.children.get(edge.getName());
+            if (children == null) {
+                children = Collections.emptyList();
+            }
+
+            // 依赖的边因预算未展开完时保留节点，节点已标记truncated
+            List<GraphNode> kept = new ArrayList<>();
+            for (GraphNode child : children) {
+                List<GraphNode> required = edge.getRequires() == null ? null : child.children.get(edge.getRequires());
+                if (edge.getRequires() == null || (required != null && !required.isEmpty())
+                        || Boolean.TRUE.equals(child.node.getAttribute(TreeBuildContext.TRUNCATED))) {
+                    assemble(child);
+                    kept.add(child);
+                }
+            }
+
+            // 同表上下级：上级是兄弟行时嵌套到上级下，否则挂到父节点
+            List<DbTreeNode> topLevel = new ArrayList<>();
+            Map<String, GraphNode> byId = new HashMap<>();
+            if (edge.getTreeColumn() != null) {
+                for (GraphNode child : kept) {
+                    byId.put(child.node.getId(), child);
+                }
+            }
+            for (GraphNode child : kept) {
+                String parentId = edge.getTreeColumn() == null ? null : child.row.get(edge.getTreeColumn());
+                GraphNode treeParent = parentId == null || parentId.isEmpty() ? null : byId.get(parentId);
+                if (treeParent != null && treeParent != child) {
+                    treeParent.node.addChild(child.node);
+                } else {
+                    topLevel.add(child.node);
+                }
+            }
+            RelationContainer container = edge.getContainer();
+            boolean keepContainer = container != null && container.isKeepEmpty()
+                    && !parentsByKey(edge, Collections.singletonList(graphNode)).isEmpty();
+            if (topLevel.isEmpty() && !keepContainer) {
+                continue;
+            }
+
+            DbTreeNode target = graphNode.node;
+            if (container != null) {
+                target = new DbTreeNode(container.getTable(), fill(graphNode, edge, container.getId()));
+                target.setAttribute("cName", container.getName());
+                for (Map.Entry<String, String> entry : container.getInherit().entrySet()) {
+                    target.setAttribute(entry.getKey(), resolve(graphNode, edge, entry.getValue()));
+                }
+                graphNode.node.addChild(target);
+            }
+            for (DbTreeNode node : topLevel) {
+                target.addChild(node);
+            }
+        }
+    }
+
+    /**
+     * 计算取值表达式，从父节点向上查找引用的边
+     *
+     * @param parent 父节点
+     * @param edge 表达式所在的边
+     * @param expression 表达式，如parent.id
+     * @return 字段值，找不到时为空
+     */
+    private String resolve(GraphNode parent, RelationEdge edge, String expression) {
+        int dot = expression.indexOf('.');
+        String source = graph.resolveSource(edge, expression.substring(0, dot));
+        GraphNode node = parent;
+        while (node != null && !node.name().equals(source)) {
+            node = node.parent;
+        }
+        return node == null ? null : node.row.get(expression.substring(dot + 1));
+    }
+
+    /**
+     * 替换模板中的{表达式}占位符
+     */
+    private String fill(GraphNode parent, RelationEdge edge, String template) {
+        String result = template;
+        for (String expression : RelationGraph.placeholders(template)) {
+            result = result.replace("{" + expression + "}", String.valueOf(resolve(parent, edge, expression)));
+        }
+        return result;
+    }
+
+    /**
+     * 参数对应的表单
+     */
+    private static Set<String> billsOf(List<List<String>> keys, Map<List<String>, List<GraphNode>> owners) {
+        Set<String> bills = new LinkedHashSet<>();
+        for (List<String> key : keys) {
+            if (owners == null) {
+                bills.add(key.get(0));
+            } else if (owners.containsKey(key)) {
+                for (GraphNode parent : owners.get(key)) {
+                    bills.add(parent.billNo);
+                }
+            }
+        }
+        return bills;
+    }
+
+    private void markTruncated(List<List<String>> remainingKeys, Map<List<String>, List<GraphNode>> owners) {
+        if (owners == null) {
+            // 根表未读完，这些表单没有根节点
+            for (List<String> key : remainingKeys) {
+                ctx.markBillTruncated(key.get(0));
+            }
+            return;
+        }
+        for (List<String> key : remainingKeys) {
+            markTruncated(owners.get(key));
+        }
+    }
+
+    private void markTruncated(List<GraphNode> parents) {
+        for (GraphNode parent : parents) {
+            ctx.markTruncated(parent.node);
+            ctx.markBillTruncated(parent.billNo);
+        }
+    }
+}
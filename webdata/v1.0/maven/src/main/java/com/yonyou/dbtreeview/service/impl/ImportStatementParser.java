@@ -0,0 +1,258 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * 导入脚本语句解析器
+ * 按导出脚本的固定格式完整解析一条语句，只接受：
+ * <pre>
+ * SET NAMES utf8mb4;
+ * INSERT INTO `表` (`列`, ...) VALUES (字面量, ...), ... [ON DUPLICATE KEY UPDATE `列` = VALUES(`列`), ...];
+ * </pre>
+ * 字面量只能是字符串、数字、NULL或X'十六进制'，不允许函数、子查询、注释，也不允许字符串之外出现第二个分号，
+ * 因此语句不会读取其他表，也不会附带执行其他语句
+ */
+final class ImportStatementParser {
+
+    private final String sql;
+    private int pos;
+    private int end;
+
+    private ImportStatementParser(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * 校验一条以分号结尾的语句
+     *
+     * @param sql 语句，包含结尾的分号
+     * @param allowedTables 允许写入的表
+     * @return 去掉结尾分号后的语句
+     */
+    static String parse(String sql, Set<String> allowedTables) throws SQLException {
+        ImportStatementParser parser = new ImportStatementParser(sql);
+        parser.statement(allowedTables);
+        return sql.substring(0, parser.end).trim();
+    }
+
+    private void statement(Set<String> allowedTables) throws SQLException {
+        skipSpace();
+        if (peekKeyword("SET")) {
+            keyword("SET");
+            keyword("NAMES");
+            // 只允许UTF-8，GBK等字符集下多字节字符可能吞掉转义用的反斜杠
+            keyword(peekKeyword("utf8") ? "utf8" : "utf8mb4");
+        } else {
+            insert(allowedTables);
+        }
+        expect(';');
+        end = pos - 1;
+        skipSpace();
+        if (pos < sql.length()) {
+            throw error("分号后存在多余内容");
+        }
+    }
+
+    private void insert(Set<String> allowedTables) throws SQLException {
+        keyword("INSERT");
+        keyword("INTO");
+        String table = identifier();
+        if (!allowedTables.contains(table)) {
+            throw error("不允许写入表 " + table);
+        }
+
+        expect('(');
+        int columns = 0;
+        do {
+            identifier();
+            columns++;
+        } while (accept(','));
+        expect(')');
+
+        keyword("VALUES");
+        do {
+            expect('(');
+            int values = 0;
+            do {
+                literal();
+                values++;
+            } while (accept(','));
+            expect(')');
+            if (values != columns) {
+                throw error("值的个数与列数不一致");
+            }
+        } while (accept(','));
+
+        if (peekKeyword("ON")) {
+            keyword("ON");
+            keyword("DUPLICATE");
+            keyword("KEY");
+            keyword("UPDATE");
+            do {
+                String column = identifier();
+                expect('=');
+                keyword("VALUES");
+                expect('(');
+                if (!column.equals(identifier())) {
+                    throw error("ON DUPLICATE KEY UPDATE只能取本列的新值");
+                }
+                expect(')');
+            } while (accept(','));
+        }
+    }
+
+    /**
+     * 字符串、数字、NULL或X'十六进制'
+     */
+    private void literal() throws SQLException {
+        skipSpace();
+        if (pos >= sql.length()) {
+            throw error("缺少值");
+        }
+        char c = sql.charAt(pos);
+        if (c == '\'') {
+            quoted();
+        } else if ((c == 'X' || c == 'x') && pos + 1 < sql.length() && sql.charAt(pos + 1) == '\'') {
+            pos++;
+            int start = pos + 1;
+            quoted();
+            for (int i = start; i < pos - 1; i++) {
+                if (Character.digit(sql.charAt(i), 16) < 0) {
+                    throw error("十六进制字面量格式错误");
+                }
+            }
+        } else if (c == '-' || isDigit(c)) {
+            number();
+        } else if (peekKeyword("NULL")) {
+            keyword("NULL");
+        } else {
+            throw error("不支持的值");
+        }
+    }
+
+    /**
+     * 单引号字符串，支持反斜杠转义和两个连续单引号
+     */
+    private void quoted() throws SQLException {
+        pos++;
+        while (pos < sql.length()) {
+            char c = sql.charAt(pos++);
+            if (c == '\\') {
+                pos++;
+            } else if (c == '\'') {
+                if (pos < sql.length() && sql.charAt(pos) == '\'') {
+                    pos++;
+                } else {
+                    return;
+                }
+            }
+        }
+        throw error("字符串未结束");
+    }
+
+    private void number() throws SQLException {
+        if (sql.charAt(pos) == '-') {
+            pos++;
+        }
+        int digits = digits();
+        if (pos < sql.length() && sql.charAt(pos) == '.') {
+            pos++;
+            digits += digits();
+        }
+        if (digits == 0) {
+            throw error("数字格式错误");
+        }
+        if (pos < sql.length() && (sql.charAt(pos) == 'e' || sql.charAt(pos) == 'E')) {
+            pos++;
+            if (pos < sql.length() && (sql.charAt(pos) == '+' || sql.charAt(pos) == '-')) {
+                pos++;
+            }
+            if (digits() == 0) {
+                throw error("数字格式错误");
+            }
+        }
+    }
+
+    private int digits() {
+        int start = pos;
+        while (pos < sql.length() && isDigit(sql.charAt(pos))) {
+            pos++;
+        }
+        return pos - start;
+    }
+
+    /**
+     * 反引号标识符，两个连续反引号表示反引号本身
+     */
+    private String identifier() throws SQLException {
+        skipSpace();
+        if (pos >= sql.length() || sql.charAt(pos) != '`') {
+            throw error("缺少反引号标识符");
+        }
+        StringBuilder name = new StringBuilder();
+        pos++;
+        while (pos < sql.length()) {
+            char c = sql.charAt(pos++);
+            if (c == '`') {
+                if (pos < sql.length() && sql.charAt(pos) == '`') {
+                    pos++;
+                } else if (name.length() > 0) {
+                    return name.toString();
+                } else {
+                    throw error("标识符为空");
+                }
+            }
+            name.append(c);
+        }
+        throw error("标识符未结束");
+    }
+
+    private boolean peekKeyword(String keyword) {
+        skipSpace();
+        int after = pos + keyword.length();
+        return sql.regionMatches(true, pos, keyword, 0, keyword.length())
+                && (after >= sql.length() || !isWordChar(sql.charAt(after)));
+    }
+
+    private void keyword(String keyword) throws SQLException {
+        if (!peekKeyword(keyword)) {
+            throw error("缺少关键字 " + keyword);
+        }
+        pos += keyword.length();
+    }
+
+    private boolean accept(char c) {
+        skipSpace();
+        if (pos < sql.length() && sql.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) throws SQLException {
+        if (!accept(c)) {
+            throw error("缺少 " + c);
+        }
+    }
+
+    private void skipSpace() {
+        while (pos < sql.length() && Character.isWhitespace(sql.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordChar(char c) {
+        return isDigit(c) || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_';
+    }
+
+    private SQLException error(String reason) {
+        String preview = sql.length() > 80 ? sql.substring(0, 80) + "..." : sql;
+        return new SQLException("脚本包含不允许执行的语句（" + reason + "，位置 " + pos + "）: " + preview);
+    }
+}
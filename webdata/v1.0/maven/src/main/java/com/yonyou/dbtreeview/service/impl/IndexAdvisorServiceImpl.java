@@ -0,0 +1,541 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yonyou.dbtreeview.datasource.DbConnectionManager;
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.dto.TreeBuildOptions;
+import com.yonyou.dbtreeview.graph.RelationEdge;
+import com.yonyou.dbtreeview.graph.RelationGraph;
+import com.yonyou.dbtreeview.graph.RelationGraphRegistry;
+import com.yonyou.dbtreeview.graph.RelationJoin;
+import com.yonyou.dbtreeview.model.IndexAdviceReport;
+import com.yonyou.dbtreeview.model.StatementPlan;
+import com.yonyou.dbtreeview.service.IndexAdvisorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 索引诊断服务实现
+ * 逐表单构建、数据库端组装和批量构建的语句取自TreeQueries，关联图组装的语句按当前关联图定义生成，
+ * 与构建时执行的SQL保持一致
+ */
+@Service
+public class IndexAdvisorServiceImpl implements IndexAdvisorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexAdvisorServiceImpl.class);
+
+    /**
+     * 访问方式由差到好，用于多表计划取最差值
+     */
+    private static final List<String> ACCESS_TYPE_RANK = Arrays.asList(
+            "ALL", "index", "range", "index_merge", "ref_or_null", "fulltext", "ref", "eq_ref", "const", "system");
+
+    /**
+     * 批量构建（批量导出、批量查询）的语句，不属于单棵树的组装方式
+     */
+    static final String BATCH = "batch";
+
+    /**
+     * 关联条件取值表达式对应的采样值名称
+     */
+    private static final Map<String, String> GRAPH_SAMPLES = new HashMap<>();
+
+    private static final List<AdvisedStatement> STATEMENTS = new ArrayList<>();
+
+    static {
+        GRAPH_SAMPLES.put("root.id", "billId");
+        GRAPH_SAMPLES.put("root.cBillNo", "billNo");
+        GRAPH_SAMPLES.put("root.cFilterId", "filterId");
+        GRAPH_SAMPLES.put("entities.id", "entityId");
+        GRAPH_SAMPLES.put("templates.id", "tplId");
+        GRAPH_SAMPLES.put("groups.id", "groupId");
+        GRAPH_SAMPLES.put("groups.ccode", "ccode");
+        GRAPH_SAMPLES.put("toolbars.name", "toolbar");
+        GRAPH_SAMPLES.put("toolbarItems.command", "command");
+        GRAPH_SAMPLES.put("filters.id", "filterId");
+        GRAPH_SAMPLES.put("solutions.id", "solutionId");
+
+        // 逐表单构建
+        String java = TreeBuildOptions.ASSEMBLY_JAVA;
+        STATEMENTS.add(new AdvisedStatement("bill_base", java, "bill_base", TreeQueries.BILL,
+                new String[]{"billNo", "tenant"}, new String[]{"cBillNo", "tenant_id"}, null, "bill", null));
+        STATEMENTS.add(new AdvisedStatement("billentity_base", java, "billentity_base", TreeQueries.ENTITIES,
+                new String[]{"billId", "tenant"}, new String[]{"iBillId", "tenant_id"}, null, "bill", true));
+        STATEMENTS.add(new AdvisedStatement("billtemplate_base", java, "billtemplate_base", TreeQueries.TEMPLATES,
+                new String[]{"billId", "tenant"}, new String[]{"iBillId", "tenant_id"}, null, "templateQueries", null));
+        STATEMENTS.add(new AdvisedStatement("billtplgroup_base", java, "billtplgroup_base", TreeQueries.GROUPS,
+                new String[]{"billId", "tplId", "tenant"}, new String[]{"iBillId", "iTplId", "tenant_id"}, "iOrder", "templates", false));
+        STATEMENTS.add(new AdvisedStatement("billtplgroup_base(实体)", java, "billtplgroup_base", TreeQueries.ENTITY_GROUPS,
+                new String[]{"billId", "tplId", "entityId", "tenant"}, new String[]{"iBillId", "iTplId", "iBillEntityId", "tenant_id"}, "iOrder", "entityTemplates", true));
+        STATEMENTS.add(new AdvisedStatement("billitem_base", java, "billitem_base", TreeQueries.ITEMS,
+                new String[]{"billId", "groupId", "tenant"}, new String[]{"iBillId", "iBillTplGroupId", "tenant_id"}, "iOrder", "groups", null));
+        STATEMENTS.add(new AdvisedStatement("bill_toolbar", java, "bill_toolbar", TreeQueries.TOOLBARS,
+                new String[]{"billNo", "ccode", "tenant"}, new String[]{"billnumber", "parent", "tenant_id"}, null, "groups", null));
+        STATEMENTS.add(new AdvisedStatement("bill_toolbaritem", java, "bill_toolbaritem", TreeQueries.TOOLBAR_ITEMS,
+                new String[]{"billNo", "toolbar", "tenant"}, new String[]{"billnumber", "toolbar", "tenant_id"}, "order", "toolbars", null));
+        STATEMENTS.add(new AdvisedStatement("bill_command", java, "bill_command", TreeQueries.COMMANDS,
+                new String[]{"billNo", "command", "tenant"}, new String[]{"billnumber", "name", "tenant_id"}, null, "commands", null));
+        STATEMENTS.add(new AdvisedStatement("pb_meta_filters", java, "pb_meta_filters", TreeQueries.FILTERS,
+                new String[]{"filterId", "tenant"}, new String[]{"id", "tenant_id"}, null, "filters", null));
+        STATEMENTS.add(new AdvisedStatement("pb_meta_filter_item", java, "pb_meta_filter_item", TreeQueries.FILTER_ITEMS,
+                new String[]{"filterId", "tenant"}, new String[]{"filtersId", "tenant_id"}, null, "filters", null));
+        STATEMENTS.add(new AdvisedStatement("pb_filter_solution", java, "pb_filter_solution", TreeQueries.SOLUTIONS,
+                new String[]{"filterId", "tenant"}, new String[]{"filtersId", "tenant_id"}, null, "filters", null));
+        STATEMENTS.add(new AdvisedStatement("pb_filter_solution_common", java, "pb_filter_solution_common", TreeQueries.SOLUTION_COMMONS,
+                new String[]{"solutionId", "tenant"}, new String[]{"solutionId", "tenant_id"}, null, "solutions", null));
+
+        // 数据库端组装：每个模板一条递归CTE，字段子查询与逐表单构建的billitem_base语句使用同一索引
+        String sql = TreeBuildOptions.ASSEMBLY_SQL;
+        STATEMENTS.add(new AdvisedStatement("分组CTE", sql, "billtplgroup_base", TreeQueries.groupTreeSql(false),
+                new String[]{"billId", "tplId", "tenant", "billId", "tenant"}, new String[]{"iBillId", "iTplId", "tenant_id"}, null, "templates", false));
+        STATEMENTS.add(new AdvisedStatement("分组CTE(实体)", sql, "billtplgroup_base", TreeQueries.groupTreeSql(true),
+                new String[]{"billId", "tplId", "entityId", "tenant", "billId", "tenant"}, new String[]{"iBillId", "iTplId", "iBillEntityId", "tenant_id"}, null, "entityTemplates", true));
+
+        // 批量构建：每层一条IN查询，按采样表单的单个取值执行EXPLAIN
+        addBatch("bill_base", TreeQueries.BATCH_BILLS, "cBillNo", "billNo", null, null);
+        addBatch("billentity_base", TreeQueries.BATCH_ENTITIES, "iBillId", "billId", null, true);
+        addBatch("billtemplate_base", TreeQueries.BATCH_TEMPLATES, "iBillId", "billId", null, null);
+        addBatch("billtplgroup_base", TreeQueries.BATCH_GROUPS, "iBillId", "billId", "iOrder", false);
+        addBatch("billtplgroup_base", TreeQueries.BATCH_ENTITY_GROUPS, "iBillId", "billId", "iOrder", true);
+        addBatch("billitem_base", TreeQueries.BATCH_ITEMS, "iBillId", "billId", "iOrder", null);
+        addBatch("bill_toolbar", TreeQueries.BATCH_TOOLBARS, "billnumber", "billNo", null, null);
+        addBatch("bill_toolbaritem", TreeQueries.BATCH_TOOLBAR_ITEMS, "billnumber", "billNo", "order", null);
+        addBatch("bill_command", TreeQueries.BATCH_COMMANDS, "billnumber", "billNo", null, null);
+        addBatch("pb_meta_filters", TreeQueries.BATCH_FILTERS, "id", "filterId", null, null);
+        addBatch("pb_meta_filter_item", TreeQueries.BATCH_FILTER_ITEMS, "filtersId", "filterId", null, null);
+        addBatch("pb_filter_solution", TreeQueries.BATCH_SOLUTIONS, "filtersId", "filterId", null, null);
+        addBatch("pb_filter_solution_common", TreeQueries.BATCH_SOLUTION_COMMONS, "solutionId", "solutionId", null, null);
+    }
+
+    private static void addBatch(String table, String select, String keyColumn, String sample, String orderColumn, Boolean entityMode) {
+        String name = "批量 " + table + (Boolean.TRUE.equals(entityMode) ? "(实体)" : "");
+        String orderBy = orderColumn == null ? null : "order".equals(orderColumn) ? "`order`" : orderColumn;
+        STATEMENTS.add(new AdvisedStatement(name, BATCH, table, TreeQueries.inSql(select, keyColumn, 1, orderBy),
+                new String[]{"tenant", sample}, new String[]{"tenant_id", keyColumn}, orderColumn, null, entityMode));
+    }
+
+    @Autowired
+    private DbConnectionManager connectionManager;
+
+    @Autowired
+    private RelationGraphRegistry relationGraphRegistry;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public IndexAdviceReport analyze(String environment, String dbName, String billNo, String ytenant_id, boolean showEntityTables, DbConfigDTO dbConfig) {
+        long start = System.currentTimeMillis();
+        try (Connection conn = connectionManager.getConnection(dbName, dbConfig)) {
+            Map<String, String> samples = new HashMap<>();
+            Map<String, Long> fanOut = new HashMap<>();
+            samples.put("tenant", ytenant_id);
+            if (billNo != null && !billNo.isEmpty()) {
+                samples.put("billNo", billNo);
+                collectSamples(conn, samples, fanOut, showEntityTables);
+            }
+
+            List<AdvisedStatement> statements = new ArrayList<>(STATEMENTS);
+            statements.addAll(graphStatements(relationGraphRegistry.getGraph(showEntityTables)));
+            Map<String, Map<String, IndexInfo>> indexes = loadIndexes(conn, dbName, statements);
+
+            List<StatementPlan> plans = new ArrayList<>();
+            Set<String> recommendations = new LinkedHashSet<>();
+            long rowsPerTree = 0;
+            for (AdvisedStatement statement : statements) {
+                StatementPlan plan = explain(conn, statement, samples);
+                adviseIndex(plan, statement, indexes.get(statement.table.toLowerCase(Locale.ROOT)));
+                // 另一种模式下不执行的语句不计入；批量构建和关联图组装每层一条语句
+                Long executions = statement.fanOut != null ? fanOut.get(statement.fanOut) : Long.valueOf(1);
+                if (statement.entityMode != null && statement.entityMode != showEntityTables) {
+                    executions = 0L;
+                }
+                plan.setExecutionsPerTree(executions != null ? executions : 1);
+                plan.setRowsPerTree(plan.getRowsExamined() * plan.getExecutionsPerTree());
+                if (TreeBuildOptions.ASSEMBLY_JAVA.equals(statement.assembly)) {
+                    rowsPerTree += plan.getRowsPerTree();
+                }
+                if (plan.getRecommendedIndex() != null && plan.getExecutionsPerTree() > 0) {
+                    recommendations.add(plan.getRecommendedIndex());
+                }
+                plans.add(plan);
+            }
+
+            IndexAdviceReport report = new IndexAdviceReport();
+            report.setDbName(dbName);
+            report.setBillNo(billNo);
+            report.setYtenant_id(ytenant_id);
+            report.setStatements(plans);
+            report.setEstimatedRowsPerTree(rowsPerTree);
+            report.setRecommendations(new ArrayList<>(recommendations));
+            report.setElapsedMillis(System.currentTimeMillis() - start);
+            return report;
+        } catch (Exception e) {
+            logger.error("索引诊断失败", e);
+            throw new RuntimeException("索引诊断失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 读取采样表单的真实数据作为语句参数，并统计构建一棵树时各语句的执行次数
+     */
+    private void collectSamples(Connection conn, Map<String, String> samples, Map<String, Long> fanOut, boolean showEntityTables) throws SQLException {
+        String tenant = samples.get("tenant");
+        String billNo = samples.get("billNo");
+
+        List<String> bill = queryRow(conn, "SELECT id, cFilterId FROM bill_base WHERE cBillNo = ? AND tenant_id = ?", billNo, tenant);
+        if (bill == null) {
+            return;
+        }
+        String billId = bill.get(0);
+        String filterId = bill.get(1);
+        samples.put("billId", billId);
+        fanOut.put("bill", 1L);
+
+        List<String> group = queryRow(conn,
+                "SELECT iTplId, iBillEntityId, id, ccode FROM billtplgroup_base WHERE iBillId = ? AND tenant_id = ? LIMIT 1", billId, tenant);
+        if (group != null) {
+            samples.put("tplId", group.get(0));
+            samples.put("entityId", group.get(1));
+            samples.put("groupId", group.get(2));
+            samples.put("ccode", group.get(3));
+        }
+        List<String> toolbarItem = queryRow(conn,
+                "SELECT toolbar, command FROM bill_toolbaritem WHERE billnumber = ? AND tenant_id = ? LIMIT 1", billNo, tenant);
+        if (toolbarItem != null) {
+            samples.put("toolbar", toolbarItem.get(0));
+            samples.put("command", toolbarItem.get(1));
+        }
+
+        long templates = queryCount(conn, "SELECT COUNT(*) FROM billtemplate_base WHERE iBillId = ? AND tenant_id = ?", billId, tenant);
+        long entities = queryCount(conn, "SELECT COUNT(*) FROM billentity_base WHERE iBillId = ? AND tenant_id = ?", billId, tenant);
+        fanOut.put("templateQueries", showEntityTables ? entities : 1L);
+        fanOut.put("templates", templates);
+        fanOut.put("entityTemplates", templates * entities);
+        fanOut.put("groups", queryCount(conn, "SELECT COUNT(*) FROM billtplgroup_base WHERE iBillId = ? AND tenant_id = ?", billId, tenant));
+        fanOut.put("toolbars", queryCount(conn, "SELECT COUNT(*) FROM bill_toolbar WHERE billnumber = ? AND tenant_id = ?", billNo, tenant));
+        fanOut.put("commands", queryCount(conn,
+                "SELECT COUNT(*) FROM bill_toolbaritem WHERE billnumber = ? AND tenant_id = ? AND command IS NOT NULL AND command <> ''", billNo, tenant));
+
+        if (filterId != null) {
+            samples.put("filterId", filterId);
+            fanOut.put("filters", 1L);
+            List<String> solution = queryRow(conn, "SELECT id FROM pb_filter_solution WHERE filtersId = ? AND tenant_id = ? LIMIT 1", filterId, tenant);
+            if (solution != null) {
+                samples.put("solutionId", solution.get(0));
+            }
+            fanOut.put("solutions", queryCount(conn, "SELECT COUNT(*) FROM pb_filter_solution WHERE filtersId = ? AND tenant_id = ?", filterId, tenant));
+        } else {
+            fanOut.put("filters", 0L);
+            fanOut.put("solutions", 0L);
+        }
+    }
+
+    /**
+     * 关联图组装的语句：根表和每条边各一条，关联条件取值按表达式对应到采样值
+     */
+    static List<AdvisedStatement> graphStatements(RelationGraph graph) {
+        String tenantColumn = graph.getTenantColumn();
+        List<AdvisedStatement> statements = new ArrayList<>();
+        String keyColumn = graph.getRoot().getKeyColumn();
+        statements.add(new AdvisedStatement("关联图 " + RelationGraph.ROOT, TreeBuildOptions.ASSEMBLY_GRAPH, graph.getRoot().getTable(),
+                GraphTreeBuilder.selectSql(tenantColumn, graph.getRoot().getTable(), graph.getSelectColumns(RelationGraph.ROOT),
+                        Collections.singletonList(keyColumn), 1, null),
+                new String[]{"tenant", "billNo"}, new String[]{tenantColumn, keyColumn}, null, null, null));
+        for (RelationEdge edge : graph.getEdges()) {
+            List<String> joinColumns = new ArrayList<>();
+            List<String> params = new ArrayList<>();
+            params.add("tenant");
+            List<String> equality = new ArrayList<>();
+            equality.add(tenantColumn);
+            for (RelationJoin join : edge.getJoin()) {
+                int dot = join.getFrom().indexOf('.');
+                String source = graph.resolveSource(edge, join.getFrom().substring(0, dot));
+                String sample = GRAPH_SAMPLES.get(source + join.getFrom().substring(dot));
+                joinColumns.add(join.getColumn());
+                params.add(sample != null ? sample : join.getFrom());
+                equality.add(join.getColumn());
+            }
+            statements.add(new AdvisedStatement("关联图 " + edge.getName(), TreeBuildOptions.ASSEMBLY_GRAPH, edge.getTable(),
+                    GraphTreeBuilder.selectSql(tenantColumn, edge.getTable(), graph.getSelectColumns(edge.getName()),
+                            joinColumns, 1, edge.getOrderBy()),
+                    params.toArray(new String[0]), equality.toArray(new String[0]), edge.getOrderBy(), null, null));
+        }
+        return statements;
+    }
+
+    /**
+     * 读取各表的现有索引，按表名、索引名保存列顺序和是否唯一
+     */
+    private Map<String, Map<String, IndexInfo>> loadIndexes(Connection conn, String dbName, List<AdvisedStatement> statements) throws SQLException {
+        Set<String> tables = new LinkedHashSet<>();
+        for (AdvisedStatement statement : statements) {
+            tables.add(statement.table);
+        }
+        StringBuilder sql = new StringBuilder("SELECT TABLE_NAME, INDEX_NAME, COLUMN_NAME, NON_UNIQUE FROM information_schema.STATISTICS")
+                .append(" WHERE TABLE_SCHEMA = ? AND TABLE_NAME IN (");
+        for (int i = 0; i < tables.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") ORDER BY TABLE_NAME, INDEX_NAME, SEQ_IN_INDEX");
+
+        Map<String, Map<String, IndexInfo>> indexes = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            stmt.setString(1, dbName);
+            int index = 2;
+            for (String table : tables) {
+                stmt.setString(index++, table);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    boolean unique = rs.getInt(4) == 0;
+                    indexes.computeIfAbsent(rs.getString(1).toLowerCase(Locale.ROOT), k -> new LinkedHashMap<>())
+                            .computeIfAbsent(rs.getString(2), k -> new IndexInfo(unique))
+                            .columns.add(rs.getString(3));
+                }
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * 执行EXPLAIN FORMAT=JSON并提取访问方式、使用的索引、扫描行数和是否文件排序
+     */
+    private StatementPlan explain(Connection conn, AdvisedStatement statement, Map<String, String> samples) {
+        StatementPlan plan = new StatementPlan();
+        plan.setStatement(statement.name);
+        plan.setAssembly(statement.assembly);
+        plan.setTableName(statement.table);
+        plan.setSql(statement.sql);
+
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN FORMAT=JSON " + statement.sql)) {
+            for (int i = 0; i < statement.params.length; i++) {
+                String value = samples.get(statement.params[i]);
+                stmt.setString(i + 1, value != null ? value : "0");
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    readPlan(objectMapper.readTree(rs.getString(1)), plan);
+                }
+            }
+        } catch (Exception e) {
+            plan.getProblems().add("EXPLAIN失败: " + e.getMessage());
+            return plan;
+        }
+
+        String accessType = plan.getAccessType();
+        if (accessType == null) {
+            plan.getProblems().add("采样参数无匹配行，执行计划仅供参考");
+        } else if ("ALL".equals(accessType)) {
+            plan.getProblems().add("全表扫描");
+        } else if ("index".equals(accessType)) {
+            plan.getProblems().add("全索引扫描");
+        }
+        if (accessType != null && plan.getKey() == null && !"const".equals(accessType) && !"system".equals(accessType)) {
+            plan.getProblems().add("未使用索引");
+        }
+        if (plan.isFilesort()) {
+            plan.getProblems().add("文件排序（ORDER BY " + statement.orderColumn + "）");
+        }
+        return plan;
+    }
+
+    /**
+     * 遍历JSON执行计划，汇总所有表访问节点
+     */
+    private void readPlan(JsonNode node, StatementPlan plan) {
+        if (node.isArray()) {
+            for (JsonNode child : node) {
+                readPlan(child, plan);
+            }
+            return;
+        }
+        if (!node.isObject()) {
+            return;
+        }
+
+        if (node.path("using_filesort").asBoolean(false)) {
+            plan.setFilesort(true);
+        }
+        JsonNode table = node.get("table");
+        // CTE和派生表的物化结果不是实际的表，其扫描在子计划中统计
+        if (table != null && table.isObject() && !table.has("materialized_from_subquery")) {
+            String accessType = table.path("access_type").asText(null);
+            if (accessType != null && (plan.getAccessType() == null
+                    || ACCESS_TYPE_RANK.indexOf(accessType) < ACCESS_TYPE_RANK.indexOf(plan.getAccessType()))) {
+                plan.setAccessType(accessType);
+            }
+            if (plan.getKey() == null && table.hasNonNull("key")) {
+                plan.setKey(table.get("key").asText());
+            }
+            JsonNode possibleKeys = table.get("possible_keys");
+            if (possibleKeys != null && possibleKeys.isArray() && plan.getPossibleKeys() == null) {
+                List<String> keys = new ArrayList<>();
+                for (JsonNode key : possibleKeys) {
+                    keys.add(key.asText());
+                }
+                plan.setPossibleKeys(keys);
+            }
+            plan.setRowsExamined(plan.getRowsExamined() + table.path("rows_examined_per_scan").asLong(0));
+        }
+
+        Iterator<JsonNode> children = node.elements();
+        while (children.hasNext()) {
+            JsonNode child = children.next();
+            if (child.isContainerNode()) {
+                readPlan(child, plan);
+            }
+        }
+    }
+
+    /**
+     * 检查现有索引是否满足语句，否则给出联合索引建议。以下情况视为满足：
+     * 计划按const、system或eq_ref访问；唯一索引（含主键）的列都是等值条件列，最多命中一行；
+     * 索引以等值条件列开头并紧跟排序列；计划按ref使用的索引前缀都是等值条件列且不需要文件排序
+     */
+    static void adviseIndex(StatementPlan plan, AdvisedStatement statement, Map<String, IndexInfo> tableIndexes) {
+        Set<String> equality = new HashSet<>();
+        for (String column : statement.equalityColumns) {
+            equality.add(column.toLowerCase(Locale.ROOT));
+        }
+
+        String accessType = plan.getAccessType();
+        if (plan.getKey() != null && ("const".equals(accessType) || "system".equals(accessType) || "eq_ref".equals(accessType))) {
+            plan.setCoveringIndex(plan.getKey());
+            return;
+        }
+        if (tableIndexes != null) {
+            for (Map.Entry<String, IndexInfo> entry : tableIndexes.entrySet()) {
+                List<String> columns = entry.getValue().columns;
+                int equalityPrefix = equalityPrefix(columns, equality);
+                if (entry.getValue().unique && equalityPrefix == columns.size()) {
+                    plan.setCoveringIndex(entry.getKey());
+                    return;
+                }
+                boolean orderCovered = statement.orderColumn == null
+                        || (columns.size() > equality.size() && columns.get(equality.size()).equalsIgnoreCase(statement.orderColumn));
+                if (equalityPrefix == equality.size() && orderCovered) {
+                    plan.setCoveringIndex(entry.getKey());
+                    return;
+                }
+            }
+            IndexInfo used = plan.getKey() != null ? tableIndexes.get(plan.getKey()) : null;
+            if (used != null && "ref".equals(accessType) && !plan.isFilesort()) {
+                int equalityPrefix = equalityPrefix(used.columns, equality);
+                if (equalityPrefix == used.columns.size() || equalityPrefix == equality.size()) {
+                    plan.setCoveringIndex(plan.getKey());
+                    return;
+                }
+            }
+        }
+
+        List<String> columns = new ArrayList<>(Arrays.asList(statement.equalityColumns));
+        if (statement.orderColumn != null) {
+            columns.add(statement.orderColumn);
+        }
+        StringBuilder name = new StringBuilder("idx_").append(statement.table);
+        StringBuilder columnList = new StringBuilder();
+        for (String column : columns) {
+            name.append('_').append(column.toLowerCase(Locale.ROOT));
+            columnList.append(columnList.length() == 0 ? "" : ", ").append('`').append(column).append('`');
+        }
+        String indexName = name.length() > 64 ? name.substring(0, 64) : name.toString();
+        plan.setRecommendedIndex(String.format("ALTER TABLE `%s` ADD INDEX `%s` (%s)", statement.table, indexName, columnList));
+        plan.getProblems().add("缺少联合索引 (" + String.join(", ", columns) + ")");
+    }
+
+    /**
+     * 索引从第一列起连续属于等值条件列的列数
+     */
+    private static int equalityPrefix(List<String> columns, Set<String> equality) {
+        int count = 0;
+        while (count < columns.size() && equality.contains(columns.get(count).toLowerCase(Locale.ROOT))) {
+            count++;
+        }
+        return count;
+    }
+
+    private List<String> queryRow(Connection conn, String sql, String... params) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                stmt.setString(i + 1, params[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                List<String> row = new ArrayList<>();
+                for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
+                    row.add(rs.getString(i));
+                }
+                return row;
+            }
+        }
+    }
+
+    private long queryCount(Connection conn, String sql, String... params) throws SQLException {
+        List<String> row = queryRow(conn, sql, params);
+        return row != null && row.get(0) != null ? Long.parseLong(row.get(0)) : 0;
+    }
+
+    /**
+     * 待诊断的语句
+     */
+    static class AdvisedStatement {
+
+        final String name;
+        final String assembly;          // 所属组装方式
+        final String table;
+        final String sql;
+        final String[] params;          // 参数对应的采样值名称
+        final String[] equalityColumns; // 等值条件列
+        final String orderColumn;       // 排序列，可为空
+        final String fanOut;            // 执行次数对应的统计项，为空表示每棵树执行一次
+        final Boolean entityMode;       // 仅在显示/不显示实体表时执行，为空表示两种模式都执行
+
+        AdvisedStatement(String name, String assembly, String table, String sql, String[] params, String[] equalityColumns,
+                         String orderColumn, String fanOut, Boolean entityMode) {
+            this.name = name;
+            this.assembly = assembly;
+            this.table = table;
+            this.sql = sql;
+            this.params = params;
+            this.equalityColumns = equalityColumns;
+            this.orderColumn = orderColumn;
+            this.fanOut = fanOut;
+            this.entityMode = entityMode;
+        }
+    }
+
+    /**
+     * 现有索引
+     */
+    static class IndexInfo {
+
+        final List<String> columns = new ArrayList<>();
+        final boolean unique;           // 唯一索引或主键
+
+        IndexInfo(boolean unique) {
+            this.unique = unique;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yonyou.dbtreeview.datasource.DbConnectionManager;
+import com.yonyou.dbtreeview.datasource.HedgedQueryExecutor;
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.dto.RowBrowseRequest;
+import com.yonyou.dbtreeview.model.TableRowsPage;
+import com.yonyou.dbtreeview.service.TableBrowseService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 表数据分页浏览服务实现
+ * 表名、过滤字段和排序字段都只能取白名单中的值，排序固定附加id保证顺序唯一
+ */
+@Service
+public class TableBrowseServiceImpl implements TableBrowseService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TableBrowseServiceImpl.class);
+    
+    /**
+     * 可浏览的表及其允许的过滤字段和排序字段（id总是允许排序）
+     */
+    private static final Map<String, TableRule> TABLE_RULES = new HashMap<>();
+    
+    static {
+        addRule("bill_base", new String[]{"id", "cBillNo"}, new String[]{"cBillNo"});
+        addRule("billentity_base", new String[]{"id", "iBillId"}, new String[]{});
+        addRule("billtemplate_base", new String[]{"id", "iBillId"}, new String[]{});
+        addRule("billtplgroup_base", new String[]{"id", "iBillId", "iTplId", "iParentId"}, new String[]{"iOrder"});
+        addRule("billitem_base", new String[]{"id", "iBillId", "iBillTplGroupId"}, new String[]{"iOrder"});
+        addRule("bill_toolbar", new String[]{"id", "billnumber", "parent"}, new String[]{});
+        addRule("bill_toolbaritem", new String[]{"id", "billnumber", "toolbar"}, new String[]{"order"});
+        addRule("bill_command", new String[]{"id", "billnumber", "name"}, new String[]{});
+        addRule("pb_meta_filters", new String[]{"id"}, new String[]{});
+        addRule("pb_meta_filter_item", new String[]{"id", "filtersId"}, new String[]{});
+        addRule("pb_filter_solution", new String[]{"id", "filtersId"}, new String[]{});
+        addRule("pb_filter_solution_common", new String[]{"id", "solutionId"}, new String[]{});
+    }
+    
+    @Autowired
+    private DbConnectionManager connectionManager;
+    
+    @Value("${app.row-browser.default-page-size:50}")
+    private int defaultPageSize;
+    
+    @Value("${app.row-browser.max-page-size:500}")
+    private int maxPageSize;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    @Override
+    public TableRowsPage browseRows(RowBrowseRequest request, DbConfigDTO dbConfig) {
+        long start = System.currentTimeMillis();
+        String tableName = request.getTableName();
+        TableRule rule = TABLE_RULES.get(tableName);
+        if (rule == null) {
+            throw new IllegalArgumentException("不支持浏览的表: " + tableName);
+        }
+        String filterColumn = emptyToNull(request.getFilterColumn());
+        if (filterColumn != null && !rule.filterColumns.contains(filterColumn)) {
+            throw new IllegalArgumentException("表 " + tableName + " 不支持按字段过滤: " + filterColumn);
+        }
+        String sortColumn = emptyToNull(request.getSortColumn());
+        if (sortColumn == null) {
+            sortColumn = "id";
+        }
+        if (!"id".equals(sortColumn) && !rule.sortColumns.contains(sortColumn)) {
+            throw new IllegalArgumentException("表 " + tableName + " 不支持按字段排序: " + sortColumn);
+        }
+        int pageSize = request.getPageSize() == null ? defaultPageSize : Math.max(1, Math.min(maxPageSize, request.getPageSize()));
+        
+        try {
+            Cursor cursor = decodeCursor(request.getCursor(), sortColumn);
+            
+            List<Object> params = new ArrayList<>();
+            StringBuilder sql = new StringBuilder("SELECT * FROM `").append(tableName).append("` WHERE tenant_id = ?");
+            params.add(request.getYtenant_id());
+            if (filterColumn != null) {
+                sql.append(" AND `").append(filterColumn).append("` = ?");
+                params.add(request.getFilterValue());
+            }
+            appendKeysetCondition(sql, params, sortColumn, cursor);
+            if ("id".equals(sortColumn)) {
+                sql.append(" ORDER BY id");
+            } else {
+                sql.append(" ORDER BY `").append(sortColumn).append("`, id");
+            }
+            // 多取一行判断是否还有下一页
+            sql.append(" LIMIT ").append(pageSize + 1);
+            
+            List<Map<String, Object>> rows;
+            try (Connection conn = connectionManager.getReadConnection(request.getDbName(), dbConfig);
+                 PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < params.size(); i++) {
+                    stmt.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rows = HedgedQueryExecutor.readRows(rs);
+                }
+            }
+            
+            TableRowsPage page = new TableRowsPage();
+            page.setTableName(tableName);
+            page.setHasMore(rows.size() > pageSize);
+            if (page.isHasMore()) {
+                rows = new ArrayList<>(rows.subList(0, pageSize));
+                Map<String, Object> last = rows.get(rows.size() - 1);
+                page.setNextCursor(encodeCursor(sortColumn, columnValue(last, sortColumn), columnValue(last, "id")));
+            }
+            page.setRows(rows);
+            page.setElapsedMillis(System.currentTimeMillis() - start);
+            return page;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("浏览表数据失败", e);
+            throw new RuntimeException("浏览表数据失败: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 追加键集条件：排序值大于游标，或排序值相同且id大于游标
+     * 升序时MySQL把NULL排在最前，游标排序值为NULL时需要单独处理
+     */
+    private void appendKeysetCondition(StringBuilder sql, List<Object> params, String sortColumn, Cursor cursor) {
+        if (cursor == null) {
+            return;
+        }
+        if ("id".equals(sortColumn)) {
+            sql.append(" AND id > ?");
+            params.add(cursor.id);
+        } else if (cursor.sortValue == null) {
+            sql.append(" AND (`").append(sortColumn).append("` IS NOT NULL OR (`")
+                    .append(sortColumn).append("` IS NULL AND id > ?))");
+            params.add(cursor.id);
+        } else {
+            sql.append(" AND (`").append(sortColumn).append("` > ? OR (`")
+                    .append(sortColumn).append("` = ? AND id > ?))");
+            params.add(cursor.sortValue);
+            params.add(cursor.sortValue);
+            params.add(cursor.id);
+        }
+    }
+    
+    private String encodeCursor(String sortColumn, String sortValue, String id) throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(Arrays.asList(sortColumn, sortValue, id));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+    }
+    
+    private Cursor decodeCursor(String token, String sortColumn) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        List<String> values;
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(token);
+            values = objectMapper.readValue(new String(json, StandardCharsets.UTF_8), new TypeReference<List<String>>() {});
+        } catch (Exception e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        if (values.size() != 3 || !sortColumn.equals(values.get(0)) || values.get(2) == null) {
+            throw new IllegalArgumentException("分页游标与排序字段不匹配");
+        }
+        return new Cursor(values.get(1), values.get(2));
+    }
+    
+    /**
+     * 按列名取值，忽略大小写差异
+     */
+    private static String columnValue(Map<String, Object> row, String column) {
+        if (row.containsKey(column)) {
+            return (String) row.get(column);
+        }
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(column)) {
+                return (String) entry.getValue();
+            }
+        }
+        return null;
+    }
+    
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+    
+    private static void addRule(String tableName, String[] filterColumns, String[] sortColumns) {
+        TABLE_RULES.put(tableName, new TableRule(filterColumns, sortColumns));
+    }
+    
+    /**
+     * 表浏览规则
+     */
+    private static class TableRule {
+        final Set<String> filterColumns;
+        final Set<String> sortColumns;
+        
+        TableRule(String[] filterColumns, String[] sortColumns) {
+            this.filterColumns = new HashSet<>(Arrays.asList(filterColumns));
+            this.sortColumns = new HashSet<>(Arrays.asList(sortColumns));
+        }
+    }
+    
+    /**
+     * 分页游标，上一页最后一行的排序值和id
+     */
+    private static class Cursor {
+        final String sortValue;
+        final String id;
+        
+        Cursor(String sortValue, String id) {
+            this.sortValue = sortValue;
+            this.id = id;
+        }
+    }
+}
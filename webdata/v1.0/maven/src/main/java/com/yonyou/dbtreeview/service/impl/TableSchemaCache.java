@@ -0,0 +1,133 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 表结构缓存
+ * 从information_schema读取列定义并按数据库缓存，用于校验表名、列名和识别大字段
+ */
+@Component
+public class TableSchemaCache {
+    
+    /**
+     * 按需加载的大字段类型
+     */
+    private static final Set<String> LARGE_TYPES = new HashSet<>(Arrays.asList(
+            "text", "mediumtext", "longtext", "blob", "mediumblob", "longblob", "json"));
+    
+    private static final Set<String> BINARY_TYPES = new HashSet<>(Arrays.asList(
+            "tinyblob", "blob", "mediumblob", "longblob", "binary", "varbinary"));
+    
+    @Value("${app.schema-cache.ttl-ms:600000}")
+    private long ttlMillis;
+    
+    private final Map<String, CachedColumns> cache = new ConcurrentHashMap<>();
+    
+    /**
+     * 获取表的列定义
+     *
+     * @param conn 数据库连接
+     * @param dbConfig 数据库配置
+     * @param dbName 数据库名称
+     * @param tableName 表名
+     * @return 按定义顺序排列的列，表不存在时返回空列表
+     */
+    public List<ColumnInfo> getColumns(Connection conn, DbConfigDTO dbConfig, String dbName, String tableName) throws SQLException {
+        String key = dbConfig.getHost() + ":" + dbConfig.getPort() + "/" + dbName + "." + tableName;
+        CachedColumns cached = cache.get(key);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt < ttlMillis) {
+            return cached.columns;
+        }
+        
+        List<ColumnInfo> columns = new ArrayList<>();
+        String sql = "SELECT COLUMN_NAME, DATA_TYPE FROM information_schema.COLUMNS "
+                + "WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ? ORDER BY ORDINAL_POSITION";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, dbName);
+            stmt.setString(2, tableName);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    columns.add(new ColumnInfo(rs.getString("COLUMN_NAME"), rs.getString("DATA_TYPE").toLowerCase()));
+                }
+            }
+        }
+        columns = Collections.unmodifiableList(columns);
+        cache.put(key, new CachedColumns(columns));
+        return columns;
+    }
+    
+    /**
+     * 查找列定义，忽略大小写
+     *
+     * @param columns 列定义
+     * @param columnName 列名
+     * @return 列定义，不存在时返回null
+     */
+    public static ColumnInfo findColumn(List<ColumnInfo> columns, String columnName) {
+        for (ColumnInfo column : columns) {
+            if (column.getName().equalsIgnoreCase(columnName)) {
+                return column;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 列定义
+     */
+    public static class ColumnInfo {
+        private final String name;
+        private final String dataType;
+        
+        ColumnInfo(String name, String dataType) {
+            this.name = name;
+            this.dataType = dataType;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public String getDataType() {
+            return dataType;
+        }
+        
+        /**
+         * 是否为默认不加载的大字段（TEXT/BLOB/JSON）
+         */
+        public boolean isLarge() {
+            return LARGE_TYPES.contains(dataType);
+        }
+        
+        /**
+         * 是否为二进制类型
+         */
+        public boolean isBinary() {
+            return BINARY_TYPES.contains(dataType);
+        }
+    }
+    
+    private static class CachedColumns {
+        final List<ColumnInfo> columns;
+        final long loadedAt = System.currentTimeMillis();
+        
+        CachedColumns(List<ColumnInfo> columns) {
+            this.columns = columns;
+        }
+    }
+}
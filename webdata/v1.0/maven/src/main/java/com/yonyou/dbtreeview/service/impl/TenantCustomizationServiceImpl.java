@@ -0,0 +1,371 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import com.yonyou.dbtreeview.datasource.DbConnectionManager;
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import com.yonyou.dbtreeview.model.CustomizationDiff;
+import com.yonyou.dbtreeview.model.TenantCustomization;
+import com.yonyou.dbtreeview.model.TenantCustomizationReport;
+import com.yonyou.dbtreeview.service.TenantCustomizationService;
+import com.yonyou.dbtreeview.trace.QueryTrace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 租户定制分析服务实现
+ * 先查出各租户的表单ID，再按表单ID分块对分组、字段做IN查询，工具栏按表单编码一次查出全部租户；
+ * 各查询在有界线程池中并行，每个任务从连接池取一个只读连接
+ */
+@Service
+public class TenantCustomizationServiceImpl implements TenantCustomizationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TenantCustomizationServiceImpl.class);
+
+    private static final String BILL_SQL = "SELECT tenant_id, id FROM bill_base WHERE cBillNo = ?";
+
+    private static final String GROUP_SQL = "SELECT g.tenant_id, g.iBillId, t.cName, g.ccode, g.cName, g.iOrder, p.ccode"
+            + " FROM billtplgroup_base g"
+            + " LEFT JOIN billtemplate_base t ON t.id = g.iTplId AND t.tenant_id = g.tenant_id"
+            + " LEFT JOIN billtplgroup_base p ON p.id = g.iParentId AND p.tenant_id = g.tenant_id"
+            + " WHERE g.iBillId IN (%s)";
+
+    private static final String ITEM_SQL = "SELECT i.tenant_id, i.iBillId, t.cName, g.ccode, i.cName, i.cShowCaption, i.iOrder"
+            + " FROM billitem_base i"
+            + " JOIN billtplgroup_base g ON g.id = i.iBillTplGroupId AND g.tenant_id = i.tenant_id"
+            + " LEFT JOIN billtemplate_base t ON t.id = g.iTplId AND t.tenant_id = g.tenant_id"
+            + " WHERE i.iBillId IN (%s)";
+
+    private static final String TOOLBAR_SQL = "SELECT tenant_id, parent, name FROM bill_toolbar WHERE billnumber = ?";
+
+    private static final String TOOLBAR_ITEM_SQL =
+            "SELECT tenant_id, toolbar, name, text, command, `order` FROM bill_toolbaritem WHERE billnumber = ?";
+
+    @Autowired
+    private DbConnectionManager connectionManager;
+
+    @Value("${app.fanout.base-tenant-id:0}")
+    private String baseTenantId;
+
+    @Value("${app.fanout.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.fanout.in-size:500}")
+    private int inSize;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread thread = new Thread(r, "tenant-fanout-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 按业务键保存的行，值为参与比较的字段
+     */
+    private static class Rows {
+        final Map<String, Map<String, Map<String, String>>> byTenant = new ConcurrentHashMap<>();
+
+        void put(String tenantId, String key, Map<String, String> fields) {
+            Map<String, Map<String, String>> rows = byTenant.computeIfAbsent(tenantId, k -> Collections.synchronizedMap(new TreeMap<>()));
+            rows.put(key, fields);
+        }
+
+        Map<String, Map<String, String>> of(String tenantId) {
+            Map<String, Map<String, String>> rows = byTenant.get(tenantId);
+            return rows != null ? rows : Collections.emptyMap();
+        }
+    }
+
+    @Override
+    public TenantCustomizationReport findCustomizations(String environment, String dbName, String billNo, DbConfigDTO dbConfig) {
+        long start = System.currentTimeMillis();
+        try {
+            Map<String, String> billIds = loadBillIds(dbName, billNo, dbConfig);
+            if (!billIds.containsKey(baseTenantId)) {
+                throw new IllegalArgumentException("基础租户 " + baseTenantId + " 下不存在表单: " + billNo);
+            }
+
+            Rows groups = new Rows();
+            Rows items = new Rows();
+            Rows toolbars = new Rows();
+            Rows toolbarItems = new Rows();
+
+            List<Future<?>> futures = new ArrayList<>();
+            List<String> ids = new ArrayList<>(new LinkedHashSet<>(billIds.values()));
+            for (int from = 0; from < ids.size(); from += inSize) {
+                List<String> chunk = ids.subList(from, Math.min(ids.size(), from + inSize));
+                futures.add(submit(() -> loadGroups(dbName, dbConfig, chunk, billIds, groups)));
+                futures.add(submit(() -> loadItems(dbName, dbConfig, chunk, billIds, items)));
+            }
+            futures.add(submit(() -> loadToolbars(dbName, dbConfig, billNo, billIds, toolbars)));
+            futures.add(submit(() -> loadToolbarItems(dbName, dbConfig, billNo, billIds, toolbarItems)));
+            awaitAll(futures);
+
+            List<TenantCustomization> customized = new ArrayList<>();
+            int identical = 0;
+            for (Map.Entry<String, String> entry : billIds.entrySet()) {
+                String tenantId = entry.getKey();
+                if (tenantId.equals(baseTenantId)) {
+                    continue;
+                }
+                TenantCustomization tenant = new TenantCustomization();
+                tenant.setTenantId(tenantId);
+                tenant.setBillId(entry.getValue());
+                tenant.setGroups(diff(groups.of(baseTenantId), groups.of(tenantId)));
+                tenant.setItems(diff(items.of(baseTenantId), items.of(tenantId)));
+                tenant.setToolbars(diff(toolbars.of(baseTenantId), toolbars.of(tenantId)));
+                tenant.setToolbarItems(diff(toolbarItems.of(baseTenantId), toolbarItems.of(tenantId)));
+                tenant.setDifferenceCount(tenant.getGroups().getCount() + tenant.getItems().getCount()
+                        + tenant.getToolbars().getCount() + tenant.getToolbarItems().getCount());
+                if (tenant.getDifferenceCount() > 0) {
+                    customized.add(tenant);
+                } else {
+                    identical++;
+                }
+            }
+            customized.sort((a, b) -> Integer.compare(b.getDifferenceCount(), a.getDifferenceCount()));
+
+            TenantCustomizationReport report = new TenantCustomizationReport();
+            report.setDbName(dbName);
+            report.setBillNo(billNo);
+            report.setBaseTenantId(baseTenantId);
+            report.setTenantCount(billIds.size() - 1);
+            report.setIdenticalTenantCount(identical);
+            report.setTenants(customized);
+            report.setQueryCount(futures.size() + 1);
+            report.setElapsedMillis(System.currentTimeMillis() - start);
+            logger.info("表单 {} 的租户定制分析完成: 租户数={}, 有差异={}, 查询数={}, 耗时={}ms",
+                    billNo, report.getTenantCount(), customized.size(), report.getQueryCount(), report.getElapsedMillis());
+            return report;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("分析租户定制失败", e);
+            throw new RuntimeException("分析租户定制失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 各租户的表单ID，基础租户排在最前
+     */
+    private Map<String, String> loadBillIds(String dbName, String billNo, DbConfigDTO dbConfig) throws SQLException {
+        Map<String, String> billIds = new LinkedHashMap<>();
+        Map<String, String> others = new TreeMap<>();
+        try (Connection conn = connectionManager.getReadConnection(dbName, dbConfig);
+             PreparedStatement stmt = conn.prepareStatement(BILL_SQL)) {
+            stmt.setString(1, billNo);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String tenantId = rs.getString(1);
+                    if (baseTenantId.equals(tenantId)) {
+                        billIds.put(tenantId, rs.getString(2));
+                    } else if (tenantId != null) {
+                        others.put(tenantId, rs.getString(2));
+                    }
+                }
+            }
+        }
+        billIds.putAll(others);
+        return billIds;
+    }
+
+    private Void loadGroups(String dbName, DbConfigDTO dbConfig, List<String> chunk, Map<String, String> billIds, Rows groups) throws SQLException {
+        String sql = String.format(GROUP_SQL, placeholders(chunk.size()));
+        try (Connection conn = connectionManager.getReadConnection(dbName, dbConfig);
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            bind(stmt, chunk);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String tenantId = rs.getString(1);
+                    if (!ownsBill(billIds, tenantId, rs.getString(2))) {
+                        continue;
+                    }
+                    Map<String, String> fields = new LinkedHashMap<>();
+                    fields.put("cName", rs.getString(5));
+                    fields.put("iOrder", rs.getString(6));
+                    fields.put("parent", rs.getString(7));
+                    groups.put(tenantId, rs.getString(3) + "/" + rs.getString(4), fields);
+                }
+            }
+        }
+        return null;
+    }
+
+    private Void loadItems(String dbName, DbConfigDTO dbConfig, List<String> chunk, Map<String, String> billIds, Rows items) throws SQLException {
+        String sql = String.format(ITEM_SQL, placeholders(chunk.size()));
+        try (Connection conn = connectionManager.getReadConnection(dbName, dbConfig);
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            bind(stmt, chunk);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String tenantId = rs.getString(1);
+                    if (!ownsBill(billIds, tenantId, rs.getString(2))) {
+                        continue;
+                    }
+                    Map<String, String> fields = new LinkedHashMap<>();
+                    fields.put("cShowCaption", rs.getString(6));
+                    fields.put("iOrder", rs.getString(7));
+                    items.put(tenantId, rs.getString(3) + "/" + rs.getString(4) + "/" + rs.getString(5), fields);
+                }
+            }
+        }
+        return null;
+    }
+
+    private Void loadToolbars(String dbName, DbConfigDTO dbConfig, String billNo, Map<String, String> billIds, Rows toolbars) throws SQLException {
+        try (Connection conn = connectionManager.getReadConnection(dbName, dbConfig);
+             PreparedStatement stmt = conn.prepareStatement(TOOLBAR_SQL)) {
+            stmt.setString(1, billNo);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String tenantId = rs.getString(1);
+                    if (billIds.containsKey(tenantId)) {
+                        toolbars.put(tenantId, rs.getString(2) + "/" + rs.getString(3), Collections.emptyMap());
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private Void loadToolbarItems(String dbName, DbConfigDTO dbConfig, String billNo, Map<String, String> billIds, Rows toolbarItems) throws SQLException {
+        try (Connection conn = connectionManager.getReadConnection(dbName, dbConfig);
+             PreparedStatement stmt = conn.prepareStatement(TOOLBAR_ITEM_SQL)) {
+            stmt.setString(1, billNo);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String tenantId = rs.getString(1);
+                    if (!billIds.containsKey(tenantId)) {
+                        continue;
+                    }
+                    Map<String, String> fields = new LinkedHashMap<>();
+                    fields.put("text", rs.getString(4));
+                    fields.put("command", rs.getString(5));
+                    fields.put("order", rs.getString(6));
+                    toolbarItems.put(tenantId, rs.getString(2) + "/" + rs.getString(3), fields);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 同一表单ID可能被多个租户共用，只保留属于该租户表单的行
+     */
+    private boolean ownsBill(Map<String, String> billIds, String tenantId, String billId) {
+        return tenantId != null && Objects.equals(billIds.get(tenantId), billId);
+    }
+
+    /**
+     * 比较租户与基础租户的行
+     */
+    private CustomizationDiff diff(Map<String, Map<String, String>> base, Map<String, Map<String, String>> tenant) {
+        CustomizationDiff diff = new CustomizationDiff();
+        for (Map.Entry<String, Map<String, String>> entry : base.entrySet()) {
+            Map<String, String> tenantFields = tenant.get(entry.getKey());
+            if (tenantFields == null) {
+                diff.getRemoved().add(entry.getKey());
+                continue;
+            }
+            List<String> changes = new ArrayList<>();
+            for (Map.Entry<String, String> field : entry.getValue().entrySet()) {
+                String tenantValue = tenantFields.get(field.getKey());
+                if (!Objects.equals(field.getValue(), tenantValue)) {
+                    changes.add(field.getKey() + ": " + field.getValue() + " -> " + tenantValue);
+                }
+            }
+            if (!changes.isEmpty()) {
+                diff.getChanged().add(entry.getKey() + " {" + String.join(", ", changes) + "}");
+            }
+        }
+        for (String key : tenant.keySet()) {
+            if (!base.containsKey(key)) {
+                diff.getAdded().add(key);
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * 提交查询任务，任务线程沿用当前请求的SQL追踪
+     */
+    private Future<?> submit(Callable<Void> task) {
+        QueryTrace trace = QueryTrace.current();
+        return executor.submit(() -> {
+            QueryTrace previous = QueryTrace.attach(trace);
+            try {
+                return task.call();
+            } finally {
+                QueryTrace.attach(previous);
+            }
+        });
+    }
+
+    private void awaitAll(List<Future<?>> futures) throws Exception {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } catch (InterruptedException e) {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    private String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
+    private void bind(PreparedStatement stmt, List<String> values) throws SQLException {
+        for (int i = 0; i < values.size(); i++) {
+            stmt.setString(i + 1, values.get(i));
+        }
+    }
+}
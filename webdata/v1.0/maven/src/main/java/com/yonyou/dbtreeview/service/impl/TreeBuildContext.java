@@ -0,0 +1,209 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import com.yonyou.dbtreeview.datasource.HedgedQueryExecutor;
+import com.yonyou.dbtreeview.model.DbTreeNode;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 树构建上下文
+ * 记录单次树构建的截止时间、查询数和行数预算，预算耗尽后停止向下展开，
+ * 未展开的节点标记为truncated，便于之后按需展开。
+ * 按关联图构建时同一波次的边在多个线程中并行查询，预算的申请和截断标记需加锁。
+ * 批量构建时多个表单共用一份预算，另按表单记录截断情况和查询数、行数：
+ * 一条集合查询计入其参数涉及的每个表单，一行计入它所属的表单
+ */
+public class TreeBuildContext {
+    
+    /**
+     * 截断标记属性名
+     */
+    public static final String TRUNCATED = "truncated";
+    
+    private final long startNanos;
+    private final long deadlineNanos;
+    private final int maxQueries;
+    private final int maxRows;
+    
+    private int queryCount;
+    private int rowCount;
+    private boolean truncated;
+    private final Set<String> truncatedBills = new HashSet<>();
+    private final Map<String, int[]> billCounts = new HashMap<>();
+    private HedgedQueryExecutor.ConnectionSource hedgeSource;
+    private boolean sqlAssembly;
+    
+    public TreeBuildContext(long timeBudgetMillis, int maxQueries, int maxRows) {
+        this.startNanos = System.nanoTime();
+        this.deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+        this.maxQueries = maxQueries;
+        this.maxRows = maxRows;
+    }
+    
+    /**
+     * 预算是否已耗尽
+     */
+    public synchronized boolean isExhausted() {
+        return queryCount >= maxQueries || rowCount >= maxRows || System.nanoTime() >= deadlineNanos;
+    }
+    
+    /**
+     * 申请执行一次查询
+     *
+     * @return 预算耗尽时返回false
+     */
+    public synchronized boolean tryQuery() {
+        if (isExhausted()) {
+            return false;
+        }
+        queryCount++;
+        return true;
+    }
+    
+    /**
+     * 申请读取一行
+     *
+     * @return 预算耗尽时返回false
+     */
+    public synchronized boolean tryRow() {
+        if (isExhausted()) {
+            return false;
+        }
+        rowCount++;
+        return true;
+    }
+    
+    /**
+     * 把语句超时收紧到剩余时间以内
+     *
+     * @param stmt 语句
+     */
+    public void applyTimeout(Statement stmt) throws SQLException {
+        int remainingSeconds = getRemainingSeconds();
+        int current = stmt.getQueryTimeout();
+        if (current == 0 || remainingSeconds < current) {
+            stmt.setQueryTimeout(remainingSeconds);
+        }
+    }
+    
+    /**
+     * 剩余时间（秒），至少为1
+     */
+    public int getRemainingSeconds() {
+        return (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(deadlineNanos - System.nanoTime()) + 1);
+    }
+    
+    /**
+     * 启用对冲查询
+     *
+     * @param hedgeSource 对冲查询使用的连接来源
+     */
+    public void enableHedging(HedgedQueryExecutor.ConnectionSource hedgeSource) {
+        this.hedgeSource = hedgeSource;
+    }
+    
+    public boolean isHedging() {
+        return hedgeSource != null;
+    }
+    
+    public HedgedQueryExecutor.ConnectionSource getHedgeSource() {
+        return hedgeSource;
+    }
+    
+    /**
+     * 是否由数据库端组装分组层级
+     */
+    public boolean isSqlAssembly() {
+        return sqlAssembly;
+    }
+    
+    public void setSqlAssembly(boolean sqlAssembly) {
+        this.sqlAssembly = sqlAssembly;
+    }
+    
+    /**
+     * 标记节点因预算耗尽未完全展开
+     *
+     * @param node 节点
+     */
+    public synchronized void markTruncated(DbTreeNode node) {
+        node.setAttribute(TRUNCATED, true);
+        this.truncated = true;
+    }
+    
+    /**
+     * 标记本次构建未完成，用于还没有节点可标记时（如根节点查询超时）
+     */
+    public synchronized void markTruncated() {
+        this.truncated = true;
+    }
+    
+    /**
+     * 标记表单的关联树未完整构建，表单的根节点可能还不存在
+     *
+     * @param billNo 表单编码
+     */
+    public synchronized void markBillTruncated(String billNo) {
+        truncatedBills.add(billNo);
+        this.truncated = true;
+    }
+    
+    public synchronized boolean isBillTruncated(String billNo) {
+        return truncatedBills.contains(billNo);
+    }
+    
+    /**
+     * 记录一次查询服务的表单
+     *
+     * @param billNos 查询参数涉及的表单
+     */
+    public synchronized void countBillQuery(Collection<String> billNos) {
+        for (String billNo : billNos) {
+            billCounts.computeIfAbsent(billNo, k -> new int[2])[0]++;
+        }
+    }
+    
+    /**
+     * 记录一行所属的表单
+     *
+     * @param billNos 该行所属的表单，同一行可能被多个表单共用
+     */
+    public synchronized void countBillRow(Collection<String> billNos) {
+        for (String billNo : billNos) {
+            billCounts.computeIfAbsent(billNo, k -> new int[2])[1]++;
+        }
+    }
+    
+    public synchronized int getBillQueryCount(String billNo) {
+        int[] counts = billCounts.get(billNo);
+        return counts == null ? 0 : counts[0];
+    }
+    
+    public synchronized int getBillRowCount(String billNo) {
+        int[] counts = billCounts.get(billNo);
+        return counts == null ? 0 : counts[1];
+    }
+    
+    public synchronized boolean isTruncated() {
+        return truncated;
+    }
+    
+    public synchronized int getQueryCount() {
+        return queryCount;
+    }
+    
+    public synchronized int getRowCount() {
+        return rowCount;
+    }
+    
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,92 @@
+package com.yonyou.dbtreeview.service.impl;
+
+/**
+ * 关联树构建执行的SQL
+ * 逐表单构建、数据库端组装和批量构建共用，索引诊断按同一份语句执行EXPLAIN，修改语句时诊断自动同步
+ */
+final class TreeQueries {
+
+    static final String BILL = "SELECT id, cBillNo, cName, cFilterId FROM bill_base WHERE cBillNo = ? AND tenant_id = ?";
+    static final String ENTITIES = "SELECT id, cName FROM billentity_base WHERE iBillId = ? AND tenant_id = ?";
+    static final String TEMPLATES = "SELECT id, cName FROM billtemplate_base WHERE iBillId = ? AND tenant_id = ?";
+    static final String GROUPS = "SELECT id, ccode, cName, iParentId FROM billtplgroup_base WHERE iBillId = ? AND iTplId = ? AND tenant_id = ? ORDER BY iOrder";
+    static final String ENTITY_GROUPS = "SELECT id, ccode, cName, iParentId FROM billtplgroup_base WHERE iBillId = ? AND iTplId = ? AND iBillEntityId = ? AND tenant_id = ? ORDER BY iOrder";
+    static final String ITEMS = "SELECT * FROM billitem_base WHERE iBillId = ? AND iBillTplGroupId = ? AND tenant_id = ? ORDER BY iOrder";
+    static final String TOOLBARS = "SELECT id, name FROM bill_toolbar WHERE billnumber = ? AND parent = ? AND tenant_id = ?";
+    static final String TOOLBAR_ITEMS = "SELECT id, name, command,text FROM bill_toolbaritem WHERE billnumber = ? AND toolbar = ? AND tenant_id = ? ORDER BY `order`";
+    static final String COMMANDS = "SELECT id, name FROM bill_command WHERE billnumber = ? AND name = ? AND tenant_id = ?";
+    static final String FILTERS = "SELECT id, filterDesc FROM pb_meta_filters WHERE id = ? AND tenant_id = ?";
+    static final String FILTER_ITEMS = "SELECT id, itemTitle FROM pb_meta_filter_item WHERE filtersId = ? AND tenant_id = ?";
+    static final String SOLUTIONS = "SELECT id, solutionName FROM pb_filter_solution WHERE filtersId = ? AND tenant_id = ?";
+    static final String SOLUTION_COMMONS = "SELECT id, itemTitle FROM pb_filter_solution_common WHERE solutionId = ? AND tenant_id = ?";
+
+    /**
+     * 批量构建各层的查询列，由inSql补上租户和IN条件
+     */
+    static final String BATCH_BILLS = "SELECT id, cBillNo, cName, cFilterId FROM bill_base";
+    static final String BATCH_ENTITIES = "SELECT id, cName, iBillId FROM billentity_base";
+    static final String BATCH_TEMPLATES = "SELECT id, cName, iBillId FROM billtemplate_base";
+    static final String BATCH_GROUPS = "SELECT id, ccode, cName, iParentId, iBillId, iTplId FROM billtplgroup_base";
+    static final String BATCH_ENTITY_GROUPS = "SELECT id, ccode, cName, iParentId, iBillId, iTplId, iBillEntityId FROM billtplgroup_base";
+    static final String BATCH_ITEMS = "SELECT id, cName, cShowCaption, iBillId, iBillTplGroupId FROM billitem_base";
+    static final String BATCH_TOOLBARS = "SELECT id, name, billnumber, parent FROM bill_toolbar";
+    static final String BATCH_TOOLBAR_ITEMS = "SELECT id, name, command, text, billnumber, toolbar FROM bill_toolbaritem";
+    static final String BATCH_COMMANDS = "SELECT id, name, billnumber FROM bill_command";
+    static final String BATCH_FILTERS = "SELECT id, filterDesc FROM pb_meta_filters";
+    static final String BATCH_FILTER_ITEMS = "SELECT id, itemTitle, filtersId FROM pb_meta_filter_item";
+    static final String BATCH_SOLUTIONS = "SELECT id, solutionName, filtersId FROM pb_filter_solution";
+    static final String BATCH_SOLUTION_COMMONS = "SELECT id, itemTitle, solutionId FROM pb_filter_solution_common";
+
+    private TreeQueries() {
+    }
+
+    /**
+     * 批量构建的一层查询：按租户和IN条件过滤，参数依次为租户ID和count个IN取值
+     *
+     * @param select BATCH_*查询列
+     * @param keyColumn IN条件字段
+     * @param count IN取值个数
+     * @param orderBy 排序字段，可为空
+     */
+    static String inSql(String select, String keyColumn, int count, String orderBy) {
+        StringBuilder sql = new StringBuilder(select)
+                .append(" WHERE tenant_id = ? AND ").append(keyColumn).append(" IN (");
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        if (orderBy != null) {
+            sql.append(" ORDER BY ").append(orderBy);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * 数据库端组装一个模板的分组层级和字段，每个分组带层级深度depth和原始iOrder，由调用方按数值排序
+     * 参数依次为iBillId、iTplId、（显示实体表时）iBillEntityId、租户ID、iBillId、租户ID
+     */
+    static String groupTreeSql(boolean showEntityTable) {
+        StringBuilder sqlBuilder = new StringBuilder();
+        sqlBuilder.append("WITH RECURSIVE grp AS (")
+                .append("SELECT id, ccode, cName, iParentId, iOrder FROM billtplgroup_base WHERE iBillId = ? AND iTplId = ?");
+        if (showEntityTable) {
+            sqlBuilder.append(" AND iBillEntityId = ?");
+        }
+        sqlBuilder.append(" AND tenant_id = ?")
+                .append("), tree AS (")
+                // 根分组：没有父分组，或父分组不在本模板内
+                .append("SELECT g.id, 0 AS depth")
+                .append(" FROM grp g WHERE g.iParentId IS NULL OR g.iParentId = '' OR NOT EXISTS (SELECT 1 FROM grp p WHERE p.id = g.iParentId)")
+                .append(" UNION ALL ")
+                .append("SELECT c.id, t.depth + 1")
+                .append(" FROM grp c JOIN tree t ON c.iParentId = t.id WHERE t.depth < 64")
+                .append(") ")
+                .append("SELECT JSON_ARRAYAGG(JSON_OBJECT(")
+                .append("'id', CAST(g.id AS CHAR), 'ccode', g.ccode, 'cName', g.cName, 'iParentId', CAST(g.iParentId AS CHAR), ")
+                .append("'depth', t.depth, 'iOrder', g.iOrder, ")
+                .append("'items', (SELECT JSON_ARRAYAGG(JSON_OBJECT('id', CAST(i.id AS CHAR), 'cName', i.cName, 'cShowCaption', i.cShowCaption, 'iOrder', i.iOrder))")
+                .append(" FROM billitem_base i WHERE i.iBillId = ? AND i.iBillTplGroupId = g.id AND i.tenant_id = ?)")
+                .append(")) FROM tree t JOIN grp g ON g.id = t.id");
+        return sqlBuilder.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package com.yonyou.dbtreeview.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR事件：从连接池获取连接（含熔断、限流检查）
+ */
+@Name("com.yonyou.dbtreeview.ConnectionAcquire")
+@Label("获取连接")
+@Category("DbTreeView")
+@StackTrace(false)
+public class ConnectionAcquireEvent extends jdk.jfr.Event {
+
+    @Label("端点")
+    private String endpoint;
+
+    @Label("成功")
+    private boolean success;
+
+    public ConnectionAcquireEvent(String endpoint) {
+        this.endpoint = endpoint;
+        begin();
+    }
+
+    /**
+     * 结束并提交
+     *
+     * @param success 是否获取成功
+     */
+    public void finish(boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.success = success;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.yonyou.dbtreeview.trace;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JFR录制管理
+ * 同一时间只保留一个录制，录制期间可多次导出快照；
+ * 服务层的关联树构建、层级查询、获取连接和序列化事件都归入DbTreeView分类
+ */
+@Component
+public class FlightRecordingManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecordingManager.class);
+
+    @Value("${app.jfr.max-age-seconds:600}")
+    private long defaultMaxAgeSeconds;
+
+    @Value("${app.jfr.max-size-mb:100}")
+    private long maxSizeMb;
+
+    private Recording recording;
+
+    /**
+     * 开始录制，已有录制时先关闭
+     *
+     * @param settings JFR预置配置（default或profile），为空时使用default
+     * @param maxAgeSeconds 保留最近多少秒的数据，为空时使用默认值
+     * @return 录制状态
+     */
+    public synchronized Map<String, Object> start(String settings, Long maxAgeSeconds) throws IOException, ParseException {
+        String name = settings == null || settings.isEmpty() ? "default" : settings;
+        if (!"default".equals(name) && !"profile".equals(name)) {
+            throw new IllegalArgumentException("不支持的录制配置: " + name);
+        }
+        Configuration configuration = Configuration.getConfiguration(name);
+        closeRecording();
+
+        Recording started = new Recording(configuration);
+        started.setName("dbtreeview");
+        started.setToDisk(true);
+        started.setMaxAge(Duration.ofSeconds(maxAgeSeconds != null && maxAgeSeconds > 0 ? maxAgeSeconds : defaultMaxAgeSeconds));
+        started.setMaxSize(maxSizeMb * 1024 * 1024);
+        // 自定义事件默认阈值为0，全部记录
+        started.enable(TreeBuildEvent.class);
+        started.enable(TableQueryEvent.class);
+        started.enable(ConnectionAcquireEvent.class);
+        started.enable(SerializationEvent.class);
+        started.start();
+        recording = started;
+        logger.info("JFR录制已开始: 配置={}, 保留={}s", name, started.getMaxAge().getSeconds());
+        return getStatus();
+    }
+
+    /**
+     * 把当前录制导出到临时文件，录制继续进行
+     *
+     * @return 临时文件，调用方用完后删除
+     */
+    public synchronized Path dump() throws IOException {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            throw new IllegalStateException("没有进行中的JFR录制");
+        }
+        Path file = Files.createTempFile("dbtreeview-", ".jfr");
+        try {
+            recording.dump(file);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+
+    /**
+     * 停止并丢弃当前录制
+     *
+     * @return 录制状态
+     */
+    public synchronized Map<String, Object> stop() {
+        if (recording == null) {
+            throw new IllegalStateException("没有进行中的JFR录制");
+        }
+        closeRecording();
+        logger.info("JFR录制已停止");
+        return getStatus();
+    }
+
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", recording != null ? recording.getState().name() : "NONE");
+        if (recording != null) {
+            status.put("startTime", recording.getStartTime() != null ? recording.getStartTime().toEpochMilli() : null);
+            status.put("maxAgeSeconds", recording.getMaxAge() != null ? recording.getMaxAge().getSeconds() : null);
+            status.put("maxSizeBytes", recording.getMaxSize());
+            status.put("sizeBytes", recording.getSize());
+        }
+        return status;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        closeRecording();
+    }
+
+    private void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
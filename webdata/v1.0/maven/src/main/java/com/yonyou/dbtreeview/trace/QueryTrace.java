@@ -0,0 +1,151 @@
+package com.yonyou.dbtreeview.trace;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个请求的SQL追踪
+ * 请求线程通过ThreadLocal持有，受保护连接执行语句时记录SQL、绑定参数、耗时和行数。
+ * 语句记录保存在固定大小的环形缓冲中，超出后覆盖最早的记录
+ */
+public class QueryTrace {
+
+    private static final ThreadLocal<QueryTrace> CURRENT = new ThreadLocal<>();
+
+    private final String traceId;
+    private final String method;
+    private final String uri;
+    private final long startMillis;
+    private final long startNanos;
+    private final SqlRecord[] records;
+
+    private int next;
+    private long statementCount;
+    private long sqlNanos;
+    private long durationMillis;
+    private int status;
+
+    public QueryTrace(String traceId, String method, String uri, int maxStatements) {
+        this.traceId = traceId;
+        this.method = method;
+        this.uri = uri;
+        this.startMillis = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        this.records = new SqlRecord[Math.max(1, maxStatements)];
+    }
+
+    /**
+     * 当前线程的追踪，未追踪时为空
+     */
+    public static QueryTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 把追踪绑定到当前线程
+     *
+     * @param trace 追踪，可为空
+     * @return 之前绑定的追踪，用于恢复
+     */
+    public static QueryTrace attach(QueryTrace trace) {
+        QueryTrace previous = CURRENT.get();
+        if (trace != null) {
+            CURRENT.set(trace);
+        } else {
+            CURRENT.remove();
+        }
+        return previous;
+    }
+
+    /**
+     * 开始记录一条语句
+     *
+     * @param sql SQL
+     * @param params 绑定参数（按序号），可为空
+     * @return 语句记录，执行结束后调用complete
+     */
+    public synchronized SqlRecord begin(String sql, Object[] params) {
+        SqlRecord record = new SqlRecord(sql, params, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                Thread.currentThread().getName());
+        records[next] = record;
+        next = (next + 1) % records.length;
+        statementCount++;
+        return record;
+    }
+
+    /**
+     * 结束一条语句的记录
+     *
+     * @param record 语句记录
+     * @param durationNanos 耗时（纳秒）
+     * @param rows 更新行数，查询语句为-1，由结果集读取时累计
+     * @param error 错误信息，成功时为空
+     */
+    public void complete(SqlRecord record, long durationNanos, long rows, String error) {
+        record.finish(durationNanos, rows, error);
+        synchronized (this) {
+            sqlNanos += durationNanos;
+        }
+    }
+
+    /**
+     * 结束请求
+     *
+     * @param status HTTP状态码
+     */
+    public void finish(int status) {
+        this.status = status;
+        this.durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * 按执行顺序返回保留的语句记录
+     */
+    public synchronized List<SqlRecord> getRecords() {
+        List<SqlRecord> result = new ArrayList<>();
+        int size = (int) Math.min(statementCount, records.length);
+        int start = statementCount > records.length ? next : 0;
+        for (int i = 0; i < size; i++) {
+            result.add(records[(start + i) % records.length]);
+        }
+        return result;
+    }
+
+    /**
+     * 转为可序列化的摘要
+     *
+     * @param includeStatements 是否包含语句明细
+     * @return 摘要
+     */
+    public synchronized Map<String, Object> toMap(boolean includeStatements) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("traceId", traceId);
+        map.put("method", method);
+        map.put("uri", uri);
+        map.put("status", status);
+        map.put("startTime", startMillis);
+        map.put("durationMillis", durationMillis);
+        map.put("statementCount", statementCount);
+        map.put("sqlMillis", TimeUnit.NANOSECONDS.toMillis(sqlNanos));
+        if (includeStatements) {
+            map.put("droppedStatements", Math.max(0, statementCount - records.length));
+            List<Map<String, Object>> statements = new ArrayList<>();
+            for (SqlRecord record : getRecords()) {
+                statements.add(record.toMap());
+            }
+            map.put("statements", statements);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,49 @@
+package com.yonyou.dbtreeview.trace;
+
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 为每个API请求分配追踪ID并绑定SQL追踪
+ * 追踪ID取自请求头X-Trace-Id，没有时生成，并通过同名响应头返回
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class QueryTraceFilter extends OncePerRequestFilter {
+
+    public static final String TRACE_HEADER = "X-Trace-Id";
+
+    @Autowired
+    private QueryTraceRecorder recorder;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !recorder.isEnabled() || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryTrace trace = recorder.start(request.getHeader(TRACE_HEADER), request.getMethod(), request.getRequestURI());
+        response.setHeader(TRACE_HEADER, trace.getTraceId());
+        QueryTrace previous = QueryTrace.attach(trace);
+        MDC.put("traceId", trace.getTraceId());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            MDC.remove("traceId");
+            QueryTrace.attach(previous);
+            recorder.complete(trace, response.getStatus());
+        }
+    }
+}
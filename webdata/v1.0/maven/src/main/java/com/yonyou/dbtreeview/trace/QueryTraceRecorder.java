@@ -0,0 +1,202 @@
+package com.yonyou.dbtreeview.trace;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 请求追踪记录器
+ * 所有请求只保留摘要；超过慢请求阈值的请求保留完整语句明细，并写入慢请求日志文件
+ */
+@Component
+public class QueryTraceRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryTraceRecorder.class);
+
+    /**
+     * 慢请求日志，可通过logging.level.SLOW_REQUEST单独调整级别
+     */
+    private static final Logger slowLogger = LoggerFactory.getLogger("SLOW_REQUEST");
+
+    @Value("${app.trace.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.trace.slow-threshold-ms:3000}")
+    private long slowThresholdMillis;
+
+    @Value("${app.trace.max-statements:1000}")
+    private int maxStatements;
+
+    @Value("${app.trace.recent-size:200}")
+    private int recentSize;
+
+    @Value("${app.trace.slow-size:100}")
+    private int slowSize;
+
+    @Value("${app.trace.slow-log-file:logs/slow-requests.log}")
+    private String slowLogFile;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Deque<Map<String, Object>> recent = new ArrayDeque<>();
+    private final Deque<Map<String, Object>> slow = new ArrayDeque<>();
+    private final AtomicLong traceCount = new AtomicLong();
+    private final AtomicLong slowCount = new AtomicLong();
+
+    private ExecutorService writer;
+
+    @PostConstruct
+    public void init() {
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "slow-request-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdown();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 开始追踪一个请求
+     *
+     * @param traceId 调用方传入的追踪ID，为空时生成
+     * @param method HTTP方法
+     * @param uri 请求路径
+     * @return 追踪
+     */
+    public QueryTrace start(String traceId, String method, String uri) {
+        String id = traceId != null && !traceId.isEmpty() ? traceId : UUID.randomUUID().toString().replace("-", "");
+        return new QueryTrace(id, method, uri, maxStatements);
+    }
+
+    /**
+     * 请求结束，保存摘要；慢请求额外保存语句明细并写日志
+     *
+     * @param trace 追踪
+     * @param status HTTP状态码
+     */
+    public void complete(QueryTrace trace, int status) {
+        trace.finish(status);
+        traceCount.incrementAndGet();
+        Map<String, Object> summary = trace.toMap(false);
+        synchronized (recent) {
+            recent.addFirst(summary);
+            while (recent.size() > recentSize) {
+                recent.removeLast();
+            }
+        }
+
+        if (trace.getDurationMillis() < slowThresholdMillis) {
+            return;
+        }
+        slowCount.incrementAndGet();
+        Map<String, Object> detail = trace.toMap(true);
+        synchronized (slow) {
+            slow.addFirst(detail);
+            while (slow.size() > slowSize) {
+                slow.removeLast();
+            }
+        }
+        slowLogger.warn("慢请求 traceId={} {} {} 耗时={}ms 语句数={} SQL耗时={}ms",
+                detail.get("traceId"), detail.get("method"), detail.get("uri"), detail.get("durationMillis"),
+                detail.get("statementCount"), detail.get("sqlMillis"));
+        if (slowLogFile != null && !slowLogFile.isEmpty()) {
+            writer.execute(() -> appendSlowLog(detail));
+        }
+    }
+
+    /**
+     * 最近的慢请求（含语句明细），最新的在前
+     */
+    public List<Map<String, Object>> getSlowTraces() {
+        synchronized (slow) {
+            return new ArrayList<>(slow);
+        }
+    }
+
+    /**
+     * 最近的请求摘要，最新的在前
+     */
+    public List<Map<String, Object>> getRecentTraces() {
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+
+    /**
+     * 按追踪ID查找，慢请求返回语句明细，其他请求只有摘要
+     *
+     * @param traceId 追踪ID
+     * @return 追踪，已淘汰时为空
+     */
+    public Map<String, Object> getTrace(String traceId) {
+        Map<String, Object> found = find(slow, traceId);
+        return found != null ? found : find(recent, traceId);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("slowThresholdMillis", slowThresholdMillis);
+        metrics.put("traces", traceCount.get());
+        metrics.put("slowTraces", slowCount.get());
+        return metrics;
+    }
+
+    private Map<String, Object> find(Deque<Map<String, Object>> traces, String traceId) {
+        synchronized (traces) {
+            Iterator<Map<String, Object>> iterator = traces.iterator();
+            while (iterator.hasNext()) {
+                Map<String, Object> trace = iterator.next();
+                if (traceId.equals(trace.get("traceId"))) {
+                    return trace;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void appendSlowLog(Map<String, Object> detail) {
+        File file = new File(slowLogFile);
+        try {
+            if (file.getParentFile() != null) {
+                file.getParentFile().mkdirs();
+            }
+            try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                out.write(objectMapper.writeValueAsString(detail));
+                out.newLine();
+            }
+        } catch (IOException e) {
+            logger.warn("写入慢请求日志失败: {}", e.getMessage());
+        }
+    }
+}
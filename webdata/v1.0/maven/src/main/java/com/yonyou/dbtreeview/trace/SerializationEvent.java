@@ -0,0 +1,42 @@
+package com.yonyou.dbtreeview.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR事件：关联树响应序列化
+ */
+@Name("com.yonyou.dbtreeview.Serialization")
+@Label("响应序列化")
+@Category("DbTreeView")
+@StackTrace(false)
+public class SerializationEvent extends jdk.jfr.Event {
+
+    @Label("格式")
+    private String format;
+
+    @Label("字节数")
+    @DataAmount
+    private long bytes;
+
+    public SerializationEvent(String format) {
+        this.format = format;
+        begin();
+    }
+
+    /**
+     * 结束并提交
+     *
+     * @param bytes 编码后的字节数
+     */
+    public void finish(long bytes) {
+        end();
+        if (shouldCommit()) {
+            this.bytes = bytes;
+            commit();
+        }
+    }
+}
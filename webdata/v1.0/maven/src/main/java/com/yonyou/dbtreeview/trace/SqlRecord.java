@@ -0,0 +1,91 @@
+package com.yonyou.dbtreeview.trace;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一条SQL语句的执行记录
+ * 绑定参数先保存原始引用，只有在输出时才转成字符串，未输出的记录几乎没有额外开销
+ */
+public class SqlRecord {
+
+    /**
+     * 单个参数输出的最大长度
+     */
+    private static final int MAX_PARAM_LENGTH = 200;
+
+    private final String sql;
+    private final Object[] params;
+    private final long offsetMillis;
+    private final String thread;
+
+    private volatile long durationMicros = -1;
+    private volatile long rows = -1;
+    private volatile String error;
+
+    SqlRecord(String sql, Object[] params, long offsetMillis, String thread) {
+        this.sql = sql;
+        this.params = params;
+        this.offsetMillis = offsetMillis;
+        this.thread = thread;
+    }
+
+    /**
+     * 记录执行结果
+     *
+     * @param durationNanos 耗时（纳秒）
+     * @param rows 更新行数，查询语句在读取结果集时累计
+     * @param error 错误信息，成功时为空
+     */
+    void finish(long durationNanos, long rows, String error) {
+        this.durationMicros = TimeUnit.NANOSECONDS.toMicros(durationNanos);
+        this.rows = rows;
+        this.error = error;
+    }
+
+    /**
+     * 结果集每读取一行调用一次
+     */
+    public void addRow() {
+        rows = rows < 0 ? 1 : rows + 1;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("sql", sql);
+        map.put("params", formatParams());
+        map.put("offsetMillis", offsetMillis);
+        map.put("durationMicros", durationMicros);
+        map.put("rows", rows);
+        map.put("thread", thread);
+        if (error != null) {
+            map.put("error", error);
+        }
+        return map;
+    }
+
+    private List<String> formatParams() {
+        List<String> result = new ArrayList<>();
+        if (params == null) {
+            return result;
+        }
+        for (Object param : params) {
+            String text;
+            if (param == null) {
+                text = "NULL";
+            } else if (param instanceof byte[]) {
+                text = "<" + ((byte[]) param).length + " bytes>";
+            } else {
+                text = String.valueOf(param);
+                if (text.length() > MAX_PARAM_LENGTH) {
+                    text = text.substring(0, MAX_PARAM_LENGTH) + "...(" + text.length() + ")";
+                }
+            }
+            result.add(text);
+        }
+        return result;
+    }
+}
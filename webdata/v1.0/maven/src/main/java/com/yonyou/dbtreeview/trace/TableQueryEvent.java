@@ -0,0 +1,78 @@
+package com.yonyou.dbtreeview.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR事件：关联树某一层的查询
+ * 持续时间只包含语句执行，行数在读取结果集时累计，关闭时提交
+ */
+@Name("com.yonyou.dbtreeview.TableQuery")
+@Label("层级查询")
+@Category("DbTreeView")
+@Description("关联树构建或明细查询中对单张表的一次查询")
+@StackTrace(false)
+public class TableQueryEvent extends jdk.jfr.Event implements AutoCloseable {
+
+    public static final String TREE = "tree";
+    public static final String DETAILS = "details";
+
+    @Label("类型")
+    private String kind;
+
+    @Label("表名")
+    private String tableName;
+
+    @Label("行数")
+    private int rowCount;
+
+    private transient boolean executed;
+
+    private TableQueryEvent(String kind, String tableName) {
+        this.kind = kind;
+        this.tableName = tableName;
+    }
+
+    /**
+     * 开始计时
+     *
+     * @param kind 类型（tree、details）
+     * @param tableName 表名
+     * @return 事件，需在try-with-resources中使用
+     */
+    public static TableQueryEvent begin(String kind, String tableName) {
+        TableQueryEvent event = new TableQueryEvent(kind, tableName);
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 语句执行完成，停止计时；之后读取结果集和递归构建子节点的时间不计入
+     */
+    public void executed() {
+        end();
+        executed = true;
+    }
+
+    public void addRow() {
+        rowCount++;
+    }
+
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    @Override
+    public void close() {
+        // 语句执行失败时没有调用executed，以关闭时间为准
+        if (!executed) {
+            end();
+        }
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
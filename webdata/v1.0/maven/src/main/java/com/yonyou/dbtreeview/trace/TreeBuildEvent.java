@@ -0,0 +1,72 @@
+package com.yonyou.dbtreeview.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.function.IntSupplier;
+
+/**
+ * JFR事件：一次关联树构建（单个表单或批量）
+ */
+@Name("com.yonyou.dbtreeview.TreeBuild")
+@Label("关联树构建")
+@Category("DbTreeView")
+@Description("从开始构建到组装完成，包含查询数、行数和节点数")
+@StackTrace(false)
+public class TreeBuildEvent extends jdk.jfr.Event {
+
+    @Label("表单编码")
+    private String billNo;
+
+    @Label("数据库")
+    private String dbName;
+
+    @Label("表单数")
+    private int billCount;
+
+    @Label("显示实体表")
+    private boolean showEntityTables;
+
+    @Label("节点数")
+    private int nodeCount;
+
+    @Label("查询数")
+    private int queryCount;
+
+    @Label("行数")
+    private int rowCount;
+
+    @Label("已截断")
+    private boolean truncated;
+
+    public TreeBuildEvent(String billNo, String dbName, int billCount, boolean showEntityTables) {
+        this.billNo = billNo;
+        this.dbName = dbName;
+        this.billCount = billCount;
+        this.showEntityTables = showEntityTables;
+        begin();
+    }
+
+    /**
+     * 记录构建结果并提交，未启用录制或未达到阈值时不做任何事
+     *
+     * @param nodeCount 节点数，只在需要提交时才计算
+     * @param queryCount 查询数
+     * @param rowCount 行数
+     * @param truncated 是否超出预算
+     */
+    public void finish(IntSupplier nodeCount, int queryCount, int rowCount, boolean truncated) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        this.nodeCount = nodeCount.getAsInt();
+        this.queryCount = queryCount;
+        this.rowCount = rowCount;
+        this.truncated = truncated;
+        commit();
+    }
+}
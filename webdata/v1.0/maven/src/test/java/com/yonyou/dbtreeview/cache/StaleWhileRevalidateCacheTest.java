@@ -0,0 +1,79 @@
+package com.yonyou.dbtreeview.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StaleWhileRevalidateCacheTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentInitialReadsShareOneLoad() throws Exception {
+        StaleWhileRevalidateCache<String> cache = new StaleWhileRevalidateCache<>("test", 60_000, 60_000, executor);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> first = executor.submit(() -> cache.get("k", () -> {
+            loads.incrementAndGet();
+            started.countDown();
+            release.await();
+            return "v";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> second = executor.submit(() -> cache.get("k", () -> {
+            loads.incrementAndGet();
+            return "other";
+        }));
+        release.countDown();
+
+        assertEquals("v", first.get(5, TimeUnit.SECONDS));
+        assertEquals("v", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void failedInitialLoadIsNotCached() throws Exception {
+        StaleWhileRevalidateCache<String> cache = new StaleWhileRevalidateCache<>("test", 60_000, 60_000, executor);
+
+        assertThrows(IllegalStateException.class, () -> cache.get("k", () -> {
+            throw new IllegalStateException("down");
+        }));
+        assertEquals("v", cache.get("k", () -> "v"));
+    }
+
+    @Test
+    void refreshUsesLatestLoader() throws Exception {
+        StaleWhileRevalidateCache<String> cache = new StaleWhileRevalidateCache<>("test", 0, 60_000, executor);
+        cache.get("k", () -> "old");
+        Thread.sleep(5);
+
+        CountDownLatch refreshed = new CountDownLatch(1);
+        // 过期读取返回旧值，后台刷新使用本次传入的加载方式
+        assertEquals("old", cache.get("k", () -> {
+            refreshed.countDown();
+            return "new";
+        }));
+        assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100 && !"new".equals(cache.get("k", () -> "new")); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals("new", cache.get("k", () -> "new"));
+    }
+}
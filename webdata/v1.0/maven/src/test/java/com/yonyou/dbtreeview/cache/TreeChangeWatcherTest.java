@@ -0,0 +1,40 @@
+package com.yonyou.dbtreeview.cache;
+
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TreeChangeWatcherTest {
+
+    private static TreeVariant variant(boolean showEntityTables, TreeWireFormat format) {
+        TreeVariant variant = new TreeVariant("A|" + showEntityTables + "|" + format, "test", "db", "A", "t1",
+                new DbConfigDTO("localhost", "3306", "u", "p"), showEntityTables, format, "1", null);
+        variant.setFingerprint("old");
+        return variant;
+    }
+
+    @Test
+    void staleVariantsAreRebuiltOncePerShape() {
+        TreeChangeWatcher watcher = new TreeChangeWatcher();
+        List<List<TreeVariant>> calls = new ArrayList<>();
+        watcher.setRefreshHandler((variants, fingerprint) -> calls.add(new ArrayList<>(variants)));
+
+        List<TreeVariant> stale = Arrays.asList(
+                variant(false, TreeWireFormat.JSON), variant(false, TreeWireFormat.SMILE),
+                variant(true, TreeWireFormat.JSON), variant(false, TreeWireFormat.CBOR));
+        ReflectionTestUtils.invokeMethod(watcher, "refresh", stale, "new");
+
+        assertEquals(2, calls.size());
+        assertEquals(3, calls.get(0).size());
+        assertEquals(1, calls.get(1).size());
+        for (TreeVariant variant : stale) {
+            assertEquals("new", variant.getFingerprint());
+        }
+    }
+}
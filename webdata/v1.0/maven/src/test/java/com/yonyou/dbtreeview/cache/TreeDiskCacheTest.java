@@ -0,0 +1,190 @@
+package com.yonyou.dbtreeview.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TreeDiskCacheTest {
+
+    private static final String JSON = "application/json;charset=UTF-8";
+
+    @TempDir
+    Path dir;
+
+    private final TreeResponseCache encoder = new TreeResponseCache();
+    private final List<TreeDiskCache> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (TreeDiskCache cache : opened) {
+            cache.shutdown();
+        }
+    }
+
+    private TreeDiskCache open(long segmentBytes) {
+        TreeDiskCache cache = new TreeDiskCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "directory", dir.toString());
+        ReflectionTestUtils.setField(cache, "ttlMillis", 3_600_000L);
+        ReflectionTestUtils.setField(cache, "maxBytes", 1L << 30);
+        ReflectionTestUtils.setField(cache, "segmentBytes", segmentBytes);
+        cache.init();
+        opened.add(cache);
+        return cache;
+    }
+
+    /**
+     * 模拟重启：等待后台写入完成并关闭，再在同一目录上重新打开
+     */
+    private TreeDiskCache restart(TreeDiskCache cache, long segmentBytes) {
+        cache.shutdown();
+        opened.remove(cache);
+        return open(segmentBytes);
+    }
+
+    private TreeResponseCache.CachedResponse response(String scope, String body) throws IOException {
+        return encoder.encode(scope, JSON, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void awaitWrites(TreeDiskCache cache, long writes) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000L;
+        while (((Number) cache.getMetrics().get("writes")).longValue() < writes && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5L);
+        }
+        assertEquals(writes, ((Number) cache.getMetrics().get("writes")).longValue());
+    }
+
+    private static int segmentCount(TreeDiskCache cache) {
+        return ((Number) cache.getMetrics().get("segments")).intValue();
+    }
+
+    @Test
+    void recoversEntriesAfterRestart() throws Exception {
+        TreeDiskCache cache = open(1L << 20);
+        TreeResponseCache.CachedResponse a = response("db1", "{\"bill\":\"A\"}");
+        cache.put("A", a, "1001", "2001", "billtemplate_base:3:2024-01-01;");
+        awaitWrites(cache, 1);
+
+        cache = restart(cache, 1L << 20);
+        TreeDiskCache.StoredResponse stored = cache.get("A");
+        assertNotNull(stored);
+        assertEquals("db1", stored.getScope());
+        assertEquals(JSON, stored.getContentType());
+        assertEquals("1001", stored.getBillId());
+        assertEquals("2001", stored.getFilterId());
+        assertEquals("billtemplate_base:3:2024-01-01;", stored.getFingerprint());
+        assertArrayEquals(a.gzipBytes(), stored.getGzipBody());
+    }
+
+    @Test
+    void entryWithoutFingerprintRecoversWithNullFingerprint() throws Exception {
+        TreeDiskCache cache = open(1L << 20);
+        cache.put("A", response("db1", "A"), "1", null, null);
+        awaitWrites(cache, 1);
+
+        cache = restart(cache, 1L << 20);
+        TreeDiskCache.StoredResponse stored = cache.get("A");
+        assertNotNull(stored);
+        assertNull(stored.getFingerprint());
+        assertNull(stored.getFilterId());
+    }
+
+    @Test
+    void removedEntryStaysRemovedAfterRestart() throws Exception {
+        TreeDiskCache cache = open(1L << 20);
+        cache.put("A", response("db1", "A"), "1", null, null);
+        awaitWrites(cache, 1);
+        cache.remove("A");
+        awaitWrites(cache, 2);
+
+        cache = restart(cache, 1L << 20);
+        assertNull(cache.get("A"));
+    }
+
+    @Test
+    void invalidatedScopeStaysInvalidAfterRestart() throws Exception {
+        TreeDiskCache cache = open(1L << 20);
+        cache.put("A", response("db1", "A"), "1", null, null);
+        cache.put("B", response("db2", "B"), "2", null, null);
+        awaitWrites(cache, 2);
+        cache.invalidate("db1");
+        awaitWrites(cache, 3);
+
+        cache = restart(cache, 1L << 20);
+        assertNull(cache.get("A"));
+        assertNotNull(cache.get("B"));
+    }
+
+    @Test
+    void keepsTombstoneSegmentWhileOlderSegmentHoldsRemovedEntry() throws Exception {
+        // 第一个分段同时保存A和C，C让该分段保持有效
+        TreeDiskCache cache = open(1L << 20);
+        cache.put("A", response("db1", "A"), "1", null, null);
+        cache.put("C", response("db1", "C"), "3", null, null);
+        awaitWrites(cache, 2);
+
+        // 之后每条记录单独一个分段：墓碑在第二个分段，D在第三个分段
+        ReflectionTestUtils.setField(cache, "segmentBytes", 1L);
+        cache.remove("A");
+        cache.put("D", response("db1", "D"), "4", null, null);
+        awaitWrites(cache, 4);
+        assertEquals(3, segmentCount(cache));
+
+        cache = restart(cache, 1L);
+        assertNull(cache.get("A"));
+        assertNotNull(cache.get("C"));
+        assertNotNull(cache.get("D"));
+    }
+
+    @Test
+    void dropsTombstoneSegmentOnceOlderSegmentsAreGone() throws Exception {
+        TreeDiskCache cache = open(1L);
+        cache.put("A", response("db1", "A"), "1", null, null);
+        awaitWrites(cache, 1);
+        cache.remove("A");
+        cache.put("B", response("db1", "B"), "2", null, null);
+        awaitWrites(cache, 3);
+
+        // A所在的分段失效后先删除，随后只剩墓碑的分段也不再需要
+        assertEquals(1, segmentCount(cache));
+        cache = restart(cache, 1L);
+        assertNull(cache.get("A"));
+        assertNotNull(cache.get("B"));
+    }
+
+    @Test
+    void truncatesIncompleteTailRecord() throws Exception {
+        TreeDiskCache cache = open(1L << 20);
+        cache.put("A", response("db1", "A"), "1", null, null);
+        awaitWrites(cache, 1);
+        cache.shutdown();
+        opened.remove(cache);
+
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(path -> path.getFileName().toString().endsWith(".seg")).findFirst().orElse(null);
+        }
+        assertNotNull(segment);
+        long size = Files.size(segment);
+        Files.write(segment, new byte[]{0x54, 0x52, 0x45, 0x45, 0, 0}, StandardOpenOption.APPEND);
+
+        cache = open(1L << 20);
+        assertNotNull(cache.get("A"));
+        assertEquals(size, Files.size(segment));
+    }
+}
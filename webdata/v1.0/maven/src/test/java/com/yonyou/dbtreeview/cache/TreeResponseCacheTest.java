@@ -0,0 +1,54 @@
+package com.yonyou.dbtreeview.cache;
+
+import com.yonyou.dbtreeview.dto.DbConfigDTO;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TreeResponseCacheTest {
+
+    private static DbConfigDTO config(String username) {
+        return new DbConfigDTO("10.0.0.1", "3306", username, "secret");
+    }
+
+    @Test
+    void scopeSeparatesDatabaseUsers() {
+        String reader = TreeResponseCache.scope(config("reader"), "iuap");
+        String admin = TreeResponseCache.scope(config("admin"), "iuap");
+
+        assertNotEquals(reader, admin);
+        assertEquals(reader, TreeResponseCache.scope(config("reader"), "iuap"));
+        assertNotEquals(reader, TreeResponseCache.scope(config("reader"), "other"));
+    }
+
+    @Test
+    void keySeparatesDatabaseUsers() {
+        assertNotEquals(
+                TreeResponseCache.key(config("reader"), "iuap", "B001", "t1", true, TreeWireFormat.JSON),
+                TreeResponseCache.key(config("admin"), "iuap", "B001", "t1", true, TreeWireFormat.JSON));
+    }
+
+    @Test
+    void keyCoversEveryRequestDimension() {
+        DbConfigDTO dbConfig = config("reader");
+        String base = TreeResponseCache.key(dbConfig, "iuap", "B001", "t1", true, TreeWireFormat.JSON);
+
+        assertEquals(base, TreeResponseCache.key(config("reader"), "iuap", "B001", "t1", true, TreeWireFormat.JSON));
+        assertNotEquals(base, TreeResponseCache.key(dbConfig, "iuap", "B002", "t1", true, TreeWireFormat.JSON));
+        assertNotEquals(base, TreeResponseCache.key(dbConfig, "iuap", "B001", "t2", true, TreeWireFormat.JSON));
+        assertNotEquals(base, TreeResponseCache.key(dbConfig, "iuap", "B001", "t1", false, TreeWireFormat.JSON));
+        assertNotEquals(base, TreeResponseCache.key(dbConfig, "iuap", "B001", "t1", true, TreeWireFormat.SMILE));
+        assertNotEquals(base, TreeResponseCache.key(new DbConfigDTO("10.0.0.2", "3306", "reader", "secret"),
+                "iuap", "B001", "t1", true, TreeWireFormat.JSON));
+    }
+
+    @Test
+    void keyStartsWithItsScope() {
+        DbConfigDTO dbConfig = config("reader");
+        String key = TreeResponseCache.key(dbConfig, "iuap", "B001", "t1", true, TreeWireFormat.JSON);
+
+        assertTrue(key.startsWith(TreeResponseCache.scope(dbConfig, "iuap") + "|"));
+    }
+}
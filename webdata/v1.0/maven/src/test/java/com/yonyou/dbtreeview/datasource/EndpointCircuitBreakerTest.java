@@ -0,0 +1,100 @@
+package com.yonyou.dbtreeview.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EndpointCircuitBreakerTest {
+
+    private ScheduledExecutorService scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void connectionFailuresCountAsEndpointFailures() {
+        assertTrue(EndpointCircuitBreaker.isEndpointFailure(new SQLRecoverableException("Communications link failure")));
+        assertTrue(EndpointCircuitBreaker.isEndpointFailure(new SQLTransientConnectionException("pool timeout")));
+        assertTrue(EndpointCircuitBreaker.isEndpointFailure(new SQLException("Communications link failure", "08S01")));
+        assertTrue(EndpointCircuitBreaker.isEndpointFailure(new SQLException("connection refused", "08001")));
+    }
+
+    @Test
+    void timeoutsCancellationsAndStatementErrorsAreNotEndpointFailures() {
+        assertFalse(EndpointCircuitBreaker.isEndpointFailure(new SQLTimeoutException("Statement cancelled due to timeout")));
+        assertFalse(EndpointCircuitBreaker.isEndpointFailure(new SQLException("Query execution was interrupted", "70100")));
+        assertFalse(EndpointCircuitBreaker.isEndpointFailure(new SQLException("Statement cancelled", "S1008")));
+        assertFalse(EndpointCircuitBreaker.isEndpointFailure(new SQLSyntaxErrorException("bad sql", "42000")));
+        assertFalse(EndpointCircuitBreaker.isEndpointFailure(new SQLException("duplicate key", "23000")));
+    }
+
+    @Test
+    void opensAfterConsecutiveConnectionFailures() {
+        EndpointCircuitBreaker breaker = new EndpointCircuitBreaker("db:3306", 3, 60_000L, scheduler);
+        SQLException linkFailure = new SQLException("Communications link failure", "08S01");
+
+        breaker.recordFailure(linkFailure);
+        breaker.recordFailure(linkFailure);
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordFailure(linkFailure);
+        assertFalse(breaker.allowRequest());
+        assertEquals("OPEN", breaker.snapshot().get("state"));
+        assertEquals(1L, breaker.snapshot().get("rejected"));
+    }
+
+    @Test
+    void statementTimeoutsNeverOpenTheBreaker() {
+        EndpointCircuitBreaker breaker = new EndpointCircuitBreaker("db:3306", 2, 60_000L, scheduler);
+        for (int i = 0; i < 10; i++) {
+            breaker.recordFailure(new SQLTimeoutException("Statement cancelled due to timeout"));
+            breaker.recordFailure(new SQLException("Query execution was interrupted", "70100"));
+        }
+        assertTrue(breaker.allowRequest());
+        assertEquals(0, breaker.snapshot().get("consecutiveFailures"));
+    }
+
+    @Test
+    void successResetsConsecutiveFailures() {
+        EndpointCircuitBreaker breaker = new EndpointCircuitBreaker("db:3306", 2, 60_000L, scheduler);
+        SQLException linkFailure = new SQLException("Communications link failure", "08S01");
+
+        breaker.recordFailure(linkFailure);
+        breaker.recordSuccess();
+        breaker.recordFailure(linkFailure);
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void closesAfterSuccessfulProbe() throws InterruptedException {
+        EndpointCircuitBreaker breaker = new EndpointCircuitBreaker("db:3306", 1, 10L, scheduler);
+        breaker.setProbe(() -> true);
+        breaker.recordFailure(new SQLRecoverableException("Communications link failure"));
+        assertFalse(breaker.allowRequest());
+
+        long deadline = System.currentTimeMillis() + 5_000L;
+        while (!"CLOSED".equals(breaker.snapshot().get("state")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertTrue(breaker.allowRequest());
+    }
+}
@@ -0,0 +1,168 @@
+package com.yonyou.dbtreeview.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgedQueryExecutorTest {
+
+    private HedgedQueryExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new HedgedQueryExecutor();
+        ReflectionTestUtils.setField(executor, "maxHedgeRatio", 1.0);
+        ReflectionTestUtils.setField(executor, "minSamples", 0);
+        ReflectionTestUtils.setField(executor, "windowSize", 10);
+        ReflectionTestUtils.setField(executor, "minDelayMillis", 50L);
+        ReflectionTestUtils.setField(executor, "maxThreads", 4);
+        executor.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void fastPrimaryRunsOnCallerConnectionWithoutBorrowing() throws SQLException {
+        // 首次调用有类加载开销，放宽对冲延迟，避免误触发
+        ReflectionTestUtils.setField(executor, "minDelayMillis", 5_000L);
+        FakeConnection caller = new FakeConnection("caller", 0);
+        AtomicInteger borrowed = new AtomicInteger();
+
+        List<Map<String, Object>> rows = executor.query("k", "SELECT 1", Collections.emptyList(), 0,
+                caller.proxy(), () -> {
+                    borrowed.incrementAndGet();
+                    return new FakeConnection("pooled", 0).proxy();
+                });
+
+        assertEquals("caller", rows.get(0).get("v"));
+        assertEquals(0, borrowed.get());
+        assertEquals(0, caller.closed.get());
+    }
+
+    @Test
+    void slowPrimaryIsHedgedOnOneBorrowedConnectionAndCancelled() throws SQLException {
+        FakeConnection caller = new FakeConnection("caller", 10_000);
+        FakeConnection pooled = new FakeConnection("pooled", 0);
+        AtomicInteger borrowed = new AtomicInteger();
+
+        long start = System.currentTimeMillis();
+        List<Map<String, Object>> rows = executor.query("k", "SELECT 1", Collections.emptyList(), 0,
+                caller.proxy(), () -> {
+                    borrowed.incrementAndGet();
+                    return pooled.proxy();
+                });
+
+        assertEquals("pooled", rows.get(0).get("v"));
+        assertEquals(1, borrowed.get());
+        assertEquals(1, caller.cancelled.get());
+        assertEquals(1, pooled.closed.get());
+        assertEquals(0, caller.closed.get());
+        assertTrue(System.currentTimeMillis() - start < 5_000L);
+        assertEquals(1L, executor.getMetrics().get("hedgeWins"));
+    }
+
+    @Test
+    void primaryWinningCancelsHedge() throws Exception {
+        FakeConnection caller = new FakeConnection("caller", 300);
+        FakeConnection pooled = new FakeConnection("pooled", 10_000);
+
+        List<Map<String, Object>> rows = executor.query("k", "SELECT 1", Collections.emptyList(), 0,
+                caller.proxy(), pooled::proxy);
+
+        assertEquals("caller", rows.get(0).get("v"));
+        assertTrue(pooled.cancelledLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(0L, executor.getMetrics().get("hedgeWins"));
+    }
+
+    /**
+     * 模拟连接：每条语句耗时固定，被取消时立即以70100失败
+     */
+    private static class FakeConnection {
+        final String name;
+        final long latencyMillis;
+        final AtomicInteger cancelled = new AtomicInteger();
+        final AtomicInteger closed = new AtomicInteger();
+        final CountDownLatch cancelledLatch = new CountDownLatch(1);
+
+        FakeConnection(String name, long latencyMillis) {
+            this.name = name;
+            this.latencyMillis = latencyMillis;
+        }
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "prepareStatement":
+                                return statement();
+                            case "close":
+                                closed.incrementAndGet();
+                                return null;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private PreparedStatement statement() {
+            CountDownLatch cancel = new CountDownLatch(1);
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "executeQuery":
+                                if (cancel.await(latencyMillis, TimeUnit.MILLISECONDS)) {
+                                    throw new SQLException("Query execution was interrupted", "70100");
+                                }
+                                return resultSet();
+                            case "cancel":
+                                cancelled.incrementAndGet();
+                                cancelledLatch.countDown();
+                                cancel.countDown();
+                                return null;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private ResultSet resultSet() {
+            ResultSetMetaData meta = (ResultSetMetaData) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{ResultSetMetaData.class},
+                    (proxy, method, args) -> "getColumnCount".equals(method.getName()) ? (Object) 1 : "v");
+            AtomicInteger position = new AtomicInteger();
+            return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "next":
+                                return position.incrementAndGet() == 1;
+                            case "getMetaData":
+                                return meta;
+                            case "getString":
+                                return name;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.yonyou.dbtreeview.graph;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RelationGraphTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+
+    private static final String ROOT = "'tenantColumn': 'tenant_id', "
+            + "'root': { 'table': 'bill_base', 'keyColumn': 'cBillNo', 'columns': ['cName'] }";
+
+    private static RelationGraph graph(String edges) throws IOException {
+        return MAPPER.readValue("{" + ROOT + ", 'edges': [" + edges + "]}", RelationGraph.class);
+    }
+
+    private static String edge(String name, String parent, String table, String from) {
+        return "{ 'name': '" + name + "', 'parent': '" + parent + "', 'table': '" + table + "', "
+                + "'join': [ { 'column': 'fk', 'from': '" + from + "' } ] }";
+    }
+
+    @Test
+    void defaultDefinitionCompiles() throws Exception {
+        RelationGraphRegistry registry = new RelationGraphRegistry();
+        ReflectionTestUtils.setField(registry, "resourceLoader", new DefaultResourceLoader());
+        ReflectionTestUtils.setField(registry, "location", "classpath:relation-graph.json");
+        registry.init();
+
+        for (boolean showEntityTables : new boolean[]{false, true}) {
+            RelationGraph graph = registry.getGraph(showEntityTables);
+            assertEquals("bill_base", graph.getRoot().getTable());
+            assertTrue(graph.getSelectColumns(RelationGraph.ROOT).containsAll(Arrays.asList("id", "cBillNo", "cFilterId")));
+            for (RelationEdge edge : graph.getEdges()) {
+                assertTrue(graph.getSelectColumns(edge.getName()).contains(edge.getJoin().get(0).getColumn()));
+            }
+        }
+    }
+
+    @Test
+    void selectColumnsIncludeJoinTreeAndReferencedAncestorColumns() throws Exception {
+        RelationGraph graph = graph(
+                "{ 'name': 'groups', 'parent': 'root', 'table': 'billtplgroup_base', 'treeColumn': 'iParentId', "
+                        + "'join': [ { 'column': 'iBillId', 'from': 'root.id' } ], 'columns': ['ccode'] }, "
+                        + "{ 'name': 'toolbars', 'parent': 'groups', 'table': 'bill_toolbar', "
+                        + "'join': [ { 'column': 'billnumber', 'from': 'root.cBillNo' }, { 'column': 'parent', 'from': 'parent.ccode' } ], "
+                        + "'inherit': { 'filter': 'root.cFilterId' }, "
+                        + "'container': { 'table': '按钮', 'id': 'button_{parent.id}', 'name': '按钮', 'inherit': { 'code': 'groups.cName' } } }");
+        graph.compile("test");
+
+        assertEquals(Arrays.asList("id", "cBillNo", "cName", "cFilterId"),
+                Arrays.asList(graph.getSelectColumns(RelationGraph.ROOT).toArray()));
+        assertTrue(graph.getSelectColumns("groups").containsAll(Arrays.asList("id", "ccode", "iBillId", "iParentId", "cName")));
+        assertTrue(graph.getSelectColumns("toolbars").containsAll(Arrays.asList("id", "billnumber", "parent")));
+        assertEquals("groups", graph.resolveSource(graph.getEdge("toolbars"), RelationGraph.PARENT));
+        assertEquals(Collections.singletonList(graph.getEdge("toolbars")), graph.getChildEdges("groups"));
+        assertNull(graph.getEdge(RelationGraph.ROOT));
+    }
+
+    @Test
+    void rejectsInvalidIdentifier() throws Exception {
+        RelationGraph graph = graph(edge("items", "root", "billitem_base; DROP TABLE x", "root.id"));
+        assertThrows(IllegalArgumentException.class, () -> graph.compile("test"));
+
+        RelationGraph column = graph(edge("items", "root", "billitem_base", "root.`id`"));
+        assertThrows(IllegalArgumentException.class, () -> column.compile("test"));
+    }
+
+    @Test
+    void rejectsParentDefinedLaterOrMissing() throws Exception {
+        RelationGraph later = graph(edge("items", "groups", "billitem_base", "root.id") + ", "
+                + edge("groups", "root", "billtplgroup_base", "root.id"));
+        assertThrows(IllegalArgumentException.class, () -> later.compile("test"));
+
+        RelationGraph missing = graph(edge("items", "nowhere", "billitem_base", "root.id"));
+        assertThrows(IllegalArgumentException.class, () -> missing.compile("test"));
+    }
+
+    @Test
+    void rejectsReferenceToNonAncestor() throws Exception {
+        // items与toolbars是兄弟边，不能引用对方的字段
+        RelationGraph graph = graph(edge("groups", "root", "billtplgroup_base", "root.id") + ", "
+                + edge("toolbars", "groups", "bill_toolbar", "parent.id") + ", "
+                + edge("items", "groups", "billitem_base", "toolbars.id"));
+        assertThrows(IllegalArgumentException.class, () -> graph.compile("test"));
+    }
+
+    @Test
+    void rejectsDuplicateOrReservedEdgeNames() throws Exception {
+        RelationGraph duplicate = graph(edge("groups", "root", "billtplgroup_base", "root.id") + ", "
+                + edge("groups", "root", "billitem_base", "root.id"));
+        assertThrows(IllegalArgumentException.class, () -> duplicate.compile("test"));
+
+        RelationGraph reserved = graph(edge("parent", "root", "billtplgroup_base", "root.id"));
+        assertThrows(IllegalArgumentException.class, () -> reserved.compile("test"));
+    }
+
+    @Test
+    void rejectsMissingJoinAndMalformedExpression() throws Exception {
+        RelationGraph noJoin = graph("{ 'name': 'groups', 'parent': 'root', 'table': 'billtplgroup_base' }");
+        assertThrows(IllegalArgumentException.class, () -> noJoin.compile("test"));
+
+        RelationGraph malformed = graph(edge("groups", "root", "billtplgroup_base", "id"));
+        assertThrows(IllegalArgumentException.class, () -> malformed.compile("test"));
+    }
+
+    @Test
+    void requiresMustNameADirectChildEdge() throws Exception {
+        String groups = "{ 'name': 'groups', 'parent': 'root', 'table': 'billtplgroup_base', 'requires': 'items', "
+                + "'join': [ { 'column': 'iBillId', 'from': 'root.id' } ] }";
+        graph(groups + ", " + edge("items", "groups", "billitem_base", "parent.id")).compile("test");
+
+        RelationGraph missing = graph(groups);
+        assertThrows(IllegalArgumentException.class, () -> missing.compile("test"));
+
+        RelationGraph grandchild = graph(groups + ", " + edge("toolbars", "groups", "bill_toolbar", "parent.id") + ", "
+                + edge("items", "toolbars", "billitem_base", "parent.id"));
+        assertThrows(IllegalArgumentException.class, () -> grandchild.compile("test"));
+    }
+
+    @Test
+    void rejectsGraphWithoutRoot() throws Exception {
+        RelationGraph graph = MAPPER.readValue("{ 'tenantColumn': 'tenant_id', 'edges': [] }", RelationGraph.class);
+        assertThrows(IllegalArgumentException.class, () -> graph.compile("test"));
+    }
+
+    @Test
+    void placeholdersAreExtractedInOrder() {
+        assertEquals(Arrays.asList("parent.id", "root.cBillNo"), RelationGraph.placeholders("b_{parent.id}_{root.cBillNo}"));
+        assertTrue(RelationGraph.placeholders("plain").isEmpty());
+        assertTrue(RelationGraph.placeholders(null).isEmpty());
+    }
+}
@@ -0,0 +1,46 @@
+package com.yonyou.dbtreeview.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarTreeTest {
+
+    @Test
+    void detailsAreEncodedPerNode() {
+        DbTreeNode root = new DbTreeNode("bill_base", "1");
+        root.setAttribute("cBillNo", "A");
+        DbTreeNode child = new DbTreeNode("billtemplate_base", "11");
+        root.addChild(child);
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("cBillNo", "A");
+        data.put("cMemo", null);
+        TableDetailsResponse details = new TableDetailsResponse("billtemplate_base", data);
+        details.setLazyColumns(Collections.singletonMap("cContent", 2048L));
+        child.setDetails(details);
+
+        ColumnarTree tree = ColumnarTree.from(new DbTreeResponse(root));
+
+        assertFalse(tree.getDetails().containsKey(0));
+        int[] pairs = tree.getDetails().get(1);
+        int cBillNo = tree.getDictionary().indexOf("cBillNo");
+        int a = tree.getDictionary().indexOf("A");
+        assertArrayEquals(new int[]{cBillNo, a, tree.getDictionary().indexOf("cMemo"), -1}, pairs);
+        assertEquals(2048L, tree.getLazyColumns().get(1).get("cContent"));
+    }
+
+    @Test
+    void treesWithoutDetailsHaveEmptyColumns() {
+        ColumnarTree tree = ColumnarTree.from(new DbTreeResponse(new DbTreeNode("bill_base", "1")));
+        assertTrue(tree.getDetails().isEmpty());
+        assertTrue(tree.getLazyColumns().isEmpty());
+    }
+}
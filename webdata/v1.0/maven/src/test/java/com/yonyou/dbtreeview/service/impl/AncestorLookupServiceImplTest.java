@@ -0,0 +1,97 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import com.yonyou.dbtreeview.graph.RelationGraph;
+import com.yonyou.dbtreeview.graph.RelationGraphRegistry;
+import com.yonyou.dbtreeview.model.AncestorPath;
+import com.yonyou.dbtreeview.model.DbTreeNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AncestorLookupServiceImplTest {
+
+    private RelationGraph graph;
+    private AncestorLookupServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        RelationGraphRegistry registry = new RelationGraphRegistry();
+        ReflectionTestUtils.setField(registry, "resourceLoader", new DefaultResourceLoader());
+        ReflectionTestUtils.setField(registry, "location", "classpath:relation-graph.json");
+        registry.init();
+        graph = registry.getGraph(false);
+
+        service = new AncestorLookupServiceImpl();
+        ReflectionTestUtils.setField(service, "inSize", 500);
+    }
+
+    /**
+     * 工具栏只记录表单编码和分组编码，分组编码在表单内出现count次
+     */
+    private FakeTreeDatabase fixture(int count) {
+        FakeTreeDatabase db = new FakeTreeDatabase()
+                .insert("bill_base", "id", "1", "cBillNo", "A", "cName", "单据A", "cFilterId", null)
+                .insert("bill_toolbar", "id", "500", "name", "tb", "billnumber", "A", "parent", "g1");
+        for (int i = 1; i <= count; i++) {
+            db.insert("billtemplate_base", "id", "1" + i, "cName", "模板" + i, "iBillId", "1")
+                    .insert("billtplgroup_base", "id", "1" + i + "1", "ccode", "g1", "cName", "分组", "iParentId", null,
+                            "iBillId", "1", "iTplId", "1" + i, "iOrder", "1");
+        }
+        return db;
+    }
+
+    private List<AncestorPath> lookup(FakeTreeDatabase db, TreeBuildContext ctx) throws SQLException {
+        return service.findAncestors(db.connection(), graph, "toolbars", "bill_toolbar",
+                Collections.singletonList("500"), "t1", ctx);
+    }
+
+    @Test
+    void parentQueryFiltersOnAllKnownColumns() throws SQLException {
+        FakeTreeDatabase db = fixture(1);
+        AncestorPath result = lookup(db, new TreeBuildContext(60_000, 100, 1000)).get(0);
+
+        assertTrue(result.isComplete());
+        assertEquals("A", result.getBillNo());
+        List<String> tables = new ArrayList<>();
+        for (DbTreeNode node : result.getPath()) {
+            tables.add(node.getTableName());
+        }
+        assertEquals(Arrays.asList("bill_base", "billtemplate_base", "billtplgroup_base", "按钮", "bill_toolbar"), tables);
+        assertTrue(db.executed.stream().anyMatch(sql -> sql.contains("FROM `billtplgroup_base` WHERE `tenant_id` = ? AND (`iBillId`, `ccode`) IN ((?, ?))")),
+                db.executed.toString());
+    }
+
+    @Test
+    void severalMatchingParentsAreReported() throws SQLException {
+        AncestorPath result = lookup(fixture(2), new TreeBuildContext(60_000, 100, 1000)).get(0);
+
+        assertTrue(result.isFound());
+        assertFalse(result.isComplete());
+        assertTrue(result.isAmbiguous());
+        assertEquals("billtplgroup_base", result.getAmbiguousTable());
+        assertEquals(Arrays.asList("111", "121"), result.getCandidateIds());
+    }
+
+    @Test
+    void exhaustedBudgetMarksPathTruncated() throws SQLException {
+        // 第二条查询用满查询数，读不到根表行
+        AncestorPath result = lookup(fixture(1), new TreeBuildContext(60_000, 2, 1000)).get(0);
+
+        assertTrue(result.isFound());
+        assertFalse(result.isComplete());
+        assertTrue(result.isTruncated());
+        assertFalse(result.isAmbiguous());
+    }
+}
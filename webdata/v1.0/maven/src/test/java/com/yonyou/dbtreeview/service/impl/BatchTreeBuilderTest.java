@@ -0,0 +1,78 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import com.yonyou.dbtreeview.model.DbTreeNode;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchTreeBuilderTest {
+
+    /**
+     * A有模板、分组和3个字段；B只有一个没有分组的模板，不参与分组之后的查询
+     */
+    private FakeTreeDatabase fixture() {
+        return new FakeTreeDatabase()
+                .insert("bill_base", "id", "1", "cBillNo", "A", "cName", "单据A")
+                .insert("bill_base", "id", "2", "cBillNo", "B", "cName", "单据B")
+                .insert("billtemplate_base", "id", "11", "cName", "模板A", "iBillId", "1")
+                .insert("billtemplate_base", "id", "21", "cName", "模板B", "iBillId", "2")
+                .insert("billtplgroup_base", "id", "111", "ccode", "g1", "cName", "分组", "iParentId", null,
+                        "iBillId", "1", "iTplId", "11", "iOrder", "1")
+                .insert("billitem_base", "id", "1111", "cName", "f1", "iBillId", "1", "iBillTplGroupId", "111", "iOrder", "1")
+                .insert("billitem_base", "id", "1112", "cName", "f2", "iBillId", "1", "iBillTplGroupId", "111", "iOrder", "2")
+                .insert("billitem_base", "id", "1113", "cName", "f3", "iBillId", "1", "iBillTplGroupId", "111", "iOrder", "3");
+    }
+
+    @Test
+    void truncationAndCountsArePerBill() throws SQLException {
+        // 根2行、模板2行、分组1行后，字段只能再读1行
+        TreeBuildContext ctx = new TreeBuildContext(60_000, 100, 6);
+        Map<String, DbTreeNode> roots = new BatchTreeBuilder(fixture().connection(), "t1", false, ctx, 100)
+                .build(Arrays.asList("A", "B"));
+
+        assertTrue(ctx.isBillTruncated("A"));
+        assertEquals(true, roots.get("A").getAttribute(TreeBuildContext.TRUNCATED));
+        assertFalse(ctx.isBillTruncated("B"));
+        assertNull(roots.get("B").getAttribute(TreeBuildContext.TRUNCATED));
+
+        // B的模板查出后参与分组查询，但只在根和模板两条查询中各读1行
+        assertEquals(3, ctx.getBillQueryCount("B"));
+        assertEquals(2, ctx.getBillRowCount("B"));
+        assertEquals(4, ctx.getBillQueryCount("A"));
+        assertEquals(4, ctx.getBillRowCount("A"));
+    }
+
+    @Test
+    void billsWhoseRootsWereNotReadAreTruncated() throws SQLException {
+        // 查询数用满后不再读行：A的根查询读到1行，B的根查询读不到行
+        TreeBuildContext ctx = new TreeBuildContext(60_000, 2, 1000);
+        Map<String, DbTreeNode> roots = new BatchTreeBuilder(fixture().connection(), "t1", false, ctx, 1)
+                .build(Arrays.asList("A", "B"));
+
+        assertTrue(roots.containsKey("A"));
+        assertFalse(roots.containsKey("B"));
+        assertTrue(ctx.isBillTruncated("B"));
+        assertTrue(ctx.isBillTruncated("A"));
+    }
+
+    @Test
+    void completeBuildIsNotTruncated() throws SQLException {
+        TreeBuildContext ctx = new TreeBuildContext(60_000, 100, 1000);
+        Map<String, DbTreeNode> roots = new BatchTreeBuilder(fixture().connection(), "t1", false, ctx, 100)
+                .build(Arrays.asList("A", "B"));
+
+        assertFalse(ctx.isTruncated());
+        DbTreeNode group = roots.get("A").getChildren().get(0).getChildren().get(0);
+        assertEquals("111", group.getId());
+        assertEquals(3, group.getChildren().get(0).getChildren().size());
+        // B的模板没有分组，不挂到根节点下
+        assertTrue(roots.get("B").getChildren() == null || roots.get("B").getChildren().isEmpty());
+    }
+}
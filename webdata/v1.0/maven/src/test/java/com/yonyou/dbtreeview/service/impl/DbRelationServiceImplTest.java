@@ -0,0 +1,34 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DbRelationServiceImplTest {
+
+    private static Map<String, Object> row(String id, Object iOrder) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("iOrder", iOrder);
+        return row;
+    }
+
+    @Test
+    void sqlRowsAreOrderedNumerically() {
+        List<Map<String, Object>> rows = new ArrayList<>(Arrays.asList(
+                row("5", 12345678901L), row("4", 2), row("3", -1), row("10", 2), row("2", null), row("1", 10)));
+        rows.sort(DbRelationServiceImpl.SQL_ROW_ORDER);
+
+        List<Object> ids = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            ids.add(row.get("id"));
+        }
+        assertEquals(Arrays.asList("2", "3", "4", "10", "1", "5"), ids);
+    }
+}
@@ -0,0 +1,193 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 测试用的内存数据库，只支持树构建器发出的查询形式：
+ * SELECT 列 FROM 表 WHERE 条件 AND ... [ORDER BY 列]，条件为 col = ?、col IN (?, ...) 或 (a, b) IN ((?, ?), ...)
+ */
+final class FakeTreeDatabase {
+
+    private static final Pattern SELECT = Pattern.compile(
+            "SELECT (.+?) FROM (\\S+)(?: WHERE (.+?))?(?: ORDER BY (\\S+))?", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final Map<String, List<Map<String, String>>> tables = new HashMap<>();
+
+    /**
+     * 执行过的语句
+     */
+    final List<String> executed = new CopyOnWriteArrayList<>();
+
+    /**
+     * 插入一行，参数为交替的列名和值
+     */
+    FakeTreeDatabase insert(String table, String... columnsAndValues) {
+        Map<String, String> row = new LinkedHashMap<>();
+        row.put("tenant_id", "t1");
+        for (int i = 0; i < columnsAndValues.length; i += 2) {
+            row.put(columnsAndValues[i], columnsAndValues[i + 1]);
+        }
+        tables.computeIfAbsent(table, k -> new ArrayList<>()).add(row);
+        return this;
+    }
+
+    Connection connection() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            return statement((String) args[0]);
+                        case "close":
+                            return null;
+                        case "isClosed":
+                            return false;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private PreparedStatement statement(String sql) {
+        Map<Integer, String> params = new HashMap<>();
+        int[] timeout = new int[1];
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setString":
+                            params.put((Integer) args[0], (String) args[1]);
+                            return null;
+                        case "setQueryTimeout":
+                            timeout[0] = (Integer) args[0];
+                            return null;
+                        case "getQueryTimeout":
+                            return timeout[0];
+                        case "setFetchSize":
+                        case "close":
+                            return null;
+                        case "executeQuery":
+                            executed.add(sql);
+                            return execute(sql, params);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private ResultSet execute(String sql, Map<Integer, String> params) throws SQLException {
+        Matcher matcher = SELECT.matcher(sql.trim());
+        if (!matcher.matches()) {
+            throw new SQLException("不支持的语句: " + sql);
+        }
+        List<String> columns = new ArrayList<>();
+        for (String column : matcher.group(1).split(",")) {
+            columns.add(unquote(column));
+        }
+        List<Map<String, String>> rows = new ArrayList<>();
+        int[] next = {1};
+        List<Condition> conditions = new ArrayList<>();
+        if (matcher.group(3) != null) {
+            for (String condition : matcher.group(3).split("(?i) AND ")) {
+                conditions.add(new Condition(condition, params, next));
+            }
+        }
+        for (Map<String, String> row : tables.getOrDefault(unquote(matcher.group(2)), new ArrayList<>())) {
+            if (conditions.stream().allMatch(c -> c.matches(row))) {
+                rows.add(row);
+            }
+        }
+        if (matcher.group(4) != null) {
+            String orderBy = unquote(matcher.group(4));
+            rows.sort(Comparator.comparing((Map<String, String> row) -> row.get(orderBy),
+                    Comparator.nullsFirst(Comparator.comparing(FakeTreeDatabase::sortKey))));
+        }
+        return resultSet(columns, rows);
+    }
+
+    private static Long sortKey(String value) {
+        return Long.parseLong(value);
+    }
+
+    private static String unquote(String name) {
+        return name.trim().replace("`", "");
+    }
+
+    private static ResultSet resultSet(List<String> columns, List<Map<String, String>> rows) {
+        int[] cursor = {-1};
+        ResultSetMetaData meta = (ResultSetMetaData) Proxy.newProxyInstance(FakeTreeDatabase.class.getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return columns.size();
+                        case "getColumnLabel":
+                        case "getColumnName":
+                            return columns.get((Integer) args[0] - 1);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        return (ResultSet) Proxy.newProxyInstance(FakeTreeDatabase.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++cursor[0] < rows.size();
+                        case "getString":
+                        case "getObject":
+                            String column = args[0] instanceof Integer ? columns.get((Integer) args[0] - 1) : (String) args[0];
+                            return rows.get(cursor[0]).get(column);
+                        case "getMetaData":
+                            return meta;
+                        case "close":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * 一个WHERE条件，构造时按出现顺序取走参数
+     */
+    private static class Condition {
+        final List<String> columns = new ArrayList<>();
+        final List<List<String>> values = new ArrayList<>();
+
+        Condition(String text, Map<Integer, String> params, int[] next) {
+            String condition = text.trim();
+            int in = condition.toUpperCase().indexOf(" IN ");
+            String left = in >= 0 ? condition.substring(0, in) : condition.substring(0, condition.indexOf('='));
+            for (String column : left.replace("(", "").replace(")", "").split(",")) {
+                columns.add(unquote(column));
+            }
+            int placeholders = condition.length() - condition.replace("?", "").length();
+            for (int i = 0; i < placeholders / columns.size(); i++) {
+                List<String> tuple = new ArrayList<>();
+                for (int j = 0; j < columns.size(); j++) {
+                    tuple.add(params.get(next[0]++));
+                }
+                values.add(tuple);
+            }
+        }
+
+        boolean matches(Map<String, String> row) {
+            List<String> actual = new ArrayList<>();
+            for (String column : columns) {
+                actual.add(row.get(column));
+            }
+            return values.contains(actual);
+        }
+    }
+}
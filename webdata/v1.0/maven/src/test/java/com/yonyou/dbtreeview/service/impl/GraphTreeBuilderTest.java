@@ -0,0 +1,159 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import com.yonyou.dbtreeview.datasource.HedgedQueryExecutor;
+import com.yonyou.dbtreeview.graph.RelationGraphRegistry;
+import com.yonyou.dbtreeview.model.DbTreeNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GraphTreeBuilderTest {
+
+    private static final List<String> BILLS = Arrays.asList("A", "B", "C");
+
+    private RelationGraphRegistry registry;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        registry = new RelationGraphRegistry();
+        ReflectionTestUtils.setField(registry, "resourceLoader", new DefaultResourceLoader());
+        ReflectionTestUtils.setField(registry, "location", "classpath:relation-graph.json");
+        registry.init();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A：设置了过滤区但没有过滤条件行，一个模板有嵌套分组、工具栏和字段，另一个模板没有分组；
+     * B：与A使用相同的分组编码，有完整的过滤区；C：不存在
+     */
+    private FakeTreeDatabase fixture() {
+        return new FakeTreeDatabase()
+                .insert("bill_base", "id", "1", "cBillNo", "A", "cName", "单据A", "cFilterId", "9")
+                .insert("bill_base", "id", "2", "cBillNo", "B", "cName", "单据B", "cFilterId", "8")
+                .insert("billentity_base", "id", "13", "cName", "实体A", "iBillId", "1")
+                .insert("billentity_base", "id", "23", "cName", "实体B", "iBillId", "2")
+                .insert("billtemplate_base", "id", "11", "cName", "模板A", "iBillId", "1")
+                .insert("billtemplate_base", "id", "12", "cName", "空模板", "iBillId", "1")
+                .insert("billtemplate_base", "id", "21", "cName", "模板B", "iBillId", "2")
+                .insert("billtplgroup_base", "id", "112", "ccode", "g2", "cName", "子分组", "iParentId", "111",
+                        "iBillId", "1", "iTplId", "11", "iBillEntityId", "13", "iOrder", "2")
+                .insert("billtplgroup_base", "id", "111", "ccode", "g1", "cName", "分组", "iParentId", null,
+                        "iBillId", "1", "iTplId", "11", "iBillEntityId", "13", "iOrder", "1")
+                .insert("billtplgroup_base", "id", "211", "ccode", "g1", "cName", "分组B", "iParentId", null,
+                        "iBillId", "2", "iTplId", "21", "iBillEntityId", "23", "iOrder", "1")
+                .insert("billitem_base", "id", "1112", "cName", "f2", "cShowCaption", "字段2", "iBillId", "1",
+                        "iBillTplGroupId", "111", "iOrder", "2")
+                .insert("billitem_base", "id", "1111", "cName", "f1", "cShowCaption", "字段1", "iBillId", "1",
+                        "iBillTplGroupId", "111", "iOrder", "1")
+                .insert("billitem_base", "id", "1121", "cName", "f3", "cShowCaption", "字段3", "iBillId", "1",
+                        "iBillTplGroupId", "112", "iOrder", "1")
+                .insert("bill_toolbar", "id", "300", "name", "tb1", "billnumber", "A", "parent", "g1")
+                .insert("bill_toolbaritem", "id", "400", "name", "i1", "command", "c1", "text", "保存",
+                        "billnumber", "A", "toolbar", "tb1", "order", "1")
+                .insert("bill_toolbaritem", "id", "401", "name", "i2", "command", null, "text", "分隔",
+                        "billnumber", "A", "toolbar", "tb1", "order", "2")
+                .insert("bill_command", "id", "500", "name", "c1", "billnumber", "A")
+                .insert("pb_meta_filters", "id", "8", "filterDesc", "过滤B")
+                .insert("pb_meta_filter_item", "id", "81", "itemTitle", "条件", "filtersId", "8")
+                .insert("pb_filter_solution", "id", "82", "solutionName", "方案", "filtersId", "8")
+                .insert("pb_filter_solution_common", "id", "83", "itemTitle", "常用", "solutionId", "82");
+    }
+
+    private Map<String, DbTreeNode> buildGraph(FakeTreeDatabase db, boolean showEntityTables, TreeBuildContext ctx,
+                                               HedgedQueryExecutor.ConnectionSource source) throws SQLException {
+        return new GraphTreeBuilder(db.connection(), registry.getGraph(showEntityTables), "t1", ctx, 100,
+                source == null ? null : executor, source).build(BILLS);
+    }
+
+    @Test
+    void graphBuilderMatchesJavaBuilder() throws SQLException {
+        for (boolean showEntityTables : new boolean[]{false, true}) {
+            FakeTreeDatabase db = fixture();
+            Map<String, DbTreeNode> expected = new BatchTreeBuilder(db.connection(), "t1", showEntityTables,
+                    new TreeBuildContext(60_000, 1000, 10_000), 100).build(BILLS);
+            Map<String, DbTreeNode> actual = buildGraph(db, showEntityTables, new TreeBuildContext(60_000, 1000, 10_000),
+                    db::connection);
+
+            assertEquals(expected.keySet(), actual.keySet());
+            for (String billNo : expected.keySet()) {
+                assertEquals(describe(expected.get(billNo), ""), describe(actual.get(billNo), ""),
+                        billNo + " showEntityTables=" + showEntityTables);
+            }
+        }
+    }
+
+    @Test
+    void emptyFilterAreaIsKept() throws SQLException {
+        DbTreeNode root = buildGraph(fixture(), false, new TreeBuildContext(60_000, 1000, 10_000), null).get("A");
+        DbTreeNode last = root.getChildren().get(root.getChildren().size() - 1);
+        assertEquals("过滤区", last.getTableName());
+        assertTrue(last.getChildren() == null || last.getChildren().isEmpty());
+    }
+
+    @Test
+    void joinQueriesFilterOnAllJoinColumns() throws SQLException {
+        FakeTreeDatabase db = fixture();
+        buildGraph(db, false, new TreeBuildContext(60_000, 1000, 10_000), null);
+        assertTrue(db.executed.stream().anyMatch(sql -> sql.contains("AND (`iBillId`, `iTplId`) IN ((?, ?)")), db.executed.toString());
+        assertTrue(db.executed.stream().anyMatch(sql -> sql.contains("AND (`billnumber`, `parent`) IN ((?, ?)")), db.executed.toString());
+    }
+
+    @Test
+    void edgesRunOnCallerConnectionWhenNoSecondConnection() throws SQLException {
+        FakeTreeDatabase db = fixture();
+        AtomicInteger attempts = new AtomicInteger();
+        Map<String, DbTreeNode> roots = buildGraph(db, false, new TreeBuildContext(60_000, 1000, 10_000), () -> {
+            attempts.incrementAndGet();
+            throw new SQLException("连接池已满");
+        });
+
+        assertTrue(attempts.get() > 0);
+        Map<String, DbTreeNode> expected = new BatchTreeBuilder(db.connection(), "t1", false,
+                new TreeBuildContext(60_000, 1000, 10_000), 100).build(BILLS);
+        assertEquals(describe(expected.get("B"), ""), describe(roots.get("B"), ""));
+    }
+
+    @Test
+    void templatesAreKeptWhenTheirGroupsWereCut() throws SQLException {
+        // 根和模板查询后预算耗尽，分组边未执行
+        TreeBuildContext ctx = new TreeBuildContext(60_000, 3, 10_000);
+        DbTreeNode root = buildGraph(fixture(), false, ctx, null).get("A");
+
+        DbTreeNode template = root.getChildren().get(0);
+        assertEquals("billtemplate_base", template.getTableName());
+        assertEquals(true, template.getAttribute(TreeBuildContext.TRUNCATED));
+        assertTrue(ctx.isBillTruncated("A"));
+    }
+
+    private static String describe(DbTreeNode node, String indent) {
+        StringBuilder text = new StringBuilder(indent).append(node.getTableName()).append(' ').append(node.getId())
+                .append(' ').append(new TreeMap<>(node.getAttributes())).append('\n');
+        if (node.getChildren() != null) {
+            for (DbTreeNode child : node.getChildren()) {
+                text.append(describe(child, indent + "  "));
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ImportStatementParserTest {
+
+    private static final Set<String> TABLES = new HashSet<>(Arrays.asList("bill_base", "bill_command"));
+
+    @Test
+    void acceptsExportedStatements() throws SQLException {
+        assertEquals("SET NAMES utf8mb4", ImportStatementParser.parse("SET NAMES utf8mb4;\n", TABLES));
+
+        String insert = "INSERT INTO `bill_base` (`id`, `cBillNo`, `cName`, `fRate`, `bData`, `dTs`) VALUES\n"
+                + "(1, 'po_order', 'it\\'s; DROP TABLE x; -- ', -1.5E-3, X'0aFF', NULL),\n"
+                + "(2, 'a''b', '', 0.25, X'', '2024-01-01 00:00:00')\n"
+                + "ON DUPLICATE KEY UPDATE `cBillNo` = VALUES(`cBillNo`), `cName` = VALUES(`cName`);\n";
+        assertEquals(insert.substring(0, insert.lastIndexOf(';')), ImportStatementParser.parse(insert, TABLES));
+    }
+
+    @Test
+    void rejectsSecondStatementOutsideLiterals() {
+        assertRejected("INSERT INTO `bill_base` (`id`) VALUES (1); DROP TABLE x;");
+        assertRejected("INSERT INTO `bill_base` (`id`) VALUES (1);DROP TABLE x;");
+        assertRejected("SET NAMES utf8mb4; DROP TABLE x;");
+        assertRejected("INSERT INTO `bill_base` (`id`) VALUES ('a'); DROP TABLE x; -- ');");
+    }
+
+    @Test
+    void rejectsReadsFromOtherTables() {
+        assertRejected("INSERT INTO `bill_base` (`id`) SELECT id FROM users;");
+        assertRejected("INSERT INTO `bill_base` (`id`) VALUES ((SELECT password FROM users LIMIT 1));");
+        assertRejected("INSERT INTO `bill_base` (`id`) VALUES (LOAD_FILE('/etc/passwd'));");
+        assertRejected("INSERT INTO `bill_base` (`id`) VALUES (1) ON DUPLICATE KEY UPDATE `id` = (SELECT 1);");
+        assertRejected("INSERT INTO `bill_base` (`id`, `cName`) VALUES (1, 2) ON DUPLICATE KEY UPDATE `id` = VALUES(`cName`);");
+    }
+
+    @Test
+    void rejectsOtherStatementsTablesAndSyntax() {
+        assertRejected("DROP TABLE bill_base;");
+        assertRejected("INSERT INTO `users` (`id`) VALUES (1);");
+        assertRejected("INSERT INTO bill_base (`id`) VALUES (1);");
+        assertRejected("INSERT INTO `bill_base` (`id`, `cName`) VALUES (1);");
+        assertRejected("INSERT INTO `bill_base` (`id`) VALUES (1) /*!50000 , (2) */;");
+        assertRejected("INSERT INTO `bill_base` (`id`) VALUES ('unterminated);");
+        assertRejected("INSERT INTO `bill_base` (`id`) VALUES (X'zz');");
+        assertRejected("SET NAMES gbk;");
+        assertRejected("INSERT INTO `bill_base` (`id`) VALUES (1)");
+    }
+
+    private void assertRejected(String sql) {
+        assertThrows(SQLException.class, () -> ImportStatementParser.parse(sql, TABLES), sql);
+    }
+}
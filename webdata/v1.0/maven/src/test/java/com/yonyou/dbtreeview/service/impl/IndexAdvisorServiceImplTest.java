@@ -0,0 +1,87 @@
+package com.yonyou.dbtreeview.service.impl;
+
+import com.yonyou.dbtreeview.graph.RelationGraphRegistry;
+import com.yonyou.dbtreeview.model.StatementPlan;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexAdvisorServiceImplTest {
+
+    private static final IndexAdvisorServiceImpl.AdvisedStatement FILTERS = new IndexAdvisorServiceImpl.AdvisedStatement(
+            "pb_meta_filters", "java", "pb_meta_filters", TreeQueries.FILTERS,
+            new String[]{"filterId", "tenant"}, new String[]{"id", "tenant_id"}, null, "filters", null);
+
+    private static final IndexAdvisorServiceImpl.AdvisedStatement GROUPS = new IndexAdvisorServiceImpl.AdvisedStatement(
+            "billtplgroup_base", "java", "billtplgroup_base", TreeQueries.GROUPS,
+            new String[]{"billId", "tplId", "tenant"}, new String[]{"iBillId", "iTplId", "tenant_id"}, "iOrder", "templates", false);
+
+    private static Map<String, IndexAdvisorServiceImpl.IndexInfo> indexes(Object... nameUniqueColumns) {
+        Map<String, IndexAdvisorServiceImpl.IndexInfo> indexes = new LinkedHashMap<>();
+        for (int i = 0; i < nameUniqueColumns.length; i += 3) {
+            IndexAdvisorServiceImpl.IndexInfo info = new IndexAdvisorServiceImpl.IndexInfo((Boolean) nameUniqueColumns[i + 1]);
+            info.columns.addAll(Arrays.asList((String[]) nameUniqueColumns[i + 2]));
+            indexes.put((String) nameUniqueColumns[i], info);
+        }
+        return indexes;
+    }
+
+    @Test
+    void primaryKeyWithinEqualityColumnsIsEnough() {
+        StatementPlan plan = new StatementPlan();
+        IndexAdvisorServiceImpl.adviseIndex(plan, FILTERS, indexes("PRIMARY", true, new String[]{"id"}));
+
+        assertEquals("PRIMARY", plan.getCoveringIndex());
+        assertNull(plan.getRecommendedIndex());
+    }
+
+    @Test
+    void refAccessWithoutFilesortIsEnough() {
+        StatementPlan plan = new StatementPlan();
+        plan.setAccessType("ref");
+        plan.setKey("idx_tpl");
+        IndexAdvisorServiceImpl.adviseIndex(plan, GROUPS, indexes(
+                "PRIMARY", true, new String[]{"id"},
+                "idx_tpl", false, new String[]{"iTplId", "iBillId"}));
+
+        assertEquals("idx_tpl", plan.getCoveringIndex());
+    }
+
+    @Test
+    void nonUniquePartialIndexWithFilesortNeedsAdvice() {
+        StatementPlan plan = new StatementPlan();
+        plan.setAccessType("ref");
+        plan.setKey("idx_tpl");
+        plan.setFilesort(true);
+        IndexAdvisorServiceImpl.adviseIndex(plan, GROUPS, indexes("idx_tpl", false, new String[]{"iTplId", "iBillId"}));
+
+        assertNull(plan.getCoveringIndex());
+        assertNotNull(plan.getRecommendedIndex());
+        assertTrue(plan.getRecommendedIndex().contains("`iOrder`"));
+    }
+
+    @Test
+    void graphStatementsUseTheBuilderSql() throws IOException {
+        RelationGraphRegistry registry = new RelationGraphRegistry();
+        ReflectionTestUtils.setField(registry, "resourceLoader", new DefaultResourceLoader());
+        ReflectionTestUtils.setField(registry, "location", "classpath:relation-graph.json");
+        registry.init();
+
+        List<IndexAdvisorServiceImpl.AdvisedStatement> statements = IndexAdvisorServiceImpl.graphStatements(registry.getGraph(false));
+        IndexAdvisorServiceImpl.AdvisedStatement toolbars = statements.stream()
+                .filter(s -> s.name.equals("关联图 toolbars")).findFirst().orElseThrow(IllegalStateException::new);
+        assertTrue(toolbars.sql.contains("AND (`billnumber`, `parent`) IN ((?, ?))"), toolbars.sql);
+        assertEquals(Arrays.asList("tenant", "billNo", "ccode"), Arrays.asList(toolbars.params));
+    }
+}
@@ -5,6 +5,22 @@
 // API基础URL
 const API_BASE_URL = 'http://127.0.0.1:9527/api/v1';
 
+// 修改数据后多长时间内加载关联树从主库读取（毫秒），避免读到只读副本上的旧数据
+const READ_YOUR_WRITES_WINDOW_MS = 30000;
+let readYourWritesUntil = 0;
+
+/**
+ * 构建关联树请求的构建选项，刚修改过数据时要求从主库读取
+ *
+ * @returns {Object|undefined} 树构建选项
+ */
+function buildTreeOptions() {
+    if (Date.now() < readYourWritesUntil) {
+        return { readYourWrites: true };
+    }
+    return undefined;
+}
+
 /**
  * 获取API基础URL
  * 
@@ -19,13 +35,19 @@ window.getApiEndpoint = getApiEndpoint;
 window.fetchDbRelationTree = fetchDbRelationTree;
 window.fetchDbRelationTreeWithEntity = fetchDbRelationTreeWithEntity;
 window.fetchTableDetails = fetchTableDetails;
+window.fetchTableColumn = fetchTableColumn;
 window.updateTableData = updateTableData;
 window.saveDbConfigsToServer = saveDbConfigsToServer;
 window.fetchDbConfigsFromServer = fetchDbConfigsFromServer;
 window.fetchDatabaseList = fetchDatabaseList;
 window.fetchBillNoList = fetchBillNoList;
+window.fetchBillComplexity = fetchBillComplexity;
+window.fetchTenantCustomizations = fetchTenantCustomizations;
+window.fetchAncestorPaths = fetchAncestorPaths;
 window.saveQueryHistory = saveQueryHistory;
 window.getQueryHistory = getQueryHistory;
+window.decodeColumnarTree = decodeColumnarTree;
+window.benchmarkTreeFormats = benchmarkTreeFormats;
 
 /**
  * 获取数据库表关联树形结构
@@ -46,7 +68,8 @@ async function fetchDbRelationTree(environment, dbName, billNo, dbConfig, ytenan
             dbName: dbName,
             billNo: billNo,
             ytenant_id: ytenant_id,
-            dbConfig: dbConfig
+            dbConfig: dbConfig,
+            treeOptions: buildTreeOptions()
         };
         
         console.log("请求数据:", requestData);
@@ -102,7 +125,8 @@ async function fetchDbRelationTreeWithEntity(environment, dbName, billNo, dbConf
             dbName: dbName,
             billNo: billNo,
             ytenant_id: ytenant_id,
-            dbConfig: dbConfig
+            dbConfig: dbConfig,
+            treeOptions: buildTreeOptions()
         };
         
         console.log("请求数据(含实体表):", requestData);
@@ -248,6 +272,41 @@ async function fetchTableDetails(param1, param2, param3, param4, param5, param6)
     }
 }
 
+/**
+ * 获取单个字段的内容（表详情中未加载的大字段）
+ * 
+ * @param {Object} requestData 请求数据，包含环境、数据库名称、表名、ID、租户ID、字段名和数据库配置，可选offset和length
+ * @returns {Promise} 返回字段内容及总字节数
+ */
+async function fetchTableColumn(requestData) {
+    try {
+        const url = `${API_BASE_URL}/db-relation/table-column`;
+        
+        const response = await fetch(url, {
+            method: 'POST',
+            headers: {
+                'Content-Type': 'application/json'
+            },
+            body: JSON.stringify(requestData)
+        });
+        
+        if (!response.ok) {
+            throw new Error(`API请求失败: ${response.status}`);
+        }
+        
+        const data = await response.json();
+        
+        if (data.code !== '0000') {
+            throw new Error(data.message || '获取字段内容失败');
+        }
+        
+        return data.data;
+    } catch (error) {
+        console.error('获取字段内容失败:', error);
+        throw error;
+    }
+}
+
 /**
  * 更新表数据
  * 
@@ -305,6 +364,7 @@ async function updateTableData(requestData) {
             throw new Error(data.message || '更新表数据失败');
         }
         
+        readYourWritesUntil = Date.now() + READ_YOUR_WRITES_WINDOW_MS;
         return data;
     } catch (error) {
         console.error('更新表数据失败:', error);
@@ -733,6 +793,145 @@ async function fetchBillNoList(environment, dbName, ytenant_id, dbConfig) {
     }
 }
 
+/**
+ * 获取租户下全部表单的复杂度统计
+ * 
+ * @param {string} environment 环境
+ * @param {string} dbName 数据库名称
+ * @param {string} ytenant_id 租户ID
+ * @param {Object} dbConfig 数据库配置信息
+ * @returns {Promise<Array>} 按估算节点数降序排列的表单复杂度
+ */
+async function fetchBillComplexity(environment, dbName, ytenant_id, dbConfig) {
+    try {
+        const url = `${API_BASE_URL}/db-relation/bill-complexity`;
+        
+        const requestData = {
+            environment: environment,
+            dbName: dbName,
+            ytenant_id: ytenant_id || "0",
+            dbConfig: dbConfig
+        };
+        
+        const response = await fetch(url, {
+            method: 'POST',
+            headers: {
+                'Content-Type': 'application/json'
+            },
+            body: JSON.stringify(requestData)
+        });
+        
+        if (!response.ok) {
+            throw new Error(`API请求失败: ${response.status}`);
+        }
+        
+        const data = await response.json();
+        
+        if (data.code !== '0000' && data.code !== 200) {
+            throw new Error(data.message || '统计表单复杂度失败');
+        }
+        
+        return data.data || [];
+    } catch (error) {
+        console.error('统计表单复杂度失败:', error);
+        throw error;
+    }
+}
+
+/**
+ * 找出定制了表单的租户及其与基础租户的差异
+ * 
+ * @param {string} environment 环境
+ * @param {string} dbName 数据库名称
+ * @param {string} billNo 表单编码
+ * @param {Object} dbConfig 数据库配置信息
+ * @returns {Promise<Object>} 各租户的分组、字段和工具栏差异
+ */
+async function fetchTenantCustomizations(environment, dbName, billNo, dbConfig) {
+    try {
+        const url = `${API_BASE_URL}/db-relation/tenant-customizations`;
+        
+        const requestData = {
+            environment: environment,
+            dbName: dbName,
+            billNo: billNo,
+            dbConfig: dbConfig
+        };
+        
+        const response = await fetch(url, {
+            method: 'POST',
+            headers: {
+                'Content-Type': 'application/json'
+            },
+            body: JSON.stringify(requestData)
+        });
+        
+        if (!response.ok) {
+            throw new Error(`API请求失败: ${response.status}`);
+        }
+        
+        const data = await response.json();
+        
+        if (data.code !== '0000' && data.code !== 200) {
+            throw new Error(data.message || '分析租户定制失败');
+        }
+        
+        return data.data;
+    } catch (error) {
+        console.error('分析租户定制失败:', error);
+        throw error;
+    }
+}
+
+/**
+ * 按行ID反查所属表单，返回从bill_base到该行的节点路径
+ * 
+ * @param {string} environment 环境
+ * @param {string} dbName 数据库名称
+ * @param {string} tableName 表名，如bill_command、billitem_base
+ * @param {string[]} ids 行ID列表
+ * @param {string} ytenant_id 租户ID
+ * @param {Object} dbConfig 数据库配置信息
+ * @returns {Promise<Array>} 每个ID的路径，顺序与ids一致
+ */
+async function fetchAncestorPaths(environment, dbName, tableName, ids, ytenant_id, dbConfig) {
+    try {
+        const url = `${API_BASE_URL}/db-relation/ancestors`;
+        
+        const requestData = {
+            environment: environment,
+            dbName: dbName,
+            tableName: tableName,
+            ids: ids,
+            ytenant_id: ytenant_id,
+            dbConfig: dbConfig
+        };
+        
+        const response = await fetch(url, {
+            method: 'POST',
+            headers: {
+                'Content-Type': 'application/json'
+            },
+            body: JSON.stringify(requestData)
+        });
+        
+        if (!response.ok) {
+            throw new Error(`API请求失败: ${response.status}`);
+        }
+        
+        const data = await response.json();
+        
+        if (data.code !== '0000' && data.code !== 200) {
+            throw new Error(data.message || '反查所属表单失败');
+        }
+        
+        return data.data;
+    } catch (error) {
+        console.error('反查所属表单失败:', error);
+        throw error;
+    }
+}
+
 /**
  * 保存查询历史到localStorage
  * 
@@ -806,4 +1005,98 @@ function getQueryHistory() {
         console.error('获取查询历史失败:', error);
         return [];
     }
-} 
\ No newline at end of file
+} 
+
+/**
+ * 把列式字典编码的关联树还原为DbTreeResponse结构
+ * 
+ * @param {Object} columnar 列式关联树（Accept: application/vnd.dbtree.columnar+json 的data部分）
+ * @returns {Object} 与JSON格式相同的关联树数据
+ */
+function decodeColumnarTree(columnar) {
+    const dict = columnar.dictionary;
+    const lookup = index => (index < 0 ? null : dict[index]);
+    const nodes = new Array(columnar.parents.length);
+    let rootNode = null;
+    
+    // 节点按先序排列，父节点总在子节点之前
+    for (let i = 0; i < nodes.length; i++) {
+        const attributes = {};
+        const pairs = columnar.attributes[i];
+        for (let j = 0; j < pairs.length; j += 2) {
+            attributes[dict[pairs[j]]] = lookup(pairs[j + 1]);
+        }
+        const node = {
+            tableName: lookup(columnar.tableNames[i]),
+            id: lookup(columnar.ids[i]),
+            children: [],
+            attributes: attributes
+        };
+        nodes[i] = node;
+        
+        const parent = columnar.parents[i];
+        if (parent < 0) {
+            rootNode = node;
+        } else {
+            nodes[parent].children.push(node);
+        }
+    }
+    
+    // 补充leaf字段，与JSON格式保持一致
+    nodes.forEach(node => { node.leaf = node.children.length === 0; });
+    
+    return {
+        rootNode: rootNode,
+        truncated: columnar.truncated,
+        queryCount: columnar.queryCount,
+        rowCount: columnar.rowCount,
+        elapsedMillis: columnar.elapsedMillis
+    };
+}
+
+/**
+ * 对比JSON和列式编码两种格式的关联树响应大小和解析耗时（在浏览器控制台调用）
+ * 
+ * @param {string} environment 环境（测试、日常、预发）
+ * @param {string} dbName 数据库名称
+ * @param {string} billNo 表单编码
+ * @param {Object} dbConfig 数据库配置信息
+ * @param {string} ytenant_id 租户ID
+ * @param {number} rounds 每种格式的测试次数
+ * @returns {Promise<Array>} 各格式的响应字节数和平均解析耗时
+ */
+async function benchmarkTreeFormats(environment, dbName, billNo, dbConfig, ytenant_id, rounds = 5) {
+    const url = `${API_BASE_URL}/db-relation/tree`;
+    const body = JSON.stringify({ environment, dbName, billNo, ytenant_id, dbConfig });
+    const formats = [
+        { name: 'json', accept: 'application/json', decode: data => data },
+        { name: 'columnar', accept: 'application/vnd.dbtree.columnar+json', decode: decodeColumnarTree }
+    ];
+    
+    const results = [];
+    for (const format of formats) {
+        let bytes = 0;
+        let parseMillis = 0;
+        for (let i = 0; i < rounds; i++) {
+            const response = await fetch(url, {
+                method: 'POST',
+                headers: { 'Content-Type': 'application/json', 'Accept': format.accept },
+                body: body
+            });
+            const text = await response.text();
+            bytes = new TextEncoder().encode(text).length;
+            
+            const start = performance.now();
+            const data = JSON.parse(text);
+            if (data.code !== '0000') {
+                throw new Error(data.message || '获取数据库关联树失败');
+            }
+            format.decode(data.data);
+            parseMillis += performance.now() - start;
+        }
+        results.push({ format: format.name, bytes: bytes, avgParseMillis: +(parseMillis / rounds).toFixed(2) });
+    }
+    
+    console.table(results);
+    return results;
+}
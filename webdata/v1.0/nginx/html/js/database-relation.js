@@ -15,6 +15,7 @@ const configButton = document.getElementById('configButton');
 const saveConfigButton = document.getElementById('saveConfigButton');
 const closeConfigModal = document.getElementById('closeConfigModal');
 const configModal = document.getElementById('configModal');
+const complexityModal = document.getElementById('complexityModal');
 const loadingIndicator = document.getElementById('loadingIndicator');
 const databaseLoading = document.getElementById('databaseLoading');
 const tableCodeLoading = document.getElementById('tableCodeLoading');
@@ -25,6 +26,9 @@ const nodeDetailContent = document.getElementById('nodeDetailContent');
 // 图表实例
 let myChart = null;
 
+// 表单复杂度图表实例
+let complexityChart = null;
+
 // 数据库列表
 let databaseList = [];
 
@@ -204,6 +208,21 @@ function initEventListeners() {
         }
     });
     
+    // 复杂度按钮点击事件
+    document.getElementById('complexityButton').addEventListener('click', function() {
+        openComplexityModal();
+    });
+    
+    // 关闭复杂度模态框
+    document.getElementById('closeComplexityModal').addEventListener('click', function() {
+        complexityModal.style.display = 'none';
+    });
+    complexityModal.addEventListener('click', function(event) {
+        if (event.target === complexityModal) {
+            complexityModal.style.display = 'none';
+        }
+    });
+    
     // 切换配置标签页
     const configTabs = document.querySelectorAll('.config-tab');
     configTabs.forEach(tab => {
@@ -568,6 +587,11 @@ function renderGraph(data) {
                         tooltip += `<div>表名: ${data.tableName}</div>`;
                     }
                     
+                    // 超出构建预算未完全展开的节点
+                    if (data.attributes && data.attributes.truncated) {
+                        tooltip += `<div style="color:#fbbc04;">未完全展开（超出构建预算）</div>`;
+                    }
+                    
                     return tooltip;
                 }
             },
@@ -895,6 +919,14 @@ function renderGraph(data) {
                         return;
                     }
                     
+                    // 完整模式下构建关联树时已附带整行数据，无需再请求
+                    if (params.data.details) {
+                        nodeDetailsCache.set(cacheKey, params.data.details);
+                        showNodeDetails(params.data.details);
+                        isLoadingNodeDetails = false;
+                        return;
+                    }
+                    
                     // 显示加载提示
                     loadingIndicator.style.display = 'block';
                     loadingIndicator.textContent = '正在加载节点详情...';
@@ -1294,6 +1326,50 @@ function showNodeDetails(details) {
         });
     }
     
+    // 未加载的大字段，点击后按需获取内容
+    if (details.lazyColumns) {
+        Object.entries(details.lazyColumns).forEach(([key, size]) => {
+            const row = document.createElement('tr');
+            
+            const labelCell = document.createElement('th');
+            labelCell.textContent = key;
+            
+            const valueCell = document.createElement('td');
+            if (size === null || size === undefined) {
+                valueCell.textContent = '';
+            } else {
+                const loadLink = document.createElement('a');
+                loadLink.href = 'javascript:void(0)';
+                loadLink.textContent = `加载大字段（${size} 字节）`;
+                loadLink.addEventListener('click', async function() {
+                    loadLink.textContent = '加载中...';
+                    try {
+                        const environment = dbEnvironmentSelect.value;
+                        const column = await window.fetchTableColumn({
+                            environment: environment,
+                            dbName: currentEditingDbName,
+                            tableName: details.tableName,
+                            id: details.data.id,
+                            ytenant_id: document.getElementById('ytenant_id').value.trim() || "0",
+                            columnName: key,
+                            dbConfig: dbConfigs[environment]
+                        });
+                        const text = column.value !== null && column.value !== undefined ? String(column.value) : '';
+                        valueCell.textContent = text;
+                        valueCell.title = text;
+                    } catch (error) {
+                        loadLink.textContent = `加载失败：${error.message}`;
+                    }
+                });
+                valueCell.appendChild(loadLink);
+            }
+            
+            row.appendChild(labelCell);
+            row.appendChild(valueCell);
+            tbody.appendChild(row);
+        });
+    }
+    
     table.appendChild(tbody);
     nodeDetailContent.appendChild(table);
     
@@ -1367,6 +1443,86 @@ function hideConfigModal() {
     configModal.style.display = 'none';
 }
 
+/**
+ * 打开表单复杂度模态框，统计当前数据库和租户下各表单的复杂度
+ */
+async function openComplexityModal() {
+    const environment = dbEnvironmentSelect.value;
+    const dbName = dbNameInput.value.trim();
+    const ytenant_id = document.getElementById('ytenant_id').value.trim() || "0";
+    
+    if (!dbName) {
+        alert('请选择数据库！');
+        dbNameSearchInput.focus();
+        return;
+    }
+    
+    const summary = document.getElementById('complexitySummary');
+    document.getElementById('complexityTitle').textContent = `表单复杂度 - ${dbName}（租户 ${ytenant_id}）`;
+    summary.textContent = '正在统计...';
+    complexityModal.style.display = 'flex';
+    
+    try {
+        const bills = await window.fetchBillComplexity(environment, dbName, ytenant_id, getDbConfig());
+        renderComplexityChart(bills);
+    } catch (error) {
+        summary.textContent = `统计失败: ${error.message}`;
+    }
+}
+
+/**
+ * 用ECharts渲染复杂度最高的表单，点击柱条直接查询该表单的关联树
+ * 
+ * @param {Array} bills 按估算节点数降序排列的表单复杂度
+ */
+function renderComplexityChart(bills) {
+    const topBills = bills.slice(0, 20).reverse();
+    const summary = document.getElementById('complexitySummary');
+    summary.textContent = `共 ${bills.length} 个表单，显示估算节点数最多的 ${topBills.length} 个，点击柱条查询该表单`;
+    
+    const container = document.getElementById('complexityChart');
+    if (!complexityChart) {
+        complexityChart = echarts.init(container);
+        complexityChart.on('click', function(params) {
+            complexityModal.style.display = 'none';
+            selectTableCode(params.name);
+            performSearch();
+        });
+    }
+    
+    const series = [
+        { name: '分组', field: 'groupCount' },
+        { name: '字段', field: 'itemCount' },
+        { name: '按钮', field: 'toolbarItemCount' },
+        { name: '过滤项', field: 'filterItemCount' }
+    ].map(item => ({
+        name: item.name,
+        type: 'bar',
+        stack: 'total',
+        data: topBills.map(bill => bill[item.field])
+    }));
+    
+    complexityChart.setOption({
+        tooltip: {
+            trigger: 'axis',
+            axisPointer: { type: 'shadow' },
+            formatter: function(params) {
+                const bill = topBills[params[0].dataIndex];
+                const lines = params.map(p => `${p.marker}${p.seriesName}: ${p.value}`);
+                return [`${bill.billNo} ${bill.billName || ''}`,
+                    `模板: ${bill.templateCount}，单模板最多分组: ${bill.maxGroupsPerTemplate}，单分组最多字段: ${bill.maxItemsPerGroup}`]
+                    .concat(lines).join('<br/>');
+            }
+        },
+        legend: { textStyle: { color: '#e8eaed' } },
+        grid: { left: 10, right: 20, top: 30, bottom: 10, containLabel: true },
+        xAxis: { type: 'value', axisLabel: { color: '#9aa0a6' } },
+        yAxis: { type: 'category', data: topBills.map(bill => bill.billNo), axisLabel: { color: '#e8eaed' } },
+        series: series
+    }, true);
+    complexityChart.resize();
+}
+
 /**
  * 切换配置标签页
  */
@@ -1453,24 +1609,28 @@ async function saveDbConfigsLocally() {
     // 从表单获取配置
     const configs = {
         test: {
+            ...dbConfigs.test, // 保留表单之外的配置项（如超时设置）
             host: document.getElementById('test-host').value,
             port: document.getElementById('test-port').value,
             username: document.getElementById('test-username').value,
             password: document.getElementById('test-password').value
         },
         daily: {
+            ...dbConfigs.daily, // 保留表单之外的配置项（如超时设置）
             host: document.getElementById('daily-host').value,
             port: document.getElementById('daily-port').value,
             username: document.getElementById('daily-username').value,
             password: document.getElementById('daily-password').value
         },
         pre: {
+            ...dbConfigs.pre, // 保留表单之外的配置项（如超时设置）
             host: document.getElementById('pre-host').value,
             port: document.getElementById('pre-port').value,
             username: document.getElementById('pre-username').value,
             password: document.getElementById('pre-password').value
         },
         other: {
+            ...dbConfigs.other, // 保留表单之外的配置项（如超时设置）
             host: document.getElementById('other-host').value,
             port: document.getElementById('other-port').value,
             username: document.getElementById('other-username').value,
@@ -1669,6 +1829,14 @@ function initializeCharts() {
                         return;
                     }
                     
+                    // 完整模式下构建关联树时已附带整行数据，无需再请求
+                    if (params.data.details) {
+                        nodeDetailsCache.set(cacheKey, params.data.details);
+                        showNodeDetails(params.data.details);
+                        isLoadingNodeDetails = false;
+                        return;
+                    }
+                    
                     // 显示加载提示
                     loadingIndicator.style.display = 'block';
                     loadingIndicator.textContent = '正在加载节点详情...';